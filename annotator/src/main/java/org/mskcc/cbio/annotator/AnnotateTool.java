@@ -10,6 +10,8 @@ import org.apache.commons.io.FileUtils;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.CmdLineException;
 import org.mskcc.cbio.maf.MafHeaderUtil;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
 import org.mskcc.cbio.oncotator.OncotateTool;
 
 /**
@@ -52,6 +54,10 @@ public class AnnotateTool
 					System.out.println("Process completed with " + result + " error(s).");
 				}
 			}
+			else if (new File(config.getInput()).isDirectory())
+			{
+				result = multiFileDriver(config);
+			}
 			else
 			{
 				result = driver(config);
@@ -74,7 +80,12 @@ public class AnnotateTool
 		Date start = new Date();
 		int result = 0;
 
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		Timer.Context timer = metrics.timer("annotator_duration_seconds",
+			"annotator", "maf2maf").start();
+
 		Annotator annotator = new Annotator(config);
+		boolean failed = false;
 
 		try {
 			File inputFile = new File(config.getInput());
@@ -82,6 +93,7 @@ public class AnnotateTool
 
 			System.out.println("[" + start + "] Started annotating: " + config.getInput());
 			result = annotator.annotateFile(inputFile, outputFile);
+			metrics.counter("annotator_input_bytes", "annotator", "maf2maf").inc(inputFile.length());
 			int diff = compareFiles(config.getInput(), config.getOutput());
 
 			if (diff != 0)
@@ -99,7 +111,15 @@ public class AnnotateTool
 		} catch (IOException e) {
 			System.out.println("IO error occurred: " + e.getMessage());
 			e.printStackTrace();
+			failed = true;
 		} finally {
+			timer.stop();
+
+			if (failed || result != 0)
+			{
+				metrics.counter("annotator_failures", "annotator", "maf2maf").inc();
+			}
+
 			Date end = new Date();
 			double timeElapsed = (end.getTime() - start.getTime()) / 1000.0;
 
@@ -110,6 +130,43 @@ public class AnnotateTool
 		return result;
 	}
 
+	/**
+	 * Annotates all MAFs within the input directory, and writes the output
+	 * MAFs into the same relative paths within the output directory.
+	 * In cluster mode each MAF is submitted as a separate cluster job,
+	 * otherwise a bounded number of annotator processes are run on the
+	 * local machine (see AnnotatorPool).
+	 *
+	 * @param config    annotator configuration
+	 * @return          0 if all MAFs are processed, -1 otherwise
+	 */
+	public static int multiFileDriver(AnnotatorConfig config)
+	{
+		MultiFileMaf2Maf annotator;
+
+		if (config.getMode().equals(AnnotatorConfig.DEFAULT_EXECUTION_MODE))
+		{
+			annotator = new MultiFileClusterMaf2Maf(config);
+		}
+		else
+		{
+			annotator = new MultiFileLocalMaf2Maf(config);
+		}
+
+		try
+		{
+			annotator.annotate(config.getInput(), config.getOutput());
+		}
+		catch (IOException e)
+		{
+			System.out.println("IO error occurred: " + e.getMessage());
+			e.printStackTrace();
+			return -1;
+		}
+
+		return 0;
+	}
+
 	/**
 	 * Compare the given 2 files with respect to number of total data lines.
 	 *
@@ -5,12 +5,16 @@ import org.apache.commons.exec.*;
 import org.apache.commons.exec.environment.EnvironmentUtils;
 import org.apache.commons.io.FileUtils;
 import org.mskcc.cbio.maf.*;
+import org.mskcc.cbio.process.ProcessCommand;
+import org.mskcc.cbio.process.ProcessExecutor;
+import org.mskcc.cbio.process.ProcessResult;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 
 /**
  * Main class for adding generic annotations.
@@ -32,6 +36,51 @@ public class Annotator
 			File output) throws IOException
 	{
 		int retVal = -1;
+		Map<String, String> env = this.getEnvironment();
+
+		// script to run depends on the extension
+		if (input.getName().toLowerCase().endsWith(".vcf"))
+		{
+			retVal = this.runVcf2Maf(input, output, env);
+		}
+		// assuming it is a maf..
+		else
+		{
+			if (this.config.getNumShards() > 1)
+			{
+				retVal = this.runShardedMaf2Maf(input, env);
+			}
+			else
+			{
+				retVal = this.runMaf2Maf(input, env);
+			}
+
+			// clean up the temporary files
+			this.cleanUp();
+
+			if (retVal == 0)
+			{
+				// not using the original input anymore, it is not safe to merge line by line
+				// annotator may change both the order of lines and the chromosome position...
+				//mergeWithOriginal(input, output);
+
+				// only keep the comment lines,
+				// assuming that annotator handles everything else
+				this.generateOutput(input, output);
+			}
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Creates the environment for the annotator process.
+	 *
+	 * @return  process environment
+	 * @throws IOException
+	 */
+	protected Map<String, String> getEnvironment() throws IOException
+	{
 		Map<String, String> env = EnvironmentUtils.getProcEnvironment();
 
 		// set additional environment variables (if any)
@@ -60,32 +109,7 @@ public class Annotator
 			EnvironmentUtils.addVariableToEnvironment(env, parts[0] + "=" + pathValue);
 		}
 
-		// script to run depends on the extension
-		if (input.getName().toLowerCase().endsWith(".vcf"))
-		{
-			retVal = this.runVcf2Maf(input, output, env);
-		}
-		// assuming it is a maf..
-		else
-		{
-			retVal = this.runMaf2Maf(input, env);
-
-			// clean up the temporary files
-			this.cleanUp();
-
-			if (retVal == 0)
-			{
-				// not using the original input anymore, it is not safe to merge line by line
-				// annotator may change both the order of lines and the chromosome position...
-				//mergeWithOriginal(input, output);
-
-				// only keep the comment lines,
-				// assuming that annotator handles everything else
-				this.generateOutput(input, output);
-			}
-		}
-
-		return retVal;
+		return env;
 	}
 
 	protected void cleanUp() throws IOException
@@ -221,6 +245,103 @@ public class Annotator
 		}
 	}
 
+	/**
+	 * Splits the input MAF into shards, annotates all shards concurrently,
+	 * and joins the annotated shards (in the original order) into
+	 * the intermediate MAF.
+	 *
+	 * @param input input MAF
+	 * @param env   process environment
+	 * @return      exit value of the first failed shard process, or 0
+	 * @throws IOException
+	 */
+	public int runShardedMaf2Maf(File input, final Map<String, String> env) throws IOException
+	{
+		File shardDir = new File(this.config.getTmpDir(), "shards");
+		MafSharder sharder = new MafSharder();
+		final List<File> shards = sharder.split(input, this.config.getNumShards(), shardDir);
+		List<File> annotated = new ArrayList<File>();
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			final File shard = shards.get(i);
+			final AnnotatorConfig shardConfig = this.config.copy();
+
+			// each shard needs its own intermediate file and tmp dir
+			shardConfig.setNumShards(1);
+			shardConfig.setIntermediateMaf(shard.getAbsolutePath() + ".out");
+			shardConfig.setTmpDir(shard.getAbsolutePath() + "_tmp");
+
+			if (!shardConfig.getOutLog().equals(AnnotatorConfig.DEFAULT_OUT_LOG))
+			{
+				shardConfig.setOutLog(shardConfig.getOutLog() + ".shard" + i);
+			}
+
+			if (!shardConfig.getErrorLog().equals(AnnotatorConfig.DEFAULT_ERR_LOG))
+			{
+				shardConfig.setErrorLog(shardConfig.getErrorLog() + ".shard" + i);
+			}
+
+			annotated.add(new File(shardConfig.getIntermediateMaf()));
+
+			results.add(executor.submit(new Callable<Integer>() {
+				public Integer call() throws IOException
+				{
+					Annotator annotator = new Annotator(shardConfig);
+
+					try
+					{
+						return annotator.runMaf2Maf(shard, env);
+					}
+					finally
+					{
+						annotator.cleanUp();
+					}
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		int retVal = 0;
+
+		for (Future<Integer> result : results)
+		{
+			int exitValue;
+
+			try
+			{
+				exitValue = result.get();
+			}
+			catch (InterruptedException e)
+			{
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				exitValue = -1;
+			}
+			catch (ExecutionException e)
+			{
+				e.printStackTrace();
+				exitValue = -1;
+			}
+
+			if (retVal == 0)
+			{
+				retVal = exitValue;
+			}
+		}
+
+		if (retVal == 0)
+		{
+			sharder.join(annotated, new File(this.config.getIntermediateMaf()));
+		}
+
+		return retVal;
+	}
+
 	public int regularMaf2Maf(File input, Map<String, String> env) throws IOException
 	{
 		CommandLine cmdLine = new CommandLine(this.config.getPerl());
@@ -230,7 +351,8 @@ public class Annotator
 		return execProcess(cmdLine,
 		                   env,
 		                   this.config.getOutLog(),
-		                   this.config.getErrorLog());
+		                   this.config.getErrorLog(),
+		                   this.config.getJobTimeout() * 1000L);
 	}
 
 	public int clusterMaf2Maf(File input, Map<String, String> env) throws IOException
@@ -259,7 +381,8 @@ public class Annotator
 		return execProcess(cmdLine,
 		                   env,
 		                   this.config.getOutLog(),
-		                   this.config.getErrorLog());
+		                   this.config.getErrorLog(),
+		                   this.config.getJobTimeout() * 1000L);
 	}
 
 	public void addMaf2MafArgs(CommandLine cmdLine, File input) throws IOException
@@ -313,7 +436,8 @@ public class Annotator
 		return execProcess(cmdLine,
 		                   env,
 		                   this.config.getOutLog(),
-		                   this.config.getErrorLog());
+		                   this.config.getErrorLog(),
+		                   this.config.getJobTimeout() * 1000L);
 	}
 
 	/**
@@ -330,47 +454,61 @@ public class Annotator
 			String outLog,
 			String errorLog) throws IOException
 	{
-		DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
-		Executor executor = new DefaultExecutor();
+		return execProcess(cmdLine, env, outLog, errorLog, 0);
+	}
 
-		OutputStream outStream = System.out;
-		OutputStream errStream = System.err;
+	/**
+	 * Executes an external process via system call, and kills the process
+	 * if it does not complete within the given time limit.
+	 *
+	 * @param cmdLine   process arguments (including the process itself)
+	 * @param outLog    output log stream
+	 * @param errorLog  error log stream
+	 * @param timeout   time limit in milliseconds (no limit if not positive)
+	 * @return          exit value of the process
+	 * @throws IOException  if an IO error occurs
+	 */
+	public static int execProcess(CommandLine cmdLine,
+			Map<String, String> env,
+			String outLog,
+			String errorLog,
+			long timeout) throws IOException
+	{
+		ProcessCommand command = new ProcessCommand(cmdLine.toStrings());
+		command.setEnvironment(env);
+		command.setTimeout(timeout);
 
-		if (!outLog.equals(AnnotatorConfig.DEFAULT_OUT_LOG))
+		// logs default to the console
+		if (outLog.equals(AnnotatorConfig.DEFAULT_OUT_LOG))
 		{
-			outStream = new FileOutputStream(outLog);
+			command.setOutput(ProcessBuilder.Redirect.INHERIT);
 		}
-
-		if (!errorLog.equals(AnnotatorConfig.DEFAULT_ERR_LOG))
+		else
 		{
-			if (errorLog.equals(outLog))
-			{
-				errStream = outStream;
-			}
-			else
-			{
-				outStream = new FileOutputStream(errorLog);
-			}
+			command.setOutput(ProcessBuilder.Redirect.to(new File(outLog)));
 		}
 
-		//ExecuteWatchdog watchdog = new ExecuteWatchdog(60*1000);
-		//executor.setWatchdog(watchdog);
-		//executor.setExitValue(1);
-
-		executor.setStreamHandler(new PumpStreamHandler(outStream, errStream));
-		executor.execute(cmdLine, env, resultHandler);
-
-		// wait for process to complete
-		try
+		if (errorLog.equals(AnnotatorConfig.DEFAULT_ERR_LOG))
+		{
+			command.setError(ProcessBuilder.Redirect.INHERIT);
+		}
+		else if (errorLog.equals(outLog))
+		{
+			command.setRedirectErrorStream(true);
+		}
+		else
 		{
-			resultHandler.waitFor();
+			command.setError(ProcessBuilder.Redirect.to(new File(errorLog)));
 		}
-		catch (InterruptedException e)
+
+		ProcessResult result = ProcessExecutor.getInstance().execute(command);
+
+		if (result.isTimedOut())
 		{
-			e.printStackTrace();
+			System.out.println("[warning] process killed after " + timeout + " ms: " + command);
 		}
 
-		return resultHandler.getExitValue();
+		return result.getExitCode();
 	}
 
 	protected void outputFileNames(File input, File output)
@@ -40,18 +40,23 @@ public class AnnotatorConfig
 	public static final String DEFAULT_EXECUTION_MODE = "cluster";
 	public static final String DEFAULT_VEP_FORKS = "4";
 	public static final String DEFAULT_CUSTOM_ENST = ".";
+	public static final int DEFAULT_MAX_JOBS = 0;
+	public static final int DEFAULT_JOB_MEMORY = 4096;
+	public static final int DEFAULT_JOB_TIMEOUT = 0;
+	public static final int DEFAULT_JOB_RETRIES = 1;
+	public static final int DEFAULT_NUM_SHARDS = 1;
 
 	// TODO allele count col options?
 
 	@Option(name="-i",
 	        aliases={"--input-file"},
-	        usage="Input filename",
+	        usage="Input filename (or directory of MAFs to annotate)",
 	        required=true)
 	protected String input;
 
 	@Option(name="-o",
 	        aliases={"--output-file"},
-	        usage="Output filename",
+	        usage="Output filename (or directory for the annotated MAFs)",
 	        required=true)
 	protected String output;
 
@@ -82,7 +87,7 @@ public class AnnotatorConfig
 
 	@Option(name="-m",
 			aliases={"--mode"},
-			usage="Execution mode, cluster or regular")
+			usage="Execution mode, cluster or regular (MAFs of an input directory are annotated concurrently on the local machine)")
 	protected String mode = DEFAULT_EXECUTION_MODE;
 
 	@Option(name="-s",
@@ -175,6 +180,31 @@ public class AnnotatorConfig
 			usage="List of custom ENST IDs that override canonical selection")
 	protected String customEnst = DEFAULT_CUSTOM_ENST;
 
+	@Option(name="-mj",
+			aliases={"--max-jobs"},
+			usage="Maximum number of concurrent local annotator jobs (0: size by cores and memory)")
+	protected int maxJobs = DEFAULT_MAX_JOBS;
+
+	@Option(name="-jm",
+			aliases={"--job-memory"},
+			usage="Estimated memory (in MB) required by a single annotator job")
+	protected int jobMemory = DEFAULT_JOB_MEMORY;
+
+	@Option(name="-jt",
+			aliases={"--job-timeout"},
+			usage="Timeout (in seconds) for a single annotator process (0: no timeout)")
+	protected int jobTimeout = DEFAULT_JOB_TIMEOUT;
+
+	@Option(name="-jr",
+			aliases={"--job-retries"},
+			usage="Number of retries for a failed local annotator job")
+	protected int jobRetries = DEFAULT_JOB_RETRIES;
+
+	@Option(name="-ns",
+			aliases={"--num-shards"},
+			usage="Number of shards to split a single input MAF into (annotated concurrently)")
+	protected int numShards = DEFAULT_NUM_SHARDS;
+
 	public AnnotatorConfig copy()
 	{
 		AnnotatorConfig clone = new AnnotatorConfig();
@@ -204,6 +234,11 @@ public class AnnotatorConfig
 		clone.setAnnotator(annotator);
 		clone.setMode(mode);
 		clone.setCustomEnst(customEnst);
+		clone.setMaxJobs(maxJobs);
+		clone.setJobMemory(jobMemory);
+		clone.setJobTimeout(jobTimeout);
+		clone.setJobRetries(jobRetries);
+		clone.setNumShards(numShards);
 
 		return clone;
 	}
@@ -467,5 +502,53 @@ public class AnnotatorConfig
 		this.customEnst = customEnst;
 	}
 
+	public int getMaxJobs()
+	{
+		return maxJobs;
+	}
 
+	public void setMaxJobs(int maxJobs)
+	{
+		this.maxJobs = maxJobs;
+	}
+
+	public int getJobMemory()
+	{
+		return jobMemory;
+	}
+
+	public void setJobMemory(int jobMemory)
+	{
+		this.jobMemory = jobMemory;
+	}
+
+	public int getJobTimeout()
+	{
+		return jobTimeout;
+	}
+
+	public void setJobTimeout(int jobTimeout)
+	{
+		this.jobTimeout = jobTimeout;
+	}
+
+	public int getJobRetries()
+	{
+		return jobRetries;
+	}
+
+	public void setJobRetries(int jobRetries)
+	{
+		this.jobRetries = jobRetries;
+	}
+
+	public int getNumShards()
+	{
+		return numShards;
+	}
+
+	public void setNumShards(int numShards)
+	{
+		this.numShards = numShards;
+	}
 }
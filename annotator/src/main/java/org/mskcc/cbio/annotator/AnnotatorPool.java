@@ -0,0 +1,269 @@
+package org.mskcc.cbio.annotator;
+
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Local scheduler to run several annotator processes concurrently
+ * on a single machine (without requiring a cluster).
+ *
+ * The number of concurrent jobs is bounded by the available cores
+ * and the available physical memory, unless a fixed limit is provided.
+ * Only transient failures (processes killed by a signal, including
+ * timeouts) are retried, other failures would fail again.
+ */
+public class AnnotatorPool
+{
+	// exit values above this are processes terminated by a signal (128 + signal)
+	public static final int SIGNAL_EXIT_VALUE = 128;
+
+	private int poolSize;
+	private int retries;
+
+	public AnnotatorPool(AnnotatorConfig config)
+	{
+		this(calcPoolSize(config), config.getJobRetries());
+	}
+
+	public AnnotatorPool(int poolSize, int retries)
+	{
+		this.poolSize = Math.max(1, poolSize);
+		this.retries = Math.max(0, retries);
+	}
+
+	/**
+	 * Calculates the maximum number of concurrent annotator jobs
+	 * with respect to the number of available cores and memory.
+	 *
+	 * @param config    annotator configuration
+	 * @return          maximum number of concurrent jobs
+	 */
+	public static int calcPoolSize(AnnotatorConfig config)
+	{
+		if (config.getMaxJobs() > 0)
+		{
+			return config.getMaxJobs();
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		int forks = 1;
+
+		try
+		{
+			forks = Math.max(1, Integer.parseInt(config.getVepForks()));
+		}
+		catch (NumberFormatException e)
+		{
+			// use a single fork per job
+		}
+
+		int size = Math.max(1, cores / forks);
+		long memory = totalPhysicalMemory();
+
+		if (memory > 0 && config.getJobMemory() > 0)
+		{
+			long memLimit = memory / (config.getJobMemory() * 1024L * 1024L);
+			size = (int) Math.max(1, Math.min(size, memLimit));
+		}
+
+		return size;
+	}
+
+	/**
+	 * Runs all the given jobs by using a bounded number of threads.
+	 * Transient failures are retried (up to the configured number of retries).
+	 *
+	 * @param jobs  list of annotator jobs
+	 * @return      same list of jobs (in the same order) with their results
+	 */
+	public List<Job> annotateAll(List<Job> jobs)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.min(this.poolSize, Math.max(1, jobs.size())));
+
+		List<Future<Job>> futures = new ArrayList<Future<Job>>();
+
+		for (final Job job : jobs)
+		{
+			futures.add(executor.submit(new Callable<Job>() {
+				public Job call()
+				{
+					return runJob(job);
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		// collect results in the submission order
+		for (Future<Job> future : futures)
+		{
+			try
+			{
+				future.get();
+			}
+			catch (InterruptedException e)
+			{
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return jobs;
+	}
+
+	/**
+	 * Runs a single job, retries on transient failure.
+	 *
+	 * @param job   annotator job
+	 * @return      the given job with its result
+	 */
+	protected Job runJob(Job job)
+	{
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		Timer.Context timer = metrics.timer("annotator_job_duration_seconds").start();
+		long start = System.currentTimeMillis();
+
+		while (job.getAttempts() <= this.retries)
+		{
+			job.attempts++;
+			metrics.counter("annotator_job_attempts").inc();
+
+			try
+			{
+				Annotator annotator = new Annotator(job.getConfig());
+				job.exitValue = annotator.annotateFile(job.getInput(), job.getOutput());
+			}
+			catch (IOException e)
+			{
+				System.out.println("IO error occurred: " + e.getMessage());
+				job.exitValue = -1;
+			}
+
+			if (job.isSuccess())
+			{
+				break;
+			}
+
+			System.out.println("[WARNING] Annotation attempt " + job.getAttempts() +
+			                   " failed for " + job.getInput().getAbsolutePath() +
+			                   " with exit code " + job.getExitValue());
+
+			if (!job.isTransientFailure())
+			{
+				break;
+			}
+		}
+
+		timer.stop();
+		job.elapsed = System.currentTimeMillis() - start;
+
+		if (job.isSuccess())
+		{
+			metrics.counter("annotator_job_input_bytes").inc(job.getInput().length());
+		}
+		else
+		{
+			metrics.counter("annotator_job_failures").inc();
+		}
+
+		return job;
+	}
+
+	private static long totalPhysicalMemory()
+	{
+		OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+		if (bean instanceof com.sun.management.OperatingSystemMXBean)
+		{
+			return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+		}
+
+		return -1;
+	}
+
+	public int getPoolSize()
+	{
+		return poolSize;
+	}
+
+	/**
+	 * A single annotation job (one input file to one output file).
+	 */
+	public static class Job
+	{
+		private AnnotatorConfig config;
+		private File input;
+		private File output;
+
+		private int exitValue = -1;
+		private int attempts = 0;
+		private long elapsed = 0;
+
+		public Job(AnnotatorConfig config)
+		{
+			this.config = config;
+			this.input = new File(config.getInput());
+			this.output = new File(config.getOutput());
+		}
+
+		public boolean isSuccess()
+		{
+			return exitValue == 0;
+		}
+
+		/**
+		 * Checks if the job failed because its process has been killed
+		 * by a signal (by the timeout, or by the OS when out of memory).
+		 *
+		 * @return  true if the failure may not happen on a retry
+		 */
+		public boolean isTransientFailure()
+		{
+			return exitValue > SIGNAL_EXIT_VALUE;
+		}
+
+		public AnnotatorConfig getConfig()
+		{
+			return config;
+		}
+
+		public File getInput()
+		{
+			return input;
+		}
+
+		public File getOutput()
+		{
+			return output;
+		}
+
+		public int getExitValue()
+		{
+			return exitValue;
+		}
+
+		public int getAttempts()
+		{
+			return attempts;
+		}
+
+		public long getElapsed()
+		{
+			return elapsed;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package org.mskcc.cbio.annotator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Designed to annotate all MAF files (with Maf2Maf tool)
+ * within a given directory by running a bounded number of
+ * annotator processes concurrently on the local machine.
+ */
+public class MultiFileLocalMaf2Maf extends MultiFileMaf2Maf
+{
+	public MultiFileLocalMaf2Maf(AnnotatorConfig config)
+	{
+		super(config);
+	}
+
+	public MultiFileLocalMaf2Maf()
+	{
+		super();
+	}
+
+	/**
+	 * Annotates all input MAF files within the given map. Writes output
+	 * MAFs to the mapped directory.
+	 *
+	 * @param map   map of input MAF files to output directories
+	 */
+	protected void annotateAll(Map<File, File> map)
+	{
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+
+		// sort input files to have a deterministic job order
+		for (Map.Entry<File, File> entry : new TreeMap<File, File>(map).entrySet())
+		{
+			File file = entry.getKey();
+			File outDir = entry.getValue();
+			String inputMaf = file.getAbsolutePath();
+			String outputMaf = outDir.getAbsolutePath() + "/" + file.getName();
+			// MAFs of the same output directory may be annotated concurrently,
+			// so each job gets a tmp dir of its own
+			File cache = new File(outDir, "anno_files/" + file.getName());
+			cache.mkdirs();
+
+			AnnotatorConfig config = this.config.copy();
+
+			config.setMode("regular");
+			config.setInput(inputMaf);
+			config.setOutput(outputMaf);
+
+			// override default tmp dir, intermediate file and logs,
+			// concurrent jobs should not share the same files
+			config.setIntermediateMaf(outputMaf + ".tmp");
+			config.setTmpDir(cache.getAbsolutePath());
+
+			if (!config.getOutLog().equals(AnnotatorConfig.DEFAULT_OUT_LOG))
+			{
+				config.setOutLog(outputMaf + ".out.log");
+			}
+
+			if (!config.getErrorLog().equals(AnnotatorConfig.DEFAULT_ERR_LOG))
+			{
+				config.setErrorLog(this.config.getErrorLog().equals(this.config.getOutLog()) ?
+					config.getOutLog() : outputMaf + ".err.log");
+			}
+
+			jobs.add(new AnnotatorPool.Job(config));
+		}
+
+		AnnotatorPool pool = new AnnotatorPool(this.config);
+
+		System.out.println("Annotating " + jobs.size() + " file(s) with " +
+		                   pool.getPoolSize() + " concurrent job(s)");
+
+		for (AnnotatorPool.Job job : pool.annotateAll(jobs))
+		{
+			if (!job.isSuccess())
+			{
+				System.out.println("[ERROR] Process for " + job.getInput().getAbsolutePath() +
+				                   " completed with exit code " + job.getExitValue() +
+				                   " after " + job.getAttempts() + " attempt(s)");
+			}
+		}
+	}
+}
@@ -43,6 +43,16 @@ public class DatabaseUtil
 	    return conn;
     }
 
+	/**
+	 * Replaces the data source (e.g. with an embedded database for testing).
+	 *
+	 * @param dataSource    data source to use for new connections
+	 */
+	public static void setDataSource(BasicDataSource dataSource)
+	{
+		ds = dataSource;
+	}
+
 	/**
 	 * Initializes DB via the BasicDataSource instance.
 	 */
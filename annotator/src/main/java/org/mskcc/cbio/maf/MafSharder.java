@@ -0,0 +1,191 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+ */
+
+package org.mskcc.cbio.maf;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Designed to split a single MAF into several smaller MAFs (shards)
+ * with (almost) equal number of data lines, and to join them back
+ * in the original order.
+ */
+public class MafSharder
+{
+	/**
+	 * Splits the given MAF into the given number of shards. Each shard
+	 * contains the comment lines and the header line of the original MAF.
+	 * Empty lines are excluded from the shards. Shard sizes differ by at
+	 * most one line, the first (numLines % numShards) shards get the
+	 * extra lines.
+	 *
+	 * @param input     input MAF
+	 * @param numShards maximum number of shards
+	 * @param shardDir  directory to write the shards into
+	 * @return          list of shard files in the original order
+	 * @throws IOException
+	 */
+	public List<File> split(File input, int numShards, File shardDir) throws IOException
+	{
+		List<File> shards = new ArrayList<File>();
+		int numLines = this.countDataLines(input);
+
+		// do not create empty shards
+		numShards = Math.max(1, Math.min(numShards, numLines));
+		int linesPerShard = numLines / numShards;
+		int extraLines = numLines % numShards;
+
+		shardDir.mkdirs();
+
+		BufferedReader bufReader = new BufferedReader(new FileReader(input));
+		MafHeaderUtil headerUtil = new MafHeaderUtil();
+		String headerLine = headerUtil.extractHeader(bufReader);
+
+		BufferedWriter writer = null;
+		int count = 0;
+		int shardEnd = 0;
+		String line;
+
+		while ((line = bufReader.readLine()) != null)
+		{
+			// skip empty lines
+			if (line.trim().length() == 0)
+			{
+				continue;
+			}
+
+			if (count == shardEnd)
+			{
+				if (writer != null)
+				{
+					writer.close();
+				}
+
+				shardEnd += linesPerShard + (shards.size() < extraLines ? 1 : 0);
+
+				File shard = new File(shardDir, input.getName() + ".shard" + shards.size());
+				shards.add(shard);
+				writer = this.startShard(shard, headerUtil.getComments(), headerLine);
+			}
+
+			writer.write(line);
+			writer.newLine();
+			count++;
+		}
+
+		// header only input: create a single shard with the header
+		if (writer == null)
+		{
+			File shard = new File(shardDir, input.getName() + ".shard0");
+			shards.add(shard);
+			writer = this.startShard(shard, headerUtil.getComments(), headerLine);
+		}
+
+		writer.close();
+		bufReader.close();
+
+		return shards;
+	}
+
+	/**
+	 * Joins the given MAF shards into a single MAF. Comment lines and
+	 * the header line are copied from the first shard only.
+	 *
+	 * @param shards    list of MAF shards in the original order
+	 * @param output    output MAF
+	 * @throws IOException
+	 */
+	public void join(List<File> shards, File output) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(output));
+
+		for (int i = 0; i < shards.size(); i++)
+		{
+			BufferedReader bufReader = new BufferedReader(new FileReader(shards.get(i)));
+			MafHeaderUtil headerUtil = new MafHeaderUtil();
+			String headerLine = headerUtil.extractHeader(bufReader);
+
+			if (i == 0)
+			{
+				FileIOUtil.writeLines(writer, headerUtil.getComments());
+				writer.write(headerLine);
+				writer.newLine();
+			}
+
+			String line;
+
+			while ((line = bufReader.readLine()) != null)
+			{
+				if (line.trim().length() == 0)
+				{
+					continue;
+				}
+
+				writer.write(line);
+				writer.newLine();
+			}
+
+			bufReader.close();
+		}
+
+		writer.close();
+	}
+
+	/**
+	 * Calculates the total number of non-empty data lines in the given MAF.
+	 *
+	 * @param input input MAF
+	 * @return      total number of data lines
+	 * @throws IOException
+	 */
+	protected int countDataLines(File input) throws IOException
+	{
+		BufferedReader bufReader = new BufferedReader(new FileReader(input));
+		MafHeaderUtil headerUtil = new MafHeaderUtil();
+		headerUtil.extractHeader(bufReader);
+
+		int count = 0;
+		String line;
+
+		while ((line = bufReader.readLine()) != null)
+		{
+			if (line.trim().length() > 0)
+			{
+				count++;
+			}
+		}
+
+		bufReader.close();
+
+		return count;
+	}
+
+	private BufferedWriter startShard(File shard,
+			List<String> comments,
+			String headerLine) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(shard));
+
+		FileIOUtil.writeLines(writer, comments);
+		writer.write(headerLine);
+		writer.newLine();
+
+		return writer;
+	}
+}
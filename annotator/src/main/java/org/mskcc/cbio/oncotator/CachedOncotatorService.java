@@ -17,6 +17,8 @@
 
 package org.mskcc.cbio.oncotator;
 
+import org.mskcc.cbio.metrics.MetricsRegistry;
+
 import java.io.IOException;
 
 /**
@@ -26,6 +28,10 @@ import java.io.IOException;
  */
 public class CachedOncotatorService extends OncotatorService
 {
+	public static final String CACHE_REQUESTS = "oncotator_cache_requests";
+	public static final String CACHE_HIT = "hit";
+	public static final String CACHE_MISS = "miss";
+
 	protected OncotatorCacheService cache;
 
 	/**
@@ -66,6 +72,9 @@ public class CachedOncotatorService extends OncotatorService
 			throw new OncotatorServiceException(e.getMessage());
 		}
 
+		MetricsRegistry.getInstance().counter(CACHE_REQUESTS,
+			"result", (record == null) ? CACHE_MISS : CACHE_HIT).inc();
+
 		// if record is null, then it is not cached yet
 		if (record == null)
 		{
@@ -18,6 +18,8 @@
 package org.mskcc.cbio.oncotator;
 
 import org.mskcc.cbio.annotator.AnnotatorConfig;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
 
 import java.io.*;
 import java.util.Date;
@@ -52,6 +54,10 @@ public class OncotateTool
 		Date start = new Date();
 		int oncoResult = 0;
 
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		Timer.Context timer = metrics.timer("annotator_duration_seconds",
+			"annotator", "oncotator").start();
+
 		Oncotator tool = new Oncotator(!config.isNoCache());
 		tool.setSortColumns(config.isSort());
 		tool.setAddMissingCols(config.isAddMissing());
@@ -67,6 +73,19 @@ public class OncotateTool
 			e.printStackTrace();
 		}
 		finally {
+			timer.stop();
+			metrics.counter("annotator_records", "annotator", "oncotator").inc(
+				tool.getNumRecordsProcessed());
+			metrics.counter("annotator_input_bytes", "annotator", "oncotator").inc(
+				new File(config.getInput()).length());
+
+			if (oncoResult != 0)
+			{
+				metrics.counter("annotator_failures", "annotator", "oncotator").inc();
+			}
+
+			updateCacheHitRatio(metrics);
+
 			Date end = new Date();
 			double timeElapsed = (end.getTime() - start.getTime()) / 1000.0;
 
@@ -84,4 +103,23 @@ public class OncotateTool
 
 		return oncoResult;
 	}
+
+	/**
+	 * Updates the cache hit ratio gauge using the total number of cache
+	 * hits and misses recorded so far.
+	 *
+	 * @param metrics   metrics registry
+	 */
+	public static void updateCacheHitRatio(MetricsRegistry metrics)
+	{
+		long hits = metrics.counter(CachedOncotatorService.CACHE_REQUESTS,
+			"result", CachedOncotatorService.CACHE_HIT).getValue();
+		long misses = metrics.counter(CachedOncotatorService.CACHE_REQUESTS,
+			"result", CachedOncotatorService.CACHE_MISS).getValue();
+
+		if (hits + misses > 0)
+		{
+			metrics.gauge("oncotator_cache_hit_ratio").set(hits / (double) (hits + misses));
+		}
+	}
 }
\ No newline at end of file
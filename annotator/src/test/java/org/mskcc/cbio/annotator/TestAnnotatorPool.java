@@ -0,0 +1,249 @@
+package org.mskcc.cbio.annotator;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the local annotator pool. Uses a fake annotator script
+ * which sleeps for a while and copies its input into the output.
+ */
+public class TestAnnotatorPool extends TestCase
+{
+	private File workDir;
+
+	protected void setUp() throws IOException
+	{
+		workDir = File.createTempFile("annotator_pool", "");
+		workDir.delete();
+		workDir.mkdirs();
+	}
+
+	protected void tearDown() throws IOException
+	{
+		org.apache.commons.io.FileUtils.deleteDirectory(workDir);
+	}
+
+	public void testConcurrentJobs() throws IOException
+	{
+		// each job waits until all 4 jobs have started,
+		// and gives up if they are not running at the same time
+		File barrier = new File(workDir, "barrier");
+		barrier.mkdirs();
+
+		File script = this.writeScript("fake_maf2maf.sh",
+			"touch " + barrier.getAbsolutePath() + "/$$\n" +
+			"i=0\n" +
+			"while [ $(ls " + barrier.getAbsolutePath() + " | wc -l) -lt 4 ]; do\n" +
+			"  i=$((i+1))\n" +
+			"  [ $i -gt 300 ] && exit 2\n" +
+			"  sleep 0.1\n" +
+			"done\n" +
+			"cp \"$IN\" \"$OUT\"\n");
+
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+
+		for (int i = 0; i < 4; i++)
+		{
+			jobs.add(new AnnotatorPool.Job(this.createConfig(script, "maf_" + i, i + 1)));
+		}
+
+		List<AnnotatorPool.Job> results = new AnnotatorPool(4, 0).annotateAll(jobs);
+
+		assertEquals(4, results.size());
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			AnnotatorPool.Job job = results.get(i);
+
+			// results should be collected in the original order
+			assertEquals(jobs.get(i), job);
+			assertTrue(job.isSuccess());
+			assertEquals(1, job.getAttempts());
+			assertEquals(i + 1, AnnotateTool.calcLineCount(job.getOutput().getAbsolutePath()));
+		}
+	}
+
+	public void testMaxConcurrentJobs() throws IOException
+	{
+		// each job records the number of jobs running along with itself
+		File running = new File(workDir, "running");
+		File counts = new File(workDir, "counts");
+		running.mkdirs();
+
+		File script = this.writeScript("counting_maf2maf.sh",
+			"touch " + running.getAbsolutePath() + "/$$\n" +
+			"ls " + running.getAbsolutePath() + " | wc -l >> " + counts.getAbsolutePath() + "\n" +
+			"sleep 0.2\n" +
+			"rm " + running.getAbsolutePath() + "/$$\n" +
+			"cp \"$IN\" \"$OUT\"\n");
+
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+
+		for (int i = 0; i < 6; i++)
+		{
+			jobs.add(new AnnotatorPool.Job(this.createConfig(script, "maf_" + i, 1)));
+		}
+
+		for (AnnotatorPool.Job job : new AnnotatorPool(2, 0).annotateAll(jobs))
+		{
+			assertTrue(job.isSuccess());
+		}
+
+		List<String> lines = org.apache.commons.io.FileUtils.readLines(counts);
+		assertEquals(6, lines.size());
+
+		for (String line : lines)
+		{
+			assertTrue(line, Integer.parseInt(line.trim()) <= 2);
+		}
+	}
+
+	public void testRetryOnFailure() throws IOException
+	{
+		// killed on the first attempt, succeeds on the second one
+		File marker = new File(workDir, "marker");
+		File script = this.writeScript("flaky_maf2maf.sh",
+			"if [ ! -f " + marker.getAbsolutePath() + " ]; then\n" +
+			"  touch " + marker.getAbsolutePath() + "\n" +
+			"  kill -9 $$\n" +
+			"fi\n" +
+			"cp \"$IN\" \"$OUT\"\n");
+
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+		jobs.add(new AnnotatorPool.Job(this.createConfig(script, "flaky", 3)));
+
+		AnnotatorPool.Job job = new AnnotatorPool(1, 1).annotateAll(jobs).get(0);
+
+		assertTrue(job.isSuccess());
+		assertEquals(2, job.getAttempts());
+		assertEquals(3, AnnotateTool.calcLineCount(job.getOutput().getAbsolutePath()));
+	}
+
+	public void testNoRetryOnError() throws IOException
+	{
+		// an error exit would fail again
+		File script = this.writeScript("broken_maf2maf.sh",
+			"exit 2\n");
+
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+		jobs.add(new AnnotatorPool.Job(this.createConfig(script, "broken", 3)));
+
+		AnnotatorPool.Job job = new AnnotatorPool(1, 3).annotateAll(jobs).get(0);
+
+		assertFalse(job.isSuccess());
+		assertFalse(job.isTransientFailure());
+		assertEquals(2, job.getExitValue());
+		assertEquals(1, job.getAttempts());
+	}
+
+	public void testLocalMaf2MafTmpDirs() throws IOException
+	{
+		// fails if another job uses the same tmp dir at the same time
+		File script = this.writeScript("exclusive_maf2maf.sh",
+			"mkdir -p \"$TMP\"\n" +
+			"mkdir \"$TMP/lock\" || exit 2\n" +
+			"sleep 1\n" +
+			"cp \"$IN\" \"$OUT\"\n" +
+			"rmdir \"$TMP/lock\"\n");
+
+		File sourceDir = new File(workDir, "source");
+		File targetDir = new File(workDir, "target");
+		AnnotatorConfig config = this.createConfig(script, "source/study", 2);
+		File input = new File(config.getInput());
+		File other = new File(input.getParentFile(), "other_data_mutations_extended.txt");
+		org.apache.commons.io.FileUtils.copyFile(input, other);
+
+		config.setMaxJobs(2);
+		config.setJobRetries(0);
+		new MultiFileLocalMaf2Maf(config).annotate(sourceDir.getAbsolutePath(), targetDir.getAbsolutePath());
+
+		for (File maf : new File[] {input, other})
+		{
+			File output = new File(targetDir, "study/" + maf.getName());
+			assertTrue(output.getPath(), output.exists());
+			assertEquals(2, AnnotateTool.calcLineCount(output.getAbsolutePath()));
+		}
+	}
+
+	public void testTimeout() throws IOException
+	{
+		// only reached if the job is not killed
+		File finished = new File(workDir, "finished");
+		File script = this.writeScript("slow_maf2maf.sh",
+			"sleep 30\n" +
+			"touch " + finished.getAbsolutePath() + "\n" +
+			"cp \"$IN\" \"$OUT\"\n");
+
+		AnnotatorConfig config = this.createConfig(script, "slow", 2);
+		config.setJobTimeout(1);
+
+		List<AnnotatorPool.Job> jobs = new ArrayList<AnnotatorPool.Job>();
+		jobs.add(new AnnotatorPool.Job(config));
+
+		AnnotatorPool.Job job = new AnnotatorPool(1, 1).annotateAll(jobs).get(0);
+
+		assertFalse(job.isSuccess());
+		assertEquals(2, job.getAttempts());
+		assertFalse(finished.exists());
+		assertFalse(job.getOutput().exists());
+	}
+
+	private AnnotatorConfig createConfig(File script, String name, int numRecords)
+		throws IOException
+	{
+		File dir = new File(workDir, name);
+		dir.mkdirs();
+
+		File input = new File(dir, "data_mutations_extended.txt");
+		FileWriter writer = new FileWriter(input);
+
+		writer.write("#version 2.4\n");
+		writer.write("Hugo_Symbol\tEntrez_Gene_Id\tChromosome\tStart_Position\n");
+
+		for (int i = 0; i < numRecords; i++)
+		{
+			writer.write("GENE" + i + "\t" + i + "\t1\t" + (1000 + i) + "\n");
+		}
+
+		writer.close();
+
+		AnnotatorConfig config = new AnnotatorConfig();
+
+		config.setMode("regular");
+		config.setPerl("sh");
+		config.setMaf2maf(script.getAbsolutePath());
+		config.setInput(input.getAbsolutePath());
+		config.setOutput(new File(dir, "output.txt").getAbsolutePath());
+		config.setIntermediateMaf(new File(dir, "output.txt.tmp").getAbsolutePath());
+		config.setTmpDir(new File(dir, "anno_files").getAbsolutePath());
+
+		return config;
+	}
+
+	private File writeScript(String name, String body) throws IOException
+	{
+		File script = new File(workDir, name);
+		FileWriter writer = new FileWriter(script);
+
+		writer.write("#!/bin/sh\n");
+		writer.write("while [ $# -gt 0 ]; do\n");
+		writer.write("  case \"$1\" in\n");
+		writer.write("    --input-maf) IN=\"$2\"; shift;;\n");
+		writer.write("    --output-maf) OUT=\"$2\"; shift;;\n");
+		writer.write("    --tmp-dir) TMP=\"$2\"; shift;;\n");
+		writer.write("  esac\n");
+		writer.write("  shift\n");
+		writer.write("done\n");
+		writer.write(body);
+		writer.close();
+
+		script.setExecutable(true);
+
+		return script;
+	}
+}
@@ -0,0 +1,170 @@
+package org.mskcc.cbio.maf;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.annotator.Annotator;
+import org.mskcc.cbio.annotator.AnnotatorConfig;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for splitting a MAF into shards and annotating the shards
+ * concurrently with a stub annotator command.
+ */
+public class TestMafSharder extends TestCase
+{
+	private File workDir;
+
+	protected void setUp() throws IOException
+	{
+		workDir = File.createTempFile("maf_sharder", "");
+		workDir.delete();
+		workDir.mkdirs();
+	}
+
+	protected void tearDown() throws IOException
+	{
+		org.apache.commons.io.FileUtils.deleteDirectory(workDir);
+	}
+
+	public void testSplitAndJoin() throws IOException
+	{
+		File input = this.writeMaf("input.txt", 10);
+		MafSharder sharder = new MafSharder();
+
+		List<File> shards = sharder.split(input, 3, new File(workDir, "shards"));
+
+		// 10 lines into 3 shards: 4 + 3 + 3
+		assertEquals(3, shards.size());
+		assertEquals(4, this.dataLines(shards.get(0)).size());
+		assertEquals(3, this.dataLines(shards.get(1)).size());
+		assertEquals(3, this.dataLines(shards.get(2)).size());
+
+		// every shard keeps the header
+		for (File shard : shards)
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(shard));
+			MafHeaderUtil headerUtil = new MafHeaderUtil();
+			assertEquals(this.headerLine(), headerUtil.extractHeader(reader));
+			assertEquals(1, headerUtil.getComments().size());
+			reader.close();
+		}
+
+		File joined = new File(workDir, "joined.txt");
+		sharder.join(shards, joined);
+
+		assertEquals(this.dataLines(input), this.dataLines(joined));
+	}
+
+	public void testBalancedShards() throws IOException
+	{
+		File input = this.writeMaf("input.txt", 9);
+		List<File> shards = new MafSharder().split(input, 4, new File(workDir, "shards"));
+
+		// 9 lines into 4 shards: 3 + 2 + 2 + 2, no shard is left out
+		assertEquals(4, shards.size());
+		assertEquals(3, this.dataLines(shards.get(0)).size());
+		assertEquals(2, this.dataLines(shards.get(1)).size());
+		assertEquals(2, this.dataLines(shards.get(2)).size());
+		assertEquals(2, this.dataLines(shards.get(3)).size());
+	}
+
+	public void testMoreShardsThanLines() throws IOException
+	{
+		File input = this.writeMaf("small.txt", 2);
+		List<File> shards = new MafSharder().split(input, 8, new File(workDir, "shards"));
+
+		assertEquals(2, shards.size());
+	}
+
+	public void testShardedAnnotation() throws IOException
+	{
+		File input = this.writeMaf("data_mutations_extended.txt", 25);
+		File output = new File(workDir, "output.txt");
+
+		// stub annotator: copies its input into the output
+		File script = new File(workDir, "stub_maf2maf.sh");
+		FileWriter writer = new FileWriter(script);
+		writer.write("#!/bin/sh\n");
+		writer.write("while [ $# -gt 0 ]; do\n");
+		writer.write("  case \"$1\" in\n");
+		writer.write("    --input-maf) IN=\"$2\"; shift;;\n");
+		writer.write("    --output-maf) OUT=\"$2\"; shift;;\n");
+		writer.write("  esac\n");
+		writer.write("  shift\n");
+		writer.write("done\n");
+		writer.write("cp \"$IN\" \"$OUT\"\n");
+		writer.close();
+
+		AnnotatorConfig config = new AnnotatorConfig();
+		config.setMode("regular");
+		config.setPerl("sh");
+		config.setMaf2maf(script.getAbsolutePath());
+		config.setInput(input.getAbsolutePath());
+		config.setOutput(output.getAbsolutePath());
+		config.setIntermediateMaf(new File(workDir, "intermediate.txt").getAbsolutePath());
+		config.setTmpDir(new File(workDir, "anno_files").getAbsolutePath());
+		config.setNumShards(4);
+
+		int result = new Annotator(config).annotateFile(input, output);
+
+		assertEquals(0, result);
+
+		// data lines should be in the original order
+		assertEquals(this.dataLines(input), this.dataLines(output));
+
+		// shards should be cleaned up
+		assertFalse(new File(config.getTmpDir(), "shards").exists());
+	}
+
+	private String headerLine()
+	{
+		return "Hugo_Symbol\tEntrez_Gene_Id\tChromosome\tStart_Position";
+	}
+
+	private File writeMaf(String name, int numRecords) throws IOException
+	{
+		File maf = new File(workDir, name);
+		FileWriter writer = new FileWriter(maf);
+
+		writer.write("#version 2.4\n");
+		writer.write(this.headerLine() + "\n");
+
+		for (int i = 0; i < numRecords; i++)
+		{
+			writer.write("GENE" + i + "\t" + i + "\t1\t" + (1000 + i) + "\n");
+
+			// empty lines should be ignored
+			if (i % 4 == 0)
+			{
+				writer.write("\n");
+			}
+		}
+
+		writer.close();
+
+		return maf;
+	}
+
+	private List<String> dataLines(File maf) throws IOException
+	{
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(maf));
+		new MafHeaderUtil().extractHeader(reader);
+
+		String line;
+
+		while ((line = reader.readLine()) != null)
+		{
+			if (line.trim().length() > 0)
+			{
+				lines.add(line);
+			}
+		}
+
+		reader.close();
+
+		return lines;
+	}
+}
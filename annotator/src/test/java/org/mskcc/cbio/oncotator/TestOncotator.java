@@ -21,6 +21,7 @@ import junit.framework.TestCase;
 import org.mskcc.cbio.maf.MafHeaderUtil;
 import org.mskcc.cbio.maf.MafRecord;
 import org.mskcc.cbio.maf.MafUtil;
+import org.mskcc.cbio.metrics.MetricsRegistry;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -207,6 +208,37 @@ public class TestOncotator extends TestCase
 
 	}
 
+	/**
+	 * Tests the cache hit ratio metric of the cached service.
+	 */
+	public void testCacheHitRatio() throws Exception
+	{
+		MetricsRegistry registry = MetricsRegistry.getInstance();
+		registry.clear();
+
+		CachedOncotatorService service = new CachedOncotatorService(new HashCacheService()) {
+			protected OncotatorRecord getRecordFromService(String key)
+			{
+				return new OncotatorRecord(key);
+			}
+		};
+
+		service.getOncotatorRecord("11_56258437_56258437_T_C");
+		service.getOncotatorRecord("1_1_1_A_C");
+		service.getOncotatorRecord("1_1_1_A_C");
+		service.getOncotatorRecord("11_56258437_56258437_T_C");
+
+		OncotateTool.updateCacheHitRatio(registry);
+
+		assertEquals(3, registry.counter(CachedOncotatorService.CACHE_REQUESTS,
+			"result", CachedOncotatorService.CACHE_HIT).getValue());
+		assertEquals(1, registry.counter(CachedOncotatorService.CACHE_REQUESTS,
+			"result", CachedOncotatorService.CACHE_MISS).getValue());
+		assertEquals(0.75, registry.gauge("oncotator_cache_hit_ratio").getValue(), 0.0001);
+
+		registry.clear();
+	}
+
 	private void oncotate(File input,
 			File output,
 			boolean useCache,
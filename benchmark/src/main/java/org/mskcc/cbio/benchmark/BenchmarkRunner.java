@@ -0,0 +1,64 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the pipeline benchmarks and writes the results as JSON,
+ * so that results of different runs can be compared over time.
+ */
+public class BenchmarkRunner
+{
+	public static final String DEFAULT_RESULTS_FILE = "benchmark-results.json";
+
+	/**
+	 * Arguments (all optional):
+	 *  1) results file (JSON).
+	 *  2) regular expression to select the benchmarks to run.
+	 */
+	public static void main(String[] args) throws RunnerException
+	{
+		String resultsFile = DEFAULT_RESULTS_FILE;
+		String include = BenchmarkRunner.class.getPackage().getName() + ".*";
+
+		if (args.length > 0)
+		{
+			resultsFile = args[0];
+		}
+
+		if (args.length > 1)
+		{
+			include = args[1];
+		}
+
+		Options options = new OptionsBuilder()
+			.include(include)
+			.resultFormat(ResultFormatType.JSON)
+			.result(resultsFile)
+			.build();
+
+		new Runner(options).run();
+
+		System.out.println("Benchmark results written to " + resultsFile);
+	}
+}
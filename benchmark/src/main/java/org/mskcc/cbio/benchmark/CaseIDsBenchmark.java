@@ -0,0 +1,100 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks classification and conversion of TCGA case ids by CaseIDsImpl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CaseIDsBenchmark
+{
+	@Param({"10000"})
+	public int numIds;
+
+	private CaseIDs caseIDs;
+	private List<String> ids;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		caseIDs = SyntheticData.caseIDs();
+		ids = SyntheticData.caseIds(numIds);
+	}
+
+	@Benchmark
+	public int isSampleId()
+	{
+		int count = 0;
+
+		for (String id : ids)
+		{
+			if (caseIDs.isSampleId(id))
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int isNormalId()
+	{
+		int count = 0;
+
+		for (String id : ids)
+		{
+			if (caseIDs.isNormalId(id))
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public void getSampleId(Blackhole blackhole)
+	{
+		for (String id : ids)
+		{
+			blackhole.consume(caseIDs.getSampleId(id));
+		}
+	}
+
+	@Benchmark
+	public void getPatientId(Blackhole blackhole)
+	{
+		for (String id : ids)
+		{
+			blackhole.consume(caseIDs.getPatientId(id));
+		}
+	}
+}
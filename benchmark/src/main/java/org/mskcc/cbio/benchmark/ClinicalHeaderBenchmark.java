@@ -0,0 +1,192 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.Config;
+import org.mskcc.cbio.importer.model.ClinicalAttributesMetadata;
+import org.mskcc.cbio.importer.util.MetadataUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the metadata header of a wide clinical staging
+ * file, where half of the columns are known attributes and the data
+ * type of the other half is detected from the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClinicalHeaderBenchmark
+{
+	@Param({"50000"})
+	public int numRows;
+
+	@Param({"500"})
+	public int numColumns;
+
+	private File workDir;
+	private File stagingFile;
+	private Config config;
+	private List<String> columnHeaders;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("clinical_header_benchmark");
+		stagingFile = new File(workDir, "data_clinical.txt");
+
+		Random random = new Random(SyntheticData.SEED);
+		final List<ClinicalAttributesMetadata> attributes = new ArrayList<ClinicalAttributesMetadata>();
+		columnHeaders = new ArrayList<String>(numColumns);
+
+		columnHeaders.add("PATIENT_ID");
+		attributes.add(attribute("PATIENT_ID", "STRING"));
+
+		for (int i = 1; i < numColumns; i++)
+		{
+			String columnHeader = "ATTRIBUTE_" + i;
+			columnHeaders.add(columnHeader);
+
+			// every other column is unknown
+			if (i % 2 == 0)
+			{
+				attributes.add(attribute(columnHeader, "NUMBER"));
+			}
+		}
+
+		// rows are written as they are generated, the file is too large to build in memory
+		BufferedWriter writer = new BufferedWriter(new FileWriter(stagingFile));
+
+		try
+		{
+			writer.write(join(columnHeaders));
+			writer.newLine();
+
+			for (int row = 0; row < numRows; row++)
+			{
+				List<String> values = new ArrayList<String>(numColumns);
+				values.add("TCGA-" + row);
+
+				for (int i = 1; i < numColumns; i++)
+				{
+					// some columns turn out to be strings near the end of the file,
+					// the others are numbers with missing values
+					if (i % 3 == 0 && row > numRows - 10)
+					{
+						values.add("value" + row);
+					}
+					else
+					{
+						values.add(random.nextInt(10) == 0 ? "" : Integer.toString(random.nextInt(1000)));
+					}
+				}
+
+				writer.write(join(values));
+				writer.newLine();
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		config = config(attributes);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public String buildHeader() throws Exception
+	{
+		return MetadataUtils.getClinicalMetadataHeaders(config, columnHeaders, true, stagingFile.getCanonicalPath());
+	}
+
+	private String join(List<String> values)
+	{
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (i > 0)
+			{
+				builder.append('\t');
+			}
+
+			builder.append(values.get(i));
+		}
+
+		return builder.toString();
+	}
+
+	private ClinicalAttributesMetadata attribute(String columnHeader, String datatype)
+	{
+		return new ClinicalAttributesMetadata(new String[] {
+			columnHeader, columnHeader, columnHeader, datatype, "PATIENT", "1"});
+	}
+
+	/**
+	 * Creates a Config which only provides the given clinical attributes.
+	 * Like the spreadsheet backed Config, each lookup copies the attribute list.
+	 */
+	private Config config(final List<ClinicalAttributesMetadata> attributes)
+	{
+		return (Config) Proxy.newProxyInstance(Config.class.getClassLoader(),
+			new Class[] {Config.class},
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args)
+				{
+					if (method.getName().equals("getClinicalAttributesMetadata") &&
+					    args[0] instanceof String)
+					{
+						List<ClinicalAttributesMetadata> toReturn =
+							new ArrayList<ClinicalAttributesMetadata>(attributes);
+
+						if (args[0].equals(Config.ALL))
+						{
+							return toReturn;
+						}
+
+						for (ClinicalAttributesMetadata metadata : toReturn)
+						{
+							if (metadata.getNormalizedColumnHeader().equals(args[0]))
+							{
+								return Collections.singletonList(metadata);
+							}
+						}
+
+						return Collections.emptyList();
+					}
+
+					return null;
+				}
+			});
+	}
+}
@@ -0,0 +1,115 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.model.DatatypeMetadata;
+import org.mskcc.cbio.importer.util.ComponentRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the class lookups done for every study and datatype:
+ * resolving converter classes, finding methods by name and creating
+ * metadata instances, with and without the component registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ComponentRegistryBenchmark
+{
+	private static final String[] CONVERTERS = {
+		"org.mskcc.cbio.importer.converter.internal.ClinicalDataConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.CNAConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.CopyNumberSegmentConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.GisticGenesConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.MethylationConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.MutationConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.RNASEQV2MRNAMedianConverterImpl",
+		"org.mskcc.cbio.importer.converter.internal.ZScoresConverterImpl"
+	};
+
+	private static final String METADATA = DatatypeMetadata.class.getName();
+	private static final String METHOD = "getTCGADownloadArchives";
+
+	private String[] properties;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		properties = new String[] {
+			"mutation", "true", "true", "", "", "data_mutations_extended.txt",
+			CONVERTERS[5], "org.mskcc.cbio.portal.scripts.ImportProfileData",
+			"true", "meta_mutations_extended.txt", "mutations", "MUTATION_EXTENDED", "MAF",
+			"true", "Mutations", "Mutation data"};
+	}
+
+	@Benchmark
+	public int reflection() throws Exception
+	{
+		// as done before by util.ClassLoader, on every call
+		int count = 0;
+
+		for (String className : CONVERTERS)
+		{
+			Constructor[] constructors = Class.forName(className).getConstructors();
+			count += constructors[0].getParameterTypes().length;
+		}
+
+		for (Method method : Class.forName(METADATA).getMethods())
+		{
+			if (method.getName().equals(METHOD))
+			{
+				count++;
+				break;
+			}
+		}
+
+		Constructor constructor = Class.forName(METADATA).getConstructor(new Class[] {String[].class});
+		Object metadata = constructor.newInstance(new Object[] {properties});
+
+		return count + metadata.hashCode();
+	}
+
+	@Benchmark
+	public int registry() throws Exception
+	{
+		ComponentRegistry registry = ComponentRegistry.getInstance();
+		int count = 0;
+
+		for (String className : CONVERTERS)
+		{
+			count += registry.isAssignableTo(className, Converter.class) ? 1 : 0;
+		}
+
+		if (registry.getMethod(METADATA, METHOD) != null)
+		{
+			count++;
+		}
+
+		Object metadata = registry.getInstance(METADATA, new Object[] {properties}, true);
+
+		return count + metadata.hashCode();
+	}
+}
@@ -0,0 +1,175 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.DataMatrixWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks DataMatrix construction (row to column transposition)
+ * and writing the matrix in TSV format, by the byte level writer
+ * (stream, channel, background flush) and by a PrintWriter baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataMatrixBenchmark
+{
+	@Param({"1000", "10000"})
+	public int numRows;
+
+	@Param({"100"})
+	public int numSamples;
+
+	private CaseIDs caseIDs;
+	private List<String> columnNames;
+	private List<LinkedList<String>> rowData;
+	private DataMatrix dataMatrix;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		List<List<String>> table = SyntheticData.matrix(numRows, numSamples);
+
+		caseIDs = SyntheticData.caseIDs();
+		columnNames = new LinkedList<String>(table.get(0));
+		rowData = new ArrayList<LinkedList<String>>(numRows);
+
+		for (List<String> row : table.subList(1, table.size()))
+		{
+			rowData.add(new LinkedList<String>(row));
+		}
+
+		dataMatrix = new DataMatrix("benchmark.txt", rowData, columnNames, caseIDs);
+	}
+
+	@Benchmark
+	public DataMatrix construct()
+	{
+		return new DataMatrix("benchmark.txt", rowData, columnNames, caseIDs);
+	}
+
+	@Benchmark
+	public long write() throws Exception
+	{
+		CountingOutputStream out = new CountingOutputStream();
+		dataMatrix.write(out);
+
+		return out.count;
+	}
+
+	@Benchmark
+	public long writeChannel() throws Exception
+	{
+		CountingOutputStream out = new CountingOutputStream();
+		dataMatrix.write(Channels.newChannel(out));
+
+		return out.count;
+	}
+
+	@Benchmark
+	public long writeBackgroundFlush() throws Exception
+	{
+		CountingOutputStream out = new CountingOutputStream();
+		new DataMatrixWriter(DataMatrixWriter.DEFAULT_BUFFER_SIZE, true).write(dataMatrix, out);
+
+		return out.count;
+	}
+
+	@Benchmark
+	public long writePrintWriter() throws Exception
+	{
+		CountingOutputStream out = new CountingOutputStream();
+		this.printWriterWrite(dataMatrix, out);
+
+		return out.count;
+	}
+
+	/**
+	 * PrintWriter based serialization, which copies each column
+	 * into an ArrayList and prints the matrix cell by cell.
+	 */
+	private void printWriterWrite(DataMatrix dataMatrix, OutputStream out)
+	{
+		PrintWriter writer = new PrintWriter(out);
+		List<String> columnHeaders = dataMatrix.getColumnHeaders();
+		List<ArrayList<String>> columnData = new ArrayList<ArrayList<String>>();
+
+		for (int i = 0; i < columnHeaders.size(); i++)
+		{
+			columnData.add(new ArrayList<String>(dataMatrix.getColumnData(i)));
+			writer.print(columnHeaders.get(i));
+
+			if (i < columnHeaders.size() - 1)
+			{
+				writer.print(Converter.VALUE_DELIMITER);
+			}
+		}
+
+		writer.println();
+
+		for (int row = 0; row < dataMatrix.getNumberOfRows(); row++)
+		{
+			for (int i = 0; i < columnData.size(); i++)
+			{
+				writer.print(columnData.get(i).get(row));
+
+				if (i < columnData.size() - 1)
+				{
+					writer.print(Converter.VALUE_DELIMITER);
+				}
+			}
+
+			writer.println();
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Discards everything, so that only the formatting cost is measured.
+	 */
+	static class CountingOutputStream extends OutputStream
+	{
+		long count;
+
+		public void write(int b)
+		{
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len)
+		{
+			count += len;
+		}
+	}
+}
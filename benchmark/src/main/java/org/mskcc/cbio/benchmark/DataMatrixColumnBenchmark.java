@@ -0,0 +1,140 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the DataMatrix column operations converters run over
+ * every sample column: lookup by name, ignoring by name and index,
+ * renaming and reordering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataMatrixColumnBenchmark
+{
+	@Param({"1000", "10000"})
+	public int numSamples;
+
+	@Param({"100"})
+	public int numRows;
+
+	private DataMatrix dataMatrix;
+	private List<String> columnNames;
+	private List<String> reversedColumnNames;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		List<List<String>> table = SyntheticData.matrix(numRows, numSamples);
+		List<LinkedList<String>> rowData = new ArrayList<LinkedList<String>>(numRows);
+
+		for (List<String> row : table.subList(1, table.size()))
+		{
+			rowData.add(new LinkedList<String>(row));
+		}
+
+		columnNames = new ArrayList<String>(table.get(0));
+		reversedColumnNames = new ArrayList<String>(columnNames);
+		Collections.reverse(reversedColumnNames);
+
+		dataMatrix = new DataMatrix("benchmark.txt",
+			rowData,
+			new LinkedList<String>(columnNames),
+			SyntheticData.caseIDs());
+	}
+
+	@Benchmark
+	public int lookupByName()
+	{
+		int count = 0;
+
+		for (String columnName : columnNames)
+		{
+			count += dataMatrix.getColumnData(columnName).size();
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int ignoreByName()
+	{
+		int count = 0;
+
+		for (String columnName : columnNames)
+		{
+			dataMatrix.ignoreColumn(columnName, false);
+
+			if (!dataMatrix.isColumnIgnored(columnName))
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Benchmark
+	public int ignoreByIndex()
+	{
+		// filterColumnsBySampleType
+		List<String> columnHeaders = dataMatrix.getColumnHeaders();
+
+		for (int i = 2; i < columnHeaders.size(); i++)
+		{
+			dataMatrix.ignoreColumn(i, columnHeaders.get(i).isEmpty());
+		}
+
+		return columnHeaders.size();
+	}
+
+	@Benchmark
+	public int rename()
+	{
+		// renames each column and back, so the matrix is unchanged
+		for (String columnName : columnNames)
+		{
+			dataMatrix.renameColumn(columnName, columnName + "_renamed");
+			dataMatrix.renameColumn(columnName + "_renamed", columnName);
+		}
+
+		return columnNames.size();
+	}
+
+	@Benchmark
+	public int reorder() throws Exception
+	{
+		// reverses the columns and back, so the matrix is unchanged
+		dataMatrix.setColumnOrder(reversedColumnNames);
+		dataMatrix.setColumnOrder(columnNames);
+
+		return columnNames.size();
+	}
+}
@@ -0,0 +1,122 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.DataMatrixReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading a TSV file into a DataMatrix, line by line
+ * (LineIterator and String.split) vs. the memory mapped reader
+ * with single and multiple threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataMatrixReaderBenchmark
+{
+	@Param({"20000"})
+	public int numRows;
+
+	@Param({"200"})
+	public int numSamples;
+
+	@Param({"1", "4"})
+	public int numThreads;
+
+	private File workDir;
+	private File dataFile;
+	private CaseIDs caseIDs;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("data_matrix_reader_benchmark");
+		dataFile = new File(workDir, "data_expression.txt");
+		SyntheticData.writeTable(SyntheticData.matrix(numRows, numSamples), dataFile);
+		caseIDs = SyntheticData.caseIDs();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public int readMapped() throws IOException
+	{
+		DataMatrixReader reader = new DataMatrixReader(numThreads, DataMatrixReader.DEFAULT_SEGMENT_SIZE);
+
+		return reader.read(dataFile.getName(), dataFile, null, caseIDs).getNumberOfRows();
+	}
+
+	@Benchmark
+	public int readMappedSmallSegments() throws IOException
+	{
+		// many segments, to measure the parallel parsing on smaller files
+		DataMatrixReader reader = new DataMatrixReader(numThreads, 1 << 20);
+
+		return reader.read(dataFile.getName(), dataFile, null, caseIDs).getNumberOfRows();
+	}
+
+	@Benchmark
+	public int readLineIterator() throws IOException
+	{
+		List<String> columnNames = null;
+		List<LinkedList<String>> rowData = new LinkedList<LinkedList<String>>();
+		InputStream data = new FileInputStream(dataFile);
+
+		try
+		{
+			LineIterator it = IOUtils.lineIterator(data, (String) null);
+
+			while (it.hasNext())
+			{
+				List<String> values = Arrays.asList(it.nextLine().split(Converter.VALUE_DELIMITER, -1));
+
+				if (columnNames == null)
+				{
+					columnNames = new LinkedList<String>(values);
+				}
+				else
+				{
+					rowData.add(new LinkedList<String>(values));
+				}
+			}
+		}
+		finally
+		{
+			data.close();
+		}
+
+		return new DataMatrix(dataFile.getName(), rowData, columnNames, caseIDs).getNumberOfRows();
+	}
+}
@@ -0,0 +1,109 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.converter.internal.MethylationConverterImpl;
+import org.mskcc.cbio.importer.io.internal.FileUtilsImpl;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.ImportDataRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing of a tab delimited data file into a DataMatrix
+ * by FileUtilsImpl, optionally filtered by a methylation correlation
+ * matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileUtilsBenchmark
+{
+	@Param({"1000", "10000"})
+	public int numRows;
+
+	@Param({"100"})
+	public int numSamples;
+
+	@Param({"false", "true"})
+	public boolean methylationFilter;
+
+	private File workDir;
+	private FileUtilsImpl fileUtils;
+	private ImportDataRecord importDataRecord;
+	private DataMatrix methylationCorrelation;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("file_utils_benchmark");
+
+		File dataFile = new File(workDir, "data_expression.txt");
+		SyntheticData.writeTable(SyntheticData.matrix(numRows, numSamples), dataFile);
+
+		fileUtils = new FileUtilsImpl(SyntheticData.config(), SyntheticData.caseIDs(),
+			null, null, null, null);
+
+		importDataRecord = new ImportDataRecord("benchmark", "benchmark", "brca", "brca",
+			"expression", "20151019", dataFile.getCanonicalPath(), "", dataFile.getName());
+
+		methylationCorrelation = methylationFilter ? this.correlationMatrix() : null;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public List<DataMatrix> getDataMatrices() throws Exception
+	{
+		return fileUtils.getDataMatrices(importDataRecord, methylationCorrelation);
+	}
+
+	/**
+	 * Correlation matrix which keeps every other probe (gene) of the data file.
+	 */
+	private DataMatrix correlationMatrix()
+	{
+		List<String> columnNames = new LinkedList<String>();
+		columnNames.add(MethylationConverterImpl.CORRELATE_METH_PROBE_COLUMN_HEADER_NAME);
+		columnNames.add(SyntheticData.GENE_SYMBOL);
+
+		List<LinkedList<String>> rowData = new LinkedList<LinkedList<String>>();
+
+		for (int i = 0; i < numRows; i += 2)
+		{
+			LinkedList<String> row = new LinkedList<String>();
+			row.add(SyntheticData.geneSymbol(i));
+			row.add(SyntheticData.geneSymbol(i));
+			rowData.add(row);
+		}
+
+		return new DataMatrix("correlation.txt", rowData, columnNames, SyntheticData.caseIDs());
+	}
+}
@@ -0,0 +1,123 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.mutassessor.DataImporter;
+import org.mskcc.cbio.mutassessor.MutationAssessorRecord;
+import org.mskcc.cbio.mutassessor.MutationAssessorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks Mutation Assessor enrichment of a MAF by DataImporter with
+ * per line (block size of 1) and per block lookups. Each lookup is
+ * delayed to simulate the latency of a single database query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaEnrichmentBenchmark
+{
+	@Param({"2000"})
+	public int numRecords;
+
+	@Param({"1", "1000"})
+	public int blockSize;
+
+	@Param({"1"})
+	public long queryLatency;
+
+	private File workDir;
+	private File input;
+	private File output;
+	private DataImporter importer;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("ma_enrichment_benchmark");
+		input = new File(workDir, "data_mutations_extended.txt");
+		output = new File(workDir, "data_mutations_ma.txt");
+
+		SyntheticData.writeLines(SyntheticData.maf(numRecords, "37"), input);
+
+		importer = new DataImporter(new LatencyMaService(queryLatency));
+		importer.setBlockSize(blockSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public long addMutAssessorInfo() throws Exception
+	{
+		importer.addMutAssessorInfo(input, output);
+
+		return output.length();
+	}
+
+	/**
+	 * Service without any records, which sleeps for the given latency
+	 * on each lookup call.
+	 */
+	private static class LatencyMaService extends MutationAssessorService
+	{
+		private long latency;
+
+		public LatencyMaService(long latency)
+		{
+			this.latency = latency;
+		}
+
+		public MutationAssessorRecord getMaRecord(String key)
+		{
+			this.delay();
+			return null;
+		}
+
+		public Map<String, MutationAssessorRecord> getMaRecords(Collection<String> keys)
+		{
+			this.delay();
+			return new HashMap<String, MutationAssessorRecord>();
+		}
+
+		private void delay()
+		{
+			try
+			{
+				Thread.sleep(this.latency);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.maf.MafProcessor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks header reordering and row processing of MAF lines
+ * by MafProcessor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MafProcessorBenchmark
+{
+	@Param({"10000"})
+	public int numRecords;
+
+	private List<String> lines;
+	private MafProcessor processor;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		lines = SyntheticData.maf(numRecords, "37");
+		processor = new MafProcessor(lines.get(0));
+		processor.newHeaderList();
+	}
+
+	@Benchmark
+	public List<String> newHeaderList()
+	{
+		return new MafProcessor(lines.get(0)).newHeaderList();
+	}
+
+	@Benchmark
+	public void newDataList(Blackhole blackhole)
+	{
+		for (String line : lines.subList(1, lines.size()))
+		{
+			blackhole.consume(processor.newDataList(line));
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.IDMapper;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.util.MapperUtil;
+import org.openjdk.jmh.annotations.*;
+import scala.Tuple2;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks mapping of gene symbols to entrez ids (and vice versa)
+ * within a DataMatrix by MapperUtil. One in every ten genes is unknown
+ * to the mapper, so that row ignoring is also exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapperUtilBenchmark
+{
+	@Param({"20000"})
+	public int numRows;
+
+	private IDMapper idMapper;
+	private CaseIDs caseIDs;
+	private DataMatrix dataMatrix;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		idMapper = new HashIDMapper(numRows);
+		caseIDs = SyntheticData.caseIDs();
+	}
+
+	@Setup(Level.Invocation)
+	public void createMatrix()
+	{
+		// mapping modifies the matrix in place, so start from scratch
+		List<String> columnNames = new LinkedList<String>();
+		columnNames.add(SyntheticData.GENE_SYMBOL);
+		columnNames.add(SyntheticData.ENTREZ_GENE_ID);
+
+		List<LinkedList<String>> rowData = new ArrayList<LinkedList<String>>(numRows);
+
+		for (int i = 0; i < numRows; i++)
+		{
+			LinkedList<String> row = new LinkedList<String>();
+			row.add(SyntheticData.geneSymbol(i));
+			row.add(SyntheticData.entrezId(i));
+			rowData.add(row);
+		}
+
+		dataMatrix = new DataMatrix("mapper.txt", rowData, columnNames, caseIDs);
+	}
+
+	@Benchmark
+	public DataMatrix mapGeneSymbolToID() throws Exception
+	{
+		MapperUtil.mapGeneSymbolToID(dataMatrix, idMapper,
+			SyntheticData.ENTREZ_GENE_ID, SyntheticData.GENE_SYMBOL);
+
+		return dataMatrix;
+	}
+
+	@Benchmark
+	public DataMatrix mapGeneIDToSymbol() throws Exception
+	{
+		MapperUtil.mapGeneIDToSymbol(dataMatrix, idMapper,
+			SyntheticData.ENTREZ_GENE_ID, SyntheticData.GENE_SYMBOL);
+
+		return dataMatrix;
+	}
+
+	/**
+	 * In memory id mapper, no database access.
+	 */
+	static class HashIDMapper implements IDMapper
+	{
+		private Map<String, String> symbolToId = new HashMap<String, String>();
+		private Map<String, String> idToSymbol = new HashMap<String, String>();
+
+		HashIDMapper(int numGenes)
+		{
+			for (int i = 0; i < numGenes; i++)
+			{
+				if (i % 10 != 9)
+				{
+					symbolToId.put(SyntheticData.geneSymbol(i), SyntheticData.entrezId(i));
+					idToSymbol.put(SyntheticData.entrezId(i), SyntheticData.geneSymbol(i));
+				}
+			}
+		}
+
+		public String findGeneNameByGenomicPosition(String chromosome, String position, String strand)
+		{
+			return "";
+		}
+
+		public String symbolToEntrezID(String geneSymbol)
+		{
+			String id = symbolToId.get(geneSymbol);
+			return (id == null) ? "" : id;
+		}
+
+		public String entrezIDToSymbol(String entrezID)
+		{
+			String symbol = idToSymbol.get(entrezID);
+			return (symbol == null) ? "" : symbol;
+		}
+
+		public Tuple2<String, String> ensemblToHugoSymbolAndEntrezID(String ensemblID)
+		{
+			return new Tuple2<String, String>("", "");
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.converter.internal.MethylationProbeSelector;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the methylation probe selection on a synthetic 450k array:
+ * picking the lowest correlated probe per gene from the correlation
+ * file and projecting the rows of those probes out of the beta values.
+ * The beta value matrix holds a single column per sample, values are
+ * shared strings to keep the heap requirement down.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx12g"})
+public class MethylationProbeSelectorBenchmark
+{
+	private static final String PROBE_COLUMN = "Hybridization REF";
+	private static final int NUM_VALUES = 1000;
+
+	@Param({"450000"})
+	public int numProbes;
+
+	@Param({"500"})
+	public int numSamples;
+
+	@Param({"20000"})
+	public int numGenes;
+
+	@Param({"1", "4"})
+	public int numThreads;
+
+	private CaseIDs caseIDs;
+	private List<String> genes;
+	private List<String> probes;
+	private List<String> correlations;
+	private MethylationProbeSelector selector;
+	private DataMatrix methylationData;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Random random = new Random(SyntheticData.SEED);
+		caseIDs = SyntheticData.caseIDs();
+
+		// correlation file, every probe is correlated with one gene
+		genes = new LinkedList<String>();
+		probes = new LinkedList<String>();
+		correlations = new LinkedList<String>();
+
+		for (int i = 0; i < numProbes; i++)
+		{
+			genes.add(SyntheticData.geneSymbol(random.nextInt(numGenes)));
+			probes.add(probe(i));
+			correlations.add(Double.toString(random.nextDouble() * 2 - 1));
+		}
+
+		selector = new MethylationProbeSelector(genes, probes, correlations);
+
+		// beta values, the first row is the "Composite Element REF" row
+		String[] values = new String[NUM_VALUES];
+
+		for (int i = 0; i < NUM_VALUES; i++)
+		{
+			values[i] = Double.toString(random.nextDouble());
+		}
+
+		List<String> columnNames = new ArrayList<String>(numSamples + 1);
+		List<LinkedList<String>> columnData = new ArrayList<LinkedList<String>>(numSamples + 1);
+
+		LinkedList<String> probeColumn = new LinkedList<String>();
+		probeColumn.add("Composite Element REF");
+
+		for (int i = 0; i < numProbes; i++)
+		{
+			probeColumn.add(probe(i));
+		}
+
+		columnNames.add(PROBE_COLUMN);
+		columnData.add(probeColumn);
+
+		for (String sampleId : SyntheticData.sampleIds(numSamples))
+		{
+			LinkedList<String> column = new LinkedList<String>();
+			column.add("Beta_value");
+
+			for (int i = 0; i < numProbes; i++)
+			{
+				column.add(values[random.nextInt(NUM_VALUES)]);
+			}
+
+			columnNames.add(sampleId);
+			columnData.add(column);
+		}
+
+		methylationData = new DataMatrix("methylation.txt", columnNames, columnData, numProbes + 1, caseIDs);
+	}
+
+	@Benchmark
+	public int select()
+	{
+		return new MethylationProbeSelector(genes, probes, correlations).getNumberOfGenes();
+	}
+
+	@Benchmark
+	public int project() throws Exception
+	{
+		List<String> genesOfRows = new ArrayList<String>();
+		DataMatrix projected = selector.project(methylationData, PROBE_COLUMN, caseIDs, numThreads, genesOfRows);
+
+		return projected.getNumberOfRows() + genesOfRows.size();
+	}
+
+	private static String probe(int index)
+	{
+		return String.format("cg%08d", index);
+	}
+}
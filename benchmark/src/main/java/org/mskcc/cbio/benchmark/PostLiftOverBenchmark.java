@@ -0,0 +1,121 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.liftover.PostLiftOver;
+import org.mskcc.cbio.liftover.PreLiftOver;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks updating MAF positions with the liftOver output by
+ * PostLiftOver. The liftOver output is simulated by mapping every position
+ * to itself, except for a small fraction reported as unmapped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PostLiftOverBenchmark
+{
+	private static final int UNMAPPED_INTERVAL = 500;
+
+	@Param({"50000"})
+	public int numRecords;
+
+	private File workDir;
+	private String inputMaf;
+	private String mappedFile;
+	private String unmappedFile;
+	private String auxFile;
+	private String outputMaf;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("liftover_benchmark");
+
+		File input = new File(workDir, "input.maf");
+		File bed = new File(workDir, "input.bed");
+		SyntheticData.writeLines(SyntheticData.maf(numRecords, "36"), input);
+
+		inputMaf = input.getAbsolutePath();
+		mappedFile = new File(workDir, "mapped.bed").getAbsolutePath();
+		unmappedFile = new File(workDir, "unmapped.bed").getAbsolutePath();
+		auxFile = new File(workDir, "aux.txt").getAbsolutePath();
+		outputMaf = new File(workDir, "output.maf").getAbsolutePath();
+
+		PreLiftOver.extractPositions(inputMaf, bed.getAbsolutePath(), auxFile);
+		this.simulateLiftOver(bed);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public void updatePositions() throws IOException
+	{
+		PostLiftOver.updatePositions(inputMaf, mappedFile, unmappedFile, auxFile, outputMaf);
+	}
+
+	/**
+	 * Splits the liftOver input into mapped and unmapped files in the same
+	 * format as the liftOver tool.
+	 */
+	private void simulateLiftOver(File bed) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(bed));
+		BufferedWriter mapped = new BufferedWriter(new FileWriter(mappedFile));
+		BufferedWriter unmapped = new BufferedWriter(new FileWriter(unmappedFile));
+
+		try
+		{
+			String line;
+			int row = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (++row % UNMAPPED_INTERVAL == 0)
+				{
+					unmapped.write("#Deleted in new");
+					unmapped.newLine();
+					unmapped.write(line);
+					unmapped.newLine();
+				}
+				else
+				{
+					mapped.write(line);
+					mapped.newLine();
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+			mapped.close();
+			unmapped.close();
+		}
+	}
+}
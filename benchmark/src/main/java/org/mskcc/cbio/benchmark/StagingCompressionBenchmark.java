@@ -0,0 +1,116 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing and reading a large staging matrix as a plain
+ * text file vs. a block compressed (gzip) file, with single and
+ * multiple compression threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StagingCompressionBenchmark
+{
+	@Param({"20000"})
+	public int numRows;
+
+	@Param({"200"})
+	public int numSamples;
+
+	@Param({"false", "true"})
+	public boolean compressed;
+
+	@Param({"1", "4"})
+	public int numThreads;
+
+	private File workDir;
+	private File stagingFile;
+	private byte[] content;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		workDir = SyntheticData.createTempDir("staging_compression_benchmark");
+
+		File plainFile = new File(workDir, "data_CNA.txt");
+		SyntheticData.writeTable(SyntheticData.matrix(numRows, numSamples), plainFile);
+		content = FileUtils.readFileToByteArray(plainFile);
+		plainFile.delete();
+
+		stagingFile = compressed ?
+			StagingUtils.getCompressedFile(plainFile) :
+			plainFile;
+
+		this.write();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.delete(workDir);
+	}
+
+	@Benchmark
+	public long write() throws IOException
+	{
+		OutputStream out = StagingUtils.openStagingOutputStream(stagingFile, numThreads);
+
+		try
+		{
+			out.write(content);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		return stagingFile.length();
+	}
+
+	@Benchmark
+	public int read() throws IOException
+	{
+		BufferedReader reader = new BufferedReader(StagingUtils.openStagingReader(stagingFile));
+		int count = 0;
+
+		try
+		{
+			while (reader.readLine() != null)
+			{
+				count++;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,340 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.benchmark;
+
+import org.mskcc.cbio.importer.Config;
+import org.mskcc.cbio.importer.caseids.internal.CaseIDsImpl;
+import org.mskcc.cbio.importer.model.CaseIDFilterMetadata;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Generates deterministic synthetic inputs for the benchmarks. Every
+ * generator uses a fixed seed, so the same parameters always produce
+ * the same data across runs and machines.
+ */
+public class SyntheticData
+{
+	public static final long SEED = 20151019L;
+
+	public static final String GENE_SYMBOL = "Hugo_Symbol";
+	public static final String ENTREZ_GENE_ID = "Entrez_Gene_Id";
+
+	private static final String[] CHROMOSOMES = {
+		"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12",
+		"13", "14", "15", "16", "17", "18", "19", "20", "21", "22", "X", "Y", "MT"
+	};
+
+	private static final String[] BASES = {"A", "C", "G", "T"};
+
+	private static final String[] VARIANT_CLASSIFICATIONS = {
+		"Missense_Mutation", "Nonsense_Mutation", "Silent", "Splice_Site", "Frame_Shift_Del"
+	};
+
+	/**
+	 * TCGA filters as defined in the case id filters worksheet.
+	 * Group 2 of the sample pattern is the sample type code.
+	 */
+	private static final String[][] CASE_ID_FILTERS = {
+		{"tcga-sample-pattern", "^(TCGA-\\w\\w-\\w\\w\\w\\w-(\\d\\d))[A-Z]?.*$"},
+		{"tcga-patient-pattern", "^(TCGA-\\w\\w-\\w\\w\\w\\w).*$"},
+		{"tcga-truncated-patient-pattern", "^(TCGA-\\w\\w-\\w\\w\\w\\w)$"},
+		{"non-tcga-pattern", "^(?!TCGA-).*$"}
+	};
+
+	/**
+	 * Creates a list of TCGA case ids, a mix of full barcodes, tumor and
+	 * normal sample types, "Tumor"/"Normal" suffixed ids and truncated
+	 * patient ids.
+	 *
+	 * @param numIds    number of ids to generate
+	 * @return          list of case ids
+	 */
+	public static List<String> caseIds(int numIds)
+	{
+		Random random = new Random(SEED);
+		List<String> ids = new ArrayList<String>(numIds);
+
+		for (int i = 0; i < numIds; i++)
+		{
+			String patient = patientId(random, i);
+
+			switch (i % 5)
+			{
+				case 0:
+					ids.add(patient + "-01A-11D-A141-01");
+					break;
+				case 1:
+					ids.add(patient + "-" + (10 + random.nextInt(10)) + "A-11D-A141-01");
+					break;
+				case 2:
+					ids.add(patient + "-Tumor");
+					break;
+				case 3:
+					ids.add(patient + "-Normal");
+					break;
+				default:
+					ids.add(patient);
+			}
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Creates a tumor sample barcode for every given index.
+	 *
+	 * @param numSamples    number of sample barcodes
+	 * @return              list of sample barcodes
+	 */
+	public static List<String> sampleIds(int numSamples)
+	{
+		Random random = new Random(SEED);
+		List<String> ids = new ArrayList<String>(numSamples);
+
+		for (int i = 0; i < numSamples; i++)
+		{
+			ids.add(patientId(random, i) + "-01A-11D-A141-01");
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Creates a gene symbol (column 0), entrez id (column 1) matrix with
+	 * the given number of sample columns. Cell values are log ratios.
+	 *
+	 * @param numRows       number of genes
+	 * @param numSamples    number of sample columns
+	 * @return              list of rows, first row is the header
+	 */
+	public static List<List<String>> matrix(int numRows, int numSamples)
+	{
+		Random random = new Random(SEED);
+		List<List<String>> rows = new ArrayList<List<String>>(numRows + 1);
+
+		List<String> header = new ArrayList<String>(numSamples + 2);
+		header.add(GENE_SYMBOL);
+		header.add(ENTREZ_GENE_ID);
+		header.addAll(sampleIds(numSamples));
+		rows.add(header);
+
+		for (int i = 0; i < numRows; i++)
+		{
+			List<String> row = new ArrayList<String>(numSamples + 2);
+			row.add(geneSymbol(i));
+			row.add(entrezId(i));
+
+			for (int j = 0; j < numSamples; j++)
+			{
+				row.add(String.format(Locale.US, "%.4f", random.nextGaussian()));
+			}
+
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Writes the given rows as a tab delimited file.
+	 *
+	 * @param rows  rows to write
+	 * @param file  target file
+	 * @throws IOException
+	 */
+	public static void writeTable(List<List<String>> rows, File file) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try
+		{
+			for (List<String> row : rows)
+			{
+				for (int i = 0; i < row.size(); i++)
+				{
+					if (i > 0)
+					{
+						writer.write("\t");
+					}
+
+					writer.write(row.get(i));
+				}
+
+				writer.newLine();
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Creates MAF lines with standard and custom columns.
+	 * Every other mutation is a single base substitution (start == end).
+	 *
+	 * @param numRecords    number of data lines
+	 * @param ncbiBuild     NCBI build of the records
+	 * @return              list of lines, first line is the header
+	 */
+	public static List<String> maf(int numRecords, String ncbiBuild)
+	{
+		Random random = new Random(SEED);
+		List<String> lines = new ArrayList<String>(numRecords + 1);
+		List<String> samples = sampleIds(Math.max(1, numRecords / 10));
+
+		lines.add("Hugo_Symbol\tEntrez_Gene_Id\tCenter\tNCBI_Build\tChromosome\t" +
+		          "Start_Position\tEnd_Position\tStrand\tVariant_Classification\t" +
+		          "Variant_Type\tReference_Allele\tTumor_Seq_Allele1\tTumor_Seq_Allele2\t" +
+		          "dbSNP_RS\tTumor_Sample_Barcode\tMatched_Norm_Sample_Barcode\t" +
+		          "t_alt_count\tt_ref_count\tCustom_Annotation");
+
+		for (int i = 0; i < numRecords; i++)
+		{
+			String chr = CHROMOSOMES[i % CHROMOSOMES.length];
+			long start = 1000000L + random.nextInt(100000000);
+			long end = (i % 2 == 0) ? start : start + 1 + random.nextInt(3);
+			String ref = BASES[random.nextInt(BASES.length)];
+			String alt = BASES[(random.nextInt(BASES.length - 1) + 1) % BASES.length];
+			String sample = samples.get(i % samples.size());
+
+			lines.add(geneSymbol(i) + "\t" + entrezId(i) + "\tbroad.mit.edu\t" +
+			          ncbiBuild + "\t" + chr + "\t" + start + "\t" + end + "\t+\t" +
+			          VARIANT_CLASSIFICATIONS[i % VARIANT_CLASSIFICATIONS.length] + "\t" +
+			          "SNP\t" + ref + "\t" + ref + "\t" + alt + "\tnovel\t" +
+			          sample + "\t" + sample.replace("-01A-", "-10A-") + "\t" +
+			          random.nextInt(100) + "\t" + random.nextInt(100) + "\tcustom_" + i);
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Writes the given lines into a file.
+	 *
+	 * @param lines lines to write
+	 * @param file  target file
+	 * @throws IOException
+	 */
+	public static void writeLines(List<String> lines, File file) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try
+		{
+			for (String line : lines)
+			{
+				writer.write(line);
+				writer.newLine();
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Creates a CaseIDs instance backed by the TCGA filters above,
+	 * without the need of a spreadsheet connection.
+	 *
+	 * @return  case ids instance
+	 */
+	public static CaseIDsImpl caseIDs()
+	{
+		return new CaseIDsImpl(config());
+	}
+
+	/**
+	 * Creates a minimal Config, which only provides the case id filters.
+	 * All other methods return null.
+	 *
+	 * @return  config instance
+	 */
+	public static Config config()
+	{
+		final List<CaseIDFilterMetadata> filters = new ArrayList<CaseIDFilterMetadata>();
+
+		for (String[] filter : CASE_ID_FILTERS)
+		{
+			filters.add(new CaseIDFilterMetadata(filter));
+		}
+
+		return (Config) Proxy.newProxyInstance(Config.class.getClassLoader(),
+			new Class[] {Config.class},
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args)
+				{
+					if (method.getName().equals("getCaseIDFilterMetadata"))
+					{
+						return filters;
+					}
+
+					return null;
+				}
+			});
+	}
+
+	public static String geneSymbol(int index)
+	{
+		return "GENE" + index;
+	}
+
+	public static String entrezId(int index)
+	{
+		return Integer.toString(100000 + index);
+	}
+
+	public static File createTempDir(String prefix) throws IOException
+	{
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		dir.mkdirs();
+
+		return dir;
+	}
+
+	public static void delete(File file)
+	{
+		File[] files = file.listFiles();
+
+		if (files != null)
+		{
+			for (File child : files)
+			{
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+
+	private static String patientId(Random random, int index)
+	{
+		return String.format("TCGA-%c%d-%c%03d",
+			(char) ('A' + random.nextInt(26)),
+			random.nextInt(10),
+			(char) ('A' + random.nextInt(26)),
+			index % 1000);
+	}
+}
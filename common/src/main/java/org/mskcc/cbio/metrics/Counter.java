@@ -0,0 +1,62 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonically increasing count, such as the number of rows or bytes
+ * processed. Safe to update from multiple threads.
+ */
+public class Counter extends Metric
+{
+	public static final String TYPE = "counter";
+
+	private final AtomicLong value = new AtomicLong();
+
+	public Counter(String name, Map<String, String> labels)
+	{
+		super(name, labels);
+	}
+
+	public void inc()
+	{
+		this.value.incrementAndGet();
+	}
+
+	public void inc(long amount)
+	{
+		if (amount < 0)
+		{
+			throw new IllegalArgumentException("counter cannot be decreased: " + name);
+		}
+
+		this.value.addAndGet(amount);
+	}
+
+	public long getValue()
+	{
+		return this.value.get();
+	}
+
+	public String getType()
+	{
+		return TYPE;
+	}
+}
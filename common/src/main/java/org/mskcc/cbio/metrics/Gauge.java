@@ -0,0 +1,53 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value which can go up and down, such as a cache hit ratio
+ * or the size of a pool.
+ */
+public class Gauge extends Metric
+{
+	public static final String TYPE = "gauge";
+
+	// double value stored as raw long bits
+	private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+	public Gauge(String name, Map<String, String> labels)
+	{
+		super(name, labels);
+	}
+
+	public void set(double value)
+	{
+		this.bits.set(Double.doubleToLongBits(value));
+	}
+
+	public double getValue()
+	{
+		return Double.longBitsToDouble(this.bits.get());
+	}
+
+	public String getType()
+	{
+		return TYPE;
+	}
+}
@@ -0,0 +1,55 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Base class for a single named metric with an (optional) set of labels,
+ * such as study and datatype.
+ */
+public abstract class Metric
+{
+	protected final String name;
+	protected final Map<String, String> labels;
+
+	protected Metric(String name, Map<String, String> labels)
+	{
+		this.name = name;
+		this.labels = Collections.unmodifiableMap(labels);
+	}
+
+	/**
+	 * Type of the metric as used in the export formats:
+	 * "counter", "gauge" or "timer".
+	 *
+	 * @return  metric type
+	 */
+	public abstract String getType();
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public Map<String, String> getLabels()
+	{
+		return labels;
+	}
+}
@@ -0,0 +1,309 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the metrics of a registry into local files in the Prometheus
+ * text format (.prom) and in JSON format (.json).
+ */
+public class MetricsExporter
+{
+	public static final String PROMETHEUS_EXT = ".prom";
+	public static final String JSON_EXT = ".json";
+
+	protected MetricsRegistry registry;
+
+	public MetricsExporter(MetricsRegistry registry)
+	{
+		this.registry = registry;
+	}
+
+	public MetricsExporter()
+	{
+		this(MetricsRegistry.getInstance());
+	}
+
+	/**
+	 * Writes all metrics to <prefix>.prom and <prefix>.json. Each file is
+	 * first written to a temporary file and then renamed, so that a reader
+	 * never sees a partially written file.
+	 *
+	 * @param prefix    output file prefix (path without extension)
+	 * @throws IOException
+	 */
+	public void export(String prefix) throws IOException
+	{
+		File prom = new File(prefix + PROMETHEUS_EXT);
+		File json = new File(prefix + JSON_EXT);
+		File parent = prom.getAbsoluteFile().getParentFile();
+
+		if (parent != null)
+		{
+			parent.mkdirs();
+		}
+
+		File tmp = new File(prom.getAbsolutePath() + ".tmp");
+		Writer writer = new BufferedWriter(new FileWriter(tmp));
+
+		try
+		{
+			this.writePrometheus(writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		this.rename(tmp, prom);
+
+		tmp = new File(json.getAbsolutePath() + ".tmp");
+		writer = new BufferedWriter(new FileWriter(tmp));
+
+		try
+		{
+			this.writeJson(writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		this.rename(tmp, json);
+	}
+
+	/**
+	 * Writes all metrics in the Prometheus text exposition format.
+	 * Counters get a "_total" suffix if they do not already have one,
+	 * timers are written as summaries in seconds (_count and _sum),
+	 * with a separate "_max" gauge.
+	 *
+	 * @param writer    target writer
+	 * @throws IOException
+	 */
+	public void writePrometheus(Writer writer) throws IOException
+	{
+		List<Metric> metrics = this.registry.getMetrics();
+
+		// metrics are sorted by name, write the TYPE line once per name
+		String lastName = null;
+
+		for (Metric metric : metrics)
+		{
+			String name = metric.getName();
+			boolean first = !name.equals(lastName);
+			lastName = name;
+
+			if (metric instanceof Counter)
+			{
+				String promName = name.endsWith("_total") ? name : name + "_total";
+
+				if (first)
+				{
+					writer.write("# TYPE " + promName + " counter\n");
+				}
+
+				this.writeSample(writer, promName, metric.getLabels(),
+					Long.toString(((Counter) metric).getValue()));
+			}
+			else if (metric instanceof Gauge)
+			{
+				if (first)
+				{
+					writer.write("# TYPE " + name + " gauge\n");
+				}
+
+				this.writeSample(writer, name, metric.getLabels(),
+					this.formatDouble(((Gauge) metric).getValue()));
+			}
+			else if (metric instanceof Timer)
+			{
+				Timer timer = (Timer) metric;
+
+				if (first)
+				{
+					writer.write("# TYPE " + name + " summary\n");
+				}
+
+				this.writeSample(writer, name + "_count", metric.getLabels(),
+					Long.toString(timer.getCount()));
+				this.writeSample(writer, name + "_sum", metric.getLabels(),
+					this.formatDouble(timer.getTotalSeconds()));
+			}
+		}
+
+		// max values of the timers form a separate gauge family
+		lastName = null;
+
+		for (Metric metric : metrics)
+		{
+			if (metric instanceof Timer)
+			{
+				String name = metric.getName() + "_max";
+
+				if (!name.equals(lastName))
+				{
+					writer.write("# TYPE " + name + " gauge\n");
+					lastName = name;
+				}
+
+				this.writeSample(writer, name, metric.getLabels(),
+					this.formatDouble(((Timer) metric).getMaxSeconds()));
+			}
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Writes all metrics as a single JSON object:
+	 *
+	 * {"timestamp": ..., "metrics": [{"name": ..., "type": ..., "labels": {...}, ...}]}
+	 *
+	 * Counters and gauges have a "value", timers have "count",
+	 * "sum_seconds", "mean_seconds" and "max_seconds".
+	 *
+	 * @param writer    target writer
+	 * @throws IOException
+	 */
+	public void writeJson(Writer writer) throws IOException
+	{
+		List<Map<String, Object>> metrics = new ArrayList<Map<String, Object>>();
+
+		for (Metric metric : this.registry.getMetrics())
+		{
+			Map<String, Object> entry = new LinkedHashMap<String, Object>();
+
+			entry.put("name", metric.getName());
+			entry.put("type", metric.getType());
+			entry.put("labels", metric.getLabels());
+
+			if (metric instanceof Counter)
+			{
+				entry.put("value", ((Counter) metric).getValue());
+			}
+			else if (metric instanceof Gauge)
+			{
+				entry.put("value", this.jsonDouble(((Gauge) metric).getValue()));
+			}
+			else if (metric instanceof Timer)
+			{
+				Timer timer = (Timer) metric;
+				double mean = (timer.getCount() == 0) ? 0.0 :
+					timer.getTotalSeconds() / timer.getCount();
+
+				entry.put("count", timer.getCount());
+				entry.put("sum_seconds", this.jsonDouble(timer.getTotalSeconds()));
+				entry.put("mean_seconds", this.jsonDouble(mean));
+				entry.put("max_seconds", this.jsonDouble(timer.getMaxSeconds()));
+			}
+
+			metrics.add(entry);
+		}
+
+		Map<String, Object> root = new LinkedHashMap<String, Object>();
+		root.put("timestamp", System.currentTimeMillis());
+		root.put("metrics", metrics);
+
+		ObjectMapper mapper = new ObjectMapper();
+
+		// the writer belongs to the caller
+		mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		mapper.writerWithDefaultPrettyPrinter().writeValue(writer, root);
+
+		writer.flush();
+	}
+
+	private void writeSample(Writer writer,
+			String name,
+			Map<String, String> labels,
+			String value) throws IOException
+	{
+		writer.write(name);
+
+		if (!labels.isEmpty())
+		{
+			writer.write("{");
+
+			boolean first = true;
+
+			for (Map.Entry<String, String> label : labels.entrySet())
+			{
+				if (!first)
+				{
+					writer.write(",");
+				}
+
+				first = false;
+				writer.write(label.getKey() + "=\"" + this.escapeLabel(label.getValue()) + "\"");
+			}
+
+			writer.write("}");
+		}
+
+		writer.write(" " + value + "\n");
+	}
+
+	private String escapeLabel(String value)
+	{
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private String formatDouble(double value)
+	{
+		if (Double.isNaN(value))
+		{
+			return "NaN";
+		}
+		else if (Double.isInfinite(value))
+		{
+			return (value > 0) ? "+Inf" : "-Inf";
+		}
+
+		return Double.toString(value);
+	}
+
+	private Double jsonDouble(double value)
+	{
+		// NaN and infinity are not valid JSON numbers
+		return (Double.isNaN(value) || Double.isInfinite(value)) ?
+			null : value;
+	}
+
+	private void rename(File source, File target) throws IOException
+	{
+		if (!source.renameTo(target))
+		{
+			// rename fails on some platforms if the target exists
+			target.delete();
+
+			if (!source.renameTo(target))
+			{
+				throw new IOException("cannot write metrics file: " + target.getAbsolutePath());
+			}
+		}
+	}
+}
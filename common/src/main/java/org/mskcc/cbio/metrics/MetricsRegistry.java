@@ -0,0 +1,197 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-process registry of stage level metrics (counters, gauges and timers).
+ * Metrics are identified by name and labels, so that the same metric
+ * can be recorded separately for each study, datatype, converter, etc.
+ *
+ * Labels are given as key/value pairs:
+ *
+ *   registry.counter("converter_rows_total",
+ *                    "study", "brca_tcga",
+ *                    "datatype", "mutation").inc(rows);
+ */
+public class MetricsRegistry
+{
+	private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+	private static final Pattern LABEL_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+	private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+	private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<String, Metric>();
+
+	/**
+	 * Registry shared by all pipeline stages within the process.
+	 *
+	 * @return  shared registry instance
+	 */
+	public static MetricsRegistry getInstance()
+	{
+		return INSTANCE;
+	}
+
+	public Counter counter(String name, String... labels)
+	{
+		return (Counter) this.getOrCreate(Counter.TYPE, name, labels);
+	}
+
+	public Gauge gauge(String name, String... labels)
+	{
+		return (Gauge) this.getOrCreate(Gauge.TYPE, name, labels);
+	}
+
+	public Timer timer(String name, String... labels)
+	{
+		return (Timer) this.getOrCreate(Timer.TYPE, name, labels);
+	}
+
+	/**
+	 * Returns all registered metrics sorted by name and labels,
+	 * so that metrics with the same name are adjacent.
+	 *
+	 * @return  sorted list of metrics
+	 */
+	public List<Metric> getMetrics()
+	{
+		List<String> keys = new ArrayList<String>(this.metrics.keySet());
+		Collections.sort(keys);
+
+		List<Metric> list = new ArrayList<Metric>(keys.size());
+
+		for (String key : keys)
+		{
+			list.add(this.metrics.get(key));
+		}
+
+		return list;
+	}
+
+	/**
+	 * Removes all metrics from the registry.
+	 */
+	public void clear()
+	{
+		this.metrics.clear();
+	}
+
+	protected Metric getOrCreate(String type, String name, String[] labels)
+	{
+		Map<String, String> labelMap = this.labelMap(name, labels);
+		String key = this.key(name, labelMap);
+		Metric metric = this.metrics.get(key);
+
+		if (metric == null)
+		{
+			Metric created = this.create(type, name, labelMap);
+			metric = this.metrics.putIfAbsent(key, created);
+
+			if (metric == null)
+			{
+				metric = created;
+			}
+		}
+
+		if (!metric.getType().equals(type))
+		{
+			throw new IllegalArgumentException("metric " + name + " is already registered as a " +
+			                                   metric.getType() + ", not a " + type);
+		}
+
+		return metric;
+	}
+
+	protected Metric create(String type, String name, Map<String, String> labels)
+	{
+		if (!NAME_PATTERN.matcher(name).matches())
+		{
+			throw new IllegalArgumentException("invalid metric name: " + name);
+		}
+
+		// one name should always map to one type
+		for (Metric metric : this.metrics.values())
+		{
+			if (metric.getName().equals(name) &&
+			    !metric.getType().equals(type))
+			{
+				throw new IllegalArgumentException("metric " + name + " is already registered as a " +
+				                                   metric.getType() + ", not a " + type);
+			}
+		}
+
+		if (type.equals(Counter.TYPE))
+		{
+			return new Counter(name, labels);
+		}
+		else if (type.equals(Gauge.TYPE))
+		{
+			return new Gauge(name, labels);
+		}
+		else
+		{
+			return new Timer(name, labels);
+		}
+	}
+
+	private Map<String, String> labelMap(String name, String[] labels)
+	{
+		if (labels.length % 2 != 0)
+		{
+			throw new IllegalArgumentException("labels of metric " + name +
+			                                   " should be given as key/value pairs");
+		}
+
+		// sorted by key, so the same labels in any order map to the same metric
+		Map<String, String> map = new TreeMap<String, String>();
+
+		for (int i = 0; i < labels.length; i += 2)
+		{
+			if (labels[i] == null ||
+			    !LABEL_PATTERN.matcher(labels[i]).matches())
+			{
+				throw new IllegalArgumentException("invalid label name for metric " + name +
+				                                   ": " + labels[i]);
+			}
+
+			map.put(labels[i], (labels[i + 1] == null) ? "" : labels[i + 1]);
+		}
+
+		return map;
+	}
+
+	private String key(String name, Map<String, String> labels)
+	{
+		StringBuilder builder = new StringBuilder(name);
+
+		for (Map.Entry<String, String> entry : labels.entrySet())
+		{
+			builder.append('\u0000');
+			builder.append(entry.getKey());
+			builder.append('=');
+			builder.append(entry.getValue());
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,137 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the number, total and maximum duration of timed events,
+ * such as the conversion of a single datatype. Safe to update from
+ * multiple threads.
+ */
+public class Timer extends Metric
+{
+	public static final String TYPE = "timer";
+
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public Timer(String name, Map<String, String> labels)
+	{
+		super(name, labels);
+	}
+
+	/**
+	 * Starts timing a new event. The event is recorded when
+	 * the returned context is stopped.
+	 *
+	 * @return  timing context
+	 */
+	public Context start()
+	{
+		return new Context(this);
+	}
+
+	/**
+	 * Records a single event with the given duration.
+	 *
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos)
+	{
+		nanos = Math.max(0, nanos);
+
+		this.count.incrementAndGet();
+		this.totalNanos.addAndGet(nanos);
+
+		long max = this.maxNanos.get();
+
+		while (nanos > max &&
+		       !this.maxNanos.compareAndSet(max, nanos))
+		{
+			max = this.maxNanos.get();
+		}
+	}
+
+	public long getCount()
+	{
+		return this.count.get();
+	}
+
+	public long getTotalNanos()
+	{
+		return this.totalNanos.get();
+	}
+
+	public long getMaxNanos()
+	{
+		return this.maxNanos.get();
+	}
+
+	public double getTotalSeconds()
+	{
+		return this.getTotalNanos() / 1e9;
+	}
+
+	public double getMaxSeconds()
+	{
+		return this.getMaxNanos() / 1e9;
+	}
+
+	public String getType()
+	{
+		return TYPE;
+	}
+
+	/**
+	 * A single running event. Stopping a context more than once
+	 * has no effect.
+	 */
+	public static class Context
+	{
+		private final Timer timer;
+		private final long start;
+		private boolean stopped;
+
+		private Context(Timer timer)
+		{
+			this.timer = timer;
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * Stops the event and records its duration.
+		 *
+		 * @return  elapsed time in nanoseconds
+		 */
+		public long stop()
+		{
+			long elapsed = System.nanoTime() - this.start;
+
+			if (!this.stopped)
+			{
+				this.stopped = true;
+				this.timer.record(elapsed);
+			}
+
+			return elapsed;
+		}
+	}
+}
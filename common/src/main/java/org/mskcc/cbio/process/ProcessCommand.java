@@ -0,0 +1,168 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.process;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * External process to be run by the ProcessExecutor. Output and error
+ * streams are captured (tail only, see captureSize) unless redirected.
+ */
+public class ProcessCommand
+{
+	public static final int DEFAULT_CAPTURE_SIZE = 64 * 1024;
+
+	private final List<String> command;
+	private File directory;
+	private Map<String, String> environment;
+	private long timeout;
+	private int captureSize = DEFAULT_CAPTURE_SIZE;
+	private ProcessBuilder.Redirect output;
+	private ProcessBuilder.Redirect error;
+	private boolean redirectErrorStream;
+
+	public ProcessCommand(List<String> command)
+	{
+		if (command == null || command.isEmpty())
+		{
+			throw new IllegalArgumentException("Empty process command");
+		}
+
+		this.command = new ArrayList<String>(command);
+	}
+
+	public ProcessCommand(String... command)
+	{
+		this(Arrays.asList(command));
+	}
+
+	public List<String> getCommand()
+	{
+		return command;
+	}
+
+	/**
+	 * @return  executable name without its path, used as the metrics label
+	 */
+	public String getName()
+	{
+		return new File(command.get(0)).getName();
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * @param directory working directory (current directory if null)
+	 */
+	public void setDirectory(File directory)
+	{
+		this.directory = directory;
+	}
+
+	public Map<String, String> getEnvironment()
+	{
+		return environment;
+	}
+
+	/**
+	 * @param environment   complete process environment
+	 *                      (environment of this process if null)
+	 */
+	public void setEnvironment(Map<String, String> environment)
+	{
+		this.environment = environment;
+	}
+
+	public long getTimeout()
+	{
+		return timeout;
+	}
+
+	/**
+	 * @param timeout   time limit in milliseconds,
+	 *                  the process is killed when exceeded (no limit if not positive)
+	 */
+	public void setTimeout(long timeout)
+	{
+		this.timeout = timeout;
+	}
+
+	public int getCaptureSize()
+	{
+		return captureSize;
+	}
+
+	/**
+	 * @param captureSize   number of (last) bytes of each stream kept in memory
+	 */
+	public void setCaptureSize(int captureSize)
+	{
+		this.captureSize = captureSize;
+	}
+
+	public ProcessBuilder.Redirect getOutput()
+	{
+		return output;
+	}
+
+	/**
+	 * @param output    destination of the standard output (captured if null)
+	 */
+	public void setOutput(ProcessBuilder.Redirect output)
+	{
+		this.output = output;
+	}
+
+	public ProcessBuilder.Redirect getError()
+	{
+		return error;
+	}
+
+	/**
+	 * @param error     destination of the error output (captured if null)
+	 */
+	public void setError(ProcessBuilder.Redirect error)
+	{
+		this.error = error;
+	}
+
+	public boolean isRedirectErrorStream()
+	{
+		return redirectErrorStream;
+	}
+
+	/**
+	 * @param redirectErrorStream   merge the error output into the standard output
+	 */
+	public void setRedirectErrorStream(boolean redirectErrorStream)
+	{
+		this.redirectErrorStream = redirectErrorStream;
+	}
+
+	public String toString()
+	{
+		return command.toString();
+	}
+}
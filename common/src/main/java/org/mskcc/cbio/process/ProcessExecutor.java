@@ -0,0 +1,494 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.process;
+
+import org.mskcc.cbio.metrics.MetricsRegistry;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs external processes for all modules. At most (maxConcurrent) processes
+ * run at the same time, callers wait for a free slot otherwise. Processes are
+ * killed, together with their child processes, when their time limit is
+ * exceeded, forcibly if they are still alive after a grace period. Output
+ * streams are drained by a shared pool of threads into size capped ring
+ * buffers, so a process never blocks on a full pipe.
+ *
+ * Records process_duration_seconds, process_exits (by exit code) and
+ * process_timeouts metrics per executable.
+ */
+public class ProcessExecutor
+{
+	/**
+	 * System property to override the default number of concurrent processes.
+	 */
+	public static final String MAX_CONCURRENT_PROPERTY = "process.max_concurrent";
+
+	/**
+	 * Time to finish reading the output after the process has exited.
+	 * A (background) child of the process may keep the streams open.
+	 */
+	private static final long DRAIN_TIMEOUT = 10000;
+
+	/**
+	 * Default time for a killed process to exit before it is killed forcibly.
+	 */
+	public static final long KILL_GRACE_PERIOD = 5000;
+
+	private static ProcessExecutor instance;
+
+	private final int maxConcurrent;
+	private final long killGracePeriod;
+	private final Semaphore slots;
+	private final AtomicInteger active = new AtomicInteger();
+	private final ExecutorService drainers;
+	private final ScheduledExecutorService watchdog;
+
+	public static synchronized ProcessExecutor getInstance()
+	{
+		if (instance == null)
+		{
+			int defaultMax = 2 * Runtime.getRuntime().availableProcessors();
+			instance = new ProcessExecutor(Integer.getInteger(MAX_CONCURRENT_PROPERTY, defaultMax));
+		}
+
+		return instance;
+	}
+
+	public static synchronized void setInstance(ProcessExecutor executor)
+	{
+		instance = executor;
+	}
+
+	public ProcessExecutor(int maxConcurrent)
+	{
+		this(maxConcurrent, KILL_GRACE_PERIOD);
+	}
+
+	public ProcessExecutor(int maxConcurrent, long killGracePeriod)
+	{
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.killGracePeriod = killGracePeriod;
+		this.slots = new Semaphore(this.maxConcurrent, true);
+		this.drainers = Executors.newCachedThreadPool(daemonThreads("process-output"));
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("process-watchdog"));
+	}
+
+	public int getMaxConcurrent()
+	{
+		return maxConcurrent;
+	}
+
+	/**
+	 * @return  number of processes currently running
+	 */
+	public int getActiveCount()
+	{
+		return active.get();
+	}
+
+	/**
+	 * Runs the given command and waits for it to complete.
+	 *
+	 * @param command       process to run
+	 * @return              exit code, duration and captured output
+	 * @throws IOException  if the process cannot be started,
+	 *                      or the caller is interrupted
+	 */
+	public ProcessResult execute(ProcessCommand command) throws IOException
+	{
+		try
+		{
+			slots.acquire();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to run " + command);
+		}
+
+		try
+		{
+			return this.run(command);
+		}
+		finally
+		{
+			slots.release();
+		}
+	}
+
+	private ProcessResult run(ProcessCommand command) throws IOException
+	{
+		ProcessBuilder builder = new ProcessBuilder(command.getCommand());
+		builder.directory(command.getDirectory());
+		builder.redirectErrorStream(command.isRedirectErrorStream());
+
+		if (command.getEnvironment() != null)
+		{
+			builder.environment().clear();
+			builder.environment().putAll(command.getEnvironment());
+		}
+
+		if (command.getOutput() != null)
+		{
+			builder.redirectOutput(command.getOutput());
+		}
+
+		if (command.getError() != null)
+		{
+			builder.redirectError(command.getError());
+		}
+
+		long start = System.nanoTime();
+		final Process process = builder.start();
+		active.incrementAndGet();
+
+		final AtomicBoolean timedOut = new AtomicBoolean(false);
+		ScheduledFuture<?> kill = null;
+
+		if (command.getTimeout() > 0)
+		{
+			kill = watchdog.schedule(new Runnable() {
+				public void run()
+				{
+					timedOut.set(true);
+					terminate(process);
+				}
+			}, command.getTimeout(), TimeUnit.MILLISECONDS);
+		}
+
+		RingBuffer output = null;
+		RingBuffer error = null;
+		Future<?> outputDrain = null;
+		Future<?> errorDrain = null;
+
+		if (command.getOutput() == null)
+		{
+			output = new RingBuffer(command.getCaptureSize());
+			outputDrain = this.drain(process.getInputStream(), output);
+		}
+
+		if (command.getError() == null && !command.isRedirectErrorStream())
+		{
+			error = new RingBuffer(command.getCaptureSize());
+			errorDrain = this.drain(process.getErrorStream(), error);
+		}
+
+		int exitCode;
+
+		try
+		{
+			exitCode = process.waitFor();
+			this.await(outputDrain, process.getInputStream());
+			this.await(errorDrain, process.getErrorStream());
+		}
+		catch (InterruptedException e)
+		{
+			terminate(process);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while running " + command);
+		}
+		finally
+		{
+			if (kill != null)
+			{
+				kill.cancel(false);
+			}
+
+			active.decrementAndGet();
+		}
+
+		long duration = System.nanoTime() - start;
+		this.record(command.getName(), exitCode, timedOut.get(), duration);
+
+		return new ProcessResult(exitCode,
+			timedOut.get(),
+			TimeUnit.NANOSECONDS.toMillis(duration),
+			output,
+			error);
+	}
+
+	/**
+	 * Kills the given process tree, and kills it forcibly if the process
+	 * is still alive after the grace period (e.g. it ignores SIGTERM).
+	 * The process is reaped by the waitFor() of the running command.
+	 *
+	 * @param process   process to kill
+	 */
+	private void terminate(final Process process)
+	{
+		destroyTree(process);
+
+		watchdog.schedule(new Runnable() {
+			public void run()
+			{
+				if (isAlive(process))
+				{
+					destroyTreeForcibly(process);
+				}
+			}
+		}, killGracePeriod, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Kills the given process and all its descendants. Process.destroy() only
+	 * kills the process itself, its children (like the forks of a perl script)
+	 * would keep running. Descendants are looked up (with pgrep) before the
+	 * process is killed, as they are re-parented once it is gone.
+	 *
+	 * @param process   process to kill
+	 */
+	public static void destroyTree(Process process)
+	{
+		killDescendants(process, false);
+		process.destroy();
+	}
+
+	/**
+	 * Kills the given process and all its descendants with SIGKILL.
+	 *
+	 * @param process   process to kill
+	 */
+	public static void destroyTreeForcibly(Process process)
+	{
+		killDescendants(process, true);
+
+		try
+		{
+			// Process.destroyForcibly() is only available on Java 8+
+			Process.class.getMethod("destroyForcibly").invoke(process);
+		}
+		catch (Exception e)
+		{
+			long pid = pid(process);
+
+			if (pid > 0)
+			{
+				runHelper(Arrays.asList("kill", "-KILL", Long.toString(pid)));
+			}
+		}
+	}
+
+	private static void killDescendants(Process process, boolean forcibly)
+	{
+		long pid = pid(process);
+
+		if (pid > 0)
+		{
+			List<Long> descendants = new ArrayList<Long>();
+			descendants(pid, descendants);
+
+			if (!descendants.isEmpty())
+			{
+				List<String> kill = new ArrayList<String>();
+				kill.add("kill");
+
+				if (forcibly)
+				{
+					kill.add("-KILL");
+				}
+
+				for (Long descendant : descendants)
+				{
+					kill.add(descendant.toString());
+				}
+
+				runHelper(kill);
+			}
+		}
+	}
+
+	private static boolean isAlive(Process process)
+	{
+		try
+		{
+			process.exitValue();
+			return false;
+		}
+		catch (IllegalThreadStateException e)
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the pid of the given process, -1 if it cannot be determined
+	 * (Process.pid() is only available on Java 9+, the pid field on Unix).
+	 */
+	private static long pid(Process process)
+	{
+		try
+		{
+			return ((Number) Process.class.getMethod("pid").invoke(process)).longValue();
+		}
+		catch (Exception e)
+		{
+			// before Java 9
+		}
+
+		try
+		{
+			Field field = process.getClass().getDeclaredField("pid");
+			field.setAccessible(true);
+			return field.getInt(process);
+		}
+		catch (Exception e)
+		{
+			return -1;
+		}
+	}
+
+	private static void descendants(long pid, List<Long> descendants)
+	{
+		for (String child : runHelper(Arrays.asList("pgrep", "-P", Long.toString(pid))))
+		{
+			try
+			{
+				long childPid = Long.parseLong(child.trim());
+				descendants.add(childPid);
+				descendants(childPid, descendants);
+			}
+			catch (NumberFormatException e)
+			{
+				// not a pid
+			}
+		}
+	}
+
+	/**
+	 * Runs a short helper command (outside of the bounded slots),
+	 * returns the lines of its output.
+	 */
+	private static List<String> runHelper(List<String> command)
+	{
+		List<String> lines = new ArrayList<String>();
+
+		try
+		{
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				lines.add(line);
+			}
+
+			reader.close();
+			process.waitFor();
+		}
+		catch (IOException e)
+		{
+			// pgrep/kill not available, only the process itself is killed
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		return lines;
+	}
+
+	private Future<?> drain(final InputStream in, final OutputStream out)
+	{
+		return drainers.submit(new Callable<Void>() {
+			public Void call() throws IOException
+			{
+				byte[] buffer = new byte[8 * 1024];
+				int read;
+
+				try
+				{
+					while ((read = in.read(buffer)) != -1)
+					{
+						out.write(buffer, 0, read);
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+
+				return null;
+			}
+		});
+	}
+
+	private void await(Future<?> drain, InputStream in) throws InterruptedException
+	{
+		if (drain == null)
+		{
+			return;
+		}
+
+		try
+		{
+			drain.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			// the stream is closed when the process is killed,
+			// the captured output is still valid up to that point
+		}
+		catch (TimeoutException e)
+		{
+			drain.cancel(true);
+
+			try
+			{
+				in.close();
+			}
+			catch (IOException ignored)
+			{
+				// nothing more to read
+			}
+		}
+	}
+
+	private void record(String name, int exitCode, boolean timedOut, long duration)
+	{
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+		metrics.timer("process_duration_seconds", "command", name).record(duration);
+		metrics.counter("process_exits", "command", name, "exit_code", Integer.toString(exitCode)).inc();
+
+		if (timedOut)
+		{
+			metrics.counter("process_timeouts", "command", name).inc();
+		}
+	}
+
+	private static ThreadFactory daemonThreads(final String name)
+	{
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,89 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.process;
+
+/**
+ * Exit code, duration and captured output of a completed process.
+ */
+public class ProcessResult
+{
+	private final int exitCode;
+	private final boolean timedOut;
+	private final long durationMillis;
+	private final RingBuffer output;
+	private final RingBuffer error;
+
+	public ProcessResult(int exitCode,
+			boolean timedOut,
+			long durationMillis,
+			RingBuffer output,
+			RingBuffer error)
+	{
+		this.exitCode = exitCode;
+		this.timedOut = timedOut;
+		this.durationMillis = durationMillis;
+		this.output = output;
+		this.error = error;
+	}
+
+	public int getExitCode()
+	{
+		return exitCode;
+	}
+
+	/**
+	 * @return  true if the process has been killed after its time limit
+	 */
+	public boolean isTimedOut()
+	{
+		return timedOut;
+	}
+
+	public boolean isSuccess()
+	{
+		return exitCode == 0 && !timedOut;
+	}
+
+	public long getDurationMillis()
+	{
+		return durationMillis;
+	}
+
+	/**
+	 * @return  captured (tail of) standard output,
+	 *          empty if the output is redirected
+	 */
+	public String getOutput()
+	{
+		return (output == null) ? "" : output.toString();
+	}
+
+	/**
+	 * @return  captured (tail of) standard error,
+	 *          empty if the error output is redirected
+	 */
+	public String getError()
+	{
+		return (error == null) ? "" : error.toString();
+	}
+
+	public boolean isOutputTruncated()
+	{
+		return output != null && output.isTruncated();
+	}
+}
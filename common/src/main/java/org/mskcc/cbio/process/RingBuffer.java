@@ -0,0 +1,109 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.process;
+
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Output stream which keeps only the last (capacity) bytes written,
+ * used to capture process output without unbounded memory use.
+ */
+public class RingBuffer extends OutputStream
+{
+	private final byte[] buffer;
+	private long total;
+
+	public RingBuffer(int capacity)
+	{
+		this.buffer = new byte[Math.max(0, capacity)];
+	}
+
+	public synchronized void write(int b)
+	{
+		if (buffer.length > 0)
+		{
+			buffer[(int) (total % buffer.length)] = (byte) b;
+		}
+
+		total++;
+	}
+
+	public synchronized void write(byte[] bytes, int offset, int length)
+	{
+		if (buffer.length > 0)
+		{
+			// only the tail of a large write can be kept
+			int skip = Math.max(0, length - buffer.length);
+			int position = (int) ((total + skip) % buffer.length);
+
+			for (int i = offset + skip; i < offset + length; i++)
+			{
+				buffer[position] = bytes[i];
+				position = (position + 1 == buffer.length) ? 0 : position + 1;
+			}
+		}
+
+		total += length;
+	}
+
+	/**
+	 * @return  total number of bytes written, including dropped bytes
+	 */
+	public synchronized long getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * @return  true if earlier bytes have been dropped
+	 */
+	public synchronized boolean isTruncated()
+	{
+		return total > buffer.length;
+	}
+
+	/**
+	 * @return  the last (at most capacity) bytes written, oldest first
+	 */
+	public synchronized byte[] toByteArray()
+	{
+		int size = (int) Math.min(total, buffer.length);
+		byte[] bytes = new byte[size];
+		int start = (int) ((total - size) % Math.max(1, buffer.length));
+
+		for (int i = 0; i < size; i++)
+		{
+			bytes[i] = buffer[(start + i) % buffer.length];
+		}
+
+		return bytes;
+	}
+
+	public String toString()
+	{
+		try
+		{
+			return new String(this.toByteArray(), "UTF-8");
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			return new String(this.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+
+package org.mskcc.cbio.metrics;
+
+import junit.framework.TestCase;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the metrics registry and its file based export.
+ */
+public class TestMetricsRegistry extends TestCase
+{
+	private static final int NUM_THREADS = 8;
+	private static final int NUM_INCREMENTS = 10000;
+
+	public void testCounter()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+
+		registry.counter("records", "study", "brca").inc();
+		registry.counter("records", "study", "brca").inc(4);
+		registry.counter("records", "study", "gbm").inc();
+
+		assertEquals(5, registry.counter("records", "study", "brca").getValue());
+		assertEquals(1, registry.counter("records", "study", "gbm").getValue());
+		assertEquals(2, registry.getMetrics().size());
+
+		try
+		{
+			registry.counter("records").inc(-1);
+			fail("negative increment should be rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	public void testLabelOrder()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+
+		Counter counter = registry.counter("rows", "study", "brca", "datatype", "mutation");
+
+		assertSame(counter, registry.counter("rows", "datatype", "mutation", "study", "brca"));
+	}
+
+	public void testInvalidMetrics()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("duration");
+
+		String[][] invalid = {
+			{"duration"},
+			{"1st_metric"},
+			{"rows", "study"},
+			{"rows", "bad-label", "value"}
+		};
+
+		for (int i = 0; i < invalid.length; i++)
+		{
+			String[] labels = new String[invalid[i].length - 1];
+			System.arraycopy(invalid[i], 1, labels, 0, labels.length);
+
+			try
+			{
+				// first entry is a type conflict, the rest are invalid names
+				registry.timer(invalid[i][0], labels);
+				fail("metric should be rejected: " + invalid[i][0]);
+			}
+			catch (IllegalArgumentException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	public void testConcurrentUpdates() throws InterruptedException
+	{
+		final MetricsRegistry registry = new MetricsRegistry();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int i = 0; i < NUM_THREADS; i++)
+		{
+			threads.add(new Thread(new Runnable() {
+				public void run()
+				{
+					for (int j = 0; j < NUM_INCREMENTS; j++)
+					{
+						registry.counter("files", "stage", "import").inc();
+						registry.timer("duration_seconds", "stage", "import").record(j);
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		Timer timer = registry.timer("duration_seconds", "stage", "import");
+
+		assertEquals(NUM_THREADS * NUM_INCREMENTS, registry.counter("files", "stage", "import").getValue());
+		assertEquals(NUM_THREADS * NUM_INCREMENTS, timer.getCount());
+		assertEquals(NUM_INCREMENTS - 1, timer.getMaxNanos());
+	}
+
+	public void testTimerContext() throws InterruptedException
+	{
+		Timer timer = new MetricsRegistry().timer("step_seconds");
+		Timer.Context context = timer.start();
+
+		Thread.sleep(5);
+
+		long elapsed = context.stop();
+
+		// stopping the same context twice should not count twice
+		context.stop();
+
+		assertEquals(1, timer.getCount());
+		assertEquals(elapsed, timer.getTotalNanos());
+		assertTrue(timer.getTotalSeconds() >= 0.005);
+	}
+
+	public void testPrometheusOutput() throws IOException
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+
+		registry.counter("importer_files", "study", "brca_tcga", "datatype", "mutation").inc(3);
+		registry.gauge("hit_ratio").set(0.5);
+		registry.timer("importer_duration_seconds", "study", "brca\"tcga").record(1500000000L);
+
+		StringWriter writer = new StringWriter();
+		new MetricsExporter(registry).writePrometheus(writer);
+		String output = writer.toString();
+
+		assertTrue(output.contains("# TYPE importer_files_total counter\n"));
+		assertTrue(output.contains("importer_files_total{datatype=\"mutation\",study=\"brca_tcga\"} 3\n"));
+		assertTrue(output.contains("# TYPE hit_ratio gauge\n"));
+		assertTrue(output.contains("hit_ratio 0.5\n"));
+		assertTrue(output.contains("# TYPE importer_duration_seconds summary\n"));
+		assertTrue(output.contains("importer_duration_seconds_count{study=\"brca\\\"tcga\"} 1\n"));
+		assertTrue(output.contains("importer_duration_seconds_sum{study=\"brca\\\"tcga\"} 1.5\n"));
+		assertTrue(output.contains("importer_duration_seconds_max{study=\"brca\\\"tcga\"} 1.5\n"));
+	}
+
+	public void testExportFiles() throws IOException
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+
+		registry.counter("converter_rows", "study", "gbm_tcga").inc(42);
+		registry.gauge("empty_ratio").set(Double.NaN);
+		registry.timer("converter_duration_seconds", "study", "gbm_tcga").record(2000000000L);
+
+		File dir = File.createTempFile("metrics_test", "");
+		dir.delete();
+		dir.mkdirs();
+
+		String prefix = new File(dir, "run").getAbsolutePath();
+
+		try
+		{
+			new MetricsExporter(registry).export(prefix);
+
+			String prom = this.read(new File(prefix + MetricsExporter.PROMETHEUS_EXT));
+			String json = this.read(new File(prefix + MetricsExporter.JSON_EXT));
+
+			assertTrue(prom.contains("converter_rows_total{study=\"gbm_tcga\"} 42\n"));
+			assertTrue(prom.contains("empty_ratio NaN\n"));
+
+			JsonNode root = new ObjectMapper().readTree(json);
+			JsonNode metrics = root.get("metrics");
+
+			assertTrue(root.get("timestamp").getLongValue() > 0);
+			assertEquals(3, metrics.size());
+
+			// metrics are sorted by name
+			JsonNode timer = metrics.get(0);
+			assertEquals("converter_duration_seconds", timer.get("name").getTextValue());
+			assertEquals("timer", timer.get("type").getTextValue());
+			assertEquals(1, timer.get("count").getLongValue());
+			assertEquals(2.0, timer.get("sum_seconds").getDoubleValue());
+			assertEquals(2.0, timer.get("mean_seconds").getDoubleValue());
+			assertEquals(2.0, timer.get("max_seconds").getDoubleValue());
+
+			JsonNode counter = metrics.get(1);
+			assertEquals("converter_rows", counter.get("name").getTextValue());
+			assertEquals("counter", counter.get("type").getTextValue());
+			assertEquals("gbm_tcga", counter.get("labels").get("study").getTextValue());
+			assertEquals(42, counter.get("value").getLongValue());
+
+			// NaN is not a valid JSON number
+			JsonNode gauge = metrics.get(2);
+			assertEquals("empty_ratio", gauge.get("name").getTextValue());
+			assertTrue(gauge.get("value").isNull());
+
+			// only the final files should be left behind
+			assertEquals(2, dir.listFiles().length);
+		}
+		finally
+		{
+			for (File file : dir.listFiles())
+			{
+				file.delete();
+			}
+
+			dir.delete();
+		}
+	}
+
+	private String read(File file) throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+
+		while ((line = reader.readLine()) != null)
+		{
+			builder.append(line).append("\n");
+		}
+
+		reader.close();
+
+		return builder.toString();
+	}
+}
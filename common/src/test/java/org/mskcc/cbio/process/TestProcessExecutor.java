@@ -0,0 +1,287 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.process;
+
+import junit.framework.TestCase;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Test class for the shared process executor, runs small local shell scripts.
+ */
+public class TestProcessExecutor extends TestCase
+{
+	private File workDir;
+
+	protected void setUp() throws IOException
+	{
+		workDir = File.createTempFile("process_test", "");
+		workDir.delete();
+		workDir.mkdirs();
+		MetricsRegistry.getInstance().clear();
+	}
+
+	protected void tearDown()
+	{
+		this.delete(workDir);
+	}
+
+	public void testCaptureAndExitCode() throws IOException
+	{
+		File script = this.writeScript("exit_code.sh",
+			"echo \"output $1\"",
+			"echo \"error $1\" >&2",
+			"exit 3");
+
+		ProcessResult result = new ProcessExecutor(2).execute(
+			new ProcessCommand("sh", script.getAbsolutePath(), "arg"));
+
+		assertEquals(3, result.getExitCode());
+		assertFalse(result.isSuccess());
+		assertFalse(result.isTimedOut());
+		assertEquals("output arg\n", result.getOutput());
+		assertEquals("error arg\n", result.getError());
+
+		MetricsRegistry metrics = MetricsRegistry.getInstance();
+		assertEquals(1, metrics.counter("process_exits", "command", "sh", "exit_code", "3").getValue());
+		assertEquals(1, metrics.timer("process_duration_seconds", "command", "sh").getCount());
+	}
+
+	public void testLargeOutputIsCapped() throws IOException
+	{
+		// much more output than a pipe buffer on both streams
+		File script = this.writeScript("large_output.sh",
+			"i=0",
+			"while [ $i -lt 20000 ]; do",
+			"  echo \"line $i of the standard output\"",
+			"  echo \"line $i of the error output\" >&2",
+			"  i=$((i+1))",
+			"done");
+
+		ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		command.setCaptureSize(1024);
+
+		ProcessResult result = new ProcessExecutor(1).execute(command);
+
+		assertTrue(result.isSuccess());
+		assertTrue(result.isOutputTruncated());
+		assertTrue(result.getOutput().length() <= 1024);
+		assertTrue(result.getOutput().endsWith("line 19999 of the standard output\n"));
+		assertTrue(result.getError().endsWith("line 19999 of the error output\n"));
+	}
+
+	public void testTimeoutKillsProcess() throws IOException
+	{
+		File script = this.writeScript("sleep.sh",
+			"echo started",
+			"exec sleep 30");
+
+		ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		command.setTimeout(500);
+
+		long start = System.currentTimeMillis();
+		ProcessResult result = new ProcessExecutor(1).execute(command);
+
+		assertTrue(result.isTimedOut());
+		assertFalse(result.isSuccess());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertEquals("started\n", result.getOutput());
+		assertEquals(1, MetricsRegistry.getInstance().counter("process_timeouts", "command", "sh").getValue());
+	}
+
+	public void testTimeoutKillsChildren() throws Exception
+	{
+		// the child keeps the output open, and would outlive the script
+		File pidFile = new File(workDir, "child.pid");
+		File script = this.writeScript("children.sh",
+			"sleep 30 &",
+			"echo $! > \"" + pidFile.getAbsolutePath() + "\"",
+			"wait");
+
+		ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		command.setTimeout(500);
+
+		long start = System.currentTimeMillis();
+		ProcessResult result = new ProcessExecutor(1).execute(command);
+
+		assertTrue(result.isTimedOut());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+
+		BufferedReader reader = new BufferedReader(new FileReader(pidFile));
+		String childPid = reader.readLine().trim();
+		reader.close();
+
+		// kill -0 fails once the child is gone, it may take a moment to exit
+		long deadline = System.currentTimeMillis() + 5000;
+		boolean alive = true;
+
+		while (alive && System.currentTimeMillis() < deadline)
+		{
+			Process check = new ProcessBuilder("kill", "-0", childPid).start();
+			alive = (check.waitFor() == 0);
+
+			if (alive)
+			{
+				Thread.sleep(50);
+			}
+		}
+
+		assertFalse(alive);
+	}
+
+	public void testTimeoutKillsForcibly() throws Exception
+	{
+		// the script and its child ignore SIGTERM
+		File script = this.writeScript("ignore_term.sh",
+			"trap '' TERM",
+			"echo started",
+			"sleep 30");
+
+		ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		command.setTimeout(500);
+
+		long start = System.currentTimeMillis();
+		ProcessResult result = new ProcessExecutor(1, 500).execute(command);
+
+		assertTrue(result.isTimedOut());
+		assertFalse(result.isSuccess());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertEquals("started\n", result.getOutput());
+	}
+
+	public void testBoundedConcurrency() throws Exception
+	{
+		// each process reports the number of processes running at the same time
+		File script = this.writeScript("concurrent.sh",
+			"touch \"" + workDir.getAbsolutePath() + "/running.$$\"",
+			"sleep 0.2",
+			"ls \"" + workDir.getAbsolutePath() + "\" | grep -c '^running\\.'",
+			"rm \"" + workDir.getAbsolutePath() + "/running.$$\"");
+
+		final ProcessExecutor executor = new ProcessExecutor(2);
+		final ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		List<Future<ProcessResult>> results = new ArrayList<Future<ProcessResult>>();
+
+		for (int i = 0; i < 8; i++)
+		{
+			results.add(callers.submit(new Callable<ProcessResult>() {
+				public ProcessResult call() throws IOException
+				{
+					return executor.execute(command);
+				}
+			}));
+		}
+
+		callers.shutdown();
+
+		for (Future<ProcessResult> result : results)
+		{
+			assertTrue(result.get().isSuccess());
+			int running = Integer.parseInt(result.get().getOutput().trim());
+			assertTrue("running processes: " + running, running >= 1 && running <= 2);
+		}
+
+		assertEquals(0, executor.getActiveCount());
+	}
+
+	public void testRedirectToFile() throws IOException
+	{
+		File script = this.writeScript("redirect.sh",
+			"echo out",
+			"echo err >&2");
+		File log = new File(workDir, "process.log");
+
+		ProcessCommand command = new ProcessCommand("sh", script.getAbsolutePath());
+		command.setOutput(ProcessBuilder.Redirect.to(log));
+		command.setRedirectErrorStream(true);
+
+		ProcessResult result = new ProcessExecutor(1).execute(command);
+
+		assertTrue(result.isSuccess());
+		assertEquals("", result.getOutput());
+		assertEquals("", result.getError());
+
+		BufferedReader reader = new BufferedReader(new FileReader(log));
+		List<String> lines = new ArrayList<String>();
+		String line;
+
+		while ((line = reader.readLine()) != null)
+		{
+			lines.add(line);
+		}
+
+		reader.close();
+
+		assertTrue(lines.contains("out"));
+		assertTrue(lines.contains("err"));
+	}
+
+	public void testRingBuffer()
+	{
+		RingBuffer buffer = new RingBuffer(4);
+
+		buffer.write('a');
+		buffer.write("bc".getBytes(), 0, 2);
+		assertEquals("abc", buffer.toString());
+		assertFalse(buffer.isTruncated());
+
+		buffer.write("defghij".getBytes(), 1, 5);
+		assertEquals("fghi", buffer.toString());
+		assertEquals(8, buffer.getTotal());
+		assertTrue(buffer.isTruncated());
+
+		buffer.write('k');
+		assertEquals("ghik", buffer.toString());
+	}
+
+	private File writeScript(String name, String... lines) throws IOException
+	{
+		File script = new File(workDir, name);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(script));
+
+		for (String line : lines)
+		{
+			writer.write(line);
+			writer.newLine();
+		}
+
+		writer.close();
+
+		return script;
+	}
+
+	private void delete(File file)
+	{
+		File[] files = file.listFiles();
+
+		if (files != null)
+		{
+			for (File child : files)
+			{
+				this.delete(child);
+			}
+		}
+
+		file.delete();
+	}
+}
@@ -20,8 +20,14 @@ package org.mskcc.cbio.importer;
 
 // imports
 import org.mskcc.cbio.importer.model.*;
+import org.mskcc.cbio.importer.util.CheckpointJournal;
+import org.mskcc.cbio.importer.util.ComponentRegistry;
+import org.mskcc.cbio.importer.util.ContentStore;
 import org.mskcc.cbio.portal.util.SpringUtil;
 import org.mskcc.cbio.portal.dao.DaoCancerStudy;
+import org.mskcc.cbio.metrics.MetricsExporter;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
 
 import org.apache.commons.cli.*;
 
@@ -62,6 +68,11 @@ public class Admin implements Runnable {
 	private static final String PORTAL_DATABASE = "portal";
 	private static final String IMPORTER_DATABASE = "importer";
 
+	// commands which instantiate converters, importers or fetchers
+	private static final Set<String> COMPONENT_COMMANDS =
+		new HashSet<String>(Arrays.asList("fetch_reference_data", "apply_overrides", "convert_data",
+										  "import_reference_data", "import_data", "update_study_data"));
+
 	private int numStudiesUpdated;
 
 	// parsed command line
@@ -199,6 +210,21 @@ public class Admin implements Runnable {
 									.withDescription("Delete a cancer study matching the given cancer study id.")
 									.create("delete_cancer_study"));
 
+        Option gcContentStore = (OptionBuilder.hasArg(false)
+								 .withDescription("Delete stored downloads which are no longer referenced by any download directory.")
+								 .create("gc_content_store"));
+
+        Option metrics = (OptionBuilder.withArgName("file_prefix")
+						  .hasArg()
+						  .withDescription("Write stage metrics of this run to <file_prefix>.prom (Prometheus text format) and <file_prefix>.json.")
+						  .create("metrics"));
+
+        Option checkpoint = (OptionBuilder.withArgName("journal_file")
+							 .hasArg()
+							 .withDescription("Record each completed study/datatype of convert_data, import_data and annotate_mafs in the given journal.  " +
+											  "When the command is rerun with the same journal, completed study/datatypes with unchanged output are skipped.")
+							 .create("checkpoint"));
+
 		// create an options instance
 		Options toReturn = new Options();
 
@@ -220,6 +246,9 @@ public class Admin implements Runnable {
 		toReturn.addOption(copySegFiles);
 		toReturn.addOption(redeployWar);
 		toReturn.addOption(deleteCancerStudy);
+		toReturn.addOption(gcContentStore);
+		toReturn.addOption(metrics);
+		toReturn.addOption(checkpoint);
 
 		// outta here
 		return toReturn;
@@ -262,7 +291,17 @@ public class Admin implements Runnable {
 			return;
 		}
 
+		Timer.Context timer = MetricsRegistry.getInstance().timer("admin_command_duration_seconds",
+																  "command", getCommandName()).start();
 		try {
+			// checkpoint journal
+			if (commandLine.hasOption("checkpoint")) {
+				CheckpointJournal.setInstance(new CheckpointJournal(new File(commandLine.getOptionValue("checkpoint"))));
+			}
+			// resolve converters & importers before any work is done
+			if (COMPONENT_COMMANDS.contains(getCommandName())) {
+				validateComponents();
+			}
 			// usage
 			if (commandLine.hasOption("help")) {
 				Admin.usage(new PrintWriter(System.out, true));
@@ -336,6 +375,9 @@ public class Admin implements Runnable {
 			else if (commandLine.hasOption("delete_cancer_study")) {
 				deleteCancerStudy(commandLine.getOptionValue("delete_cancer_study"));
 			}
+			else if (commandLine.hasOption("gc_content_store")) {
+				gcContentStore();
+			}
 			else {
 				Admin.usage(new PrintWriter(System.out, true));
 			}
@@ -343,6 +385,64 @@ public class Admin implements Runnable {
 		catch (Exception e) {
 			e.printStackTrace();
 		}
+		finally {
+			timer.stop();
+			if (commandLine.hasOption("metrics")) {
+				exportMetrics(commandLine.getOptionValue("metrics"));
+			}
+		}
+	}
+
+	/**
+	 * Returns the name of the command given on the command line.
+	 *
+	 * @return String
+	 */
+	private String getCommandName() {
+
+		for (Option option : commandLine.getOptions()) {
+			if (!option.getOpt().equals("metrics") && !option.getOpt().equals("checkpoint")) {
+				return option.getOpt();
+			}
+		}
+		return "help";
+	}
+
+	/**
+	 * Helper function to write the metrics collected during this run.
+	 *
+	 * @param filePrefix String
+	 */
+	private void exportMetrics(String filePrefix) {
+
+		try {
+			new MetricsExporter().export(filePrefix);
+			if (LOG.isInfoEnabled()) {
+				LOG.info("exportMetrics(), metrics written to: " + filePrefix + ".prom, " + filePrefix + ".json");
+			}
+		}
+		catch (IOException e) {
+			LOG.error("exportMetrics(), cannot write metrics: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Resolves the converter, importer and fetcher classes named in the
+	 * datatype and reference metadata.
+	 *
+	 * @throws Exception if any of them cannot be used
+	 */
+	private void validateComponents() throws Exception {
+
+		Config config = (Config)getBean("config");
+		List<String> problems = ComponentRegistry.getInstance().validate(config);
+		if (!problems.isEmpty()) {
+			for (String problem : problems) {
+				LOG.error("validateComponents(), " + problem);
+			}
+			throw new IllegalStateException("validateComponents(), " + problems.size() +
+											" misconfigured component(s), see log, aborting...");
+		}
 	}
 
 	/**
@@ -887,6 +987,25 @@ public class Admin implements Runnable {
 		return false;
 	}
 
+	/**
+	 * Helper function to delete unreferenced downloads from the content store.
+	 *
+	 * @throws Exception
+	 */
+	private void gcContentStore() throws Exception {
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("gcContentStore()");
+		}
+
+		ContentStore contentStore = (ContentStore)getBean("contentStore");
+		long released = contentStore.gc();
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("gcContentStore(), complete, released " + released + " bytes");
+		}
+	}
+
 	/**
 	 * Helper function to get a DataSourcesMetadata from
 	 * a given datasource (name).
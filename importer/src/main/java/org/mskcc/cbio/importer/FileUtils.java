@@ -21,6 +21,7 @@ package org.mskcc.cbio.importer;
 // imports
 import org.mskcc.cbio.importer.CaseIDs;
 import org.mskcc.cbio.importer.model.*;
+import org.mskcc.cbio.importer.util.OverridePlan;
 
 import org.apache.commons.io.LineIterator;
 
@@ -110,6 +111,19 @@ public interface FileUtils {
 	 */
 	List<DataMatrix> getDataMatrices(ImportDataRecord importDataRecord, DataMatrix methylationCorrelation) throws Exception;
 
+	/**
+	 * Opens the data file within the given ImportDataRecord as a
+	 * StreamingDataMatrix.  Returns null if the record does not hold exactly
+	 * one plain data file with at least one row (for example clinical or
+	 * mutation packs) - getDataMatrices() should be used instead.
+	 * The caller has to close the returned matrix.
+	 *
+	 * @param importDataRecord ImportDataRecord
+	 * @return StreamingDataMatrix
+	 * @throws Exception
+	 */
+	StreamingDataMatrix getStreamingDataMatrix(ImportDataRecord importDataRecord) throws Exception;
+
 	/**
 	 * Returns a list of missing caselists.  Applicable to
 	 * manually curated  studies checked into a 'studies' directory
@@ -234,6 +248,31 @@ public interface FileUtils {
 	void writeStagingFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
 						  DatatypeMetadata datatypeMetadata, DataMatrix dataMatrix) throws Exception;
 
+	/**
+	 * Creates a staging file with the remaining rows of the given StreamingDataMatrix.
+	 *
+     * @param stagingDirectory String
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param dataMatrix StreamingDataMatrix
+	 * @throws Exception
+	 */
+	void writeStreamingStagingFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+								   DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception;
+
+	/**
+	 * Method which writes a metadata file for the given DatatypeMetadata
+	 * once the given StreamingDataMatrix has been written.
+	 *
+     * @param stagingDirectory String
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param dataMatrix StreamingDataMatrix
+	 * @throws Exception
+	 */
+	void writeStreamingMetadataFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+									DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception;
+
 	/**
 	 * Creates a staging file for mutation data (and meta file) with contents from the given DataMatrix.
 	 * This is called when the mutation file needs to be run through the Annotator and Mutation Assessor Tools.
@@ -290,6 +329,14 @@ public interface FileUtils {
 	void applyOverride(String overrideDirectory, String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
 					   String overrideFilename, String stagingFilename) throws Exception;
 
+	/**
+	 * Applies the given planned override files, concurrently.
+	 *
+	 * @param overridePlan OverridePlan
+	 * @throws Exception
+	 */
+	void applyOverrides(OverridePlan overridePlan) throws Exception;
+
 	/**
 	 * Create a case list file from the given case list metadata file.
 	 *
@@ -325,7 +372,7 @@ public interface FileUtils {
 	 * @param portalMetadata PortalMetadata
 	 * @param datatypeMetadata DatatypeMetadata
 	 * @param remoteUserName String
-	 * @throws Exception
+	 * @throws Exception if any seg file cannot be copied
 	 */
 	void copySegFiles(PortalMetadata portalMetadata, DatatypeMetadata datatypeMetadata, String remoteUserName) throws Exception;
 	void redeployWar(PortalMetadata portalMetadata) throws Exception;
@@ -0,0 +1,47 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer;
+
+// imports
+import org.mskcc.cbio.importer.model.PortalMetadata;
+import org.mskcc.cbio.importer.model.DatatypeMetadata;
+import org.mskcc.cbio.importer.model.CancerStudyMetadata;
+import org.mskcc.cbio.importer.model.StreamingDataMatrix;
+
+/**
+ * Interface implemented by converters which only look at one row
+ * at a time.  When a datatype has a single data file, such a converter
+ * is handed a StreamingDataMatrix instead of a DataMatrix, so the file
+ * does not have to be loaded into memory.
+ */
+public interface StreamingConverter extends Converter {
+
+	/**
+	 * Creates a staging file from the given import data.
+	 * The given matrix is closed by the caller.
+	 *
+     * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param dataMatrix StreamingDataMatrix
+	 * @throws Exception
+	 */
+	void createStreamingStagingFile(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+									DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception;
+}
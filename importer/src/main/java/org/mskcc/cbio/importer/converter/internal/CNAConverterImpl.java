@@ -27,7 +27,7 @@ import java.util.*;
 /**
  * Class which implements the Converter interface.
  */
-public class CNAConverterImpl implements Converter {
+public class CNAConverterImpl implements StreamingConverter {
 
 	private static final String GENE_ID_COLUMN_HEADER_NAME = "Locus ID";
 	private static final String GENE_SYMBOL_COLUMN_HEADER_NAME = "Gene Symbol";
@@ -175,4 +175,48 @@ public class CNAConverterImpl implements Converter {
 			fileUtils.writeMetadataFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
 		}
 	}
+
+	/**
+	 * Creates a staging file from the given import data, one row at a time.
+	 *
+     * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param dataMatrix StreamingDataMatrix
+	 * @throws Exception
+	 */
+	@Override
+	public void createStreamingStagingFile(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+										   DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception {
+
+		// same steps as createStagingFile(), mapping is applied as rows are written
+		MapperUtil.mapGeneSymbolToID(dataMatrix, idMapper,
+									 GENE_ID_COLUMN_HEADER_NAME, GENE_SYMBOL_COLUMN_HEADER_NAME);
+		dataMatrix.renameColumn(GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+		dataMatrix.renameColumn(GENE_ID_COLUMN_HEADER_NAME, Converter.GENE_ID_COLUMN_HEADER_NAME);
+		dataMatrix.setGeneIDColumnHeading(Converter.GENE_ID_COLUMN_HEADER_NAME);
+		String[] columnsToIgnore = { Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_ID_COLUMN_HEADER_NAME }; // drop Cytoband
+		dataMatrix.convertCaseIDs(Arrays.asList(columnsToIgnore));
+		List<String> columnHeaders = dataMatrix.getColumnHeaders();
+		columnHeaders.remove(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+		columnHeaders.add(0, Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+		columnHeaders.remove(Converter.GENE_ID_COLUMN_HEADER_NAME);
+		columnHeaders.add(1, Converter.GENE_ID_COLUMN_HEADER_NAME);
+		dataMatrix.setColumnOrder(columnHeaders);
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("createStreamingStagingFile(), writing staging file.");
+		}
+		fileUtils.writeStreamingStagingFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
+		if (LOG.isInfoEnabled()) {
+			LOG.info("createStreamingStagingFile(), complete, rows read: " + dataMatrix.getNumberOfRows());
+		}
+
+		if (datatypeMetadata.requiresMetafile()){
+			if (LOG.isInfoEnabled()) {
+				LOG.info("createStreamingStagingFile(), writing metadata file.");
+			}
+			fileUtils.writeStreamingMetadataFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
+		}
+	}
 }
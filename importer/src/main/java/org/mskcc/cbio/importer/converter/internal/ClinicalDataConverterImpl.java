@@ -199,17 +199,17 @@ public class ClinicalDataConverterImpl extends ConverterBaseImpl implements Conv
 	private void combineColumns(DataMatrix dataMatrix)
 	{
 		int headerIndex = -1;
-		List<String> processedColumnHeaders = new ArrayList<String>();
+		// column header -> index of its first occurrence
+		Map<String, Integer> processedColumnHeaders = new HashMap<String, Integer>();
 		for (String externalColumnHeader : dataMatrix.getColumnHeaders()) {
 			++headerIndex;
-			if (processedColumnHeaders.contains(externalColumnHeader)) {
+			if (processedColumnHeaders.containsKey(externalColumnHeader)) {
         		logMessage(LOG, "duplicate column header, calling combineColumns(): " + externalColumnHeader);
-				combineColumns(dataMatrix, processedColumnHeaders.indexOf(externalColumnHeader), headerIndex);
+				combineColumns(dataMatrix, processedColumnHeaders.get(externalColumnHeader), headerIndex);
 				dataMatrix.ignoreColumn(headerIndex, true);
-				processedColumnHeaders.add("PLACEHOLDER_HEADER");
 			}
 			else {
-				processedColumnHeaders.add(externalColumnHeader);
+				processedColumnHeaders.put(externalColumnHeader, headerIndex);
 			}
 		}
 	}
@@ -271,7 +271,7 @@ public class ClinicalDataConverterImpl extends ConverterBaseImpl implements Conv
         for (String externalColumnHeader : dataMatrix.getColumnHeaders()) {
             if (!clinicalAttributes.containsKey(externalColumnHeader)) {
                 dataMatrix.ignoreColumn(externalColumnHeader, true);
-                String cdeId = cdeIds.get(dataMatrix.getColumnHeaders().indexOf(externalColumnHeader));
+                String cdeId = cdeIds.get(dataMatrix.getColumnIndex(externalColumnHeader));
                 cdeId = cdeId.replace(ClinicalAttributesNamespace.CDE_TAG, "");
                 missingAttributes.add(externalColumnHeader +
                                       ClinicalAttributesNamespace.CDE_DELIM +
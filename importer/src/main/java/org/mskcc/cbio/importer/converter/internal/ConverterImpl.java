@@ -23,12 +23,23 @@ import org.mskcc.cbio.importer.*;
 import org.mskcc.cbio.importer.model.*;
 import org.mskcc.cbio.importer.dao.ImportDataRecordDAO;
 import org.mskcc.cbio.importer.util.ClassLoader;
-
+import org.mskcc.cbio.importer.util.CheckpointJournal;
+import org.mskcc.cbio.importer.util.FileDigests;
+import org.mskcc.cbio.importer.util.OverridePlan;
+import org.mskcc.cbio.importer.util.ComponentRegistry;
+import org.mskcc.cbio.importer.persistence.staging.StagingCommonNames;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.*;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Class which implements the Converter interface.
@@ -38,6 +49,9 @@ class ConverterImpl implements Converter {
 	// our logger
 	private static final Log LOG = LogFactory.getLog(ConverterImpl.class);
 
+	// extension of block compressed staging files
+	private static final String STAGING_COMPRESSED_SUFFIX = "." + StagingCommonNames.COMPRESSED_FILE_EXTENSION;
+
 	// ref to configuration
 	private Config config;
 
@@ -53,6 +67,9 @@ class ConverterImpl implements Converter {
 	// ref to IDMapper
 	private IDMapper idMapper;
 
+	// ref to stage metrics
+	private MetricsRegistry metrics = MetricsRegistry.getInstance();
+
 	/**
 	 * Constructor.
      *
@@ -123,39 +140,46 @@ class ConverterImpl implements Converter {
 					continue;
 				}
 
-				// get DataMatrices (may be multiple in the case of methylation, median zscores, gistic-genes
-				List<DataMatrix> dataMatrices = new ArrayList<DataMatrix>();
-                try {
-                    dataMatrices.addAll(getDataMatrices(portalMetadata, cancerStudyMetadata, datatypeMetadata, runDate, applyOverrides));
-                } catch (Exception e) {
-                    if (LOG.isInfoEnabled()) {
-                        LOG.error("convertData(), exception:\n" + e.getMessage());
-                    }
-                    continue;
-                }
-				if (dataMatrices.isEmpty()) {
+				// the inputs of the datatype
+				List<ImportDataRecord> importDataRecords;
+				try {
+					importDataRecords = getImportDataRecords(portalMetadata, cancerStudyMetadata, datatypeMetadata, runDate, applyOverrides);
+				} catch (Exception e) {
 					if (LOG.isInfoEnabled()) {
-						LOG.info("convertData(), no dataMatrices to process, skipping.");
+						LOG.error("convertData(), exception:\n" + e.getMessage());
+					}
+					metrics.counter("converter_failures", "study", cancerStudyMetadata.toString(),
+									"datatype", datatypeMetadata.getDatatype()).inc();
+					continue;
+				}
+				String inputDigest = getInputDigest(datatypeMetadata.getConverterClassName(), importDataRecords);
+
+				// skip datatypes converted by an earlier (interrupted) run from the same inputs if staging files are unchanged
+				if (isConverted(portalMetadata, cancerStudyMetadata, datatypeMetadata, inputDigest)) {
+					if (LOG.isInfoEnabled()) {
+						LOG.info("convertData(), already converted, skipping: " + cancerStudyMetadata + ":" + datatypeMetadata.getDatatype());
+					}
+					for (File stagingFile : getStagingFiles(portalMetadata, cancerStudyMetadata, datatypeMetadata)) {
+						if (stagingFile.exists()) {
+							createCancerStudyMetadataFile = true;
+						}
 					}
 					continue;
 				}
 
-				// we have at least 1 data matrix, we will need to create a cancer study metadata file
-				createCancerStudyMetadataFile = true;
-
-				// get converter and create staging file
-				Object[] args = { config, fileUtils, caseIDs, idMapper };
-				Converter converter;
-                                try {
-					converter = (Converter)ClassLoader.getInstance(datatypeMetadata.getConverterClassName(), args, false);
-                                        converter.createStagingFile(portalMetadata, cancerStudyMetadata, datatypeMetadata, dataMatrices.toArray(new DataMatrix[0]));
-				} catch (Exception ex) {
-                                    ex.printStackTrace();
-                                    if (LOG.isInfoEnabled()) {
-                                        LOG.error("convertData(), exception:\n" + ex.getMessage());
-                                    }
-                                    continue;
-                                }
+				Timer.Context timer = metrics.timer("converter_duration_seconds",
+													"study", cancerStudyMetadata.toString(),
+													"datatype", datatypeMetadata.getDatatype(),
+													"converter", getSimpleName(datatypeMetadata.getConverterClassName())).start();
+				try {
+					if (convertDatatype(portalMetadata, cancerStudyMetadata, datatypeMetadata, importDataRecords, inputDigest)) {
+						// we have at least 1 data matrix, we will need to create a cancer study metadata file
+						createCancerStudyMetadataFile = true;
+					}
+				}
+				finally {
+					timer.stop();
+				}
 			}
 
 			if (createCancerStudyMetadataFile) {
@@ -166,6 +190,244 @@ class ConverterImpl implements Converter {
 		}
 	}
 
+	/**
+	 * Converts the data of a single datatype of the given cancer study.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param importDataRecords List<ImportDataRecord>
+	 * @param inputDigest String digest of the import data records and converter
+	 * @return boolean true if there was at least one data matrix to convert
+	 * @throws Exception
+	 */
+	private boolean convertDatatype(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+									DatatypeMetadata datatypeMetadata, List<ImportDataRecord> importDataRecords,
+									String inputDigest) throws Exception {
+
+		String study = cancerStudyMetadata.toString();
+		String datatype = datatypeMetadata.getDatatype();
+
+		// a single data file is streamed through a row-local converter, otherwise
+		// get DataMatrices (may be multiple in the case of methylation, median zscores, gistic-genes
+		List<DataMatrix> dataMatrices = new ArrayList<DataMatrix>();
+		StreamingDataMatrix streamingDataMatrix = null;
+		try {
+			if (importDataRecords.size() == 1 && isStreamingConverter(datatypeMetadata)) {
+				streamingDataMatrix = fileUtils.getStreamingDataMatrix(importDataRecords.get(0));
+			}
+			if (streamingDataMatrix == null) {
+				dataMatrices.addAll(getDataMatrices(importDataRecords));
+			}
+		} catch (Exception e) {
+			if (LOG.isInfoEnabled()) {
+				LOG.error("convertData(), exception:\n" + e.getMessage());
+			}
+			metrics.counter("converter_failures", "study", study, "datatype", datatype).inc();
+			return false;
+		}
+		if (streamingDataMatrix != null) {
+			return convertStreamingDataMatrix(portalMetadata, cancerStudyMetadata, datatypeMetadata, streamingDataMatrix, inputDigest);
+		}
+		if (dataMatrices.isEmpty()) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info("convertData(), no dataMatrices to process, skipping.");
+			}
+			markConverted(portalMetadata, cancerStudyMetadata, datatypeMetadata, inputDigest);
+			return false;
+		}
+
+		long numRows = 0;
+		for (DataMatrix dataMatrix : dataMatrices) {
+			numRows += dataMatrix.getNumberOfRows();
+		}
+		metrics.counter("converter_matrices", "study", study, "datatype", datatype).inc(dataMatrices.size());
+		metrics.counter("converter_rows", "study", study, "datatype", datatype).inc(numRows);
+
+		// get converter and create staging file
+		Object[] args = { config, fileUtils, caseIDs, idMapper };
+		Converter converter;
+		try {
+			converter = (Converter)ClassLoader.getInstance(datatypeMetadata.getConverterClassName(), args, false);
+			converter.createStagingFile(portalMetadata, cancerStudyMetadata, datatypeMetadata, dataMatrices.toArray(new DataMatrix[0]));
+			markConverted(portalMetadata, cancerStudyMetadata, datatypeMetadata, inputDigest);
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			if (LOG.isInfoEnabled()) {
+				LOG.error("convertData(), exception:\n" + ex.getMessage());
+			}
+			metrics.counter("converter_failures", "study", study, "datatype", datatype).inc();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Converts the given streaming data matrix with the (streaming) converter
+	 * of the given datatype.  The matrix is closed.  The data is read while the
+	 * staging file is written, on a read or parse error no staging file is left.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param streamingDataMatrix StreamingDataMatrix
+	 * @param inputDigest String
+	 * @return boolean true if the staging file was written
+	 */
+	private boolean convertStreamingDataMatrix(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+											   DatatypeMetadata datatypeMetadata, StreamingDataMatrix streamingDataMatrix,
+											   String inputDigest) {
+
+		String study = cancerStudyMetadata.toString();
+		String datatype = datatypeMetadata.getDatatype();
+
+		metrics.counter("converter_matrices", "study", study, "datatype", datatype).inc();
+
+		Object[] args = { config, fileUtils, caseIDs, idMapper };
+		StreamingConverter converter;
+		try {
+			converter = (StreamingConverter)ClassLoader.getInstance(datatypeMetadata.getConverterClassName(), args, false);
+			converter.createStreamingStagingFile(portalMetadata, cancerStudyMetadata, datatypeMetadata, streamingDataMatrix);
+			markConverted(portalMetadata, cancerStudyMetadata, datatypeMetadata, inputDigest);
+			return true;
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			if (LOG.isInfoEnabled()) {
+				LOG.error("convertData(), exception:\n" + ex.getMessage());
+			}
+			metrics.counter("converter_failures", "study", study, "datatype", datatype).inc();
+			return false;
+		}
+		finally {
+			IOUtils.closeQuietly(streamingDataMatrix);
+			metrics.counter("converter_rows", "study", study, "datatype", datatype).inc(streamingDataMatrix.getNumberOfRows());
+		}
+	}
+
+	/**
+	 * Determines if the converter of the given datatype can convert
+	 * a StreamingDataMatrix.  An unknown converter cannot, it is
+	 * reported when the converter is instantiated.
+	 *
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @return boolean
+	 */
+	private boolean isStreamingConverter(DatatypeMetadata datatypeMetadata) {
+
+		return ComponentRegistry.getInstance().isAssignableTo(datatypeMetadata.getConverterClassName(),
+															   StreamingConverter.class);
+	}
+
+	/**
+	 * Determines if the given datatype has been converted by an earlier run
+	 * (according to the checkpoint journal) from the same inputs and its
+	 * staging files are unchanged.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param inputDigest String
+	 * @return boolean
+	 * @throws Exception
+	 */
+	private boolean isConverted(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+								DatatypeMetadata datatypeMetadata, String inputDigest) throws Exception {
+
+		CheckpointJournal journal = CheckpointJournal.getInstance();
+		String study = cancerStudyMetadata.toString();
+		String datatype = datatypeMetadata.getDatatype();
+		return (journal.isEnabled() &&
+				journal.isComplete(CheckpointJournal.CONVERT_STAGE, study, datatype,
+								   getConversionDigest(inputDigest, getStagingFiles(portalMetadata, cancerStudyMetadata, datatypeMetadata))));
+	}
+
+	/**
+	 * Records the given datatype as converted in the checkpoint journal.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param inputDigest String
+	 * @throws Exception
+	 */
+	private void markConverted(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+							   DatatypeMetadata datatypeMetadata, String inputDigest) throws Exception {
+
+		CheckpointJournal journal = CheckpointJournal.getInstance();
+		if (journal.isEnabled()) {
+			journal.markComplete(CheckpointJournal.CONVERT_STAGE, cancerStudyMetadata.toString(), datatypeMetadata.getDatatype(),
+								 getConversionDigest(inputDigest, getStagingFiles(portalMetadata, cancerStudyMetadata, datatypeMetadata)));
+		}
+	}
+
+	/**
+	 * Returns a digest of the inputs of a conversion - the converter class and
+	 * the data (path, archived file and digest) of the import data records.
+	 * Override files are part of the records, see getImportDataRecords().
+	 *
+	 * @param converterClassName String
+	 * @param importDataRecords List<ImportDataRecord>
+	 * @return String
+	 */
+	static String getInputDigest(String converterClassName, List<ImportDataRecord> importDataRecords) {
+
+		StringBuilder inputs = new StringBuilder(String.valueOf(converterClassName));
+		for (ImportDataRecord importData : importDataRecords) {
+			inputs.append("\n").append(importData.getCanonicalPathToData())
+				.append("\t").append(importData.getDataFilename())
+				.append("\t").append(importData.getDigest());
+		}
+		return DigestUtils.md5Hex(inputs.toString());
+	}
+
+	/**
+	 * Returns the digest of a conversion recorded in the checkpoint journal,
+	 * made of the digest of its inputs and the digest of its staging files.
+	 *
+	 * @param inputDigest String
+	 * @param stagingFiles List<File>
+	 * @return String
+	 * @throws IOException
+	 */
+	static String getConversionDigest(String inputDigest, List<File> stagingFiles) throws IOException {
+		return inputDigest + "/" + FileDigests.digest(stagingFiles);
+	}
+
+	/**
+	 * Returns the staging & meta files the given datatype is converted into.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @return List<File>
+	 * @throws Exception
+	 */
+	private List<File> getStagingFiles(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+									   DatatypeMetadata datatypeMetadata) throws Exception {
+
+		Set<File> toReturn = new LinkedHashSet<File>();
+		File studyDirectory = new File(portalMetadata.getStagingDirectory(), cancerStudyMetadata.getStudyPath());
+		for (String filename : new String[] { datatypeMetadata.getStagingFilename(), datatypeMetadata.getMetaFilename() }) {
+			if (filename == null || filename.isEmpty()) {
+				continue;
+			}
+			filename = filename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
+			if (filename.indexOf("*") > -1) {
+				for (String match : fileUtils.listFiles(studyDirectory, filename)) {
+					toReturn.add(new File(match).getCanonicalFile());
+				}
+				for (String match : fileUtils.listFiles(studyDirectory, filename + STAGING_COMPRESSED_SUFFIX)) {
+					toReturn.add(new File(match).getCanonicalFile());
+				}
+				filename = filename.replaceAll("_\\*", "");
+			}
+			File stagingFile = new File(studyDirectory, filename).getCanonicalFile();
+			toReturn.add(stagingFile);
+			toReturn.add(StagingUtils.getCompressedFile(stagingFile));
+		}
+		return new ArrayList<File>(toReturn);
+	}
+
 	/**
 	 * Generates case lists for the given portal.
 	 *
@@ -229,7 +491,8 @@ class ConverterImpl implements Converter {
             return;
         }
 
-		// iterate over all cancer studies
+		// plan the overrides of all cancer studies, then apply them at once
+		OverridePlan overridePlan = new OverridePlan();
 		for (CancerStudyMetadata cancerStudyMetadata : config.getCancerStudyMetadata(portalMetadata.getName())) {
 			// iterate over all datatypes
 			for (DatatypeMetadata datatypeMetadata : config.getDatatypeMetadata(portalMetadata, cancerStudyMetadata)) {
@@ -249,21 +512,37 @@ class ConverterImpl implements Converter {
 					if (stagingFilename.lastIndexOf(File.separator) > -1) {
 						stagingFilename = stagingFilename.substring(stagingFilename.lastIndexOf(File.separator)+1);
 					}
-					fileUtils.applyOverride(portalMetadata.getOverrideDirectory(), portalMetadata.getStagingDirectory(),
-	                                        cancerStudyMetadata, stagingFilename, stagingFilename);
+					planOverride(overridePlan, portalMetadata, cancerStudyMetadata, stagingFilename);
 				}
 				// apply metadata override
 				if (datatypeMetadata.requiresMetafile()) {
-					fileUtils.applyOverride(portalMetadata.getOverrideDirectory(), portalMetadata.getStagingDirectory(),
-                                            cancerStudyMetadata, datatypeMetadata.getMetaFilename(), datatypeMetadata.getMetaFilename());
+					planOverride(overridePlan, portalMetadata, cancerStudyMetadata, datatypeMetadata.getMetaFilename());
 				}
 			}
 			// case lists
 			if (applyCaseLists) {
-				fileUtils.applyOverride(portalMetadata.getOverrideDirectory(), portalMetadata.getStagingDirectory(),
-                                        cancerStudyMetadata, FileUtils.CASE_LIST_DIRECTORY_NAME, FileUtils.CASE_LIST_DIRECTORY_NAME);
+				planOverride(overridePlan, portalMetadata, cancerStudyMetadata, FileUtils.CASE_LIST_DIRECTORY_NAME);
 			}
 		}
+		fileUtils.applyOverrides(overridePlan);
+	}
+
+	/**
+	 * Adds the override of the given file (or directory) of a cancer study
+	 * to the given plan, if there is one.
+	 *
+	 * @param overridePlan OverridePlan
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param filename String
+	 */
+	private void planOverride(OverridePlan overridePlan, PortalMetadata portalMetadata,
+							  CancerStudyMetadata cancerStudyMetadata, String filename) {
+
+		overridePlan.add(new File(portalMetadata.getOverrideDirectory() + File.separator +
+								  cancerStudyMetadata.getStudyPath() + File.separator + filename),
+						 new File(portalMetadata.getStagingDirectory() + File.separator +
+								  cancerStudyMetadata.getStudyPath() + File.separator + filename));
 	}
 
 	/**
@@ -281,15 +560,23 @@ class ConverterImpl implements Converter {
 		throw new UnsupportedOperationException();
 	}
 
-	private List<DataMatrix> getDataMatrices(PortalMetadata portalMetadata,
-                                             CancerStudyMetadata cancerStudyMetadata,
-                                             DatatypeMetadata datatypeMetadata,
-                                             String runDate,
-                                             Boolean applyOverrides) throws Exception {
-
-
-		// this is what we are returing
-		List<DataMatrix> toReturn = new ArrayList<DataMatrix>();
+	/**
+	 * Returns the ImportDataRecords of the given datatype, override
+	 * files (if any) are set as the path to data.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param runDate String
+	 * @param applyOverrides Boolean
+	 * @return List<ImportDataRecord>
+	 * @throws Exception
+	 */
+	private List<ImportDataRecord> getImportDataRecords(PortalMetadata portalMetadata,
+														CancerStudyMetadata cancerStudyMetadata,
+														DatatypeMetadata datatypeMetadata,
+														String runDate,
+														Boolean applyOverrides) throws Exception {
 
 		// the data type we are interested in...
 		String datatype = datatypeMetadata.getDatatype();
@@ -297,7 +584,7 @@ class ConverterImpl implements Converter {
 		String tumorType = getTumorType(cancerStudyMetadata);
 
 		if (LOG.isInfoEnabled()) {
-			LOG.info("getDataMatrices(), looking for all ImportDataRecord matching: " +
+			LOG.info("getImportDataRecords(), looking for all ImportDataRecord matching: " +
 					 tumorType + ":" +
 					 datatype + ":" + 
 					 cancerStudyMetadata.getCenter() + ".");
@@ -310,7 +597,7 @@ class ConverterImpl implements Converter {
                                                                                              Fetcher.LATEST_RUN_INDICATOR : runDate);
 		if (importDataRecords.size() > 0) {
 			if (LOG.isInfoEnabled()) {
-				LOG.info("getDataMatrices(), found " + importDataRecords.size() +
+				LOG.info("getImportDataRecords(), found " + importDataRecords.size() +
 						 " ImportDataRecord objects matching: " +
 						 tumorType + ":" +
 						 datatype + ":" + 
@@ -324,7 +611,6 @@ class ConverterImpl implements Converter {
 				Collections.sort(importDataRecords, new ImportDataRecordComparator());
                             }
 			}
-			DataMatrix methylationCorrelation = null;
 			for (ImportDataRecord importData : importDataRecords) {
 				// do we have to check for an override file?
 				if (applyOverrides) {
@@ -333,35 +619,57 @@ class ConverterImpl implements Converter {
 					File overrideFile = fileUtils.getOverrideFile(portalMetadata, cancerStudyMetadata, dataFilename);
 					if (overrideFile != null) {
 						if (LOG.isInfoEnabled()) {
-							LOG.info("getDataMatrices(), found an override file for: " + 
+							LOG.info("getImportDataRecords(), found an override file for: " + 
 									 cancerStudyMetadata.toString() + ", datatype: " + datatype + ": " + 
 									 overrideFile.getCanonicalPath());
 						}
-						// if an override file does exist, lets replace canonical path in importData
+						// if an override file does exist, lets replace canonical path (and digest) in importData
 						importData.setCanonicalPathToData(overrideFile.getCanonicalPath());
+						importData.setDigest(fileUtils.getMD5Digest(overrideFile));
 					}
 				}
-				List<DataMatrix> dataMatrices = fileUtils.getDataMatrices(importData, methylationCorrelation);
-				if (!dataMatrices.isEmpty()) {
-					if (importData.getDataFilename().contains(DatatypeMetadata.CORRELATE_METHYL_FILE_ID)) {
-                        assert dataMatrices.size() == 1;
-						methylationCorrelation = dataMatrices.get(0);
-					}
-					toReturn.addAll(dataMatrices);
-				}
+				metrics.counter("converter_input_bytes",
+								"study", cancerStudyMetadata.toString(),
+								"datatype", datatype).inc(new File(importData.getCanonicalPathToData()).length());
 			}
 		}
 		else if (LOG.isInfoEnabled()) {
-			LOG.info("getDataMatrices(), cannot find any ImportDataRecord objects matching: " +
+			LOG.info("getImportDataRecords(), cannot find any ImportDataRecord objects matching: " +
 					 tumorType + ":" +
 					 datatype + ":" + 
 					 cancerStudyMetadata.getCenter() + ".");
 		}
 
+		// outta here
+		return importDataRecords;
+	}
+
+	private List<DataMatrix> getDataMatrices(List<ImportDataRecord> importDataRecords) throws Exception {
+
+		// this is what we are returing
+		List<DataMatrix> toReturn = new ArrayList<DataMatrix>();
+
+		DataMatrix methylationCorrelation = null;
+		for (ImportDataRecord importData : importDataRecords) {
+			List<DataMatrix> dataMatrices = fileUtils.getDataMatrices(importData, methylationCorrelation);
+			if (!dataMatrices.isEmpty()) {
+				if (importData.getDataFilename().contains(DatatypeMetadata.CORRELATE_METHYL_FILE_ID)) {
+                    assert dataMatrices.size() == 1;
+					methylationCorrelation = dataMatrices.get(0);
+				}
+				toReturn.addAll(dataMatrices);
+			}
+		}
+
 		// outta here
 		return toReturn;
 	}
 
+	private String getSimpleName(String className)
+	{
+		return (className == null) ? "" : className.substring(className.lastIndexOf('.') + 1);
+	}
+
 	String getTumorType(CancerStudyMetadata cancerStudyMetadata)
 	{
 		if (cancerStudyMetadata.getStudyPath().contains("tcga")) {
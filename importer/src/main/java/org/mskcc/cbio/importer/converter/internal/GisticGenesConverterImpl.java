@@ -32,20 +32,6 @@ public class GisticGenesConverterImpl implements Converter {
 	// our logger
 	private static final Log LOG = LogFactory.getLog(GisticGenesConverterImpl.class);
 
-	// statics for row identifiers in *_genes.conf_99.txt
-	private static final String GENES_CONF_CYTOBAND_ROW_HEADER_NAME = "cytoband";
-	private static final String GENES_CONF_Q_VALUE_ROW_HEADER_NAME = "q value";
-	private static final String GENES_CONF_GENES_IN_WIDE_PEAK_ROW_HEADER_NAME = "genes in wide peak";
-	// statics for column identifiers in table_*.conf_99.txt
-	private static final String TABLE_CONF_AMP_COLUMN_HEADER_NAME = "amp";
-	private static final String TABLE_CONF_CYTOBAND_COLUMN_HEADER_NAME = "cytoband";
-	private static final String TABLE_CONF_Q_VALUE_COLUMN_HEADER_NAME = "q_value";
-	private static final String TABLE_CONF_INDEX_COLUMN_HEADER_NAME = "index";
-	private static final String TABLE_CONF_GENES_IN_REGION_HEADER_NAME = "genes_in_region";
-	private static final String TABLE_CONF_GENES_IN_REGION_DELIMITER = ",";
-	// our GeneConfMap value delimiter
-	private static final String GENE_CONF_MAP_VALUE_DELIMITER = ":";
-
 	// ref to configuration
 	private Config config;
 
@@ -139,13 +125,13 @@ public class GisticGenesConverterImpl implements Converter {
 		// and which matrix is table_*.conf_90.txt
 		DataMatrix dataMatrixGenesConf = null;
 		DataMatrix dataMatrixTableConf = null;
-		if (dataMatrices[0].getColumnHeaders().get(0).equalsIgnoreCase(GENES_CONF_CYTOBAND_ROW_HEADER_NAME) &&
-			dataMatrices[1].getColumnHeaders().get(0).equalsIgnoreCase(TABLE_CONF_INDEX_COLUMN_HEADER_NAME)) {
+		if (dataMatrices[0].getColumnHeaders().get(0).equalsIgnoreCase(GisticPeakIndex.GENES_CONF_CYTOBAND_ROW_HEADER_NAME) &&
+			dataMatrices[1].getColumnHeaders().get(0).equalsIgnoreCase(GisticPeakIndex.TABLE_CONF_INDEX_COLUMN_HEADER_NAME)) {
 			dataMatrixGenesConf = dataMatrices[0];
 			dataMatrixTableConf = dataMatrices[1];
 		}
-		else if (dataMatrices[0].getColumnHeaders().get(0).equalsIgnoreCase(TABLE_CONF_INDEX_COLUMN_HEADER_NAME) && 
-				 dataMatrices[1].getColumnHeaders().get(0).equalsIgnoreCase(GENES_CONF_CYTOBAND_ROW_HEADER_NAME)) {
+		else if (dataMatrices[0].getColumnHeaders().get(0).equalsIgnoreCase(GisticPeakIndex.TABLE_CONF_INDEX_COLUMN_HEADER_NAME) && 
+				 dataMatrices[1].getColumnHeaders().get(0).equalsIgnoreCase(GisticPeakIndex.GENES_CONF_CYTOBAND_ROW_HEADER_NAME)) {
 			dataMatrixTableConf = dataMatrices[0];
 			dataMatrixGenesConf = dataMatrices[1];
 		}
@@ -156,10 +142,16 @@ public class GisticGenesConverterImpl implements Converter {
 			return;
 		}
 
-		// process *_genes.conf_99.txt file first - get map, geneset is key, cytoband:q-value is value
-		Map<String, String> geneConfMap = null;
+		// index the peaks of *_genes.conf_99.txt by their genes, then join
+		// table_*.conf_99.txt regions to them - adds amp, cytoband and q_value columns
+		String ampFlag = (datatypeMetadata.getDatatype().contains("amp") || datatypeMetadata.getDatatype().contains("AMP")) ? "1" : "0";
 		try {
-			geneConfMap = getGenesConfMap(dataMatrixGenesConf);
+			GisticPeakIndex peakIndex = new GisticPeakIndex(dataMatrixGenesConf);
+			int numJoined = peakIndex.join(dataMatrixTableConf, ampFlag);
+			if (LOG.isInfoEnabled()) {
+				LOG.info("createStagingFile(), joined " + numJoined + " of " + dataMatrixTableConf.getNumberOfRows() +
+						 " regions to " + peakIndex.getNumberOfPeaks() + " peaks");
+			}
 		}
 		catch (Exception e) {
 			if (LOG.isErrorEnabled()) {
@@ -168,30 +160,6 @@ public class GisticGenesConverterImpl implements Converter {
 			return;
 		}
 
-		// now that we have *_genes.conf_99.txt map, we can process table_*.conf_90.txt
-		// - add amp, cytoband and q_value columns to table_*.conf_90.txt
-		List<String> amp = new ArrayList<String>();
-		List<String> cytobandColumnData = new ArrayList<String>();
-		List<String> qValueColumnData = new ArrayList<String>();
-		String ampFlag = (datatypeMetadata.getDatatype().contains("amp") || datatypeMetadata.getDatatype().contains("AMP")) ? "1" : "0";
-		for (String geneSet : dataMatrixTableConf.getColumnData(TABLE_CONF_GENES_IN_REGION_HEADER_NAME).get(0)) {
-			if (geneSet.endsWith(TABLE_CONF_GENES_IN_REGION_DELIMITER)) {
-				geneSet = geneSet.substring(0, geneSet.length()-1);
-			}
-			if (geneConfMap.containsKey(geneSet)) {
-				String[] cytobandQValuePair = geneConfMap.get(geneSet).split(GENE_CONF_MAP_VALUE_DELIMITER);
-				cytobandColumnData.add(cytobandQValuePair[0]);
-				qValueColumnData.add(cytobandQValuePair[1]);
-				amp.add(ampFlag);
-			}
-			else if (LOG.isInfoEnabled()) {
-				LOG.info("createStagingFile(), cannot find GeneConfMap key: " + geneSet);
-			}
-		}
-		dataMatrixTableConf.addColumn(TABLE_CONF_AMP_COLUMN_HEADER_NAME, amp);
-		dataMatrixTableConf.addColumn(TABLE_CONF_CYTOBAND_COLUMN_HEADER_NAME, cytobandColumnData);
-		dataMatrixTableConf.addColumn(TABLE_CONF_Q_VALUE_COLUMN_HEADER_NAME, qValueColumnData);
-
 		if (LOG.isInfoEnabled()) {
 			LOG.info("createStagingFile(), writing staging file.");
 		}
@@ -208,62 +176,4 @@ public class GisticGenesConverterImpl implements Converter {
 			fileUtils.writeMetadataFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrixTableConf);
 		}	
 	}
-
-	/**
-	 * Helper function to process *_genes.conf_99.txt files
-	 *
-	 * @param dataMatrix DataMatrix
-	 * @return Map<String, String>
-	 * @throws Exception
-	 */
-	private Map<String,String> getGenesConfMap(DataMatrix dataMatrixGenesConf) throws Exception {
-
-		// the map to return
-		Map<String,String> toReturn = new HashMap<String,String>();
-
-		// the column headers are actually the cytobands
-		List<String> geneConfColumnHeaders = dataMatrixGenesConf.getColumnHeaders();
-		int cytobandColumnIndex = geneConfColumnHeaders.indexOf(GENES_CONF_CYTOBAND_ROW_HEADER_NAME);
-		// sanity check - "cytoband" label should be first column header
-		if (cytobandColumnIndex != 0) {
-			throw new IllegalArgumentException("Corrupt *_genes.conf_99.txt, aborting...");
-		}
-
-		// get row headers and determine which row contains qValues and which contains genes-in-wide-peak
-		List<String> geneConfRowHeaders = dataMatrixGenesConf.getColumnData(GENES_CONF_CYTOBAND_ROW_HEADER_NAME).get(0);
-		int qValueRowIndex = geneConfRowHeaders.indexOf(GENES_CONF_Q_VALUE_ROW_HEADER_NAME);
-		int genesInWidePeakStartRowIndex = geneConfRowHeaders.indexOf(GENES_CONF_GENES_IN_WIDE_PEAK_ROW_HEADER_NAME);
-		// sanity check
-		if (qValueRowIndex == -1 || genesInWidePeakStartRowIndex == -1) {
-			throw new IllegalArgumentException("Corrupt *_genes.conf_99.txt, aborting...");
-		}
-
-		// interate over all cytobands and put proper key:value pairs into our return map
-		for (int lc = 1; lc < geneConfColumnHeaders.size(); lc++) {
-			// the cytoband is the column header
-			String cytoband = geneConfColumnHeaders.get(lc);
-			// the column of data for this cytoband
-			List<String> columnDataForThisCytoband = dataMatrixGenesConf.getColumnData(lc);
-			// get the q-value, its in the column indexed by lc, and row qValueRowIndex
-			String qValue = columnDataForThisCytoband.get(qValueRowIndex);
-			// the wide peak gene set
-			StringBuilder genesInWidePeak = new StringBuilder();
-			for (String gene : columnDataForThisCytoband.subList(genesInWidePeakStartRowIndex, columnDataForThisCytoband.size())) {
-				if (gene.length() > 0) {
-					genesInWidePeak.append(gene + TABLE_CONF_GENES_IN_REGION_DELIMITER);
-				}
-			}
-			String genesInWidePeakKey = genesInWidePeak.substring(0, genesInWidePeak.length()-1);
-			String genesInWidePeakValue = cytoband + GENE_CONF_MAP_VALUE_DELIMITER + qValue;
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("getGenesConfMap(), adding the following key-value to genesConfMap:");
-				LOG.debug(genesInWidePeakKey + "->" + genesInWidePeakValue);
-			}
-			toReturn.put(genesInWidePeakKey, genesInWidePeakValue);
-		}
-
-		// outta here
-		return toReturn;
-	}
 }
-
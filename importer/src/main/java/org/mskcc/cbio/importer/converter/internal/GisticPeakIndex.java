@@ -0,0 +1,205 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.converter.internal;
+
+// imports
+import org.mskcc.cbio.importer.model.DataMatrix;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+
+/**
+ * The wide peaks of a GISTIC *_genes.conf_99.txt table, indexed by the genes in
+ * the peak, used to join the peaks (cytoband, q value) to the regions of a
+ * table_*.conf_99.txt table.
+ *
+ * In *_genes.conf_99.txt every column (but the first, which holds the row labels)
+ * is a peak - its header is the cytoband, its rows hold the q value and, from the
+ * "genes in wide peak" row on, the genes.  Each column is walked once.
+ */
+public class GisticPeakIndex {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(GisticPeakIndex.class);
+
+	// statics for row identifiers in *_genes.conf_99.txt
+	static final String GENES_CONF_CYTOBAND_ROW_HEADER_NAME = "cytoband";
+	static final String GENES_CONF_Q_VALUE_ROW_HEADER_NAME = "q value";
+	static final String GENES_CONF_GENES_IN_WIDE_PEAK_ROW_HEADER_NAME = "genes in wide peak";
+	// statics for column identifiers in table_*.conf_99.txt
+	static final String TABLE_CONF_AMP_COLUMN_HEADER_NAME = "amp";
+	static final String TABLE_CONF_CYTOBAND_COLUMN_HEADER_NAME = "cytoband";
+	static final String TABLE_CONF_Q_VALUE_COLUMN_HEADER_NAME = "q_value";
+	static final String TABLE_CONF_INDEX_COLUMN_HEADER_NAME = "index";
+	static final String TABLE_CONF_GENES_IN_REGION_HEADER_NAME = "genes_in_region";
+	static final String TABLE_CONF_GENES_IN_REGION_DELIMITER = ",";
+
+	/**
+	 * A wide peak.
+	 */
+	static class Peak {
+
+		final String cytoband;
+		final String qValue;
+
+		Peak(String cytoband, String qValue) {
+			this.cytoband = cytoband;
+			this.qValue = qValue;
+		}
+	}
+
+	// genes in wide peak (delimited like genes_in_region) -> peak
+	private final Map<String, Peak> peaks = new HashMap<String, Peak>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dataMatrixGenesConf DataMatrix *_genes.conf_99.txt
+	 * @throws IllegalArgumentException if the table is corrupt
+	 */
+	public GisticPeakIndex(DataMatrix dataMatrixGenesConf) {
+
+		// the column headers are actually the cytobands
+		List<String> geneConfColumnHeaders = dataMatrixGenesConf.getColumnHeaders();
+		// sanity check - "cytoband" label should be first column header
+		if (geneConfColumnHeaders.isEmpty() || !geneConfColumnHeaders.get(0).equals(GENES_CONF_CYTOBAND_ROW_HEADER_NAME)) {
+			throw new IllegalArgumentException("Corrupt *_genes.conf_99.txt, aborting...");
+		}
+
+		// determine which row contains qValues and which starts genes-in-wide-peak
+		int qValueRowIndex = -1;
+		int genesInWidePeakStartRowIndex = -1;
+		int row = 0;
+		for (String rowHeader : dataMatrixGenesConf.getColumnData(0)) {
+			if (qValueRowIndex == -1 && rowHeader.equals(GENES_CONF_Q_VALUE_ROW_HEADER_NAME)) {
+				qValueRowIndex = row;
+			}
+			if (genesInWidePeakStartRowIndex == -1 && rowHeader.equals(GENES_CONF_GENES_IN_WIDE_PEAK_ROW_HEADER_NAME)) {
+				genesInWidePeakStartRowIndex = row;
+			}
+			++row;
+		}
+		// sanity check
+		if (qValueRowIndex == -1 || genesInWidePeakStartRowIndex == -1) {
+			throw new IllegalArgumentException("Corrupt *_genes.conf_99.txt, aborting...");
+		}
+
+		// a peak per column, a later peak with the same genes wins
+		for (int lc = 1; lc < geneConfColumnHeaders.size(); lc++) {
+			String qValue = null;
+			StringBuilder genesInWidePeak = new StringBuilder();
+			row = 0;
+			for (String value : dataMatrixGenesConf.getColumnData(lc)) {
+				if (row == qValueRowIndex) {
+					qValue = value;
+				}
+				else if (row >= genesInWidePeakStartRowIndex && value.length() > 0) {
+					if (genesInWidePeak.length() > 0) {
+						genesInWidePeak.append(TABLE_CONF_GENES_IN_REGION_DELIMITER);
+					}
+					genesInWidePeak.append(value);
+				}
+				++row;
+			}
+			if (qValue == null || genesInWidePeak.length() == 0) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("GisticPeakIndex(), no q value or genes for peak: " + geneConfColumnHeaders.get(lc) + ", skipping...");
+				}
+				continue;
+			}
+			peaks.put(genesInWidePeak.toString(), new Peak(geneConfColumnHeaders.get(lc), qValue));
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("GisticPeakIndex(), indexed " + peaks.size() + " peaks");
+		}
+	}
+
+	public int getNumberOfPeaks() {
+		return peaks.size();
+	}
+
+	/**
+	 * Returns the peak of the given genes_in_region value, null if there is none.
+	 *
+	 * @param genesInRegion String
+	 * @return Peak
+	 */
+	Peak getPeak(String genesInRegion) {
+
+		if (genesInRegion.endsWith(TABLE_CONF_GENES_IN_REGION_DELIMITER)) {
+			genesInRegion = genesInRegion.substring(0, genesInRegion.length() - 1);
+		}
+		return peaks.get(genesInRegion);
+	}
+
+	/**
+	 * Adds the amp, cytoband and q_value columns to the given table_*.conf_99.txt
+	 * matrix.  Regions without a peak are ignored.
+	 *
+	 * @param dataMatrixTableConf DataMatrix
+	 * @param ampFlag String value of the amp column
+	 * @return int number of regions joined to a peak
+	 */
+	public int join(DataMatrix dataMatrixTableConf, String ampFlag) {
+
+		List<LinkedList<String>> genesInRegionColumns = dataMatrixTableConf.getColumnData(TABLE_CONF_GENES_IN_REGION_HEADER_NAME);
+		if (genesInRegionColumns.isEmpty()) {
+			throw new IllegalArgumentException("Corrupt table_*.conf_99.txt, missing " +
+											   TABLE_CONF_GENES_IN_REGION_HEADER_NAME + ", aborting...");
+		}
+
+		int numberOfRows = dataMatrixTableConf.getNumberOfRows();
+		List<String> amp = new ArrayList<String>(numberOfRows);
+		List<String> cytobandColumnData = new ArrayList<String>(numberOfRows);
+		List<String> qValueColumnData = new ArrayList<String>(numberOfRows);
+		int numJoined = 0;
+		int row = 0;
+		for (String genesInRegion : genesInRegionColumns.get(0)) {
+			if (row == numberOfRows) {
+				break;
+			}
+			Peak peak = getPeak(genesInRegion);
+			if (peak != null) {
+				amp.add(ampFlag);
+				cytobandColumnData.add(peak.cytoband);
+				qValueColumnData.add(peak.qValue);
+				++numJoined;
+			}
+			else {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("join(), cannot find peak of genes_in_region: " + genesInRegion);
+				}
+				amp.add("");
+				cytobandColumnData.add("");
+				qValueColumnData.add("");
+				dataMatrixTableConf.ignoreRow(row, true);
+			}
+			++row;
+		}
+		dataMatrixTableConf.addColumn(TABLE_CONF_AMP_COLUMN_HEADER_NAME, amp);
+		dataMatrixTableConf.addColumn(TABLE_CONF_CYTOBAND_COLUMN_HEADER_NAME, cytobandColumnData);
+		dataMatrixTableConf.addColumn(TABLE_CONF_Q_VALUE_COLUMN_HEADER_NAME, qValueColumnData);
+
+		// outta here
+		return numJoined;
+	}
+}
@@ -157,7 +157,6 @@ public class MethylationConverterImpl implements Converter {
 
 		// get probe with lowest Spearman correlation for each gene in dataMatrixCorrelationData
 		// (this works whether or not dataMatrixCorrelationData is sorted by correlation value)
-		HashMap<String,String[]> lowestCorrelationMap = new HashMap<String,String[]>();
 		List<String> genes = null; List<String>methProbes = null; List<String>corrSpearman = null;
 		if (dataMatrixCorrelationData.getColumnData(CORRELATE_GENE_COLUMN_HEADER_NAME).size() > 0) {
 			genes = dataMatrixCorrelationData.getColumnData(CORRELATE_GENE_COLUMN_HEADER_NAME).get(0);
@@ -179,42 +178,11 @@ public class MethylationConverterImpl implements Converter {
 			}
 			return;
 		}
-		// iterate over all records
-		for (int lc = 0; lc < genes.size(); lc++) {
-			String gene = genes.get(lc);
-			String methProbe = methProbes.get(lc);
-			String cSpearman = corrSpearman.get(lc);
-			if (lowestCorrelationMap.containsKey(gene)) {
-				if (Double.valueOf(cSpearman) < Double.valueOf(lowestCorrelationMap.get(gene)[1])) {
-					String[] value = { methProbe, cSpearman };
-					lowestCorrelationMap.put(gene, value);
-				}
-			}
-			else {
-				String[] value = { methProbe, cSpearman };
-				lowestCorrelationMap.put(gene, value);
-			}
-		}
-		// determine set of probes
-		Map<String, String> probeToGene = new HashMap<String, String>();
-		for (String gene : genes) {
-			String[] value = lowestCorrelationMap.get(gene);
-			String probe = value[0];
-			if (probeToGene.containsKey(probe)) {
-				if (LOG.isInfoEnabled()) {
-					LOG.info("createStagingFile(), " + probe + " duplicated in multiple genes");
-				}
-			}
-			probeToGene.put(probe, gene);
-		}
+		MethylationProbeSelector probeSelector = new MethylationProbeSelector(genes, methProbes, corrSpearman);
 
-		// remove extraneous columns:
-		//
 		// original methylation__humanmethylation[27|450] file contains
 		// multiple columns with the same name, in particular 4 columns (Beta_Value  Gene_Symbol Chromosome  Genomic_Coordinate)
 		// for each case.
-		// so, count the # of columns in methylation__humanmethylation[27|450] and delete all columns but
-		// 1, 2, 6, 10, ...,
 		List<String> columnHeaders = dataMatrixMethylationData.getColumnHeaders();
 		if ((columnHeaders.size()-1) % 4 != 0) {
 			if (LOG.isErrorEnabled()) {
@@ -222,36 +190,12 @@ public class MethylationConverterImpl implements Converter {
 			}
 			return;
 		}
-		String previousHeader = "";
-		for (int lc = 1; lc < columnHeaders.size(); lc++) {
-			String columnHeader = columnHeaders.get(lc);
-			if (columnHeader.equals(previousHeader)) {
-				dataMatrixMethylationData.ignoreColumn(lc, true);
-			}
-			else {
-				previousHeader = columnHeader;
-			}
-		}
-
-		// remove 2nd row (row data starts at 0 index, ignoring column headings)
-		// of data (containing "Composite Element REF Beta_Value...";
-		dataMatrixMethylationData.ignoreRow(0, true);
 
-		// select rows in with lowest correlated probes
-		// if probe has the gene lowest correlation file (i.e., is in the $probes array ) then select its methylation row
+		// select rows with lowest correlated probes and the first (Beta_Value) column of each sample,
+		// the 2nd row of data (containing "Composite Element REF Beta_Value..." is dropped
 		List<String> hugoSymbols = new ArrayList<String>();
-		List<String> hybridizationRefs = dataMatrixMethylationData.getColumnData(METHYLATION_HYBRIDIZATION_REF_COLUMN_HEADER_NAME).get(0);
-		for (int lc = 0; lc < hybridizationRefs.size(); lc++) {
-			if (probeToGene.containsKey(hybridizationRefs.get(lc))) {
-				// add gene to Hugo_Symbol at row lc
-				hugoSymbols.add(probeToGene.get(hybridizationRefs.get(lc)));
-			}
-			else {
-				// ignore probe/row
-				hugoSymbols.add("NA");
-				dataMatrixCorrelationData.ignoreRow(lc, true);
-			}
-		}
+		dataMatrixMethylationData = probeSelector.project(dataMatrixMethylationData, METHYLATION_HYBRIDIZATION_REF_COLUMN_HEADER_NAME,
+														  caseIDs, Runtime.getRuntime().availableProcessors(), hugoSymbols);
 
 		// add gene & entrez gene id columns
 		dataMatrixMethylationData.addColumn(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, hugoSymbols);
@@ -269,7 +213,7 @@ public class MethylationConverterImpl implements Converter {
 		if (LOG.isInfoEnabled()) {
 			LOG.info("createStagingFile(), filtering & converting case ids");
 		}
-		String[] columnsToIgnore = { Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_ID_COLUMN_HEADER_NAME }; // drop Hybridization REF
+		String[] columnsToIgnore = { Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_ID_COLUMN_HEADER_NAME };
 		dataMatrixMethylationData.convertCaseIDs(Arrays.asList(columnsToIgnore));
 
 		// ensure the first two columns are symbol, id respectively
@@ -284,11 +228,12 @@ public class MethylationConverterImpl implements Converter {
 		dataMatrixMethylationData.setColumnOrder(columnHeaders);
 
 		// ignore rows with hugo symbol of NA
-		List<String> rows = dataMatrixMethylationData.getColumnData(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME).get(0);
-		for (int lc = 0; lc < rows.size(); lc++) {
-			if (rows.get(lc).equals("NA")) {
-				dataMatrixMethylationData.ignoreRow(lc, true);
+		int row = 0;
+		for (String hugoSymbol : dataMatrixMethylationData.getColumnData(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME).get(0)) {
+			if (hugoSymbol.equals("NA")) {
+				dataMatrixMethylationData.ignoreRow(row, true);
 			}
+			++row;
 		}
 		
 		if (LOG.isInfoEnabled()) {
@@ -0,0 +1,231 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.converter.internal;
+
+// imports
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.model.DataMatrix;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Selects the methylation probe with the lowest correlation for each gene
+ * and projects the rows of those probes out of a methylation (beta value) matrix.
+ *
+ * The correlation data is parsed once, correlations are kept as doubles
+ * per row and the selected probe per gene (in order of first appearance)
+ * is found in a single pass.  The projection copies the selected rows of
+ * each sample column in parallel.
+ */
+public class MethylationProbeSelector {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(MethylationProbeSelector.class);
+
+	// gene ids in order of first appearance, and the selected probe of each
+	private final List<String> genes = new ArrayList<String>();
+	private final List<String> selectedProbes = new ArrayList<String>();
+	private double[] lowestCorrelations = new double[1024];
+
+	// probe -> gene, if a probe is selected by several genes, the last one (in correlation file order) wins
+	private final Map<String, String> probeToGene = new HashMap<String, String>();
+
+	/**
+	 * Constructor.  Parses the given (equally long) columns of the correlation file.
+	 * Ties are won by the probe listed first.
+	 *
+	 * @param geneColumn List<String>
+	 * @param probeColumn List<String>
+	 * @param correlationColumn List<String>
+	 */
+	public MethylationProbeSelector(List<String> geneColumn, List<String> probeColumn, List<String> correlationColumn) {
+
+		int numRows = Math.min(geneColumn.size(), Math.min(probeColumn.size(), correlationColumn.size()));
+
+		// gene (interned through the map) -> position in genes
+		Map<String, Integer> geneIndex = new HashMap<String, Integer>();
+		// position of each row's gene, and the last row of each gene
+		int[] rowGenes = new int[numRows];
+		int[] lastRows = new int[Math.max(16, numRows)];
+
+		Iterator<String> geneIt = geneColumn.iterator();
+		Iterator<String> probeIt = probeColumn.iterator();
+		Iterator<String> correlationIt = correlationColumn.iterator();
+		for (int row = 0; row < numRows; row++) {
+			String gene = geneIt.next();
+			String probe = probeIt.next();
+			double correlation = Double.parseDouble(correlationIt.next());
+
+			Integer index = geneIndex.get(gene);
+			if (index == null) {
+				index = genes.size();
+				geneIndex.put(gene, index);
+				genes.add(gene);
+				selectedProbes.add(probe);
+				if (index == lowestCorrelations.length) {
+					lowestCorrelations = Arrays.copyOf(lowestCorrelations, index * 2);
+				}
+				lowestCorrelations[index] = correlation;
+			}
+			else if (correlation < lowestCorrelations[index]) {
+				selectedProbes.set(index, probe);
+				lowestCorrelations[index] = correlation;
+			}
+			rowGenes[row] = index;
+			lastRows[index] = row;
+		}
+
+		// probes are assigned in order of the last row of each gene
+		for (int row = 0; row < numRows; row++) {
+			int index = rowGenes[row];
+			if (lastRows[index] != row) {
+				continue;
+			}
+			String previousGene = probeToGene.put(selectedProbes.get(index), genes.get(index));
+			if (previousGene != null && LOG.isInfoEnabled()) {
+				LOG.info("MethylationProbeSelector(), " + selectedProbes.get(index) + " duplicated in multiple genes");
+			}
+		}
+	}
+
+	public int getNumberOfGenes() {
+		return genes.size();
+	}
+
+	/**
+	 * Returns the selected probes and their genes.
+	 *
+	 * @return Map<String, String>
+	 */
+	public Map<String, String> getProbeToGene() {
+		return Collections.unmodifiableMap(probeToGene);
+	}
+
+	/**
+	 * Returns a matrix with the rows of the selected probes (but the first row,
+	 * see MethylationConverterImpl) and the first column of each run of equally
+	 * labelled columns (one per case).  The probe column and cases which are not
+	 * samples (see CaseIDs.isSampleId) are left out.  The genes of the selected
+	 * rows are returned in genesOfRows.
+	 *
+	 * @param methylationData DataMatrix
+	 * @param probeColumnName String
+	 * @param caseIDs CaseIDs
+	 * @param numThreads int
+	 * @param genesOfRows List<String> receives the gene of each row of the returned matrix
+	 * @return DataMatrix
+	 * @throws Exception
+	 */
+	public DataMatrix project(DataMatrix methylationData, String probeColumnName, CaseIDs caseIDs,
+							  int numThreads, List<String> genesOfRows) throws Exception {
+
+		// columns - the first column of each sample
+		List<String> columnHeaders = methylationData.getColumnHeaders();
+		List<Integer> columns = new ArrayList<Integer>();
+		List<String> columnNames = new ArrayList<String>();
+		int probeColumn = methylationData.getColumnIndex(probeColumnName);
+		String previousHeader = "";
+		for (int lc = 1; lc < columnHeaders.size(); lc++) {
+			String columnHeader = columnHeaders.get(lc);
+			if (!columnHeader.equals(previousHeader)) {
+				previousHeader = columnHeader;
+				if (lc != probeColumn && caseIDs.isSampleId(columnHeader)) {
+					columns.add(lc);
+					columnNames.add(columnHeader);
+				}
+			}
+		}
+
+		// rows - the first row is never selected
+		int numberOfRows = methylationData.getNumberOfRows();
+		final int[] rows = new int[numberOfRows];
+		int numSelected = 0;
+		Iterator<String> probeIt = methylationData.getColumnData(probeColumn).iterator();
+		for (int row = 0; row < numberOfRows && probeIt.hasNext(); row++) {
+			String gene = probeToGene.get(probeIt.next());
+			if (row > 0 && gene != null) {
+				rows[numSelected++] = row;
+				genesOfRows.add(gene);
+			}
+		}
+		final int numRows = numSelected;
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("project(), selected " + numRows + " of " + numberOfRows + " rows, " +
+					 columns.size() + " samples");
+		}
+
+		// copy the selected rows of each column
+		List<Callable<LinkedList<String>>> tasks = new ArrayList<Callable<LinkedList<String>>>(columns.size());
+		for (final int column : columns) {
+			final List<String> columnData = methylationData.getColumnData(column);
+			tasks.add(new Callable<LinkedList<String>>() {
+				public LinkedList<String> call() {
+					LinkedList<String> toReturn = new LinkedList<String>();
+					Iterator<String> it = columnData.iterator();
+					int row = -1;
+					for (int lc = 0; lc < numRows; lc++) {
+						String value = null;
+						while (row < rows[lc]) {
+							value = it.next();
+							++row;
+						}
+						toReturn.add(value);
+					}
+					return toReturn;
+				}
+			});
+		}
+
+		List<LinkedList<String>> columnData = new ArrayList<LinkedList<String>>(columns.size());
+		if (numThreads <= 1 || columns.size() < 2) {
+			for (Callable<LinkedList<String>> task : tasks) {
+				columnData.add(task.call());
+			}
+		}
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, columns.size()), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "methylation-probe-selector");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			try {
+				for (Future<LinkedList<String>> future : executor.invokeAll(tasks)) {
+					columnData.add(future.get());
+				}
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw (cause instanceof Exception) ? (Exception)cause : e;
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		// outta here
+		return new DataMatrix(methylationData.getFilename(), columnNames, columnData, numRows, caseIDs);
+	}
+}
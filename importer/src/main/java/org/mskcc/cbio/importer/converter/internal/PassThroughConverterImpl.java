@@ -27,7 +27,7 @@ import java.util.*;
 /**
  * Class which implements the Converter interface.
  */
-public class PassThroughConverterImpl implements Converter {
+public class PassThroughConverterImpl implements StreamingConverter {
 
 	// our logger
 	private static Log LOG = LogFactory.getLog(PassThroughConverterImpl.class);
@@ -135,4 +135,33 @@ public class PassThroughConverterImpl implements Converter {
 			fileUtils.writeMetadataFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
 		}	
 	}
+
+	/**
+	 * Creates a staging file from the given import data, one row at a time.
+	 *
+     * @param portalMetadata PortalMetadata
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param dataMatrix StreamingDataMatrix
+	 * @throws Exception
+	 */
+	@Override
+	public void createStreamingStagingFile(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+										   DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception {
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("createStreamingStagingFile(), writing staging file.");
+		}
+		fileUtils.writeStreamingStagingFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
+		if (LOG.isInfoEnabled()) {
+			LOG.info("createStreamingStagingFile(), complete, rows read: " + dataMatrix.getNumberOfRows());
+		}
+
+		if (datatypeMetadata.requiresMetafile()){
+			if (LOG.isInfoEnabled()) {
+				LOG.info("createStreamingStagingFile(), writing metadata file.");
+			}
+			fileUtils.writeStreamingMetadataFile(portalMetadata.getStagingDirectory(), cancerStudyMetadata, datatypeMetadata, dataMatrix);
+		}
+	}
 }
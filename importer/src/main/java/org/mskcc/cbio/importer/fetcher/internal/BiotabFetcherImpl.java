@@ -24,6 +24,7 @@ import org.mskcc.cbio.importer.model.*;
 import org.mskcc.cbio.importer.dao.ImportDataRecordDAO;
 
 import org.mskcc.cbio.portal.web_api.ConnectionManager;
+import org.mskcc.cbio.metrics.Timer;
 
 import org.apache.commons.logging.*;
 import org.apache.commons.httpclient.*;
@@ -86,8 +87,14 @@ public class BiotabFetcherImpl extends FetcherBaseImpl implements Fetcher
     {
 
 		logMessage(LOG, "fetch(), dateSource" + dataSource);
-        initDataSourceMetadata(dataSource);
-        fetchData();
+        Timer.Context timer = startFetchTimer(dataSource);
+        try {
+            initDataSourceMetadata(dataSource);
+            fetchData();
+        }
+        finally {
+            timer.stop();
+        }
         logMessage(LOG, "fetch(), complete.");
 	}
 
@@ -187,6 +194,7 @@ public class BiotabFetcherImpl extends FetcherBaseImpl implements Fetcher
     private void saveClinicalData(String clinicalFilename, String tumorType, String revision, InputStream is) throws Exception
     {
         File clinicalDataFile =  fileUtils.createFileFromStream(getDestinationFilename(clinicalFilename, tumorType, revision), is);
+        recordFetchedFile(dataSourceMetadata.getDataSource(), clinicalDataFile);
         createImportDataRecord(clinicalFilename, clinicalDataFile, tumorType);
     }
 
@@ -214,6 +222,8 @@ public class BiotabFetcherImpl extends FetcherBaseImpl implements Fetcher
     private void createImportDataRecord(String clinicalFilename, File clinicalDataFile, String tumorType) throws Exception
     {
         String computedDigest = fileUtils.getMD5Digest(clinicalDataFile);
+        String canonicalPath = clinicalDataFile.getCanonicalPath();
+        storeContent(dataSourceMetadata.getDataSource(), clinicalDataFile, computedDigest);
         for (DatatypeMetadata datatype : config.getFileDatatype(dataSourceMetadata, clinicalFilename)) {
             if (!datatype.isDownloaded()) continue;
             for (String archivedFile : datatype.getTCGAArchivedFiles(clinicalFilename)) {
@@ -222,7 +232,7 @@ public class BiotabFetcherImpl extends FetcherBaseImpl implements Fetcher
                                                                          tumorType, tumorType,
                                                                          datatype.getDatatype(),
                                                                          Fetcher.LATEST_RUN_INDICATOR,
-                                                                         clinicalDataFile.getCanonicalPath(),
+                                                                         canonicalPath,
                                                                          computedDigest, archivedFile);
                 importDataRecordDAO.importDataRecord(importDataRecord);
             }
@@ -18,10 +18,50 @@
 
 package org.mskcc.cbio.importer.fetcher.internal;
 
+import org.mskcc.cbio.importer.util.ContentStore;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
+
 import org.apache.commons.logging.Log;
 
+import java.io.File;
+import java.io.IOException;
+
 public abstract class FetcherBaseImpl
 {
+    // store of downloaded files, disabled unless set
+    private ContentStore contentStore = new ContentStore();
+
+    public void setContentStore(ContentStore contentStore) { this.contentStore = contentStore; }
+
+    protected Timer.Context startFetchTimer(String dataSource)
+    {
+        return MetricsRegistry.getInstance().timer("fetcher_duration_seconds", "data_source", dataSource).start();
+    }
+
+    protected void recordFetchedFile(String dataSource, File file)
+    {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.counter("fetcher_files", "data_source", dataSource).inc();
+        metrics.counter("fetcher_bytes", "data_source", dataSource).inc(file.length());
+    }
+
+    protected void recordDigestMismatch(String dataSource)
+    {
+        MetricsRegistry.getInstance().counter("fetcher_digest_mismatches", "data_source", dataSource).inc();
+    }
+
+    /**
+     * Stores a downloaded file (with verified digest) in the content store,
+     * byte identical files are replaced by a link to the stored copy.
+     */
+    protected void storeContent(String dataSource, File file, String digest) throws IOException
+    {
+        if (contentStore.store(file, digest)) {
+            MetricsRegistry.getInstance().counter("fetcher_deduplicated_bytes", "data_source", dataSource).inc(file.length());
+        }
+    }
+
     protected void logMessage(Log log, String message)
     {
         if (log.isInfoEnabled()) {
@@ -32,6 +32,10 @@ import org.mskcc.cbio.importer.model.DataSourcesMetadata;
 import org.mskcc.cbio.importer.dao.ImportDataRecordDAO;
 import org.mskcc.cbio.importer.util.Shell;
 import org.mskcc.cbio.importer.util.MetadataUtils;
+import org.mskcc.cbio.metrics.Timer;
+import org.mskcc.cbio.process.ProcessCommand;
+import org.mskcc.cbio.process.ProcessExecutor;
+import org.mskcc.cbio.process.ProcessResult;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,7 +47,7 @@ import java.text.SimpleDateFormat;
 
 import java.io.File;
 import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.StringReader;
 
 import java.util.Set;
 import java.util.Arrays;
@@ -57,7 +61,7 @@ import java.lang.reflect.Method;
 /**
  * Class which implements the fetcher interface.
  */
-class FirehoseFetcherImpl implements Fetcher {
+class FirehoseFetcherImpl extends FetcherBaseImpl implements Fetcher {
 
 	// conts for run types
 	private static final String ANALYSIS_RUN = "analyses";
@@ -77,6 +81,9 @@ class FirehoseFetcherImpl implements Fetcher {
 	// our logger
 	private static final Log LOG = LogFactory.getLog(FirehoseFetcherImpl.class);
 
+    // output of 'firehose_get -r' kept in memory (list of runs)
+    private static final int FIREHOSE_GET_RUNS_OUTPUT_SIZE = 4 * 1024 * 1024;
+
 	// regex used when getting firehose run dates from the broad
     private static final Pattern FIREHOSE_GET_RUNS_LINE_REGEX = 
 		Pattern.compile("^(\\w*)$");
@@ -202,10 +209,11 @@ class FirehoseFetcherImpl implements Fetcher {
 		// steup a default date for comparision
 		Date latestRun = BROAD_DATE_FORMAT.parse("1918_05_11");
 
-		Process process = Runtime.getRuntime().exec(getFirehoseGetScript() + " -r");
-		process.waitFor();
-		if (process.exitValue() != 0) { return latestRun; }
-		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		ProcessCommand command = new ProcessCommand(getFirehoseGetScript(), "-r");
+		command.setCaptureSize(FIREHOSE_GET_RUNS_OUTPUT_SIZE);
+		ProcessResult result = ProcessExecutor.getInstance().execute(command);
+		if (!result.isSuccess()) { return latestRun; }
+		BufferedReader reader = new BufferedReader(new StringReader(result.getOutput()));
 		String lineOfOutput;
 		while ((lineOfOutput = reader.readLine()) != null) {
 			if (lineOfOutput.startsWith(runType)) {
@@ -262,18 +270,24 @@ class FirehoseFetcherImpl implements Fetcher {
 			LOG.info("this may take a while...");
 		}
 
-		if (Shell.exec(Arrays.asList(command), downloadDirectoryName)) {
-			// importing data
-			if (LOG.isInfoEnabled()) {
-				LOG.info("download complete, storing in database.");
+		Timer.Context timer = startFetchTimer(dataSourceMetadata.getDataSource());
+		try {
+			if (Shell.exec(Arrays.asList(command), downloadDirectoryName)) {
+				// importing data
+				if (LOG.isInfoEnabled()) {
+					LOG.info("download complete, storing in database.");
+				}
+				storeData(runType, dataSourceMetadata.getDataSource(), downloadDirectory, runDate);
 			}
-			storeData(runType, dataSourceMetadata.getDataSource(), downloadDirectory, runDate);
-		}
-		else {
-			if (LOG.isInfoEnabled()) {
-				LOG.info("error executing: " + Arrays.asList(command));
+			else {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("error executing: " + Arrays.asList(command));
+				}
 			}
 		}
+		finally {
+			timer.stop();
+		}
 	}
 
 	/**
@@ -315,8 +329,10 @@ class FirehoseFetcherImpl implements Fetcher {
                 if (LOG.isInfoEnabled()) {
                     LOG.info("!!!!! storeData(), Error - md5 digest not correct, file: " + dataFile.getCanonicalPath() + "!!!!!");
                 }
+                recordDigestMismatch(dataSource);
                 continue;
             }
+            recordFetchedFile(dataSource, dataFile);
             // determine cancer type
             Matcher tumorTypeMatcher = FIREHOSE_FILENAME_TUMOR_TYPE_REGEX.matcher(dataFile.getName());
             String tumorType = "";
@@ -346,6 +362,9 @@ class FirehoseFetcherImpl implements Fetcher {
 			}
             // url
             String canonicalPath = dataFile.getCanonicalPath();
+            // byte identical archives (e.g. from a previous run) are shared,
+            // canonicalPath is taken first since the file may become a symbolic link
+            storeContent(dataSource, dataFile, computedDigest);
             // create an store a new ImportDataRecord object
             for (DatatypeMetadata datatype : datatypes) {
 				if (!datatype.isDownloaded()) continue;
@@ -21,6 +21,7 @@ import org.mskcc.cbio.importer.model.*;
 import org.mskcc.cbio.importer.dao.ImportDataRecordDAO;
 import org.mskcc.cbio.importer.util.Shell;
 import org.mskcc.cbio.importer.mercurial.*;
+import org.mskcc.cbio.metrics.Timer;
 
 import org.apache.commons.logging.*;
 
@@ -65,17 +66,23 @@ public class MercurialFetcherImpl extends FetcherBaseImpl implements Fetcher
 		logMessage(LOG, "fetch(), dateSource:runDate: " + dataSource + ":" + desiredRunDate);
 
 		DataSourcesMetadata dataSourceMetadata = getDataSourceMetadata(dataSource);
-		boolean updatesAvailable = mercurialService.updatesAvailable(dataSourceMetadata.getDownloadDirectory());
-		if (updatesAvailable) {
-			logMessage(LOG, "fetch(), updates available, pulling from repository.");
-			List<String> cancerStudiesUpdated = mercurialService.pullUpdate(dataSourceMetadata.getDownloadDirectory());
-			if (updateStudiesWorksheet) {
-				logMessage(LOG, "fetch(), updating cancer_studies worksheet.");
-				updateStudiesWorksheet(dataSourceMetadata, cancerStudiesUpdated);
+		Timer.Context timer = startFetchTimer(dataSource);
+		try {
+			boolean updatesAvailable = mercurialService.updatesAvailable(dataSourceMetadata.getDownloadDirectory());
+			if (updatesAvailable) {
+				logMessage(LOG, "fetch(), updates available, pulling from repository.");
+				List<String> cancerStudiesUpdated = mercurialService.pullUpdate(dataSourceMetadata.getDownloadDirectory());
+				if (updateStudiesWorksheet) {
+					logMessage(LOG, "fetch(), updating cancer_studies worksheet.");
+					updateStudiesWorksheet(dataSourceMetadata, cancerStudiesUpdated);
+				}
+			}
+			else {
+				logMessage(LOG, "fetch(), we have the latest dataset, nothing more to do.");
 			}
 		}
-		else {
-			logMessage(LOG, "fetch(), we have the latest dataset, nothing more to do.");
+		finally {
+			timer.stop();
 		}
 	}
 
@@ -21,6 +21,7 @@ import org.mskcc.cbio.importer.model.*;
 import org.mskcc.cbio.importer.Importer;
 import org.mskcc.cbio.importer.Validator;
 import org.mskcc.cbio.importer.util.ClassLoader;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
 
 import org.mskcc.cbio.portal.dao.*;
 import org.mskcc.cbio.portal.model.*;
@@ -101,6 +102,11 @@ class CancerStudyImporterImpl implements Importer, Validator {
         public String getStagingFilename() { return stagingFilename; }
 
         public String[] getImporterClassArgs()
+        {
+            return getImporterClassArgs(stagingFilename);
+        }
+
+        public String[] getImporterClassArgs(String stagingFilename)
         {
             return ((requiresMetadataFile) ?
                     new String[] { "--data", stagingFilename, "--meta", metadataFilename, "--loadMode", "bulkLoad" } :
@@ -264,9 +270,16 @@ class CancerStudyImporterImpl implements Importer, Validator {
     private void importCancerStudyData(CancerStudy cancerStudy, String cancerStudyDirectoryName) throws Exception
     {
         for (CancerStudyData cancerStudyData : getCancerStudyData(cancerStudy, cancerStudyDirectoryName)) {
+            // importers read plain text only, decompress block compressed staging files
+            File decompressedFile = null;
             try {
+                String stagingFilename = cancerStudyData.getStagingFilename();
+                if (StagingUtils.isCompressed(new File(stagingFilename))) {
+                    decompressedFile = StagingUtils.decompress(new File(stagingFilename));
+                    stagingFilename = decompressedFile.getCanonicalPath();
+                }
                 Method mainMethod = ClassLoader.getMethod(cancerStudyData.getImporterClassName(), "main");
-                mainMethod.invoke(null, (Object)cancerStudyData.getImporterClassArgs());
+                mainMethod.invoke(null, (Object)cancerStudyData.getImporterClassArgs(stagingFilename));
             }
             catch (Exception e) {
                 String message = (e instanceof InvocationTargetException) ? 
@@ -275,6 +288,9 @@ class CancerStudyImporterImpl implements Importer, Validator {
                     logMessage(message);
                 }
             }
+            finally {
+                FileUtils.deleteQuietly(decompressedFile);
+            }
         }
     }
 
@@ -301,7 +317,7 @@ class CancerStudyImporterImpl implements Importer, Validator {
 
     private File getDataFile(String metadataFilename)
     {
-        File dataFile = FileUtils.getFile(metadataFilename.replace(META_FILE_PREFIX, DATA_FILE_PREFIX));
+        File dataFile = StagingUtils.resolveStagingFile(FileUtils.getFile(metadataFilename.replace(META_FILE_PREFIX, DATA_FILE_PREFIX)));
         return (dataFile.exists()) ? dataFile : null;
     }
 
@@ -25,6 +25,7 @@ import org.mskcc.cbio.importer.Importer;
 import org.mskcc.cbio.importer.FileUtils;
 import org.mskcc.cbio.importer.DatabaseUtils;
 import org.mskcc.cbio.importer.util.ClassLoader;
+import org.mskcc.cbio.importer.util.ComponentRegistry;
 import org.mskcc.cbio.importer.model.CaseListMetadata;
 import org.mskcc.cbio.importer.model.PortalMetadata;
 import org.mskcc.cbio.importer.model.DatatypeMetadata;
@@ -35,8 +36,13 @@ import org.mskcc.cbio.importer.model.DataSourcesMetadata;
 import org.mskcc.cbio.importer.util.Shell;
 import org.mskcc.cbio.importer.util.MetadataUtils;
 import org.mskcc.cbio.importer.util.MutationFileUtil;
+import org.mskcc.cbio.importer.util.CheckpointJournal;
+import org.mskcc.cbio.importer.util.FileDigests;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
 
 import org.mskcc.cbio.maf.MafSanitizer;
+import org.mskcc.cbio.metrics.MetricsRegistry;
+import org.mskcc.cbio.metrics.Timer;
 import org.mskcc.cbio.portal.scripts.*;
 import org.mskcc.cbio.portal.dao.DaoCancerStudy;
 
@@ -68,6 +74,12 @@ class ImporterImpl implements Importer {
 	// ref to database utils
 	private DatabaseUtils databaseUtils;
 
+	// checkpoint journal unit of the cancer study metadata
+	private static final String CANCER_STUDY_UNIT = "cancer_study";
+
+	// ref to stage metrics
+	private MetricsRegistry metrics = MetricsRegistry.getInstance();
+
 	private Boolean supplyDefaultClinicalAttributeValues;
 	@Value("${supply_default_clinical_attribute_values}")
 	public void setFillInClinicalAttributes(String property)
@@ -236,22 +248,17 @@ class ImporterImpl implements Importer {
     private boolean importByImporter(ReferenceMetadata referenceMetadata) throws Exception {
 		// we may be dealing with a class that implements the importer interface
 		String importerName = referenceMetadata.getImporterName();
-		try {
-			Class<?> clazz = Class.forName(importerName);
-			if (Class.forName("org.mskcc.cbio.importer.Importer").isAssignableFrom(clazz)) {
-				Object[] importerArgs = { config, fileUtils, databaseUtils };
-				Importer importer = (Importer)ClassLoader.getInstance(importerName, importerArgs, false);
-				importer.importReferenceData(referenceMetadata);
-                if (LOG.isInfoEnabled()) {
-					LOG.info("importReferenceData(), successfully executed " + clazz + ".");
-				}
-				return true;
+		if (ComponentRegistry.getInstance().isAssignableTo(importerName, Importer.class)) {
+			Object[] importerArgs = { config, fileUtils, databaseUtils };
+			Importer importer = (Importer)ClassLoader.getInstance(importerName, importerArgs, false);
+			importer.importReferenceData(referenceMetadata);
+			if (LOG.isInfoEnabled()) {
+				LOG.info("importReferenceData(), successfully executed " + importerName + ".");
 			}
-                
-			return false;
-		} catch (java.lang.ClassNotFoundException ex) {
-			return false;
+			return true;
 		}
+
+		return false;
 	}
 
 	/**
@@ -390,6 +397,8 @@ class ImporterImpl implements Importer {
 			return;
 		}
 
+		CheckpointJournal journal = CheckpointJournal.getInstance();
+
 		// import cancer name / metadata
 		boolean createdCancerStudyMetadataFile = false;
 		String cancerStudyMetadataFile = (rootDirectory + File.separator +
@@ -419,10 +428,34 @@ class ImporterImpl implements Importer {
 					cancerStudyMetadata = new CancerStudyMetadata(properties);
 				}
 				String[] args = { cancerStudyMetadataFile };
-				if (LOG.isInfoEnabled()) {
-					LOG.info("loadStagingFiles(), Importing cancer study metafile: " + cancerStudyMetadataFile);
+				String study = cancerStudyMetadata.toString();
+				String studyDigest = (journal.isEnabled()) ? FileDigests.digest(new File(cancerStudyMetadataFile)) : null;
+				if (journal.isInterrupted(CheckpointJournal.IMPORT_STAGE, study)) {
+					// importers are not idempotent, rows written by an interrupted importer would be
+					// duplicated when it is run again - start over from an empty study
+					if (LOG.isInfoEnabled()) {
+						LOG.info("loadStagingFiles(), import of cancer study was interrupted, deleting it: " + study);
+					}
+					if (DaoCancerStudy.doesCancerStudyExistByStableId(cancerStudyMetadata.getStableId())) {
+						DaoCancerStudy.deleteCancerStudy(cancerStudyMetadata.getStableId());
+					}
+					journal.reset(CheckpointJournal.IMPORT_STAGE, study);
+				}
+				if (journal.isComplete(CheckpointJournal.IMPORT_STAGE, study, CANCER_STUDY_UNIT, studyDigest)) {
+					if (LOG.isInfoEnabled()) {
+						LOG.info("loadStagingFiles(), cancer study already imported, resuming: " + study);
+					}
+				}
+				else {
+					// (re)importing the cancer study clobbers any datatypes imported so far
+					journal.reset(CheckpointJournal.IMPORT_STAGE, study);
+					if (LOG.isInfoEnabled()) {
+						LOG.info("loadStagingFiles(), Importing cancer study metafile: " + cancerStudyMetadataFile);
+					}
+					journal.markStarted(CheckpointJournal.IMPORT_STAGE, study, CANCER_STUDY_UNIT);
+					ImportCancerStudy.main(args);
+					journal.markComplete(CheckpointJournal.IMPORT_STAGE, study, CANCER_STUDY_UNIT, studyDigest);
 				}
-				ImportCancerStudy.main(args);
 				DaoCancerStudy.setStatus(DaoCancerStudy.Status.UNAVAILABLE, cancerStudyMetadata.getStableId());
 
 				// iterate over all datatypes
@@ -443,6 +476,9 @@ class ImporterImpl implements Importer {
 								canCreateZScoreFile(rootDirectory, cancerStudyMetadata, datatypeMetadata)) {
 								if (createZScoreFile(rootDirectory, cancerStudyMetadata, datatypeMetadata)) {
 									createdZScoreFile = true;
+									// z-score file may have been written compressed
+									stagingFilename = StagingUtils.resolveStagingFile(new File(stagingFilename)).getPath();
+									origName = stagingFilename;
 								}
 								else {
 									continue;
@@ -456,40 +492,87 @@ class ImporterImpl implements Importer {
 							}
 						}
 
-						if (stagingFilename.contains("clinical") && !stagingFilename.endsWith(".xml") && clinicalFileMissingMetadata(stagingFilename)) {
-							stagingFilename = addMetadataToClinicalFile(cancerStudyMetadata, stagingFilename);
+						// skip staging files imported by an earlier (interrupted) run
+						String unit = datatypeMetadata.getDatatype() + ":" + new File(origName).getName();
+						String unitDigest = (journal.isEnabled()) ? FileDigests.digest(new File(origName)) : null;
+						if (journal.isComplete(CheckpointJournal.IMPORT_STAGE, study, unit, unitDigest)) {
+							if (LOG.isInfoEnabled()) {
+								LOG.info("loadStagingFile(), already imported, skipping: " + origName);
+							}
+							if (createdZScoreFile) {
+								deleteZScoreFile(origName);
+							}
+							continue;
 						}
 
-						// if MAF, oncotate
-						if (stagingFilename.endsWith(DatatypeMetadata.MUTATIONS_STAGING_FILENAME)) {
-							stagingFilename = getAnnotatedFile(stagingFilename);
+						// importers read plain text only, decompress block compressed staging files into a temporary
+						// file, name based checks below go by the plain text staging filename
+						String plainFilename = StagingUtils.getUncompressedFile(new File(origName)).getPath();
+						File decompressedFile = null;
+						if (StagingUtils.isCompressed(new File(stagingFilename))) {
+							decompressedFile = StagingUtils.decompress(new File(stagingFilename));
+							stagingFilename = decompressedFile.getPath();
 						}
-						if (datatypeMetadata.requiresMetafile()) {
-							Collection<String> importFilenames = getImportFilenames(rootDirectory, cancerStudyMetadata, datatypeMetadata.getMetaFilename());
-							assert importFilenames.size() == 1;
-							String metaFilename = importFilenames.iterator().next();
-							args = new String[] { "--data", stagingFilename, "--meta", metaFilename, "--loadMode", "bulkLoad" };
-						}
-						else {
-							args = new String[] { stagingFilename, cancerStudyMetadata.toString() };
-						}
-						if (LOG.isInfoEnabled()) {
-							LOG.info("loadStagingFile(), attempting to run: " + datatypeMetadata.getImporterClassName() +
-									 ":main(), with args: " + Arrays.asList(args));
-						}
-										String className = datatypeMetadata.getImporterClassName();
-										if (className!=null && !className.isEmpty()) {
-											Method mainMethod = ClassLoader.getMethod(className, "main");
-											mainMethod.invoke(null, (Object)args);
-										}
-
-						// clean up
-						if (!stagingFilename.equals(origName)) {
-							fileUtils.deleteFile(new File(stagingFilename));
+
+						try {
+							if (plainFilename.contains("clinical") && !plainFilename.endsWith(".xml") && clinicalFileMissingMetadata(stagingFilename)) {
+								stagingFilename = addMetadataToClinicalFile(cancerStudyMetadata, stagingFilename);
+							}
+
+							// if MAF, oncotate
+							if (plainFilename.endsWith(DatatypeMetadata.MUTATIONS_STAGING_FILENAME)) {
+								Timer.Context annotateTimer = metrics.timer("importer_annotation_duration_seconds",
+																			"study", cancerStudyMetadata.toString()).start();
+								try {
+									stagingFilename = getAnnotatedFile(stagingFilename);
+								}
+								finally {
+									annotateTimer.stop();
+								}
+							}
+							if (datatypeMetadata.requiresMetafile()) {
+								Collection<String> importFilenames = getImportFilenames(rootDirectory, cancerStudyMetadata, datatypeMetadata.getMetaFilename());
+								assert importFilenames.size() == 1;
+								String metaFilename = importFilenames.iterator().next();
+								args = new String[] { "--data", stagingFilename, "--meta", metaFilename, "--loadMode", "bulkLoad" };
+							}
+							else {
+								args = new String[] { stagingFilename, cancerStudyMetadata.toString() };
+							}
+							if (LOG.isInfoEnabled()) {
+								LOG.info("loadStagingFile(), attempting to run: " + datatypeMetadata.getImporterClassName() +
+										 ":main(), with args: " + Arrays.asList(args));
+							}
+											String className = datatypeMetadata.getImporterClassName();
+											if (className!=null && !className.isEmpty()) {
+												String datatype = datatypeMetadata.getDatatype();
+												metrics.counter("importer_files", "study", study, "datatype", datatype).inc();
+												metrics.counter("importer_bytes", "study", study, "datatype", datatype).inc(new File(stagingFilename).length());
+												Timer.Context importTimer = metrics.timer("importer_duration_seconds",
+																						  "study", study, "datatype", datatype).start();
+												try {
+													journal.markStarted(CheckpointJournal.IMPORT_STAGE, study, unit);
+													Method mainMethod = ClassLoader.getMethod(className, "main");
+													mainMethod.invoke(null, (Object)args);
+												}
+												finally {
+													importTimer.stop();
+												}
+											}
+							journal.markComplete(CheckpointJournal.IMPORT_STAGE, study, unit, unitDigest);
+
+							// clean up
+							if (!stagingFilename.equals(origName)) {
+								fileUtils.deleteFile(new File(stagingFilename));
+							}
+							if (createdZScoreFile) {
+								deleteZScoreFile(origName);
+							}
 						}
-						if (createdZScoreFile) {
-							fileUtils.deleteFile(new File(stagingFilename));
-							fileUtils.deleteFile(new File(stagingFilename.replace("data_", "meta_")));
+						finally {
+							if (decompressedFile != null) {
+								fileUtils.deleteFile(decompressedFile);
+							}
 						}
 					}
 				}
@@ -524,9 +607,15 @@ class ImporterImpl implements Importer {
 		String stagingFilename = filename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
 		if (stagingFilename.indexOf("*") > -1) {
 			toReturn.addAll(fileUtils.listFiles(new File(studyDirectory), stagingFilename));
+			// compressed staging files, unless there is a plain text file as well
+			for (String compressedFilename : fileUtils.listFiles(new File(studyDirectory), StagingUtils.getCompressedFile(new File(stagingFilename)).getName())) {
+				if (!toReturn.contains(StagingUtils.getUncompressedFile(new File(compressedFilename)).getPath())) {
+					toReturn.add(compressedFilename);
+				}
+			}
 		}
 		else {
-			toReturn.add(studyDirectory + stagingFilename);
+			toReturn.add(StagingUtils.resolveStagingFile(new File(studyDirectory + stagingFilename)).getPath());
 		}
 		if (LOG.isInfoEnabled()) {
 			LOG.info("getImportFilenames: " + toReturn);
@@ -581,9 +670,16 @@ class ImporterImpl implements Importer {
     	return lineBuilder.toString().trim() + "\n";
     }
 
+	private void deleteZScoreFile(String stagingFilename) throws Exception
+	{
+		String uncompressedFilename = StagingUtils.getUncompressedFile(new File(stagingFilename)).getPath();
+		fileUtils.deleteFile(new File(stagingFilename));
+		fileUtils.deleteFile(new File(uncompressedFilename.replace("data_", "meta_")));
+	}
+
 	private String getAnnotatedFile(String stagingFilename) throws Exception
 	{
-		String tempFile = MutationFileUtil.getAnnotatedFile(stagingFilename);
+		String tempFile = MutationFileUtil.getAnnotatedFile(fileUtils, stagingFilename);
 		return tempFile;
 	}
 
@@ -25,29 +25,18 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
-import java.util.Map;
-import java.util.HashMap;
 import javax.sql.DataSource;
 
 /**
  * Class which can create database/database schema dynamically.
+ * Data sources come from the process wide DataSourceRegistry.
  */
 public class DataSourceFactoryBean implements BeanNameAware, FactoryBean<DataSource> {
 
 	// our logger
 	private static Log LOG = LogFactory.getLog(DataSourceFactoryBean.class);
 
-	// this map associates dynamic datasources with keys whose value takes on the bean id
-	private static ThreadLocal<Map<String, DataSource>> beansByName =
-        new ThreadLocal<Map<String, DataSource>>() {
-            @Override
-            protected Map<String, DataSource> initialValue() {
-                return new HashMap<String, DataSource>(1);
-			}
-        };
-
 	// the reference which holds our bean name (BeanNameAware interface)
 	private String beanName;
 
@@ -73,6 +62,32 @@ public class DataSourceFactoryBean implements BeanNameAware, FactoryBean<DataSou
 	@Value("${db.connection_string}")
 	public void setDatabaseConnection(String databaseConnectionString) { this.databaseConnectionString = databaseConnectionString; }
 
+	// max number of connections per database
+	private int poolMaxActive = DataSourceRegistry.DEFAULT_MAX_ACTIVE;
+	@Value("${db.pool_max_active:8}")
+	public void setPoolMaxActive(String property) { this.poolMaxActive = Integer.parseInt(property.trim()); }
+
+	// time to wait for a connection
+	private long poolMaxWaitMillis = DataSourceRegistry.DEFAULT_MAX_WAIT_MILLIS;
+	@Value("${db.pool_max_wait_ms:300000}")
+	public void setPoolMaxWaitMillis(String property) { this.poolMaxWaitMillis = Long.parseLong(property.trim()); }
+
+	// time after which an unused borrowed connection is reclaimed (0 = never)
+	private long poolLeakThresholdMillis = DataSourceRegistry.DEFAULT_LEAK_THRESHOLD_MILLIS;
+	@Value("${db.pool_leak_threshold_ms:0}")
+	public void setPoolLeakThresholdMillis(String property) { this.poolLeakThresholdMillis = Long.parseLong(property.trim()); }
+
+	/**
+	 * Returns the url of the given database.
+	 *
+	 * @param databaseConnectionString String
+	 * @param databaseName String
+	 * @return String
+	 */
+	public static String getDatabaseUrl(String databaseConnectionString, String databaseName) {
+		return databaseConnectionString + databaseName + "?max_allowed_packet=256M";
+	}
+
 	/**
 	 * Our implementation of BeanNameAware.
 	 */
@@ -94,7 +109,7 @@ public class DataSourceFactoryBean implements BeanNameAware, FactoryBean<DataSou
 	 */
     @Override
     public Class<?> getObjectType() {
-        return getObject().getClass();
+        return DataSource.class;
     }
 
 	/**
@@ -113,7 +128,7 @@ public class DataSourceFactoryBean implements BeanNameAware, FactoryBean<DataSou
 	 */
 	public void createDataSourceMapping(String key, String databaseName) {
 
-		getDataSourceMap().put(key, getDataSource(databaseName));
+		DataSourceRegistry.getInstance().setNamedDataSource(key, getDataSource(databaseName));
 	}
 
 	/**
@@ -124,44 +139,17 @@ public class DataSourceFactoryBean implements BeanNameAware, FactoryBean<DataSou
 	 */
 	public DataSource getDataSource(String databaseName) {
 
-        DataSource dataSource = getDataSourceMap().get(databaseName);
+		DataSourceRegistry registry = DataSourceRegistry.getInstance();
+        DataSource dataSource = registry.getNamedDataSource(databaseName);
         if (dataSource == null) {
 			// the args to the following call are properties set during bean instanciation
-			dataSource = getDataSource(databaseUser, databasePassword,
-									   databaseDriver, databaseConnectionString + databaseName);
+			dataSource = registry.getDataSource(databaseDriver, getDatabaseUrl(databaseConnectionString, databaseName),
+												databaseUser, databasePassword,
+												new DataSourceRegistry.PoolSettings(poolMaxActive, poolMaxWaitMillis,
+																					poolLeakThresholdMillis));
         }
 
 		// outta here
         return dataSource;
 	}
-
-	/**
-	 * Method to return map of bean ids to datasources
-	 */
-	private static Map<String, DataSource> getDataSourceMap() {
-        return beansByName.get();
-    }
-
-	/**
-	 * Method used to create a Datasource.
-	 *
-	 * @param databaseUser String
-	 * @param databasePassword String
-	 * @param databaseDriver String
-	 * @param databaseConnectionString String
-	 * @return DataSource
-	 */
-	private static DataSource getDataSource(String databaseUser, String databasePassword,
-											String databaseDriver, String databaseConnectionString) {
-
-		// create the datasource and set its properties
-		DriverManagerDataSource dataSource = new DriverManagerDataSource();
-		dataSource.setDriverClassName(databaseDriver);
-		dataSource.setUrl(databaseConnectionString + "?max_allowed_packet=256M");
-		dataSource.setUsername(databaseUser);
-		dataSource.setPassword(databasePassword);
-
-		// outta here
-		return dataSource;
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,199 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.io.internal;
+
+// imports
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Process wide registry of connection pools (dbcp BasicDataSource), one per
+ * database url and user, so that threads (and application contexts) share
+ * connections to the same database.  A pool never opens more than maxActive
+ * connections, further borrowers wait up to maxWait for one to be returned.
+ * Pools are sized by the settings given when they are created.
+ *
+ * Data sources can also be registered under a name (e.g. a bean id) so that
+ * an application context created later can pick them up - see DataSourceFactoryBean.
+ */
+public class DataSourceRegistry {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(DataSourceRegistry.class);
+
+	// default settings
+	public static final int DEFAULT_MAX_ACTIVE = 8;
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 5 * 60 * 1000L;
+	public static final long DEFAULT_LEAK_THRESHOLD_MILLIS = 0L;
+
+	/**
+	 * Settings of a pool (db.pool_* properties).
+	 */
+	public static class PoolSettings {
+
+		private final int maxActive;
+		private final long maxWaitMillis;
+		private final long leakThresholdMillis;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param maxActive int maximum number of connections per pool
+		 * @param maxWaitMillis long time a borrower waits for a connection before failing
+		 * @param leakThresholdMillis long time after which an unused borrowed connection is
+		 *        reclaimed and logged with the stack trace of its borrower, 0 to disable
+		 */
+		public PoolSettings(int maxActive, long maxWaitMillis, long leakThresholdMillis) {
+
+			if (maxActive <= 0 || maxWaitMillis < 0 || leakThresholdMillis < 0) {
+				throw new IllegalArgumentException("PoolSettings(): invalid pool settings...");
+			}
+
+			this.maxActive = maxActive;
+			this.maxWaitMillis = maxWaitMillis;
+			this.leakThresholdMillis = leakThresholdMillis;
+		}
+
+		public int getMaxActive() { return maxActive; }
+		public long getMaxWaitMillis() { return maxWaitMillis; }
+		public long getLeakThresholdMillis() { return leakThresholdMillis; }
+
+		@Override
+		public String toString() {
+			return "maxActive=" + maxActive + ", maxWaitMillis=" + maxWaitMillis + ", leakThresholdMillis=" + leakThresholdMillis;
+		}
+	}
+
+	private static final DataSourceRegistry INSTANCE = new DataSourceRegistry();
+
+	// url + user -> pool
+	private final Map<String, BasicDataSource> pools = new HashMap<String, BasicDataSource>();
+
+	// name -> data source
+	private final Map<String, DataSource> namedDataSources = new HashMap<String, DataSource>();
+
+	/**
+	 * Returns the process wide registry.
+	 *
+	 * @return DataSourceRegistry
+	 */
+	public static DataSourceRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	// package-private so tests can use their own registry
+	DataSourceRegistry() {}
+
+	/**
+	 * Returns the pool for the given database, creating it with the given
+	 * settings if necessary.
+	 *
+	 * @param databaseDriver String
+	 * @param databaseUrl String
+	 * @param databaseUser String
+	 * @param databasePassword String
+	 * @param poolSettings PoolSettings
+	 * @return BasicDataSource
+	 */
+	public synchronized BasicDataSource getDataSource(String databaseDriver, String databaseUrl,
+													  String databaseUser, String databasePassword,
+													  PoolSettings poolSettings) {
+
+		String key = databaseUser + "@" + databaseUrl;
+		BasicDataSource toReturn = pools.get(key);
+		if (toReturn == null) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info("getDataSource(), creating pool: " + databaseUrl + ", " + poolSettings);
+			}
+			toReturn = new BasicDataSource() {
+				// connections always use the pool credentials
+				@Override
+				public Connection getConnection(String username, String password) throws SQLException {
+					throw new SQLFeatureNotSupportedException("getConnection(username, password): connections use the pool credentials");
+				}
+			};
+			toReturn.setDriverClassName(databaseDriver);
+			toReturn.setUrl(databaseUrl);
+			toReturn.setUsername(databaseUser);
+			toReturn.setPassword(databasePassword);
+			toReturn.setMaxActive(poolSettings.getMaxActive());
+			toReturn.setMaxIdle(poolSettings.getMaxActive());
+			toReturn.setMinIdle(0);
+			toReturn.setMaxWait(poolSettings.getMaxWaitMillis());
+			if (poolSettings.getLeakThresholdMillis() > 0) {
+				toReturn.setRemoveAbandoned(true);
+				toReturn.setRemoveAbandonedTimeout((int)Math.max(1, poolSettings.getLeakThresholdMillis() / 1000));
+				toReturn.setLogAbandoned(true);
+			}
+			pools.put(key, toReturn);
+		}
+
+		// outta here
+		return toReturn;
+	}
+
+	/**
+	 * Registers the given data source under the given name.
+	 *
+	 * @param name String
+	 * @param dataSource DataSource
+	 */
+	public synchronized void setNamedDataSource(String name, DataSource dataSource) {
+		namedDataSources.put(name, dataSource);
+	}
+
+	/**
+	 * Returns the data source registered under the given name, or null.
+	 *
+	 * @param name String
+	 * @return DataSource
+	 */
+	public synchronized DataSource getNamedDataSource(String name) {
+		return namedDataSources.get(name);
+	}
+
+	/**
+	 * Closes and forgets all pools.
+	 */
+	public synchronized void close() {
+
+		for (Map.Entry<String, BasicDataSource> pool : pools.entrySet()) {
+			BasicDataSource dataSource = pool.getValue();
+			if (LOG.isInfoEnabled()) {
+				LOG.info("close(), " + pool.getKey() + ": active=" + dataSource.getNumActive() + ", idle=" + dataSource.getNumIdle());
+			}
+			try {
+				dataSource.close();
+			}
+			catch (SQLException e) {
+				LOG.error("close(), cannot close pool: " + pool.getKey(), e);
+			}
+		}
+		pools.clear();
+		namedDataSources.clear();
+	}
+}
@@ -20,7 +20,6 @@ package org.mskcc.cbio.importer.io.internal;
 
 // imports
 import org.mskcc.cbio.importer.DatabaseUtils;
-import org.mskcc.cbio.importer.io.internal.DataSourceFactoryBean;
 import org.mskcc.cbio.importer.util.Shell;
 import org.mskcc.cbio.importer.util.MetadataUtils;
 
@@ -29,7 +28,6 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.dao.DataAccessException;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -45,7 +43,6 @@ public class DatabaseUtilsImpl implements DatabaseUtils {
 	private static final Log LOG = LogFactory.getLog(DatabaseUtilsImpl.class);
 
 	// some context files
-	private static final String importerContextFile = "classpath:applicationContext-importer.xml";
 	private static final String createSchemaContextFile = "classpath:applicationContext-createSchema.xml";
 
 	// the follow db properties are set here for convenient access by our clients
@@ -64,6 +61,11 @@ public class DatabaseUtilsImpl implements DatabaseUtils {
 	@Override
     public String getDatabasePassword() { return this.databasePassword; }
 
+	// db driver
+	private String databaseDriver;
+	@Value("${db.driver}")
+	public void setDatabaseDriver(String databaseDriver) { this.databaseDriver = databaseDriver; }
+
 	// db connection
 	private String databaseConnectionString;
 	@Value("${db.connection_string}")
@@ -80,6 +82,21 @@ public class DatabaseUtilsImpl implements DatabaseUtils {
 		return MetadataUtils.getCanonicalPath(this.portalDatabaseSchema);
 	}
 
+	// max number of connections per database
+	private int poolMaxActive = DataSourceRegistry.DEFAULT_MAX_ACTIVE;
+	@Value("${db.pool_max_active:8}")
+	public void setPoolMaxActive(String property) { this.poolMaxActive = Integer.parseInt(property.trim()); }
+
+	// time to wait for a connection
+	private long poolMaxWaitMillis = DataSourceRegistry.DEFAULT_MAX_WAIT_MILLIS;
+	@Value("${db.pool_max_wait_ms:300000}")
+	public void setPoolMaxWaitMillis(String property) { this.poolMaxWaitMillis = Long.parseLong(property.trim()); }
+
+	// time after which an unused borrowed connection is reclaimed (0 = never)
+	private long poolLeakThresholdMillis = DataSourceRegistry.DEFAULT_LEAK_THRESHOLD_MILLIS;
+	@Value("${db.pool_leak_threshold_ms:0}")
+	public void setPoolLeakThresholdMillis(String property) { this.poolLeakThresholdMillis = Long.parseLong(property.trim()); }
+
 	// importer database name
 	private String importerDatabaseName;
 	@Value("${db.importer_db_name}")
@@ -107,22 +124,18 @@ public class DatabaseUtilsImpl implements DatabaseUtils {
 			LOG.info("createDatabase(): " + databaseName);
 		}
 
-		// we want to get a reference to the database util factory bean interface
-		// so we can set a datasource which matches the bean DatabaseUtil bean name
-		ApplicationContext context = new ClassPathXmlApplicationContext(importerContextFile);
-		DataSourceFactoryBean dataSourceFactoryBean =
-			(DataSourceFactoryBean)context.getBean("&dataSourceFactory");
-
-		// create the database - drop if it exists
-		createDatabase(dataSourceFactoryBean, databaseName, true);
+		// connect without a database name to create the database - drop if it exists
+		DataSourceRegistry registry = DataSourceRegistry.getInstance();
+		createDatabase(getDataSource(""), databaseName, true);
 
 		if (createSchema) {
-			// create a datasource to this database name - important to set the map key
+			// register the datasource to this database name - important to set the name
 			// to be equal to the bean name within the createSchema context file
-			dataSourceFactoryBean.createDataSourceMapping("createSchema", databaseName);
+			registry.setNamedDataSource("createSchema", getDataSource(databaseName));
 
 			// load the context that auto-creates tables
-			context = new ClassPathXmlApplicationContext(createSchemaContextFile);
+			ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(createSchemaContextFile);
+			context.close();
 		}
 	}
 
@@ -152,21 +165,34 @@ public class DatabaseUtilsImpl implements DatabaseUtils {
 		return Shell.exec(Arrays.asList(command), ".");
 	}
 
+	/**
+	 * Returns the pooled datasource of the given database.
+	 *
+	 * @param databaseName String
+	 * @return DataSource
+	 */
+	private DataSource getDataSource(String databaseName) {
+
+		return DataSourceRegistry.getInstance().getDataSource(databaseDriver,
+															  DataSourceFactoryBean.getDatabaseUrl(databaseConnectionString, databaseName),
+															  databaseUser, databasePassword,
+															  new DataSourceRegistry.PoolSettings(poolMaxActive, poolMaxWaitMillis,
+																								  poolLeakThresholdMillis));
+	}
+
 	/**
 	 * Creates a database with the given name.
 	 *
-	 * @param dataSourceFactoryBean DataSourceFactoryBean
+	 * @param dataSource DataSource
 	 * @param databaseName String
 	 * @param dropDatabase boolean
 	 * @return boolean
 	 */
-	private boolean createDatabase(DataSourceFactoryBean dataSourceFactoryBean,
-								   String databaseName, boolean dropDatabase) {
+	private boolean createDatabase(DataSource dataSource, String databaseName, boolean dropDatabase) {
 
 		boolean toReturn = true;
 
 		// create simple JdbcTemplate if necessary
-		DataSource dataSource = dataSourceFactoryBean.getDataSource("");
 		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
 
 		try {
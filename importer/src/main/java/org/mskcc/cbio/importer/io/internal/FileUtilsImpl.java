@@ -24,6 +24,7 @@ import org.mskcc.cbio.importer.model.*;
 import org.mskcc.cbio.importer.util.*;
 import org.mskcc.cbio.importer.remote.*;
 import org.mskcc.cbio.importer.converter.internal.MethylationConverterImpl;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
 
 import org.mskcc.cbio.maf.*;
 import org.mskcc.cbio.annotator.*;
@@ -52,6 +53,7 @@ import com.google.common.base.Strings;
 import com.google.common.base.Preconditions;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
 import java.util.*;
 import java.net.URL;
@@ -71,12 +73,74 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	// our logger
 	private static Log LOG = LogFactory.getLog(FileUtilsImpl.class);
 
+	// seg files are linked to from the portal (IGV)
+	private static final String SEG_FILE_EXTENSION = ".seg";
+
 	// ref to config
 	private Config config;
 
 	// ref to caseids
 	private CaseIDs caseIDs;
 
+	// block compress staging files
+	private boolean compressStagingFiles;
+	@Value("${staging.compress:false}")
+	public void setCompressStagingFiles(String property) { this.compressStagingFiles = Boolean.parseBoolean(property.trim()); }
+	public boolean getCompressStagingFiles() { return compressStagingFiles; }
+
+	// number of threads used to compress a staging file
+	private int stagingCompressionThreads = Runtime.getRuntime().availableProcessors();
+	@Value("${staging.compress_threads:0}")
+	public void setStagingCompressionThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.stagingCompressionThreads = (numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors();
+	}
+
+	// computes z-scores of expression staging files, threads 0 = all processors
+	private ZScoreCalculator zScoreCalculator = new ZScoreCalculator(Runtime.getRuntime().availableProcessors());
+	@Value("${zscores.threads:0}")
+	public void setZScoreThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.zScoreCalculator = new ZScoreCalculator((numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors());
+	}
+
+	// number of seg files copied concurrently
+	private int segFileCopyThreads = 4;
+	@Value("${seg_files.copy_threads:4}")
+	public void setSegFileCopyThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.segFileCopyThreads = (numThreads > 0) ? numThreads : 4;
+	}
+
+	// number of threads used to read a data file into a DataMatrix
+	private int dataMatrixReaderThreads = Runtime.getRuntime().availableProcessors();
+	@Value("${converter.reader_threads:0}")
+	public void setDataMatrixReaderThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.dataMatrixReaderThreads = (numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors();
+	}
+
+	// number of staging files read concurrently when generating case lists
+	private int caseListThreads = Runtime.getRuntime().availableProcessors();
+	@Value("${case_lists.threads:0}")
+	public void setCaseListThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.caseListThreads = (numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors();
+	}
+
+	// number of override files applied concurrently
+	private int overrideThreads = Runtime.getRuntime().availableProcessors();
+	@Value("${overrides.threads:0}")
+	public void setOverrideThreads(String property) {
+		int numThreads = Integer.parseInt(property.trim());
+		this.overrideThreads = (numThreads > 0) ? numThreads : Runtime.getRuntime().availableProcessors();
+	}
+
+	// hard link override files into the staging area (when on the same file system)
+	private boolean overrideHardLinks = false;
+	@Value("${overrides.hard_links:false}")
+	public void setOverrideHardLinks(String property) { this.overrideHardLinks = Boolean.parseBoolean(property.trim()); }
+
 	// location of lift over binary
 	private String liftoverBinary;
 	@Value("${liftover_binary}")
@@ -227,6 +291,18 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	{
 		return customEnst;
 	}
+
+	/**
+	 * Fingerprint of the annotator (and liftover) settings which determine
+	 * the annotated MAF - tool paths include the tool versions.
+	 * Recorded in the annotation manifest.
+	 */
+	private String getAnnotatorVersion()
+	{
+		return DigestUtils.md5Hex(Arrays.asList(getMaf2mafScript(), getVcf2mafScript(), getVepPath(), getVepData(),
+												getRefFasta(), getExcludeCols(), getMode(), getCustomEnst(),
+												getLiftOverChain()).toString());
+	}
 	
 	public FileUtilsImpl(Config config, CaseIDs caseIDs,
 	                     GetGateway getGateway, PutGateway putGateway,
@@ -350,18 +426,76 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
                 LOG.info("getDataMatrices(): processing file: " + fileCanonicalPath);
             }
             File dataFile = new File(fileCanonicalPath);
-            InputStream is = org.apache.commons.io.FileUtils.openInputStream(dataFile);
-            DataMatrix m = getDataMatrix(dataFile.getName(), is, methylationCorrelation);
+            DataMatrix m = getDataMatrix(dataFile.getName(), dataFile, methylationCorrelation);
             if (m != null) {
 	            dataMatrices.add(m);
 	        }
-            IOUtils.closeQuietly(is);
         }
 
         // outta here
         return dataMatrices;
     }
 
+    @Override
+	public StreamingDataMatrix getStreamingDataMatrix(ImportDataRecord importDataRecord) throws Exception {
+
+        String fileCanonicalPath = importDataRecord.getCanonicalPathToData();
+        File dataFile = new File(fileCanonicalPath);
+        String dataFilename = dataFile.getName();
+        InputStream is = null;
+
+        // as getDataMatrices(), compressed data is a tarball
+		if (GzipUtils.isCompressedFilename(fileCanonicalPath.toLowerCase())) {
+            if (fileCanonicalPath.contains(DatatypeMetadata.MUT_PACK_CALLS_FILE)) {
+                return null;
+            }
+            // the archive is scanned once to make sure there is a single data file
+            TarArchiveInputStream tis = new TarArchiveInputStream(new GzipCompressorInputStream(org.apache.commons.io.FileUtils.openInputStream(dataFile)));
+            try {
+                dataFilename = getSingleDataFileEntry(importDataRecord, tis);
+            }
+            finally {
+                IOUtils.closeQuietly(tis);
+            }
+            if (dataFilename == null) {
+                return null;
+            }
+            tis = new TarArchiveInputStream(new GzipCompressorInputStream(org.apache.commons.io.FileUtils.openInputStream(dataFile)));
+            TarArchiveEntry entry = null;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                if (entry.getName().equals(dataFilename)) {
+                    break;
+                }
+            }
+            is = tis;
+        }
+        else {
+            is = org.apache.commons.io.FileUtils.openInputStream(dataFile);
+        }
+
+        StreamingDataMatrix toReturn = null;
+        try {
+            if (!processingBCRClinicalFile(dataFilename)) {
+                toReturn = new StreamingDataMatrix(dataFilename, is, caseIDs);
+                if (!toReturn.hasRows()) {
+                    toReturn = null;
+                }
+            }
+        }
+        finally {
+            if (toReturn == null) {
+                IOUtils.closeQuietly(is);
+            }
+        }
+
+        if (toReturn != null && LOG.isInfoEnabled()) {
+            LOG.info("getStreamingDataMatrix(): streaming file: " + fileCanonicalPath + ", data file: " + dataFilename);
+        }
+
+        // outta here
+        return toReturn;
+    }
+
 	@Override
 	public List<String> getMissingCaseListFilenames(String rootDirectory, CancerStudyMetadata cancerStudyMetadata) throws Exception {
 
@@ -376,9 +510,11 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	}
 
 	@Override
-	public void generateCaseLists(boolean overwrite, boolean strict, String stagingDirectory, CancerStudyMetadata cancerStudyMetadata) throws Exception {
+	public void generateCaseLists(boolean overwrite, boolean strict, final String stagingDirectory, final CancerStudyMetadata cancerStudyMetadata) throws Exception {
 
-		// iterate over case lists
+		// case lists to write and the staging files they need
+		Map<CaseListMetadata, String[]> caseLists = new LinkedHashMap<CaseListMetadata, String[]>();
+		LinkedHashSet<String> requiredStagingFilenames = new LinkedHashSet<String>();
 		for (CaseListMetadata caseListMetadata : config.getCaseListMetadata(Config.ALL)) {
 			if (LOG.isInfoEnabled()) {
 				LOG.info("generateCaseLists(), processing cancer study: " + cancerStudyMetadata + ", case list: " + caseListMetadata.getCaseListFilename());
@@ -393,80 +529,52 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 				}
 				continue;
 			}
-			// how many staging files are we working with?
-			String[] stagingFilenames = null;
-			// setup union/intersection bools
-			boolean unionCaseList = 
-				caseListMetadata.getStagingFilenames().contains(CaseListMetadata.CASE_LIST_UNION_DELIMITER);
-			boolean intersectionCaseList = 
-				caseListMetadata.getStagingFilenames().contains(CaseListMetadata.CASE_LIST_INTERSECTION_DELIMITER);
-			// union (like all cases)
-			if (unionCaseList) {
-				stagingFilenames = caseListMetadata.getStagingFilenames().split("\\" + CaseListMetadata.CASE_LIST_UNION_DELIMITER);
-			}
-			// intersection (like complete or cna-seq)
-			else if (intersectionCaseList) {
-				stagingFilenames = caseListMetadata.getStagingFilenames().split("\\" + CaseListMetadata.CASE_LIST_INTERSECTION_DELIMITER);
-			}
-			// just a single staging file
-			else {
-				stagingFilenames = new String[] { caseListMetadata.getStagingFilenames() };
-			}
+			String[] stagingFilenames = getCaseListStagingFilenames(caseListMetadata);
 			if (LOG.isInfoEnabled()) {
 				LOG.info("generateCaseLists(), stagingFilenames: " + java.util.Arrays.toString(stagingFilenames));
 			}
-			if (intersectionCaseList && !allStagingFilesExist(cancerStudyMetadata, stagingDirectory, stagingFilenames)) {
+			if (isIntersectionCaseList(caseListMetadata) &&
+				!CaseListSets.allStagingFilesExist(org.apache.commons.io.FileUtils.getFile(stagingDirectory, cancerStudyMetadata.getStudyPath()),
+												   stagingFilenames)) {
 				continue;
 			}
-			// this is the set we will pass to writeCaseListFile
-			LinkedHashSet<String> caseSet = new LinkedHashSet<String>();
-			// this indicates the number of staging files processed -
-			// used to verify that an intersection should be written
-			int numStagingFilesProcessed = 0;
-			for (String stagingFilename : stagingFilenames) {
-				if (LOG.isInfoEnabled()) {
-					LOG.info("generateCaseLists(), processing stagingFile: " + stagingFilename);
-				}
-				// compute the case set
-				List<String> caseList = getCaseListFromStagingFile(strict, caseIDs, cancerStudyMetadata, stagingDirectory, stagingFilename);
-				// we may not have this datatype in study
-				if (caseList.size() == 0) {
-					if (LOG.isInfoEnabled()) {
-						LOG.info("generateCaseLists(), stagingFileHeader is empty: " + stagingFilename + ", skipping...");
-					}
-					continue;
-				}
-				// intersection 
-				if (intersectionCaseList) {
-					if (caseSet.isEmpty()) {
-						caseSet.addAll(caseList);
-					}
-					else {
-						caseSet.retainAll(caseList);
-					}
-				}
-				// otherwise union or single staging (treat the same)
-				else {
-					caseSet.addAll(caseList);
-				}
-				++numStagingFilesProcessed;
+			caseLists.put(caseListMetadata, stagingFilenames);
+			requiredStagingFilenames.addAll(Arrays.asList(stagingFilenames));
+		}
+		if (caseLists.isEmpty()) {
+			return;
+		}
+
+		// read every staging file once
+		final boolean strictCaseIDs = strict;
+		final CancerStudy cancerStudy = DaoCancerStudy.getCancerStudyByStableId(cancerStudyMetadata.getStableId());
+		CaseListSets caseListSets = new CaseListSets(requiredStagingFilenames, new CaseListSets.StagingFileReader() {
+			public List<String> getCaseList(String stagingFilename) throws Exception {
+				return readCaseListFromStagingFile(strictCaseIDs, caseIDs, cancerStudy, cancerStudyMetadata, stagingDirectory, stagingFilename);
+			}
+		}, caseListThreads);
+
+		for (Map.Entry<CaseListMetadata, String[]> caseList : caseLists.entrySet()) {
+			CaseListMetadata caseListMetadata = caseList.getKey();
+			String[] stagingFilenames = caseList.getValue();
+			List<String> caseSet;
+			// intersection (like complete or cna-seq) - needs cases in every staging file
+			if (isIntersectionCaseList(caseListMetadata)) {
+				caseSet = caseListSets.getIntersection(stagingFilenames);
+			}
+			// otherwise union or single staging (treat the same)
+			else {
+				caseSet = caseListSets.getUnion(stagingFilenames);
 			}
 			// write the case list file (don't make empty case lists)
 			if (caseSet.size() > 0) {
 				if (LOG.isInfoEnabled()) {
-					LOG.info("generateCaseLists(), calling writeCaseListFile()...");
-				}
-				// do not write out complete cases file unless we've processed all the files required
-				if (intersectionCaseList && (numStagingFilesProcessed != stagingFilenames.length)) {
-					if (LOG.isInfoEnabled()) {
-						LOG.info("generateCaseLists(), number of staging files processed != number staging files required for cases_complete.txt, skipping call to writeCaseListFile()...");
-					}
-					continue;
+					LOG.info("generateCaseLists(), calling writeCaseListFile(): " + caseListMetadata.getCaseListFilename());
 				}
 				writeCaseListFile(stagingDirectory, cancerStudyMetadata, caseListMetadata, caseSet.toArray(new String[0]));
 			}
 			else if (LOG.isInfoEnabled()) {
-				LOG.info("generateCaseLists(), caseSet.size() <= 0, skipping call to writeCaseListFile()...");
+				LOG.info("generateCaseLists(), caseSet.size() <= 0, skipping call to writeCaseListFile(): " + caseListMetadata.getCaseListFilename());
 			}
 			// if union, write out the cancer study metadata file & patient list
 			if (overwrite && caseSet.size() > 0 && caseListMetadata.getCaseListFilename().equals(CaseListMetadata.ALL_CASES_FILENAME)) {
@@ -478,31 +586,37 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		}
 	}
 
-	private boolean allStagingFilesExist(CancerStudyMetadata cancerStudyMetadata, String stagingDirectory, String[] stagingFilenames)
+	private boolean isIntersectionCaseList(CaseListMetadata caseListMetadata)
 	{
-		for (String stagingFilename : stagingFilenames) {
-			File stagingFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
-																	   cancerStudyMetadata.getStudyPath(),
-																	   stagingFilename);
-			// sanity check
-			if (!stagingFile.exists()) {
-				return false;
-			}
+		return caseListMetadata.getStagingFilenames().contains(CaseListMetadata.CASE_LIST_INTERSECTION_DELIMITER);
+	}
+
+	private String[] getCaseListStagingFilenames(CaseListMetadata caseListMetadata)
+	{
+		// union (like all cases)
+		if (caseListMetadata.getStagingFilenames().contains(CaseListMetadata.CASE_LIST_UNION_DELIMITER)) {
+			return caseListMetadata.getStagingFilenames().split("\\" + CaseListMetadata.CASE_LIST_UNION_DELIMITER);
+		}
+		// intersection (like complete or cna-seq)
+		else if (isIntersectionCaseList(caseListMetadata)) {
+			return caseListMetadata.getStagingFilenames().split("\\" + CaseListMetadata.CASE_LIST_INTERSECTION_DELIMITER);
 		}
-		return true;
+		// just a single staging file
+		return new String[] { caseListMetadata.getStagingFilenames() };
 	}
 
 	@Override
 	public List<String> getCaseListFromStagingFile(boolean strict, CaseIDs caseIDs, CancerStudyMetadata cancerStudyMetadata, String stagingDirectory, String stagingFilename) throws Exception {
 
-		if (LOG.isInfoEnabled()) {
-			LOG.info("getCaseListFromStagingFile(): " + stagingFilename);
-		}
+		CancerStudy cancerStudy = DaoCancerStudy.getCancerStudyByStableId(cancerStudyMetadata.getStableId());
+		return readCaseListFromStagingFile(strict, caseIDs, cancerStudy, cancerStudyMetadata, stagingDirectory, stagingFilename);
+	}
 
-		// we use set here
-		HashSet<String> caseSet = new HashSet<String>();
+	private List<String> readCaseListFromStagingFile(boolean strict, CaseIDs caseIDs, CancerStudy cancerStudy, CancerStudyMetadata cancerStudyMetadata, String stagingDirectory, String stagingFilename) throws Exception {
 
-		CancerStudy cancerStudy = DaoCancerStudy.getCancerStudyByStableId(cancerStudyMetadata.getStableId());
+		if (LOG.isInfoEnabled()) {
+			LOG.info("readCaseListFromStagingFile(): " + stagingFilename);
+		}
 
 		// if we are processing mutations data and a sequencedSamplesFile exists, use it
 		if (stagingFilename.equals(DatatypeMetadata.MUTATIONS_STAGING_FILENAME)) {
@@ -510,72 +624,17 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 																				cancerStudyMetadata.getStudyPath(),
 																				DatatypeMetadata.SEQUENCED_SAMPLES_FILENAME);
 			if (sequencedSamplesFile.exists()) {
-				if (LOG.isInfoEnabled()) LOG.info("getCaseListFromStagingFile(), sequenceSamplesFile exists, calling getCaseListFromSequencedSamplesFile()");
+				if (LOG.isInfoEnabled()) LOG.info("readCaseListFromStagingFile(), sequenceSamplesFile exists, calling getCaseListFromSequencedSamplesFile()");
 				return getCaseListFromSequencedSamplesFile(sequencedSamplesFile);
 			}
 		}
 
 		// staging file
-		File stagingFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
-																   cancerStudyMetadata.getStudyPath(),
-																   stagingFilename);
-		// sanity check
-		if (!stagingFile.exists()) {
-			return new ArrayList<String>();
-		}
-
-		// iterate over all rows in file
-		org.apache.commons.io.LineIterator it = org.apache.commons.io.FileUtils.lineIterator(stagingFile);
-		try {
-			int mafCaseIDColumnIndex = 0;
-			boolean processHeader = true;
-			while (it.hasNext()) {
-                                String line = it.next();
-                                if (line.startsWith("#")) {
-                                    if (line.startsWith("#"+Converter.MUTATION_CASE_LIST_META_HEADER+":")) {
-                                        return Arrays.asList(line.substring(Converter.MUTATION_CASE_LIST_META_HEADER.length()+2).trim().split("[ \t]+"));
-                                    }
-                                    continue;
-                                }
-                                
-				// create a string list from row in file
-				List<String> thisRow = Arrays.asList(line.split(Converter.VALUE_DELIMITER));
-				// is this the header file?
-				if (processHeader) {
-					// look for MAF file case id column header
-					mafCaseIDColumnIndex = thisRow.indexOf(Converter.MUTATION_CASE_ID_COLUMN_HEADER);
-					// this is not a MAF file, header contains the case ids, return here
-					if (mafCaseIDColumnIndex  == -1) {
-						if (LOG.isInfoEnabled()) LOG.info("getCaseListFromStagingFile(), this is not a MAF header contains sample ids...");
-						for (String potentialCaseID : thisRow) {
-							if (!strict || caseIDs.isSampleId(cancerStudy.getInternalId(), potentialCaseID) || caseIDs.isTruncatedTCGAPatientId(potentialCaseID)) {
-								// check to filter out column headers other than sample ids
-								if (Converter.NON_CASE_IDS.contains(potentialCaseID.toUpperCase())) {
-									continue;
-								}
-								caseSet.add(caseIDs.getSampleId(cancerStudy.getInternalId(), potentialCaseID));
-							}
-						}
-						break;
-					}
-					else {
-						if (LOG.isInfoEnabled()) LOG.info("getCaseListFromStagingFile(), this is a MAF, samples ids in col: " + mafCaseIDColumnIndex);
-					}
-					processHeader = false;
-					continue;
-				}
-				// we want to add the value at mafCaseIDColumnIndex into return set - this is a case ID
-				String potentialCaseID = thisRow.get(mafCaseIDColumnIndex);
-				if (!strict || caseIDs.isSampleId(cancerStudy.getInternalId(), potentialCaseID)) {
-					caseSet.add(caseIDs.getSampleId(cancerStudy.getInternalId(), potentialCaseID));
-				}
-			}
-		} finally {
-			it.close();
-		}
-
+		File stagingFile = StagingUtils.resolveStagingFile(org.apache.commons.io.FileUtils.getFile(stagingDirectory,
+																								   cancerStudyMetadata.getStudyPath(),
+																								   stagingFilename));
 		// outta here
-		return new ArrayList<String>(caseSet);
+		return CaseListSets.readCaseList(stagingFile, strict, caseIDs, cancerStudy.getInternalId());
 	}
 
 	@Override
@@ -600,8 +659,16 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	@Override
 	public File createFileFromStream(String filename, InputStream is) throws Exception {
 
+		// written to a temp file which replaces the file, it may be linked to the content store
 		File file = org.apache.commons.io.FileUtils.getFile(filename);
-		org.apache.commons.io.FileUtils.copyInputStreamToFile(is, file);
+		File tmpFile = createTmpFileNextTo(file);
+		try {
+			org.apache.commons.io.FileUtils.copyInputStreamToFile(is, tmpFile);
+			replaceFile(tmpFile, file);
+		}
+		finally {
+			org.apache.commons.io.FileUtils.deleteQuietly(tmpFile);
+		}
 
 		// outta here
 		return file;
@@ -653,8 +720,16 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			if (LOG.isInfoEnabled()) {
 				LOG.info("downloadFile(), " + urlSource + ", this may take a while...");
 			}
-			org.apache.commons.io.FileUtils.copyURLToFile(source,
-														  org.apache.commons.io.FileUtils.getFile(destination.getFile()));
+			// written to a temp file which replaces the destination, it may be linked to the content store
+			File destinationFile = org.apache.commons.io.FileUtils.getFile(destination.getFile());
+			File tmpFile = createTmpFileNextTo(destinationFile);
+			try {
+				org.apache.commons.io.FileUtils.copyURLToFile(source, tmpFile);
+				replaceFile(tmpFile, destinationFile);
+			}
+			finally {
+				org.apache.commons.io.FileUtils.deleteQuietly(tmpFile);
+			}
 		}
 	}
 
@@ -672,7 +747,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			if (LOG.isInfoEnabled()) {
 				LOG.info("writeCancerStudyMetadataFile(), meta file: " + metaFile);
 			}
-			PrintWriter writer = new PrintWriter(org.apache.commons.io.FileUtils.openOutputStream(metaFile, false));
+			PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(metaFile));
 			writer.print("type_of_cancer: " + cancerStudyMetadata.getTumorType() + "\n");
 			writer.print("cancer_study_identifier: " + cancerStudyMetadata.getStableId() + "\n");
                         String name = cancerStudyMetadata.getName();
@@ -735,7 +810,13 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			it.close();
 		}
 
-		org.apache.commons.io.FileUtils.writeStringToFile(metaFile, builder.toString(), false);
+		PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(metaFile));
+		try {
+			writer.print(builder.toString());
+			writer.flush();
+		} finally {
+			writer.close();
+		}
 	}
 
 	public void writeMetadataFile(String stagingDirectory,
@@ -750,7 +831,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			LOG.info("writeMetadataFile(), meta file: " + metaFile);
 		}
 
-		PrintWriter writer = new PrintWriter(org.apache.commons.io.FileUtils.openOutputStream(metaFile, false));
+		PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(metaFile));
 		writer.print("cancer_study_identifier: " + cancerStudyMetadata.getStableId() + "\n");
 		writer.print("genetic_alteration_type: " + datatypeMetadata.getMetaGeneticAlterationType() + "\n");
 		String stableID = datatypeMetadata.getMetaStableID();
@@ -782,13 +863,52 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	public void writeMetadataFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
 								   DatatypeMetadata datatypeMetadata, DataMatrix dataMatrix) throws Exception {
 
+			String profileDescription = datatypeMetadata.getMetaProfileDescription();
+			if (dataMatrix != null) {
+                            if (profileDescription.contains(DatatypeMetadata.NUM_GENES_TAG)) {
+				profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_GENES_TAG, Integer.toString(dataMatrix.getGeneIDs().size()));
+                            }
+                            if (profileDescription.contains(DatatypeMetadata.NUM_CASES_TAG)) {
+                                profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_CASES_TAG, Integer.toString(dataMatrix.getCaseIDs().size()));
+                            }
+			}
+			writeMetadataFile(stagingDirectory, cancerStudyMetadata, datatypeMetadata, profileDescription);
+	}
+
+	@Override
+	public void writeStreamingMetadataFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+										   DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception {
+
+			String profileDescription = datatypeMetadata.getMetaProfileDescription();
+			if (profileDescription.contains(DatatypeMetadata.NUM_GENES_TAG)) {
+				profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_GENES_TAG, Integer.toString(dataMatrix.getGeneIDs().size()));
+			}
+			if (profileDescription.contains(DatatypeMetadata.NUM_CASES_TAG)) {
+				profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_CASES_TAG, Integer.toString(dataMatrix.getCaseIDs().size()));
+			}
+			writeMetadataFile(stagingDirectory, cancerStudyMetadata, datatypeMetadata, profileDescription);
+	}
+
+	/**
+	 * Writes a metadata file with the given profile description,
+	 * in which only the tumor type tag is left to replace.
+	 *
+	 * @param stagingDirectory String
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param profileDescription String
+	 * @throws Exception
+	 */
+	private void writeMetadataFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+								   DatatypeMetadata datatypeMetadata, String profileDescription) throws Exception {
+
 			File metaFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
 																	cancerStudyMetadata.getStudyPath(),
 																	datatypeMetadata.getMetaFilename());
 			if (LOG.isInfoEnabled()) {
 				LOG.info("writeMetadataFile(), meta file: " + metaFile);
 			}
-			PrintWriter writer = new PrintWriter(org.apache.commons.io.FileUtils.openOutputStream(metaFile, false));
+			PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(metaFile));
 			writer.print("cancer_study_identifier: " + cancerStudyMetadata.getStableId() + "\n");
 			writer.print("genetic_alteration_type: " + datatypeMetadata.getMetaGeneticAlterationType() + "\n");
 			writer.print("datatype: " + datatypeMetadata.getMetaDatatypeType() + "\n");
@@ -796,15 +916,6 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			stableID = stableID.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
 			writer.print("stable_id: " + stableID + "\n");
 			writer.print("show_profile_in_analysis_tab: " + datatypeMetadata.getMetaShowProfileInAnalysisTab() + "\n");
-			String profileDescription = datatypeMetadata.getMetaProfileDescription();
-			if (dataMatrix != null) {
-                            if (profileDescription.contains(DatatypeMetadata.NUM_GENES_TAG)) {
-				profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_GENES_TAG, Integer.toString(dataMatrix.getGeneIDs().size()));
-                            }
-                            if (profileDescription.contains(DatatypeMetadata.NUM_CASES_TAG)) {
-                                profileDescription = profileDescription.replaceAll(DatatypeMetadata.NUM_CASES_TAG, Integer.toString(dataMatrix.getCaseIDs().size()));
-                            }
-			}
 			profileDescription = profileDescription.replaceAll(DatatypeMetadata.TUMOR_TYPE_TAG, cancerStudyMetadata.getTumorType());
 			writer.print("profile_description: " + profileDescription + "\n");
 			writer.print("profile_name: " + datatypeMetadata.getMetaProfileName() + "\n");
@@ -823,7 +934,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			if (LOG.isInfoEnabled()) {
 				LOG.info("writeCopyNumberSegmentMetadataFile(), meta file: " + metaFile);
 			}
-			PrintWriter writer = new PrintWriter(org.apache.commons.io.FileUtils.openOutputStream(metaFile, false));
+			PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(metaFile));
 			writer.print("cancer_study_identifier: " + cancerStudyMetadata.getStableId() + "\n");
 			if (datatypeMetadata.getDatatype().contains(CopyNumberSegmentFile.ReferenceGenomeId.hg18.toString())){
 				writer.print("reference_genome_id: " + CopyNumberSegmentFile.ReferenceGenomeId.hg18.toString() + "\n");
@@ -848,6 +959,79 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	public void writeStagingFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
 								 DatatypeMetadata datatypeMetadata, DataMatrix dataMatrix) throws Exception {
 
+		File stagingFile = getStagingFileToWrite(stagingDirectory, cancerStudyMetadata, datatypeMetadata);
+
+		// buffers are written in the background while the next rows are serialized
+		DataMatrixWriter writer = new DataMatrixWriter(DataMatrixWriter.DEFAULT_BUFFER_SIZE, true);
+		if (StagingUtils.isCompressed(stagingFile)) {
+			OutputStream out = StagingUtils.openStagingOutputStream(stagingFile, stagingCompressionThreads);
+			try {
+				writer.write(dataMatrix, out);
+			}
+			finally {
+				out.close();
+			}
+		}
+		else {
+			FileChannel channel = org.apache.commons.io.FileUtils.openOutputStream(stagingFile).getChannel();
+			try {
+				writer.write(dataMatrix, channel);
+			}
+			finally {
+				channel.close();
+			}
+		}
+	}
+
+	@Override
+	public void writeStreamingStagingFile(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+										  DatatypeMetadata datatypeMetadata, StreamingDataMatrix dataMatrix) throws Exception {
+
+		File stagingFile = getStagingFileToWrite(stagingDirectory, cancerStudyMetadata, datatypeMetadata);
+
+		// rows are parsed while the file is written - a read error must not leave a
+		// truncated staging file, so write a temp file which replaces the staging file once complete
+		File tmpFile = createTmpFileNextTo(stagingFile);
+		try {
+			// rows are read and serialized while the previous buffer is written
+			DataMatrixWriter writer = new DataMatrixWriter(DataMatrixWriter.DEFAULT_BUFFER_SIZE, true);
+			if (StagingUtils.isCompressed(stagingFile)) {
+				OutputStream out = StagingUtils.openStagingOutputStream(tmpFile, stagingCompressionThreads);
+				try {
+					writer.write(dataMatrix, out);
+				}
+				finally {
+					out.close();
+				}
+			}
+			else {
+				FileChannel channel = org.apache.commons.io.FileUtils.openOutputStream(tmpFile).getChannel();
+				try {
+					writer.write(dataMatrix, channel);
+				}
+				finally {
+					channel.close();
+				}
+			}
+			replaceFile(tmpFile, stagingFile);
+		}
+		finally {
+			org.apache.commons.io.FileUtils.deleteQuietly(tmpFile);
+		}
+	}
+
+	/**
+	 * Returns the staging file to write for the given datatype.
+	 *
+	 * @param stagingDirectory String
+	 * @param cancerStudyMetadata CancerStudyMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @return File
+	 * @throws Exception
+	 */
+	private File getStagingFileToWrite(String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
+									   DatatypeMetadata datatypeMetadata) throws Exception {
+
 		// staging file
 		String stagingFilename = datatypeMetadata.getStagingFilename();
 		stagingFilename = stagingFilename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
@@ -856,13 +1040,133 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 																   cancerStudyMetadata.getStudyPath(),
 																   stagingFilename);
 
+		stagingFile = getStagingFileToWrite(stagingFile);
+
 		if (LOG.isInfoEnabled()) {
 			LOG.info("writingStagingFile(), staging file: " + stagingFile);
 		}
-																   
-		FileOutputStream out = org.apache.commons.io.FileUtils.openOutputStream(stagingFile, false);
-		dataMatrix.write(out);
-		IOUtils.closeQuietly(out);
+
+		return stagingFile;
+	}
+
+	/**
+	 * Returns the staging file to write - the compressed variant of the given
+	 * staging file if staging files are compressed.  Any stale variant of the
+	 * staging file (from a run with the other setting) is removed.
+	 *
+	 * @param stagingFile File
+	 * @return File
+	 * @throws Exception
+	 */
+	private File getStagingFileToWrite(File stagingFile) throws Exception {
+
+		File compressedFile = StagingUtils.getCompressedFile(stagingFile);
+		File uncompressedFile = StagingUtils.getUncompressedFile(stagingFile);
+		boolean compress = isCompressedStagingFile(stagingFile);
+		File toReturn = (compress) ? compressedFile : uncompressedFile;
+		File staleFile = (compress) ? uncompressedFile : compressedFile;
+		if (staleFile.exists()) {
+			org.apache.commons.io.FileUtils.forceDelete(staleFile);
+		}
+		// replace, do not overwrite - it may be hard linked to an override file
+		if (toReturn.exists()) {
+			org.apache.commons.io.FileUtils.forceDelete(toReturn);
+		}
+		return toReturn;
+	}
+
+	/**
+	 * Opens the given file in the staging area for writing.  An existing file
+	 * is replaced rather than overwritten, it may be hard linked to an override
+	 * file (see OverridePlan).
+	 *
+	 * @param file File
+	 * @return FileOutputStream
+	 * @throws IOException
+	 */
+	private FileOutputStream openStagingAreaOutputStream(File file) throws IOException {
+
+		if (file.exists()) {
+			org.apache.commons.io.FileUtils.forceDelete(file);
+		}
+		return org.apache.commons.io.FileUtils.openOutputStream(file, false);
+	}
+
+	/**
+	 * Replaces the given file by a copy of the given source file.  The copy is
+	 * written under a temporary name next to the target and renamed over it, the
+	 * target may be linked to another file - a staging file to an override file
+	 * (see OverridePlan), a download to the content store (see ContentStore).
+	 * A source file in the same directory is simply renamed.
+	 *
+	 * @param sourceFile File
+	 * @param file File
+	 * @throws IOException
+	 */
+	private void replaceFile(File sourceFile, File file) throws IOException {
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		File tmpFile = sourceFile;
+		if (!directory.equals(sourceFile.getAbsoluteFile().getParentFile())) {
+			tmpFile = createTmpFileNextTo(file);
+			org.apache.commons.io.FileUtils.copyFile(sourceFile, tmpFile);
+		}
+		try {
+			java.nio.file.Files.move(tmpFile.toPath(), file.toPath(),
+									 java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+									 java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			if (tmpFile != sourceFile) {
+				org.apache.commons.io.FileUtils.deleteQuietly(tmpFile);
+			}
+		}
+	}
+
+	/**
+	 * Creates a temp file in the directory of the given file (which is created
+	 * if necessary), so that it can be renamed over the file.
+	 *
+	 * @param file File
+	 * @return File
+	 * @throws IOException
+	 */
+	private File createTmpFileNextTo(File file) throws IOException {
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		org.apache.commons.io.FileUtils.forceMkdir(directory);
+		return File.createTempFile("." + file.getName() + ".", ".tmp", directory);
+	}
+
+	/**
+	 * Compresses the given plain text staging file written by an external tool,
+	 * if staging files are compressed.
+	 *
+	 * @param stagingFile File
+	 * @throws Exception
+	 */
+	private void compressStagingFile(File stagingFile) throws Exception {
+
+		File staleFile = StagingUtils.getCompressedFile(stagingFile);
+		if (staleFile.exists()) {
+			org.apache.commons.io.FileUtils.forceDelete(staleFile);
+		}
+		if (isCompressedStagingFile(stagingFile) && stagingFile.exists()) {
+			StagingUtils.compress(stagingFile, stagingCompressionThreads);
+		}
+	}
+
+	/**
+	 * Returns true if the given staging file is to be compressed.  Seg files are
+	 * never compressed, they are served as is to IGV (see copySegFiles).
+	 *
+	 * @param stagingFile File
+	 * @return boolean
+	 */
+	private boolean isCompressedStagingFile(File stagingFile) {
+
+		return (compressStagingFiles &&
+				!StagingUtils.getUncompressedFile(stagingFile).getName().endsWith(SEG_FILE_EXTENSION));
 	}
 
 	@Override
@@ -883,10 +1187,26 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		File stagingFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
 																   cancerStudyMetadata.getStudyPath(),
 																   stagingFilename);
-		
-		// call annotateAF
-		annotateMAF(org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + annotatorInputFile.getCanonicalPath(),
-		            org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + stagingFile.getCanonicalPath());
+
+		// skip the annotator if this maf has been annotated into the staging file before
+		AnnotationManifest manifest = new AnnotationManifest(stagingFile.getParentFile());
+		String annotatorVersion = getAnnotatorVersion();
+		String inputDigest = FileDigests.digest(annotatorInputFile);
+		if (manifest.isCurrent(stagingFilename, inputDigest, annotatorVersion)) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info("writeMutationStagingFile(), maf unchanged since last annotation, keeping: " + stagingFile);
+			}
+		}
+		else {
+			// call annotateAF
+			annotateMAF(org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + annotatorInputFile.getCanonicalPath(),
+			            org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + stagingFile.getCanonicalPath());
+			compressStagingFile(stagingFile);
+			File output = StagingUtils.resolveStagingFile(stagingFile);
+			if (output.exists()) {
+				manifest.record(stagingFilename, inputDigest, AnnotationManifest.ANNOTATED, annotatorVersion, output);
+			}
+		}
 
 		// clean up
 		if (annotatorInputFile.exists()) {
@@ -910,9 +1230,9 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
                 
                 File[] files = new File[dependencies.length];
                 for (int i=0; i<dependencies.length; i++) {
-                    files[i] = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
+                    files[i] = StagingUtils.resolveStagingFile(org.apache.commons.io.FileUtils.getFile(stagingDirectory,
 															   cancerStudyMetadata.getStudyPath(),
-															   dependencies[i].getStagingFilename());
+															   dependencies[i].getStagingFilename()));
                 }
                 
 		File cnaFile = null;
@@ -933,23 +1253,22 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		}
 
 		// we need a zscore file
-		File zScoresFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
-																   cancerStudyMetadata.getStudyPath(),
-																   datatypeMetadata.getStagingFilename());
-		String cnaFilePath = cnaFile!=null && cnaFile.exists() ? cnaFile.getCanonicalPath() : null;
-		// call NormalizeExpressionLevels
-		String[] args = { cnaFilePath, expressionFile.getCanonicalPath(),
-                          zScoresFile.getCanonicalPath(), NormalizeExpressionLevels.TCGA_NORMAL_SUFFIX };
+		File zScoresFile = getStagingFileToWrite(org.apache.commons.io.FileUtils.getFile(stagingDirectory,
+																						 cancerStudyMetadata.getStudyPath(),
+																						 datatypeMetadata.getStagingFilename()));
 		if (LOG.isInfoEnabled()) {
-			LOG.info("writingZScoresStagingFlie(), calling NormalizeExpressionLevels: " + Arrays.toString(args));
+			LOG.info("writeZScoresStagingFile(), computing z-scores: " + cnaFile + ", " + expressionFile + " -> " + zScoresFile);
 		}
+		OutputStream out = StagingUtils.openStagingOutputStream(zScoresFile, stagingCompressionThreads);
 		try {
-			NormalizeExpressionLevels.driver(args);
+			zScoreCalculator.computeZScores(cnaFile, expressionFile, ZScoreCalculator.TCGA_NORMAL_SUFFIX, out);
+			out.close();
 		}
-		catch (RuntimeException e) {
+		catch (Exception e) {
 			// houston we have a problem...
+			IOUtils.closeQuietly(out);
 			if (LOG.isInfoEnabled()) {
-				LOG.info("writingZScoresStagingFlie(), exception thrown by NormalizeExpressionLevels: " +
+				LOG.info("writeZScoresStagingFile(), exception thrown computing z-scores: " +
 						 e.getMessage() + ", aborting...");
 			}
 			if (zScoresFile.exists()) {
@@ -957,7 +1276,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 			}
 			return false;
 		}
-		
+
         return true;
 	}
 
@@ -974,28 +1293,19 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	public void applyOverride(String overrideDirectory, String stagingDirectory, CancerStudyMetadata cancerStudyMetadata,
 							  String overrideFilename, String stagingFilename) throws Exception {
 
-		// check for override file
-		File overrideFile = org.apache.commons.io.FileUtils.getFile(overrideDirectory,
-																	cancerStudyMetadata.getStudyPath(),
-																	overrideFilename);
-		if (overrideFile.exists()) {
-			File stagingFile = org.apache.commons.io.FileUtils.getFile(stagingDirectory,
-																	   cancerStudyMetadata.getStudyPath(),
-																	   stagingFilename);
+		OverridePlan overridePlan = new OverridePlan();
+		overridePlan.add(org.apache.commons.io.FileUtils.getFile(overrideDirectory, cancerStudyMetadata.getStudyPath(), overrideFilename),
+						 org.apache.commons.io.FileUtils.getFile(stagingDirectory, cancerStudyMetadata.getStudyPath(), stagingFilename));
+		overridePlan.apply(1, overrideHardLinks);
+	}
 
-			if (LOG.isInfoEnabled()) {
-				LOG.info("applyOverride(), override file exists for " + stagingFile.getCanonicalPath() + ": " + 
-						 overrideFile.getCanonicalPath());
-			}
+	@Override
+	public void applyOverrides(OverridePlan overridePlan) throws Exception {
 
-			// copy override file to staging area
-			if (overrideFile.isFile()) {
-				org.apache.commons.io.FileUtils.copyFile(overrideFile, stagingFile);
-			}
-			else {
-				org.apache.commons.io.FileUtils.copyDirectory(overrideFile, stagingFile);
-			}
+		if (LOG.isInfoEnabled()) {
+			LOG.info("applyOverrides(), applying " + overridePlan.size() + " override files");
 		}
+		overridePlan.apply(overrideThreads, overrideHardLinks);
 	}
 
 	@Override
@@ -1009,7 +1319,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		if (LOG.isInfoEnabled()) {
 			LOG.info("writeCaseListFile(), case list file: " + caseListFile.getCanonicalPath());
 		}
-		PrintWriter writer = new PrintWriter(org.apache.commons.io.FileUtils.openOutputStream(caseListFile, false));
+		PrintWriter writer = new PrintWriter(openStagingAreaOutputStream(caseListFile));
 		writer.print("cancer_study_identifier: " + cancerStudyMetadata.getStableId() + "\n");
 		String stableID = caseListMetadata.getMetaStableID();
 		stableID = stableID.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
@@ -1038,18 +1348,68 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 	@Override
 	public void annotateAllMAFs(DataSourcesMetadata dataSourcesMetadata) throws Exception {
 
+		CheckpointJournal journal = CheckpointJournal.getInstance();
+		String dataSource = dataSourcesMetadata.getDataSource();
+		String annotatorVersion = getAnnotatorVersion();
+
+		// directory -> manifest
+		Map<File, AnnotationManifest> manifests = new HashMap<File, AnnotationManifest>();
+
 		// iterate over datasource download directory and process all MAFs
 		String[] extensions = new String[] { DatatypeMetadata.MAF_FILE_EXT };
 		for (File maf : listFiles(new File(dataSourcesMetadata.getDownloadDirectory()), extensions, true)) {
+			AnnotationManifest manifest = manifests.get(maf.getParentFile());
+			if (manifest == null) {
+				manifest = new AnnotationManifest(maf.getParentFile());
+				manifests.put(maf.getParentFile(), manifest);
+			}
+
+			// skip MAFs annotated by an earlier (or interrupted) run
+			String unit = maf.getCanonicalPath();
+			if (manifest.isCurrent(maf.getName(), annotatorVersion) ||
+				(journal.isEnabled() &&
+				 journal.isComplete(CheckpointJournal.ANNOTATE_STAGE, dataSource, unit, FileDigests.digest(maf)))) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("annotateAllMAFs(), already annotated, skipping: " + unit);
+				}
+				continue;
+			}
+
+			// nothing to annotate, annotateMAF() would copy the maf onto itself
+			String inputDigest = FileDigests.digest(maf);
+			String status = (MutationFileUtil.isAnnotated(unit)) ? AnnotationManifest.ALREADY_ANNOTATED :
+				(MutationFileUtil.isEmpty(unit)) ? AnnotationManifest.EMPTY : null;
+			if (status != null) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("annotateAllMAFs(), " + status + ", skipping: " + unit);
+				}
+				manifest.record(maf.getName(), inputDigest, status, annotatorVersion, maf);
+				continue;
+			}
+
 			// create temp for given maf
 			File annotatorInputFile =
 				org.apache.commons.io.FileUtils.getFile(org.apache.commons.io.FileUtils.getTempDirectory(),
 														""+System.currentTimeMillis()+".annotatorInputFile");
 			org.apache.commons.io.FileUtils.copyFile(maf, annotatorInputFile);
-			
-			// input is tmp file we just created, we want output to go into the original maf
+
+			// input is tmp file we just created, output goes to a tmp file next to the original maf
+			// which replaces the original once complete - an interrupted run never leaves a partial maf
+			File annotatorOutputFile = new File(unit + ".tmp");
 			annotateMAF(org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + annotatorInputFile.getCanonicalPath(),
-			            org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + maf.getCanonicalPath());
+			            org.mskcc.cbio.importer.FileUtils.FILE_URL_PREFIX + annotatorOutputFile.getCanonicalPath());
+			org.apache.commons.io.FileUtils.deleteQuietly(annotatorInputFile);
+			if (!annotatorOutputFile.exists()) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("annotateAllMAFs(), annotation failed, leaving maf as is: " + unit);
+				}
+				continue;
+			}
+			replaceFile(annotatorOutputFile, maf);
+
+			manifest.record(maf.getName(), inputDigest, AnnotationManifest.ANNOTATED, annotatorVersion, maf);
+			journal.markComplete(CheckpointJournal.ANNOTATE_STAGE, dataSource, unit,
+								 (journal.isEnabled()) ? FileDigests.digest(maf) : null);
 		}
 	}
 	
@@ -1065,7 +1425,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		File outputMAFFile = new File(outputMAF.getFile());
         
 		if (MutationFileUtil.isAnnotated(inputMAFFile.getCanonicalPath()) || MutationFileUtil.isEmpty(inputMAFFile.getCanonicalPath())) {
-			org.apache.commons.io.FileUtils.copyFile(inputMAFFile, outputMAFFile);
+			replaceFile(inputMAFFile, outputMAFFile);
             return outputMAFFile.getCanonicalPath();
         }
 		
@@ -1074,7 +1434,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		
 		File[] sanitizedFiles = MutationFileUtil.sanitizeMAF(inputMAFFile.getCanonicalPath());
 		if (sanitizedFiles == null) {
-			org.apache.commons.io.FileUtils.copyFile(inputMAFFile, outputMAFFile);
+			replaceFile(inputMAFFile, outputMAFFile);
 			return outputMAFFile.getCanonicalPath();
 		}
 		File sanitizedFile = sanitizedFiles[0];
@@ -1083,12 +1443,12 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		if (MutationFileUtil.isEmpty(sanitizedFile.getCanonicalPath())) {
 			if (!MutationFileUtil.isEmpty(miscMAF.getCanonicalPath())) {
 				// no valid entries to annotate, copy file to staging file
-				org.apache.commons.io.FileUtils.copyFile(miscMAF, outputMAFFile);
+				replaceFile(miscMAF, outputMAFFile);
 				return outputMAFFile.getCanonicalPath();
 			}
 			else {
 				// sanitized and misc are empty, maf cannot be annotated, copy directly to staging file
-				org.apache.commons.io.FileUtils.copyFile(inputMAFFile, outputMAFFile);
+				replaceFile(inputMAFFile, outputMAFFile);
 				return outputMAFFile.getCanonicalPath();
 			}
 		}
@@ -1156,13 +1516,18 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		if (LOG.isInfoEnabled()) {
 			LOG.info("annotateMAF(), calling MutationAssessorTool...");
 		}
-		outputMAFFile.createNewFile();
-		MutationAssessorTool.driver(annotatorOutputFile.getCanonicalPath(), outputMAFFile.getCanonicalPath(), false, true, true);
+		// the assessor writes a temp file, the staging file is only replaced once merged
+		File assessorOutputFile =
+			org.apache.commons.io.FileUtils.getFile(org.apache.commons.io.FileUtils.getTempDirectory(),
+													""+System.currentTimeMillis()+".annotatorOutputFile");
+		assessorOutputFile.createNewFile();
+		MutationAssessorTool.driver(annotatorOutputFile.getCanonicalPath(), assessorOutputFile.getCanonicalPath(), false, true, true);
 		
 		MafMerger merger = new MafMerger();
-		File mergedMAF = merger.merge(outputMAFFile, miscMAF);
+		File mergedMAF = merger.merge(assessorOutputFile, miscMAF);
+		org.apache.commons.io.FileUtils.deleteQuietly(assessorOutputFile);
 		// mergedMAF becomes staging file
-		org.apache.commons.io.FileUtils.copyFile(mergedMAF, outputMAFFile);
+		replaceFile(mergedMAF, outputMAFFile);
 
 		return outputMAFFile.getCanonicalPath();
 	}
@@ -1200,56 +1565,18 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
             throw new IllegalArgumentException("portal or remoteUserName must not be null");
 		}
 
-		// seg file location
+		// seg file location - a mounted directory or a remote host
 		URL segFileLocation = portalMetadata.getIGVSegFileLinkingLocation();
-
-		// we need this to determine location 
-		Collection<DataSourcesMetadata> dataSourcesMetadata = config.getDataSourcesMetadata(Config.ALL);
-
-		// iterate over all cancer studies
-		for (CancerStudyMetadata cancerStudyMetadata : config.getCancerStudyMetadata(portalMetadata.getName())) {
-
-			// lets determine if cancer study is in staging directory or studies directory
-			String rootDirectory = MetadataUtils.getCancerStudyRootDirectory(portalMetadata, dataSourcesMetadata, cancerStudyMetadata);
-
-			if (rootDirectory == null) {
-				if (LOG.isInfoEnabled()) {
-					LOG.info("loadStagingFiles(), cannot find root directory for study: " + cancerStudyMetadata + " skipping...");
-				}
-				continue;
-			}
-
-			// construct staging filename for seg
-			String sourceFilename = (rootDirectory + File.separator +
-									  cancerStudyMetadata.getStudyPath() +
-									  File.separator + datatypeMetadata.getStagingFilename());
-			sourceFilename = sourceFilename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
-			String destinationFilename = datatypeMetadata.getStagingFilename().replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
-
-			String[] command = new String[] { "scp",
-											  sourceFilename,
-											  remoteUserName + "@" + segFileLocation.getHost() + ":" +
-											  segFileLocation.getFile() + destinationFilename };
-			executeCommand(command);
+		if (segFileLocation.getProtocol().equals("file")) {
+			File segFileDirectory = new File(segFileLocation.getFile());
+			copySegFiles(portalMetadata, datatypeMetadata, new LocalFileTransport(segFileDirectory),
+						 new File(segFileDirectory, FileDistributor.MANIFEST_FILENAME));
 		}
-	}
-
-	private boolean executeCommand(String[] command)
-	{
-		boolean toReturn = false;
-		if (LOG.isInfoEnabled()) {
-			LOG.info("executing: " + Arrays.asList(command));
-		}
-		if (Shell.exec(Arrays.asList(command), ".")) {
-			if (LOG.isInfoEnabled()) {
-				LOG.info("command successful.");
-			}
-			toReturn = true;
-		}
-		else if (LOG.isInfoEnabled()) {
-			LOG.info("command unsucessful.");
+		else {
+			copySegFiles(portalMetadata, datatypeMetadata,
+						 new ScpFileTransport(remoteUserName, segFileLocation.getHost(), segFileLocation.getFile()),
+						 getSegFileManifest(portalMetadata, segFileLocation));
 		}
-		return toReturn;
 	}
 
 	public void copySegFiles(PortalMetadata portalMetadata, DatatypeMetadata datatypeMetadata) throws Exception
@@ -1265,40 +1592,94 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 
 		// seg file location
 		URL segFileLocation = portalMetadata.getIGVSegFileLinkingLocation();
+		copySegFiles(portalMetadata, datatypeMetadata, new GatewayFileTransport(putGateway, segFileLocation.getFile()),
+					 getSegFileManifest(portalMetadata, segFileLocation));
+	}
+
+	/**
+	 * Copies the seg files of all cancer studies of the given portal which
+	 * changed since they were copied last through the given transport.
+	 * Throws once every study was tried if any seg file could not be copied.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param datatypeMetadata DatatypeMetadata
+	 * @param transport FileTransport
+	 * @param manifestFile File
+	 * @throws Exception
+	 */
+	private void copySegFiles(PortalMetadata portalMetadata, DatatypeMetadata datatypeMetadata,
+							  FileTransport transport, File manifestFile) throws Exception {
 
 		// we need this to determine location 
 		Collection<DataSourcesMetadata> dataSourcesMetadata = config.getDataSourcesMetadata(Config.ALL);
 
-		// iterate over all cancer studies
-		for (CancerStudyMetadata cancerStudyMetadata : config.getCancerStudyMetadata(portalMetadata.getName())) {
+		// source -> destination, for all cancer studies
+		Map<File, String> segFiles = new LinkedHashMap<File, String>();
+		// plain text copies of compressed seg files, removed once copied
+		List<File> decompressedFiles = new ArrayList<File>();
+		try {
+			for (CancerStudyMetadata cancerStudyMetadata : config.getCancerStudyMetadata(portalMetadata.getName())) {
 
-			// lets determine if cancer study is in staging directory or studies directory
-			String rootDirectory = MetadataUtils.getCancerStudyRootDirectory(portalMetadata, dataSourcesMetadata, cancerStudyMetadata);
+				// lets determine if cancer study is in staging directory or studies directory
+				String rootDirectory = MetadataUtils.getCancerStudyRootDirectory(portalMetadata, dataSourcesMetadata, cancerStudyMetadata);
 
-			if (rootDirectory == null) {
-				if (LOG.isInfoEnabled()) {
-					LOG.info("loadStagingFiles(), cannot find root directory for study: " + cancerStudyMetadata + " skipping...");
+				if (rootDirectory == null) {
+					if (LOG.isInfoEnabled()) {
+						LOG.info("copySegFiles(), cannot find root directory for study: " + cancerStudyMetadata + " skipping...");
+					}
+					continue;
 				}
-				continue;
-			}
-
-			// construct staging filename for seg
-			String sourceFilename = (rootDirectory + File.separator +
-									  cancerStudyMetadata.getStudyPath() +
-									  File.separator + datatypeMetadata.getStagingFilename());
-			sourceFilename = sourceFilename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
-			String destinationFilename = datatypeMetadata.getStagingFilename().replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
 
-			try {
-				File localFile = org.apache.commons.io.FileUtils.getFile(sourceFilename);
-				putGateway.put(localFile, segFileLocation.getFile() + destinationFilename);
+				// construct staging filename for seg
+				String sourceFilename = (rootDirectory + File.separator +
+										  cancerStudyMetadata.getStudyPath() +
+										  File.separator + datatypeMetadata.getStagingFilename());
+				sourceFilename = sourceFilename.replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
+				String destinationFilename = datatypeMetadata.getStagingFilename().replaceAll(DatatypeMetadata.CANCER_STUDY_TAG, cancerStudyMetadata.toString());
+				File sourceFile = StagingUtils.resolveStagingFile(org.apache.commons.io.FileUtils.getFile(sourceFilename));
+				if (StagingUtils.isCompressed(sourceFile)) {
+					// compressed by an earlier run, IGV needs the plain seg file
+					if (LOG.isInfoEnabled()) {
+						LOG.info("copySegFiles(), decompressing seg file: " + sourceFile);
+					}
+					sourceFile = StagingUtils.decompress(sourceFile);
+					decompressedFiles.add(sourceFile);
+				}
+				segFiles.put(sourceFile, destinationFilename);
 			}
-			catch(Exception e) {
-				if (LOG.isInfoEnabled()) {
-					LOG.info("Error copying seg file to remote server: " + sourceFilename);
+
+			FileDistributor distributor = new FileDistributor(transport, manifestFile, segFileCopyThreads);
+			List<String> failed = distributor.distribute(segFiles).getFailed();
+			for (String destinationFilename : failed) {
+				if (LOG.isErrorEnabled()) {
+					LOG.error("Error copying seg file to " + transport.getLocation() + ": " + destinationFilename);
 				}
 			}
+			// the other studies were copied, the failed ones are retried on the next run
+			if (!failed.isEmpty()) {
+				throw new IOException("Error copying " + failed.size() + " of " + segFiles.size() +
+									  " seg files to " + transport.getLocation());
+			}
 		}
+		finally {
+			for (File decompressedFile : decompressedFiles) {
+				deleteFile(decompressedFile);
+			}
+		}
+	}
+
+	/**
+	 * Returns the manifest of the seg files copied to the given remote location,
+	 * which is kept in the staging directory of the portal.
+	 *
+	 * @param portalMetadata PortalMetadata
+	 * @param segFileLocation URL
+	 * @return File
+	 */
+	private File getSegFileManifest(PortalMetadata portalMetadata, URL segFileLocation) {
+
+		return new File(portalMetadata.getStagingDirectory(),
+						FileDistributor.MANIFEST_FILENAME + "." + segFileLocation.getHost());
 	}
 
 	@Override
@@ -1388,21 +1769,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
                 TarArchiveEntry entry = null;
                 while ((entry = tis.getNextTarEntry()) != null) {
                     String entryName = entry.getName();
-                    String dataFilename = importDataRecord.getDataFilename();
-                    if (dataFilename.contains(DatatypeMetadata.TUMOR_TYPE_TAG)) {
-                        dataFilename = dataFilename.replaceAll(DatatypeMetadata.TUMOR_TYPE_TAG, importDataRecord.getTumorTypeLabel());
-                    }
-                    if (dataFilename.contains(DatatypeMetadata.CLINICAL_FOLLOWUP_VERSION)) {
-                        Matcher clinicalPatientFollowupMatcher = DatatypeMetadata.CLINICAL_FOLLOWUP_FILE_REGEX.matcher(entryName);
-                        if (clinicalPatientFollowupMatcher.find()) {
-                            dataFilename = dataFilename.replace(DatatypeMetadata.CLINICAL_FOLLOWUP_VERSION,
-                                                                clinicalPatientFollowupMatcher.group(1));
-                        }
-                    }
-					if (dataFilename.startsWith(DatatypeMetadata.BCR_CLINICAL_FILENAME_PREFIX)) {
-						dataFilename = dataFilename.toLowerCase();
-					}
-                    if (entryName.contains(dataFilename)) {
+                    if (isDataFileEntry(importDataRecord, entryName)) {
                         if (LOG.isInfoEnabled()) {
                             LOG.info("Processing tar-archive: " + importDataRecord.getDataFilename());
                         }
@@ -1430,6 +1797,32 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
         return toReturn;
     }
 
+    /**
+     * Determines if the given tar entry is a data file of the given ImportDataRecord.
+     *
+     * @param importDataRecord ImportDataRecord
+     * @param entryName String
+     * @return boolean
+     */
+    private boolean isDataFileEntry(ImportDataRecord importDataRecord, String entryName) {
+
+        String dataFilename = importDataRecord.getDataFilename();
+        if (dataFilename.contains(DatatypeMetadata.TUMOR_TYPE_TAG)) {
+            dataFilename = dataFilename.replaceAll(DatatypeMetadata.TUMOR_TYPE_TAG, importDataRecord.getTumorTypeLabel());
+        }
+        if (dataFilename.contains(DatatypeMetadata.CLINICAL_FOLLOWUP_VERSION)) {
+            Matcher clinicalPatientFollowupMatcher = DatatypeMetadata.CLINICAL_FOLLOWUP_FILE_REGEX.matcher(entryName);
+            if (clinicalPatientFollowupMatcher.find()) {
+                dataFilename = dataFilename.replace(DatatypeMetadata.CLINICAL_FOLLOWUP_VERSION,
+                                                    clinicalPatientFollowupMatcher.group(1));
+            }
+        }
+        if (dataFilename.startsWith(DatatypeMetadata.BCR_CLINICAL_FILENAME_PREFIX)) {
+            dataFilename = dataFilename.toLowerCase();
+        }
+        return entryName.contains(dataFilename);
+    }
+
     private List<DataMatrix> processMutPackCalls(ImportDataRecord importDataRecord, DataMatrix methylationCorrelation) throws Exception
     {
     	List<DataMatrix> toReturn = new ArrayList<DataMatrix>();
@@ -1461,9 +1854,7 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
         	}
         }
         IOUtils.closeQuietly(tis);
-        FileInputStream fis = org.apache.commons.io.FileUtils.openInputStream(tmpFile);
-        DataMatrix m = getDataMatrix(tmpFile.getCanonicalPath(), fis, methylationCorrelation);
-        IOUtils.closeQuietly(fis);
+        DataMatrix m = getDataMatrix(tmpFile.getCanonicalPath(), tmpFile, methylationCorrelation);
 
         if (m != null) {
         	toReturn.add(m);
@@ -1524,7 +1915,65 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
         }
 
         // outta here
-        return new DataMatrix(dataFilename, rowData, columnNames);
+        return new DataMatrix(dataFilename, rowData, columnNames, caseIDs);
+    }
+
+    /**
+     * Helper function to create DataMatrix from an uncompressed file.  The file
+     * is memory mapped and parsed in parallel by DataMatrixReader, unless the
+     * default charset cannot be split at the byte level.
+     *
+     * @param dataFilename String
+     * @param dataFile File
+	 * @param methylationCorrelation DataMatrix
+     * @return DataMatrix
+     */
+    private DataMatrix getDataMatrix(final String dataFilename, File dataFile, DataMatrix methylationCorrelation) throws Exception {
+
+        if (!DataMatrixReader.isCharsetSupported()) {
+            InputStream is = org.apache.commons.io.FileUtils.openInputStream(dataFile);
+            try {
+                return getDataMatrix(dataFilename, is, methylationCorrelation);
+            }
+            finally {
+                IOUtils.closeQuietly(is);
+            }
+        }
+
+        // same row filtering as getDataMatrix(String, InputStream, DataMatrix)
+        final boolean bcrClinicalFile = processingBCRClinicalFile(dataFilename);
+        final Map<String,String> probeIdMap = (methylationCorrelation == null) ? null : initProbMap(methylationCorrelation);
+        DataMatrixReader.RowFilter rowFilter = null;
+        if (bcrClinicalFile || probeIdMap != null) {
+            rowFilter = new DataMatrixReader.RowFilter() {
+                public boolean accept(String rowID) {
+                    if (bcrClinicalFile && skipClinicalDataRow(rowID)) {
+                        return false;
+                    }
+                    // first line in methylation file is probeID
+                    return (probeIdMap == null || probeIdMap.containsKey(rowID));
+                }
+            };
+        }
+
+        DataMatrixReader reader = new DataMatrixReader(dataMatrixReaderThreads, DataMatrixReader.DEFAULT_SEGMENT_SIZE);
+        DataMatrix toReturn = reader.read(dataFilename, dataFile, rowFilter, caseIDs);
+
+        // problem reading from data?
+        if (toReturn == null) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info("getDataMatrix(), problem creating DataMatrix from file, data file probably missing data, returning null");
+            }
+            return null;
+        }
+
+        // made it here, we can create DataMatrix
+        if (LOG.isInfoEnabled()) {
+            LOG.info("creating new DataMatrix(), from file data, num rows: " + toReturn.getNumberOfRows());
+        }
+
+        // outta here
+        return toReturn;
     }
 
 	/**
@@ -1584,6 +2033,30 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 		return new ArrayList<String>(caseSet);
 	}
 
+    /**
+     * Returns the name of the only data file entry of the given ImportDataRecord
+     * within the given tarball, or null if there are none or several.
+     *
+     * @param importDataRecord ImportDataRecord
+     * @param tis TarArchiveInputStream
+     * @return String
+     * @throws Exception
+     */
+    private String getSingleDataFileEntry(ImportDataRecord importDataRecord, TarArchiveInputStream tis) throws Exception {
+
+        String toReturn = null;
+        TarArchiveEntry entry = null;
+        while ((entry = tis.getNextTarEntry()) != null) {
+            if (isDataFileEntry(importDataRecord, entry.getName())) {
+                if (toReturn != null) {
+                    return null;
+                }
+                toReturn = entry.getName();
+            }
+        }
+        return toReturn;
+    }
+
     private boolean processingBCRClinicalFile(String dataFilename)
     {
         return (dataFilename.startsWith(DatatypeMetadata.BCR_CLINICAL_FILENAME_PREFIX));
@@ -1591,7 +2064,12 @@ public class FileUtilsImpl implements org.mskcc.cbio.importer.FileUtils
 
     private boolean skipClinicalDataRow(LinkedList<String> row)
     {
-        return (!row.getFirst().startsWith("TCGA") && !row.getFirst().startsWith(ClinicalAttributesNamespace.CDE_TAG));
+        return skipClinicalDataRow(row.getFirst());
+    }
+
+    private boolean skipClinicalDataRow(String rowID)
+    {
+        return (!rowID.startsWith("TCGA") && !rowID.startsWith(ClinicalAttributesNamespace.CDE_TAG));
     }
 
     private void logMessage(Log log, String message)
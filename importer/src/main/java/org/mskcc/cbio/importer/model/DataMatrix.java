@@ -30,6 +30,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 import java.io.*;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 /**
@@ -47,7 +48,6 @@ public class DataMatrix {
 	private class ColumnHeader {
 		public String label;
 		public LinkedList<String> columnData;
-		public ArrayList<String> columnDataAsArray;
 		public boolean ignoreColumn;
 	}
 
@@ -59,7 +59,11 @@ public class DataMatrix {
 
 	// a list of "column" objects - 
 	// each element has a column heading and a vector of column data
-	private LinkedList<ColumnHeader> columnHeaders;
+	private ArrayList<ColumnHeader> columnHeaders;
+
+	// column heading -> positions in columnHeaders (ascending),
+	// headings may be repeated (e.g. cytoband in *_genes.conf_99.txt)
+	private HashMap<String, List<Integer>> columnIndex;
 
 	// ref to caseids
 	private CaseIDs caseIDsFilter;
@@ -81,6 +85,19 @@ public class DataMatrix {
      * @param columnNames List<String>
 	 */
 	public DataMatrix(String filename, List<LinkedList<String>> rowData, List<String> columnNames) {
+		this(filename, rowData, columnNames, null);
+	}
+
+	/**
+	 * Constructor.  If caseIDsFilter is null, the caseIDs bean
+	 * is fetched from the importer application context.
+	 *
+	 * @param filename
+     * @param rowData List<LinkedList<String>>
+     * @param columnNames List<String>
+	 * @param caseIDsFilter CaseIDs
+	 */
+	public DataMatrix(String filename, List<LinkedList<String>> rowData, List<String> columnNames, CaseIDs caseIDsFilter) {
 
 		// sanity checks
 		if (filename == null || rowData == null || columnNames == null) {
@@ -99,8 +116,8 @@ public class DataMatrix {
 		// geneIDColumnHeading
 		geneIDColumnHeading = Converter.GENE_ID_COLUMN_HEADER_NAME;
 
-		// create our linked list of column header objects
-		columnHeaders = new LinkedList<ColumnHeader>();
+		// create our list of column header objects
+		columnHeaders = new ArrayList<ColumnHeader>(columnNames.size());
 
 		// populate our column headers list
 		int columnIndex = -1;
@@ -128,12 +145,72 @@ public class DataMatrix {
 				}
 			}
 			columnHeader.ignoreColumn = false;
-			// add this ColumnHeader object to our linked list
+			// add this ColumnHeader object to our list
 			columnHeaders.add(columnHeader);
 		}
+		reindexColumns();
 		
 		// init our case id's object
-		initCaseIDs();
+		if (caseIDsFilter != null) {
+			this.caseIDsFilter = caseIDsFilter;
+		}
+		else {
+			initCaseIDs();
+		}
+	}
+
+	/**
+	 * Constructor used by DataMatrixReader (and MethylationProbeSelector), which
+	 * assemble the column data directly.  columnData holds the data of each non
+	 * empty column name.
+	 * If caseIDsFilter is null, the caseIDs bean is fetched from the importer
+	 * application context.
+	 *
+	 * @param filename
+	 * @param columnNames List<String>
+	 * @param columnData List<LinkedList<String>>
+	 * @param numberOfRows int
+	 * @param caseIDsFilter CaseIDs
+	 */
+	public DataMatrix(String filename, List<String> columnNames, List<LinkedList<String>> columnData,
+					  int numberOfRows, CaseIDs caseIDsFilter) {
+
+		// sanity checks
+		if (filename == null || columnNames == null || columnData == null) {
+			throw new IllegalArgumentException("DataMatrix(): columnNames or columnData is null...");
+		}
+
+		this.filename = filename;
+		this.numberOfRows = numberOfRows;
+		this.rowsToIgnore = new HashSet<Integer>();
+		this.caseIDs = new HashSet<String>();
+		this.geneIDColumnHeading = Converter.GENE_ID_COLUMN_HEADER_NAME;
+		this.columnHeaders = new ArrayList<ColumnHeader>(columnData.size());
+
+		Iterator<LinkedList<String>> it = columnData.iterator();
+		for (String columnName : columnNames) {
+			// drop column if its missing label
+			if (columnName.length() == 0) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("columnName is empty, skipping...");
+				}
+				continue;
+			}
+			ColumnHeader columnHeader = new ColumnHeader();
+			columnHeader.label = columnName;
+			columnHeader.columnData = it.next();
+			columnHeader.ignoreColumn = false;
+			columnHeaders.add(columnHeader);
+		}
+		reindexColumns();
+
+		// init our case id's object
+		if (caseIDsFilter != null) {
+			this.caseIDsFilter = caseIDsFilter;
+		}
+		else {
+			initCaseIDs();
+		}
 	}
 
 	/**
@@ -168,6 +245,9 @@ public class DataMatrix {
 			columnHeader.label = caseIDsFilter.getSampleId(columnHeader.label);
 			caseIDs.add(columnHeader.label);
 		}
+
+		// labels have changed
+		reindexColumns();
 	}
 
 	/**
@@ -199,25 +279,20 @@ public class DataMatrix {
 	 */
 	public void setColumnOrder(List<String> newColumnOrder) throws Exception {
 
-		LinkedList<ColumnHeader> newColumnHeaderList = new LinkedList<ColumnHeader>();
+		ArrayList<ColumnHeader> newColumnHeaderList = new ArrayList<ColumnHeader>(newColumnOrder.size());
 
 		for (String column : newColumnOrder) {
-			// find column in columnHeaders
-			boolean foundColumnHeader = false;
-			for (ColumnHeader columnHeader : columnHeaders) {
-				if (columnHeader.label.equals(column)) {
-					newColumnHeaderList.add(columnHeader);
-					foundColumnHeader = true;
-					break;
-				}
-			}
-			if (!foundColumnHeader) {
+			// find (first) column in columnHeaders
+			List<Integer> positions = columnIndex.get(column);
+			if (positions == null) {
 				throw new IllegalArgumentException("column not found in list: " +  column);
 			}
+			newColumnHeaderList.add(columnHeaders.get(positions.get(0)));
 		}
 
 		// set our ref to the new column header list
 		columnHeaders = newColumnHeaderList;
+		reindexColumns();
 	}
 
 	/**
@@ -246,6 +321,7 @@ public class DataMatrix {
 
 		// add columnHeader object to our list
 		columnHeaders.add(columnHeader);
+		indexColumn(newColumnName, columnHeaders.size() - 1);
 	}
 
 	/**
@@ -257,10 +333,8 @@ public class DataMatrix {
 	public void ignoreColumn(String columnName, boolean ignoreColumn) {
 
 		// find column header to remove
-		for (ColumnHeader columnHeader : columnHeaders) {
-			if (columnHeader.label.equals(columnName)) {
-				columnHeader.ignoreColumn = ignoreColumn;
-			}
+		for (int position : getColumnPositions(columnName)) {
+			columnHeaders.get(position).ignoreColumn = ignoreColumn;
 		}
 	}
 
@@ -276,12 +350,21 @@ public class DataMatrix {
 
 	public boolean isColumnIgnored(String columnName)
 	{
-		for (ColumnHeader columnHeader : columnHeaders) {
-			if (columnHeader.label.equals(columnName)) {
-				return columnHeader.ignoreColumn;
-			}
-		}
-		return false;
+		int position = getColumnIndex(columnName);
+		return (position >= 0) ? columnHeaders.get(position).ignoreColumn : false;
+	}
+
+	/**
+	 * Gets the index of the first column with the given name,
+	 * or -1 if there is none.
+	 *
+	 * @param columnName String
+	 * @return int
+	 */
+	public int getColumnIndex(String columnName) {
+
+		List<Integer> positions = columnIndex.get(columnName);
+		return (positions == null) ? -1 : positions.get(0);
 	}
 
 	/**
@@ -292,14 +375,35 @@ public class DataMatrix {
 	 * @throws Exception
 	 */
 	public void renameColumn(String columnName, String newColumnName) {
-		
-		boolean foundColumnHeader = false;
-		for (ColumnHeader columnHeader : columnHeaders) {
-			if (columnHeader.label.equals(columnName)) {
-				columnHeader.label = newColumnName;
-				foundColumnHeader = true;
+
+		if (columnName != null && columnName.equals(newColumnName)) {
+			return;
+		}
+		List<Integer> positions = columnIndex.remove(columnName);
+		if (positions == null) {
+			return;
+		}
+		for (int position : positions) {
+			columnHeaders.get(position).label = newColumnName;
+		}
+
+		// merge positions with those of any column already named newColumnName
+		List<Integer> existingPositions = columnIndex.get(newColumnName);
+		if (existingPositions != null) {
+			List<Integer> mergedPositions = new ArrayList<Integer>(positions.size() + existingPositions.size());
+			int lc = 0, lc2 = 0;
+			while (lc < positions.size() || lc2 < existingPositions.size()) {
+				if (lc2 == existingPositions.size() ||
+					(lc < positions.size() && positions.get(lc) < existingPositions.get(lc2))) {
+					mergedPositions.add(positions.get(lc++));
+				}
+				else {
+					mergedPositions.add(existingPositions.get(lc2++));
+				}
 			}
+			positions = mergedPositions;
 		}
+		columnIndex.put(newColumnName, positions);
 	}
 
 	/**
@@ -310,7 +414,7 @@ public class DataMatrix {
 	 */
 	public List<String> getColumnHeaders() {
 
-		LinkedList<String> toReturn = new LinkedList<String>();
+		ArrayList<String> toReturn = new ArrayList<String>(columnHeaders.size());
 		for (ColumnHeader columnHeader : columnHeaders) {
 			toReturn.add(columnHeader.label);
 		}
@@ -332,10 +436,8 @@ public class DataMatrix {
 
 		LinkedList<LinkedList<String>> toReturn = new LinkedList<LinkedList<String>>();
 
-		for (ColumnHeader columnHeader : columnHeaders) {
-			if (columnHeader.label.equals(columnName)) {
-				toReturn.add(columnHeader.columnData);
-			}
+		for (int position : getColumnPositions(columnName)) {
+			toReturn.add(columnHeaders.get(position).columnData);
 		}
 
 		// outta here
@@ -473,38 +575,77 @@ public class DataMatrix {
 	 * @throws Exception
 	 */
 	public void write(OutputStream out) throws Exception {
+		new DataMatrixWriter().write(this, out);
+	}
 
-		PrintWriter writer = new PrintWriter(out);
+	/**
+	 * Writes the tabular data to the given channel
+	 * in a TSV format.
+	 *
+	 * @param channel WritableByteChannel
+	 * @throws Exception
+	 */
+	public void write(WritableByteChannel channel) throws Exception {
+		new DataMatrixWriter().write(this, channel);
+	}
 
-		// print the column header
-		for (ColumnHeader columnHeader : columnHeaders) {
-			if (columnHeader.ignoreColumn) continue;
-			writer.print(columnHeader.label);
-			if (columnHeader != columnHeaders.getLast()) {
-				writer.print(Converter.VALUE_DELIMITER);
-			}
-			// create ArrayList version of data for speedy writing below
-			columnHeader.columnDataAsArray = new ArrayList<String>(columnHeader.columnData);
-		}
-		writer.println();
+	/**
+	 * Returns the number of columns, including ignored columns.
+	 *
+	 * @return int
+	 */
+	int getNumberOfColumns() {
+		return columnHeaders.size();
+	}
 
-		for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
-			// skip row if its contained in our rowsToIgnore set.
-			if (rowsToIgnore.contains(rowIndex)) {
-				continue;
-			}
-			for (ColumnHeader columnHeader : columnHeaders) {
-				if (columnHeader.ignoreColumn) continue;
-				writer.print(columnHeader.columnDataAsArray.get(rowIndex));
-				if (columnHeader != columnHeaders.getLast()) {
-					writer.print(Converter.VALUE_DELIMITER);
-				}
-			}
-			writer.println();
+	/**
+	 * Returns true if the column indexed by columnIndex is ignored.
+	 *
+	 * @param columnIndex int
+	 * @return boolean
+	 */
+	boolean isColumnIgnored(int columnIndex) {
+		return columnHeaders.get(columnIndex).ignoreColumn;
+	}
+
+	/**
+	 * Returns true if the given row is in our rowsToIgnore set.
+	 *
+	 * @param rowNumber int
+	 * @return boolean
+	 */
+	boolean isRowIgnored(int rowNumber) {
+		return rowsToIgnore.contains(rowNumber);
+	}
+
+	/**
+	 * Returns the positions of the columns with the given name.
+	 */
+	private List<Integer> getColumnPositions(String columnName) {
+
+		List<Integer> positions = columnIndex.get(columnName);
+		return (positions == null) ? Collections.<Integer>emptyList() : positions;
+	}
+
+	private void indexColumn(String columnName, int position) {
+
+		List<Integer> positions = columnIndex.get(columnName);
+		if (positions == null) {
+			positions = new ArrayList<Integer>(1);
+			columnIndex.put(columnName, positions);
 		}
+		positions.add(position);
+	}
+
+	/**
+	 * Rebuilds the column index, after labels or positions have changed.
+	 */
+	private void reindexColumns() {
 
-		// clean up
-		writer.flush();
+		columnIndex = new HashMap<String, List<Integer>>(columnHeaders.size() * 2);
+		for (int lc = 0; lc < columnHeaders.size(); lc++) {
+			indexColumn(columnHeaders.get(lc).label, lc);
+		}
 	}
 
 	/**
@@ -0,0 +1,380 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.model;
+
+// imports
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reads a TSV file into a DataMatrix.  The file is memory mapped and
+ * split at line boundaries into segments which are parsed in parallel.
+ * Lines are split on tab bytes and each value is decoded on its own,
+ * which gives the same values as decoding the file (default charset)
+ * and splitting each line on Converter.VALUE_DELIMITER, as long as the
+ * default charset encodes ASCII as single bytes - see isCharsetSupported().
+ *
+ * Lines end with \n, \r or \r\n.  The first line is the column header,
+ * a file without lines after the header gives null.
+ */
+public class DataMatrixReader {
+
+	// default size of the segments parsed in parallel
+	public static final int DEFAULT_SEGMENT_SIZE = 32 << 20;
+
+	// size of the reads used to find the end of a line
+	private static final int SCAN_SIZE = 64 * 1024;
+
+	private static final byte TAB = '\t';
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	/**
+	 * Decides whether a row is kept.  Called from multiple threads.
+	 */
+	public interface RowFilter {
+		/**
+		 * @param rowID String the first value of the row
+		 * @return boolean false if the row should be dropped
+		 */
+		boolean accept(String rowID);
+	}
+
+	// rows of a segment, stored by column
+	private static class Segment {
+		public long start;
+		public long end;
+		public List<ArrayList<String>> columnData;
+		public int numberOfRows;
+	}
+
+	private final int numThreads;
+	private final int segmentSize;
+	private final Charset charset;
+
+	/**
+	 * Constructor.
+	 */
+	public DataMatrixReader() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numThreads int
+	 * @param segmentSize int
+	 */
+	public DataMatrixReader(int numThreads, int segmentSize) {
+
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("DataMatrixReader(): segmentSize must be positive...");
+		}
+
+		this.numThreads = Math.max(1, numThreads);
+		this.segmentSize = segmentSize;
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Returns true if the default charset encodes chars below 0x80 as
+	 * single bytes, which is required to split lines at the byte level.
+	 *
+	 * @return boolean
+	 */
+	public static boolean isCharsetSupported() {
+
+		byte[] ascii = new byte[0x80];
+		char[] asciiChars = new char[0x80];
+		for (int lc = 0; lc < ascii.length; lc++) {
+			ascii[lc] = (byte)lc;
+			asciiChars[lc] = (char)lc;
+		}
+		return Arrays.equals(ascii, new String(asciiChars).getBytes(Charset.defaultCharset()));
+	}
+
+	/**
+	 * Reads the given file into a DataMatrix, rows rejected by the
+	 * given filter (may be null) are dropped.  Returns null if the file
+	 * has no rows.
+	 *
+	 * @param filename String
+	 * @param file File
+	 * @param rowFilter RowFilter
+	 * @param caseIDsFilter CaseIDs
+	 * @return DataMatrix
+	 * @throws IOException
+	 */
+	public DataMatrix read(String filename, File file, final RowFilter rowFilter, CaseIDs caseIDsFilter) throws IOException {
+
+		if (!isCharsetSupported()) {
+			throw new IOException("DataMatrixReader: unsupported charset: " + charset);
+		}
+
+		FileInputStream in = new FileInputStream(file);
+		ExecutorService executor = null;
+		try {
+			final FileChannel channel = in.getChannel();
+			long size = channel.size();
+
+			// column header
+			long headerEnd = findLineEnd(channel, 0, size, false);
+			if (headerEnd == size) {
+				return null;
+			}
+			List<String> columnNames = Arrays.asList(decode(channel, 0, (int)headerEnd).split(Converter.VALUE_DELIMITER, -1));
+			long dataStart = skipLineTerminator(channel, headerEnd, size);
+			if (dataStart == size) {
+				return null;
+			}
+
+			// as DataMatrix, values are assigned to the labelled columns in order
+			int numberOfColumns = 0;
+			for (String columnName : columnNames) {
+				if (columnName.length() > 0) {
+					++numberOfColumns;
+				}
+			}
+			final int columnCount = numberOfColumns;
+
+			// segments end right after a \n, so \r\n is never split
+			final List<Segment> segments = new ArrayList<Segment>();
+			for (long start = dataStart; start < size; ) {
+				long end = (size - start <= segmentSize) ? size : findLineEnd(channel, start + segmentSize, size, true);
+				end = (end < size) ? end + 1 : size;
+				if (end - start > Integer.MAX_VALUE) {
+					throw new IOException("DataMatrixReader: line too long in: " + file);
+				}
+				Segment segment = new Segment();
+				segment.start = start;
+				segment.end = end;
+				segments.add(segment);
+				start = end;
+			}
+
+			executor = Executors.newFixedThreadPool(Math.min(numThreads, Math.max(segments.size(), columnCount)),
+													new ThreadFactory() {
+														public Thread newThread(Runnable runnable) {
+															Thread thread = new Thread(runnable, "data-matrix-reader");
+															thread.setDaemon(true);
+															return thread;
+														}
+													});
+
+			// parse segments
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (final Segment segment : segments) {
+				tasks.add(new Callable<Void>() {
+						public Void call() throws IOException {
+							parse(channel, segment, columnCount, rowFilter);
+							return null;
+						}
+					});
+			}
+			invokeAll(executor, tasks);
+
+			// assemble columns
+			final List<LinkedList<String>> columnData = new ArrayList<LinkedList<String>>(columnCount);
+			int numberOfRows = 0;
+			for (int lc = 0; lc < columnCount; lc++) {
+				columnData.add(new LinkedList<String>());
+			}
+			for (Segment segment : segments) {
+				numberOfRows += segment.numberOfRows;
+			}
+			tasks.clear();
+			for (int lc = 0; lc < columnCount; lc++) {
+				final int columnIndex = lc;
+				tasks.add(new Callable<Void>() {
+						public Void call() {
+							LinkedList<String> column = columnData.get(columnIndex);
+							for (Segment segment : segments) {
+								column.addAll(segment.columnData.get(columnIndex));
+								segment.columnData.set(columnIndex, null);
+							}
+							return null;
+						}
+					});
+			}
+			invokeAll(executor, tasks);
+
+			return new DataMatrix(filename, columnNames, columnData, numberOfRows, caseIDsFilter);
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			in.close();
+		}
+	}
+
+	/**
+	 * Parses the lines of the given segment.
+	 */
+	private void parse(FileChannel channel, Segment segment, int numberOfColumns, RowFilter rowFilter) throws IOException {
+
+		int length = (int)(segment.end - segment.start);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segment.start, length);
+
+		List<ArrayList<String>> columnData = new ArrayList<ArrayList<String>>(numberOfColumns);
+		for (int lc = 0; lc < numberOfColumns; lc++) {
+			columnData.add(new ArrayList<String>());
+		}
+
+		byte[] line = new byte[1024];
+		int position = 0;
+		while (position < length) {
+
+			// find the end of the line
+			int lineEnd = position;
+			byte b = 0;
+			while (lineEnd < length && (b = buffer.get(lineEnd)) != LF && b != CR) {
+				++lineEnd;
+			}
+
+			int lineLength = lineEnd - position;
+			if (lineLength > line.length) {
+				line = new byte[Math.max(lineLength, line.length * 2)];
+			}
+			buffer.position(position);
+			buffer.get(line, 0, lineLength);
+			if (addRow(line, lineLength, columnData, rowFilter)) {
+				++segment.numberOfRows;
+			}
+
+			// skip the line terminator
+			position = lineEnd + 1;
+			if (b == CR && position < length && buffer.get(position) == LF) {
+				++position;
+			}
+		}
+
+		segment.columnData = columnData;
+	}
+
+	/**
+	 * Splits the given line on tabs and adds the values to the given columns.
+	 * Returns false if the row is dropped by the given filter.
+	 */
+	private boolean addRow(byte[] line, int lineLength, List<ArrayList<String>> columnData, RowFilter rowFilter) {
+
+		int numberOfColumns = columnData.size();
+		int valueStart = 0;
+		int columnIndex = 0;
+
+		for (int lc = 0; lc <= lineLength; lc++) {
+			if (lc < lineLength && line[lc] != TAB) {
+				continue;
+			}
+			// values beyond the labelled columns are dropped, the first is always filtered
+			if (columnIndex >= numberOfColumns && columnIndex > 0) {
+				break;
+			}
+			String value = new String(line, valueStart, lc - valueStart, charset);
+			if (columnIndex == 0 && rowFilter != null && !rowFilter.accept(value)) {
+				// the row has not been added to any column yet
+				return false;
+			}
+			if (columnIndex < numberOfColumns) {
+				columnData.get(columnIndex).add(value);
+			}
+			++columnIndex;
+			valueStart = lc + 1;
+		}
+
+		// we may have a situation where there are more columns than data in a row (empty cells)
+		for (; columnIndex < numberOfColumns; columnIndex++) {
+			columnData.get(columnIndex).add("");
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position of the first line terminator (\n only, if lfOnly)
+	 * at or after the given position, or size if there is none.
+	 */
+	private long findLineEnd(FileChannel channel, long position, long size, boolean lfOnly) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int lc = 0; lc < read; lc++) {
+				byte b = buffer.get(lc);
+				if (b == LF || (!lfOnly && b == CR)) {
+					return position + lc;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the position after the line terminator at the given position.
+	 */
+	private long skipLineTerminator(FileChannel channel, long position, long size) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(2);
+		channel.read(buffer, position);
+		return (buffer.get(0) == CR && position + 1 < size && buffer.get(1) == LF) ? position + 2 : position + 1;
+	}
+
+	private String decode(FileChannel channel, long position, int length) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("DataMatrixReader: unexpected end of file");
+			}
+		}
+		return new String(buffer.array(), 0, length, charset);
+	}
+
+	private void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("DataMatrixReader: interrupted while reading");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw (cause instanceof IOException) ? (IOException)cause : new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.model;
+
+// imports
+import org.mskcc.cbio.importer.Converter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Serializes a DataMatrix or StreamingDataMatrix in TSV format directly
+ * into large reusable byte buffers.  The output is byte for byte identical to the output
+ * of a PrintWriter (default charset, platform line separator).
+ * Ignored rows and columns are skipped without copying column data.
+ *
+ * If background flush is enabled, a full buffer is written to the
+ * target by a separate thread while the next buffer is filled.
+ *
+ * Instances are not thread safe.
+ */
+public class DataMatrixWriter {
+
+	// default buffer size
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	// target of a write - an output stream or channel
+	private interface Target {
+		void write(byte[] bytes, int length) throws IOException;
+	}
+
+	private final int bufferSize;
+	private final boolean backgroundFlush;
+	private final Charset charset;
+	private final boolean asciiCompatible;
+	private final byte[] delimiter;
+	private final byte[] lineSeparator;
+
+	// buffers are allocated on first use and reused across writes
+	private byte[] buffer;
+	private byte[] flushBuffer;
+	private int count;
+
+	// background flush state
+	private ExecutorService executor;
+	private Future<?> pendingFlush;
+
+	/**
+	 * Constructor.
+	 */
+	public DataMatrixWriter() {
+		this(DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param bufferSize int
+	 * @param backgroundFlush boolean
+	 */
+	public DataMatrixWriter(int bufferSize, boolean backgroundFlush) {
+
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("DataMatrixWriter(): bufferSize must be positive...");
+		}
+
+		this.bufferSize = bufferSize;
+		this.backgroundFlush = backgroundFlush;
+		this.charset = Charset.defaultCharset();
+		this.delimiter = Converter.VALUE_DELIMITER.getBytes(charset);
+		this.lineSeparator = System.getProperty("line.separator").getBytes(charset);
+
+		// chars below 0x80 can be copied as bytes if the charset agrees
+		byte[] ascii = new byte[0x80];
+		char[] asciiChars = new char[0x80];
+		for (int lc = 0; lc < ascii.length; lc++) {
+			ascii[lc] = (byte)lc;
+			asciiChars[lc] = (char)lc;
+		}
+		this.asciiCompatible = Arrays.equals(ascii, new String(asciiChars).getBytes(charset));
+	}
+
+	/**
+	 * Writes the given matrix to the given OutputStream.
+	 * The stream is flushed, but not closed.
+	 *
+	 * @param dataMatrix DataMatrix
+	 * @param out OutputStream
+	 * @throws IOException
+	 */
+	public void write(DataMatrix dataMatrix, final OutputStream out) throws IOException {
+
+		write(dataMatrix, new Target() {
+				public void write(byte[] bytes, int length) throws IOException {
+					out.write(bytes, 0, length);
+				}
+			});
+		out.flush();
+	}
+
+	/**
+	 * Writes the given matrix to the given channel.
+	 * The channel is not closed.
+	 *
+	 * @param dataMatrix DataMatrix
+	 * @param channel WritableByteChannel
+	 * @throws IOException
+	 */
+	public void write(DataMatrix dataMatrix, final WritableByteChannel channel) throws IOException {
+
+		write(dataMatrix, new Target() {
+				public void write(byte[] bytes, int length) throws IOException {
+					ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, length);
+					while (byteBuffer.hasRemaining()) {
+						channel.write(byteBuffer);
+					}
+				}
+			});
+	}
+
+	/**
+	 * Writes the remaining rows of the given matrix to the given OutputStream.
+	 * The stream is flushed, but not closed.
+	 *
+	 * @param dataMatrix StreamingDataMatrix
+	 * @param out OutputStream
+	 * @throws Exception
+	 */
+	public void write(StreamingDataMatrix dataMatrix, final OutputStream out) throws Exception {
+
+		write(dataMatrix, new Target() {
+				public void write(byte[] bytes, int length) throws IOException {
+					out.write(bytes, 0, length);
+				}
+			});
+		out.flush();
+	}
+
+	/**
+	 * Writes the remaining rows of the given matrix to the given channel.
+	 * The channel is not closed.
+	 *
+	 * @param dataMatrix StreamingDataMatrix
+	 * @param channel WritableByteChannel
+	 * @throws Exception
+	 */
+	public void write(StreamingDataMatrix dataMatrix, final WritableByteChannel channel) throws Exception {
+
+		write(dataMatrix, new Target() {
+				public void write(byte[] bytes, int length) throws IOException {
+					ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, length);
+					while (byteBuffer.hasRemaining()) {
+						channel.write(byteBuffer);
+					}
+				}
+			});
+	}
+
+	private void write(DataMatrix dataMatrix, Target target) throws IOException {
+
+		start();
+		try {
+			int numberOfColumns = dataMatrix.getNumberOfColumns();
+			int lastColumn = numberOfColumns - 1;
+			boolean[] ignoreColumn = new boolean[numberOfColumns];
+			List<Iterator<String>> columnIterators = new ArrayList<Iterator<String>>(numberOfColumns);
+
+			// grab an iterator over each column written
+			for (int lc = 0; lc < numberOfColumns; lc++) {
+				ignoreColumn[lc] = dataMatrix.isColumnIgnored(lc);
+				columnIterators.add((ignoreColumn[lc]) ? null : dataMatrix.getColumnData(lc).iterator());
+			}
+			putHeader(dataMatrix.getColumnHeaders(), ignoreColumn, target);
+
+			int numberOfRows = dataMatrix.getNumberOfRows();
+			for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+				boolean ignoreRow = dataMatrix.isRowIgnored(rowIndex);
+				for (int lc = 0; lc < numberOfColumns; lc++) {
+					if (ignoreColumn[lc]) continue;
+					// column iterators advance on ignored rows too
+					String value = columnIterators.get(lc).next();
+					if (ignoreRow) continue;
+					put(value, target);
+					if (lc != lastColumn) {
+						put(delimiter, target);
+					}
+				}
+				if (!ignoreRow) {
+					put(lineSeparator, target);
+				}
+			}
+
+			flush(target);
+			awaitFlush();
+		}
+		finally {
+			finish();
+		}
+	}
+
+	private void write(StreamingDataMatrix dataMatrix, Target target) throws Exception {
+
+		start();
+		try {
+			int numberOfColumns = dataMatrix.getNumberOfColumns();
+			int lastColumn = numberOfColumns - 1;
+			boolean[] ignoreColumn = new boolean[numberOfColumns];
+			int[] sourceIndex = new int[numberOfColumns];
+
+			for (int lc = 0; lc < numberOfColumns; lc++) {
+				ignoreColumn[lc] = dataMatrix.isColumnIgnored(lc);
+				sourceIndex[lc] = dataMatrix.getSourceIndex(lc);
+			}
+			putHeader(dataMatrix.getColumnHeaders(), ignoreColumn, target);
+
+			while (dataMatrix.next()) {
+				List<String> row = dataMatrix.getSourceRow();
+				for (int lc = 0; lc < numberOfColumns; lc++) {
+					if (ignoreColumn[lc]) continue;
+					put(row.get(sourceIndex[lc]), target);
+					if (lc != lastColumn) {
+						put(delimiter, target);
+					}
+				}
+				put(lineSeparator, target);
+			}
+
+			flush(target);
+			awaitFlush();
+		}
+		finally {
+			finish();
+		}
+	}
+
+	private void putHeader(List<String> columnHeaders, boolean[] ignoreColumn, Target target) throws IOException {
+
+		int lastColumn = ignoreColumn.length - 1;
+		Iterator<String> it = columnHeaders.iterator();
+		for (int lc = 0; lc < ignoreColumn.length; lc++) {
+			String columnHeader = it.next();
+			if (ignoreColumn[lc]) continue;
+			put(columnHeader, target);
+			if (lc != lastColumn) {
+				put(delimiter, target);
+			}
+		}
+		put(lineSeparator, target);
+	}
+
+	private void start() {
+
+		if (buffer == null) {
+			buffer = new byte[bufferSize];
+			flushBuffer = (backgroundFlush) ? new byte[bufferSize] : null;
+		}
+		count = 0;
+		if (backgroundFlush) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "data-matrix-writer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+	}
+
+	private void finish() {
+
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			pendingFlush = null;
+		}
+	}
+
+	private void put(String value, Target target) throws IOException {
+
+		// same as PrintWriter.print(String)
+		if (value == null) {
+			value = "null";
+		}
+
+		int length = value.length();
+		if (!asciiCompatible || length > bufferSize) {
+			put(value.getBytes(charset), target);
+			return;
+		}
+
+		if (length > bufferSize - count) {
+			flush(target);
+		}
+		int position = count;
+		for (int lc = 0; lc < length; lc++) {
+			char c = value.charAt(lc);
+			if (c >= 0x80) {
+				// count has not moved, encode the whole value instead
+				put(value.getBytes(charset), target);
+				return;
+			}
+			buffer[position++] = (byte)c;
+		}
+		count = position;
+	}
+
+	private void put(byte[] bytes, Target target) throws IOException {
+
+		if (bytes.length > bufferSize - count) {
+			flush(target);
+			if (bytes.length > bufferSize) {
+				awaitFlush();
+				target.write(bytes, bytes.length);
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, count, bytes.length);
+		count += bytes.length;
+	}
+
+	private void flush(final Target target) throws IOException {
+
+		if (count == 0) {
+			return;
+		}
+
+		if (executor == null) {
+			target.write(buffer, count);
+			count = 0;
+			return;
+		}
+
+		// the previous buffer has to be written before it can be refilled
+		awaitFlush();
+		final byte[] toWrite = buffer;
+		final int length = count;
+		pendingFlush = executor.submit(new Callable<Void>() {
+				public Void call() throws IOException {
+					target.write(toWrite, length);
+					return null;
+				}
+			});
+		buffer = flushBuffer;
+		flushBuffer = toWrite;
+		count = 0;
+	}
+
+	private void awaitFlush() throws IOException {
+
+		if (pendingFlush == null) {
+			return;
+		}
+
+		try {
+			pendingFlush.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("DataMatrixWriter: interrupted while writing");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw (cause instanceof IOException) ? (IOException)cause : new IOException(cause);
+		}
+		finally {
+			pendingFlush = null;
+		}
+	}
+}
@@ -0,0 +1,516 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.model;
+
+// imports
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Forward only view of tabular data read from a stream.  The column
+ * header can be manipulated like the header of a DataMatrix (rename,
+ * ignore, reorder, convert case ids) before the first row is read.
+ * Rows are then read one at a time through a cursor, and passed through
+ * the registered filters and transformers in the order they were added.
+ *
+ * Only the current row is held in memory, so a converter which only
+ * needs to look at one row at a time can convert a file of any size.
+ * Parsing follows FileUtilsImpl/DataMatrix: columns with an empty label
+ * are dropped and short rows are padded with empty cells.
+ *
+ * Instances are not thread safe.
+ */
+public class StreamingDataMatrix implements Closeable {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(StreamingDataMatrix.class);
+
+	/**
+	 * Decides whether a row is kept.
+	 */
+	public interface RowFilter {
+		/**
+		 * @param rowData List<String> row indexed by getColumnIndex()
+		 * @return boolean false if the row should be dropped
+		 * @throws Exception
+		 */
+		boolean accept(List<String> rowData) throws Exception;
+	}
+
+	/**
+	 * Modifies a row in place.
+	 */
+	public interface RowTransformer {
+		/**
+		 * @param rowData List<String> row indexed by getColumnIndex()
+		 * @return boolean false if the row should be dropped
+		 * @throws Exception
+		 */
+		boolean transform(List<String> rowData) throws Exception;
+	}
+
+	// inner class which encapsulates a column header w/the index of its data in a row
+	private class ColumnHeader {
+		public String label;
+		public int index;
+		public boolean ignoreColumn;
+	}
+
+	private String filename;
+
+	// source of the rows
+	private BufferedReader reader;
+
+	// number of labelled columns in the source header
+	private int numberOfSourceColumns;
+
+	private LinkedList<ColumnHeader> columnHeaders;
+
+	// filters and transformers, all are applied to every row
+	private List<RowTransformer> rowTransformers;
+
+	// ref to caseids
+	private CaseIDs caseIDsFilter;
+
+	// our collection of case ids
+	private HashSet<String> caseIDs;
+
+	// gene id column heading and the gene ids seen so far
+	private String geneIDColumnHeading;
+	private int geneIDColumnIndex;
+	private HashSet<String> geneIDs;
+
+	// row read ahead of the cursor, the current row
+	private List<String> nextRow;
+	private List<String> currentRow;
+
+	// true once the cursor has moved
+	private boolean started;
+	private boolean exhausted;
+
+	// number of rows read from the source
+	private int numberOfRows;
+
+	/**
+	 * Constructor.  Reads the column header from the given data,
+	 * which is closed by close().
+	 *
+	 * @param filename String
+	 * @param data InputStream
+	 * @param caseIDsFilter CaseIDs
+	 * @throws IOException
+	 */
+	public StreamingDataMatrix(String filename, InputStream data, CaseIDs caseIDsFilter) throws IOException {
+
+		// sanity checks
+		if (filename == null || data == null || caseIDsFilter == null) {
+			throw new IllegalArgumentException("StreamingDataMatrix(): filename, data or caseIDsFilter is null...");
+		}
+
+		this.filename = filename;
+		this.reader = new BufferedReader(new InputStreamReader(data));
+		this.caseIDsFilter = caseIDsFilter;
+		this.caseIDs = new HashSet<String>();
+		this.geneIDs = new HashSet<String>();
+		this.geneIDColumnHeading = Converter.GENE_ID_COLUMN_HEADER_NAME;
+		this.rowTransformers = new ArrayList<RowTransformer>();
+		this.columnHeaders = new LinkedList<ColumnHeader>();
+
+		String header = reader.readLine();
+		if (header == null) {
+			exhausted = true;
+			return;
+		}
+
+		// as in DataMatrix, cells are assigned to labelled columns in order
+		for (String columnName : header.split(Converter.VALUE_DELIMITER, -1)) {
+			if (columnName.length() == 0) {
+				if (LOG.isInfoEnabled()) {
+					LOG.info("columnName is empty, skipping...");
+				}
+				continue;
+			}
+			ColumnHeader columnHeader = new ColumnHeader();
+			columnHeader.label = columnName;
+			columnHeader.index = numberOfSourceColumns++;
+			columnHeader.ignoreColumn = false;
+			columnHeaders.add(columnHeader);
+		}
+	}
+
+	public String getFilename() { return filename; }
+
+	/**
+	 * Returns true if there is at least one row to read.  Rows
+	 * dropped by filters or transformers are counted.
+	 *
+	 * @return boolean
+	 * @throws IOException
+	 */
+	public boolean hasRows() throws IOException {
+		return (currentRow != null || readNextRow());
+	}
+
+	/**
+	 * Converts full TCGA bar code to abbreviated version for use in portal.
+	 * See DataMatrix.convertCaseIDs(List<String>).
+	 *
+	 * @param columnsToIgnore List<String>
+	 */
+	public void convertCaseIDs(List<String> columnsToIgnore) {
+
+		checkNotStarted();
+		caseIDs.clear();
+
+		for (ColumnHeader columnHeader : columnHeaders) {
+			if (columnHeader.ignoreColumn) {
+				continue;
+			}
+			else if (columnsToIgnore != null && columnsToIgnore.contains(columnHeader.label)) {
+				continue;
+			}
+			if (!caseIDsFilter.isSampleId(columnHeader.label)) {
+				columnHeader.ignoreColumn = true;
+				continue;
+			}
+			columnHeader.label = caseIDsFilter.getSampleId(columnHeader.label);
+			caseIDs.add(columnHeader.label);
+		}
+	}
+
+	/**
+	 * Set column order.  Any columns that are not
+	 * in the given column order will be dropped.
+	 *
+	 * @param newColumnOrder List<String>
+	 */
+	public void setColumnOrder(List<String> newColumnOrder) {
+
+		checkNotStarted();
+		LinkedList<ColumnHeader> newColumnHeaderList = new LinkedList<ColumnHeader>();
+
+		for (String column : newColumnOrder) {
+			ColumnHeader columnHeader = getColumnHeader(column);
+			if (columnHeader == null) {
+				throw new IllegalArgumentException("column not found in list: " +  column);
+			}
+			newColumnHeaderList.add(columnHeader);
+		}
+
+		columnHeaders = newColumnHeaderList;
+	}
+
+	/**
+	 * Sets the ignore boolean on all columns matching this column name.
+	 *
+	 * @param columnName String
+	 * @param ignoreColumn boolean
+	 */
+	public void ignoreColumn(String columnName, boolean ignoreColumn) {
+
+		checkNotStarted();
+		for (ColumnHeader columnHeader : columnHeaders) {
+			if (columnHeader.label.equals(columnName)) {
+				columnHeader.ignoreColumn = ignoreColumn;
+			}
+		}
+	}
+
+	/**
+	 * Sets the ignore boolean on the column indexed by columnIndex.
+	 *
+	 * @param columnIndex int
+	 * @param ignoreColumn boolean
+	 */
+	public void ignoreColumn(int columnIndex, boolean ignoreColumn) {
+
+		checkNotStarted();
+		columnHeaders.get(columnIndex).ignoreColumn = ignoreColumn;
+	}
+
+	/**
+	 * Rename a column.
+	 *
+	 * @param columnName String
+	 * @param newColumnName String
+	 */
+	public void renameColumn(String columnName, String newColumnName) {
+
+		checkNotStarted();
+		for (ColumnHeader columnHeader : columnHeaders) {
+			if (columnHeader.label.equals(columnName)) {
+				columnHeader.label = newColumnName;
+			}
+		}
+	}
+
+	/**
+	 * Gets the column headers.
+	 * Returns a new copy.
+	 *
+	 * @return List<String>
+	 */
+	public List<String> getColumnHeaders() {
+
+		LinkedList<String> toReturn = new LinkedList<String>();
+		for (ColumnHeader columnHeader : columnHeaders) {
+			toReturn.add(columnHeader.label);
+		}
+		return toReturn;
+	}
+
+	/**
+	 * Returns the index of the given column within the rows handed to
+	 * filters and transformers, or -1 if there is no such column.
+	 * The index does not change when columns are renamed or reordered.
+	 *
+	 * @param columnName String
+	 * @return int
+	 */
+	public int getColumnIndex(String columnName) {
+
+		ColumnHeader columnHeader = getColumnHeader(columnName);
+		return (columnHeader == null) ? -1 : columnHeader.index;
+	}
+
+	/**
+	 * Adds a filter which is applied to every row read.
+	 *
+	 * @param rowFilter RowFilter
+	 */
+	public void addRowFilter(final RowFilter rowFilter) {
+
+		addRowTransformer(new RowTransformer() {
+				public boolean transform(List<String> rowData) throws Exception {
+					return rowFilter.accept(rowData);
+				}
+			});
+	}
+
+	/**
+	 * Adds a transformer which is applied to every row read.
+	 * A transformer is applied even if the row has been dropped
+	 * by a preceding filter or transformer, like mapping
+	 * functions applied to a DataMatrix are applied to ignored rows.
+	 *
+	 * @param rowTransformer RowTransformer
+	 */
+	public void addRowTransformer(RowTransformer rowTransformer) {
+
+		checkNotStarted();
+		rowTransformers.add(rowTransformer);
+	}
+
+	/**
+	 * Moves the cursor to the next row which passes all filters
+	 * and transformers.
+	 *
+	 * @return boolean false if there are no more rows
+	 * @throws Exception
+	 */
+	public boolean next() throws Exception {
+
+		if (!started) {
+			started = true;
+			ColumnHeader geneIDColumnHeader = getColumnHeader(geneIDColumnHeading);
+			geneIDColumnIndex = (geneIDColumnHeader == null) ? -1 : geneIDColumnHeader.index;
+		}
+
+		currentRow = null;
+		while (nextRow != null || readNextRow()) {
+			List<String> row = nextRow;
+			nextRow = null;
+			boolean keepRow = true;
+			for (RowTransformer rowTransformer : rowTransformers) {
+				keepRow &= rowTransformer.transform(row);
+			}
+			// as DataMatrix.getGeneIDs(), ignored rows count
+			if (geneIDColumnIndex >= 0) {
+				geneIDs.add(row.get(geneIDColumnIndex));
+			}
+			if (keepRow) {
+				currentRow = row;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the current row, one value for each column header.
+	 *
+	 * @return List<String>
+	 */
+	public List<String> getRowData() {
+
+		checkCurrentRow();
+		List<String> toReturn = new ArrayList<String>(columnHeaders.size());
+		for (ColumnHeader columnHeader : columnHeaders) {
+			toReturn.add(currentRow.get(columnHeader.index));
+		}
+		return toReturn;
+	}
+
+	/**
+	 * Returns the number of rows read so far, including dropped rows.
+	 *
+	 * @return int
+	 */
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	/**
+	 * Returns the list of case id's within this matrix.
+	 * Note: convertCaseIDs should be called before
+	 * this collection is returned or it will just return an
+	 * empty collection.
+	 *
+	 * @return Set<String>
+	 */
+	public Set<String> getCaseIDs() {
+		return caseIDs;
+	}
+
+	/**
+	 * Used to set geneIDColumnHeading.  See getGeneIDs().
+	 *
+	 * @param geneIDColumnHeading String
+	 */
+	public void setGeneIDColumnHeading(String geneIDColumnHeading) {
+
+		checkNotStarted();
+		this.geneIDColumnHeading = geneIDColumnHeading;
+	}
+
+	/**
+	 * Returns the collection of gene id's read so far, it is
+	 * complete once next() has returned false.
+	 *
+	 * @return Set<String>
+	 */
+	public Set<String> getGeneIDs() {
+
+		if (getColumnHeader(geneIDColumnHeading) == null) {
+			throw new IllegalArgumentException("gene id column not found in list: " + geneIDColumnHeading);
+		}
+		return geneIDs;
+	}
+
+	@Override
+	public void close() throws IOException {
+		exhausted = true;
+		reader.close();
+	}
+
+	/**
+	 * Returns the number of columns, including ignored columns.
+	 *
+	 * @return int
+	 */
+	int getNumberOfColumns() {
+		return columnHeaders.size();
+	}
+
+	/**
+	 * Returns true if the column indexed by columnIndex is ignored.
+	 *
+	 * @param columnIndex int
+	 * @return boolean
+	 */
+	boolean isColumnIgnored(int columnIndex) {
+		return columnHeaders.get(columnIndex).ignoreColumn;
+	}
+
+	/**
+	 * Returns the source index of the column indexed by columnIndex.
+	 *
+	 * @param columnIndex int
+	 * @return int
+	 */
+	int getSourceIndex(int columnIndex) {
+		return columnHeaders.get(columnIndex).index;
+	}
+
+	/**
+	 * Returns the current row, indexed by source index.
+	 *
+	 * @return List<String>
+	 */
+	List<String> getSourceRow() {
+
+		checkCurrentRow();
+		return currentRow;
+	}
+
+	private boolean readNextRow() throws IOException {
+
+		if (nextRow != null) {
+			return true;
+		}
+		if (exhausted) {
+			return false;
+		}
+
+		String line = reader.readLine();
+		if (line == null) {
+			exhausted = true;
+			return false;
+		}
+
+		List<String> row = Arrays.asList(line.split(Converter.VALUE_DELIMITER, -1));
+		if (row.size() < numberOfSourceColumns) {
+			row = new ArrayList<String>(row);
+			while (row.size() < numberOfSourceColumns) {
+				row.add("");
+			}
+		}
+		++numberOfRows;
+		nextRow = row;
+		return true;
+	}
+
+	private ColumnHeader getColumnHeader(String columnName) {
+
+		for (ColumnHeader columnHeader : columnHeaders) {
+			if (columnHeader.label.equals(columnName)) {
+				return columnHeader;
+			}
+		}
+		return null;
+	}
+
+	private void checkNotStarted() {
+		if (started) {
+			throw new IllegalStateException("StreamingDataMatrix: header cannot change once rows are read");
+		}
+	}
+
+	private void checkCurrentRow() {
+		if (currentRow == null) {
+			throw new IllegalStateException("StreamingDataMatrix: no current row");
+		}
+	}
+}
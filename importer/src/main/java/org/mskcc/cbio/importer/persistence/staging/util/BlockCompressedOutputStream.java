@@ -0,0 +1,182 @@
+/*
+ *  Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ * 
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ *  MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ *  documentation provided hereunder is on an "as is" basis, and
+ *  Memorial Sloan-Kettering Cancer Center 
+ *  has no obligations to provide maintenance, support,
+ *  updates, enhancements or modifications.  In no event shall
+ *  Memorial Sloan-Kettering Cancer Center
+ *  be liable to any party for direct, indirect, special,
+ *  incidental or consequential damages, including lost profits, arising
+ *  out of the use of this software and its documentation, even if
+ *  Memorial Sloan-Kettering Cancer Center 
+ *  has been advised of the possibility of such damage.
+ */
+package org.mskcc.cbio.importer.persistence.staging.util;
+
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ represents an output stream which compresses its content in fixed size blocks,
+ each block written as a complete gzip member. Concatenated gzip members are a
+ valid gzip stream, so the output can be read by GZIPInputStream, zcat, etc.
+ Blocks are compressed in parallel and written in order.
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+
+    private byte[] buffer;
+    private int count;
+    private boolean empty = true;
+    private boolean closed;
+
+    public BlockCompressedOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /*
+     numThreads threads compress blocks of blockSize (uncompressed) bytes, at most
+     two blocks per thread are buffered before the oldest block is written
+     */
+    public BlockCompressedOutputStream(OutputStream out, int blockSize, int numThreads) {
+        Preconditions.checkArgument(null != out, "An output stream is required");
+        Preconditions.checkArgument(blockSize > 0, "The block size must be positive");
+        this.out = out;
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+        this.maxPendingBlocks = 2 * Math.max(1, numThreads);
+        this.executor = (numThreads > 1) ? Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "staging-compressor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int chunk = Math.min(length, blockSize - count);
+            System.arraycopy(bytes, offset, buffer, count, chunk);
+            count += chunk;
+            offset += chunk;
+            length -= chunk;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /*
+     flushing ends the current block
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            submitBlock();
+        }
+        while (!pendingBlocks.isEmpty()) {
+            writeNextBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            // an empty stream still has to be a valid gzip stream
+            if (empty) {
+                out.write(compress(new byte[0], 0));
+            }
+        } finally {
+            closed = true;
+            if (null != executor) {
+                executor.shutdownNow();
+            }
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] block = buffer;
+        final int length = count;
+        Callable<byte[]> task = new Callable<byte[]>() {
+            public byte[] call() throws IOException {
+                return compress(block, length);
+            }
+        };
+        if (null == executor) {
+            FutureTask<byte[]> future = new FutureTask<byte[]>(task);
+            future.run();
+            pendingBlocks.addLast(future);
+        } else {
+            pendingBlocks.addLast(executor.submit(task));
+        }
+        buffer = new byte[blockSize];
+        count = 0;
+        empty = false;
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+        try {
+            out.write(pendingBlocks.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing block");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress block", e.getCause());
+        }
+    }
+
+    private static byte[] compress(byte[] block, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes, 64 * 1024);
+        gzip.write(block, 0, length);
+        gzip.close();
+        return bytes.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
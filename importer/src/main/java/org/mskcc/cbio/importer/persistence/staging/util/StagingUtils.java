@@ -21,12 +21,17 @@ import com.google.common.base.*;
 import org.apache.commons.lang.StringUtils;
 import org.mskcc.cbio.importer.persistence.staging.StagingCommonNames;
 
-import java.io.File;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
 
 /*
  represents a collection of static utility methods used though out the application
  */
 public class StagingUtils {
+
+    private static final String COMPRESSED_SUFFIX = "." + StagingCommonNames.COMPRESSED_FILE_EXTENSION;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /*
     Public method to determine the absolute file name for a file that
     starts with an environmental variable
@@ -43,5 +48,125 @@ public class StagingUtils {
             return input;
         }
     }
+
+    /*
+    Public method to determine if a staging file is block compressed,
+    based on its extension (e.g. data_CNA.txt.gz)
+     */
+    public static boolean isCompressed(File file) {
+        Preconditions.checkArgument(null != file, "A file is required");
+        return file.getName().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /*
+    Public method to get the compressed variant of a staging file
+     */
+    public static File getCompressedFile(File file) {
+        return (isCompressed(file)) ? file : new File(file.getPath() + COMPRESSED_SUFFIX);
+    }
+
+    /*
+    Public method to get the plain text variant of a staging file
+     */
+    public static File getUncompressedFile(File file) {
+        return (isCompressed(file)) ?
+                new File(file.getPath().substring(0, file.getPath().length() - COMPRESSED_SUFFIX.length())) : file;
+    }
+
+    /*
+    Public method to find a staging file on disk. If the plain text file does not exist
+    but its compressed variant does, the compressed variant is returned, otherwise the input
+     */
+    public static File resolveStagingFile(File file) {
+        if (file.exists()) {
+            return file;
+        }
+        File compressedFile = getCompressedFile(file);
+        return (compressedFile.exists()) ? compressedFile : file;
+    }
+
+    /*
+    Public method to open a staging file for reading, compressed files are
+    decompressed on the fly
+     */
+    public static InputStream openStagingInputStream(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            return (isCompressed(file)) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static Reader openStagingReader(File file) throws IOException {
+        return new InputStreamReader(openStagingInputStream(file), "UTF-8");
+    }
+
+    /*
+    Public method to open a staging file for writing, files with a compressed
+    extension are block compressed using the given number of threads
+     */
+    public static OutputStream openStagingOutputStream(File file, int numThreads) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (null != parent && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        OutputStream out = new FileOutputStream(file);
+        return (isCompressed(file)) ?
+                new BlockCompressedOutputStream(out, BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE, numThreads) :
+                new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /*
+    Public method to compress a plain text staging file. The plain text file is
+    replaced by its compressed variant, which is returned
+     */
+    public static File compress(File file, int numThreads) throws IOException {
+        Preconditions.checkArgument(!isCompressed(file), "File is already compressed: " + file);
+        File compressedFile = getCompressedFile(file);
+        copy(file, compressedFile, numThreads);
+        if (!file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+        return compressedFile;
+    }
+
+    /*
+    Public method to provide a plain text copy of a compressed staging file for
+    readers which require plain text (e.g. the portal importer mains). The copy is
+    a temporary file next to the compressed file, never the plain text staging file
+    resolveStagingFile() would pick up, it is up to the caller to delete it
+     */
+    public static File decompress(File file) throws IOException {
+        Preconditions.checkArgument(isCompressed(file), "File is not compressed: " + file);
+        File uncompressedFile = File.createTempFile("." + getUncompressedFile(file).getName() + ".", ".tmp",
+                file.getAbsoluteFile().getParentFile());
+        try {
+            copy(file, uncompressedFile, 1);
+        } catch (IOException e) {
+            uncompressedFile.delete();
+            throw e;
+        }
+        return uncompressedFile;
+    }
+
+    private static void copy(File source, File target, int numThreads) throws IOException {
+        InputStream in = openStagingInputStream(source);
+        try {
+            OutputStream out = openStagingOutputStream(target, numThreads);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
 }
 
@@ -0,0 +1,216 @@
+/** Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import org.mskcc.cbio.importer.util.FileDigests;
+import org.mskcc.cbio.importer.util.JournalFile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Distributes files through a FileTransport, transferring only the files whose
+ * contents differ from what the destination received last.  The destination
+ * manifest records the content digest of every file transferred (together with
+ * the size and modification time of its source, so unchanged sources are not
+ * hashed again).  Changed files are transferred concurrently.
+ *
+ * The manifest is append-only, the last entry of a destination wins.  Each entry
+ * is synced to disk after its file has been transferred, a torn last line is discarded
+ * (see JournalFile).
+ */
+public class FileDistributor
+{
+	private static final Log LOG = LogFactory.getLog(FileDistributor.class);
+
+	public static final String MANIFEST_FILENAME = ".distribution_manifest";
+
+	private static final int NUM_FIELDS = 4;
+
+	/**
+	 * Outcome of a distribution - destinations by outcome.
+	 */
+	public static class Result
+	{
+		private final List<String> transferred = new ArrayList<String>();
+		private final List<String> unchanged = new ArrayList<String>();
+		private final List<String> failed = new ArrayList<String>();
+
+		public List<String> getTransferred() { return transferred; }
+		public List<String> getUnchanged() { return unchanged; }
+		public List<String> getFailed() { return failed; }
+
+		@Override
+		public String toString()
+		{
+			return transferred.size() + " transferred, " + unchanged.size() + " unchanged, " + failed.size() + " failed";
+		}
+	}
+
+	private static class Entry
+	{
+		private final String digest;
+		private final long sourceSize;
+		private final long sourceLastModified;
+
+		Entry(String digest, long sourceSize, long sourceLastModified)
+		{
+			this.digest = digest;
+			this.sourceSize = sourceSize;
+			this.sourceLastModified = sourceLastModified;
+		}
+	}
+
+	private final FileTransport transport;
+	private final JournalFile manifestFile;
+	private final int numThreads;
+
+	// destination -> last entry
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Constructor.  Loads the given manifest, if any.
+	 *
+	 * @param transport FileTransport
+	 * @param manifestFile File
+	 * @param numThreads int
+	 * @throws IOException
+	 */
+	public FileDistributor(FileTransport transport, File manifestFile, int numThreads) throws IOException
+	{
+		this.transport = transport;
+		this.manifestFile = new JournalFile(manifestFile);
+		this.numThreads = Math.max(1, numThreads);
+		if (manifestFile.exists()) {
+			load();
+		}
+	}
+
+	/**
+	 * Transfers the given source files (source -> destination) whose
+	 * contents have changed since they were transferred last.
+	 *
+	 * @param files Map<File, String>
+	 * @return Result
+	 * @throws InterruptedException
+	 */
+	public Result distribute(Map<File, String> files) throws InterruptedException
+	{
+		Result result = new Result();
+		Map<String, Future<Boolean>> futures = new LinkedHashMap<String, Future<Boolean>>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, Math.max(1, files.size())),
+																new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "file-distributor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (final Map.Entry<File, String> file : files.entrySet()) {
+				futures.put(file.getValue(), executor.submit(new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						return distribute(file.getKey(), file.getValue());
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Boolean>> future : futures.entrySet()) {
+				String destination = future.getKey();
+				try {
+					if (future.getValue().get()) {
+						result.transferred.add(destination);
+					}
+					else {
+						result.unchanged.add(destination);
+					}
+				}
+				catch (ExecutionException e) {
+					if (LOG.isErrorEnabled()) {
+						LOG.error("distribute(), error transferring " + destination + " to " + transport.getLocation() +
+								  ": " + e.getCause());
+					}
+					result.failed.add(destination);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("distribute(), " + transport.getLocation() + ": " + result);
+		}
+		return result;
+	}
+
+	/**
+	 * Transfers the given file if its contents changed, returns true if it was transferred.
+	 */
+	private boolean distribute(File sourceFile, String destination) throws Exception
+	{
+		if (!sourceFile.exists()) {
+			throw new FileNotFoundException(sourceFile.getPath());
+		}
+		long size = sourceFile.length();
+		long lastModified = sourceFile.lastModified();
+		Entry entry = getEntry(destination);
+		String digest = (entry != null && entry.sourceSize == size && entry.sourceLastModified == lastModified) ?
+			entry.digest : FileDigests.digest(sourceFile);
+
+		if (entry != null && entry.digest.equals(digest) && transport.exists(destination)) {
+			if (entry.sourceSize != size || entry.sourceLastModified != lastModified) {
+				// touched, not changed
+				record(destination, new Entry(digest, size, lastModified));
+			}
+			return false;
+		}
+
+		transport.put(sourceFile, destination);
+		record(destination, new Entry(digest, size, lastModified));
+		return true;
+	}
+
+	private synchronized Entry getEntry(String destination)
+	{
+		return entries.get(destination);
+	}
+
+	private synchronized void record(String destination, Entry entry) throws IOException
+	{
+		manifestFile.append(destination, entry.digest, Long.toString(entry.sourceSize),
+						   Long.toString(entry.sourceLastModified));
+		entries.put(destination, entry);
+	}
+
+	private void load() throws IOException
+	{
+		for (String[] parts : manifestFile.load()) {
+			if (parts.length == NUM_FIELDS) {
+				try {
+					entries.put(parts[0], new Entry(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+				}
+				catch (NumberFormatException e) {
+					// corrupt entry, the file is transferred again
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/** Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import java.io.File;
+
+/**
+ * Writes files to a destination, such as a mounted directory or a remote host.
+ * Destinations are paths relative to the root of the transport.  A file is
+ * either completely written or not visible at its destination at all.
+ */
+public interface FileTransport
+{
+	/**
+	 * Writes the given file to the given destination, replacing any file there.
+	 *
+	 * @param sourceFile File
+	 * @param destination String
+	 * @throws Exception
+	 */
+	public void put(File sourceFile, String destination) throws Exception;
+
+	/**
+	 * Determines if there is a file at the given destination.  Transports which
+	 * cannot tell return true.
+	 *
+	 * @param destination String
+	 * @return boolean
+	 * @throws Exception
+	 */
+	public boolean exists(String destination) throws Exception;
+
+	/**
+	 * Returns a description of the root of this transport, for logging
+	 * and to tell manifests of different destinations apart.
+	 *
+	 * @return String
+	 */
+	public String getLocation();
+}
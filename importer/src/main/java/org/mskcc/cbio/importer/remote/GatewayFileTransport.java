@@ -0,0 +1,81 @@
+/** Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Transport over the sftp put gateway.  The gateway writes to a temporary
+ * name and renames the file once it is complete.  The gateway keeps the name
+ * of the source file, so a source file with another name is put from a copy.
+ */
+public class GatewayFileTransport implements FileTransport
+{
+	private final PutGateway putGateway;
+	private final String directory;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param putGateway PutGateway
+	 * @param directory String remote directory, ending with a slash
+	 */
+	public GatewayFileTransport(PutGateway putGateway, String directory)
+	{
+		this.putGateway = putGateway;
+		this.directory = directory;
+	}
+
+	@Override
+	public void put(File sourceFile, String destination) throws Exception
+	{
+		String destinationPath = directory + destination;
+		int slash = destinationPath.lastIndexOf('/');
+		String remoteDirectory = destinationPath.substring(0, slash + 1);
+		String name = destinationPath.substring(slash + 1);
+
+		if (sourceFile.getName().equals(name)) {
+			putGateway.put(sourceFile, remoteDirectory);
+			return;
+		}
+
+		File tempDirectory = Files.createTempDirectory("gateway_transport").toFile();
+		File copy = new File(tempDirectory, name);
+		try {
+			Files.copy(sourceFile.toPath(), copy.toPath());
+			putGateway.put(copy, remoteDirectory);
+		}
+		finally {
+			copy.delete();
+			tempDirectory.delete();
+		}
+	}
+
+	@Override
+	public boolean exists(String destination)
+	{
+		// the gateway only puts files
+		return true;
+	}
+
+	@Override
+	public String getLocation()
+	{
+		return "sftp:" + directory;
+	}
+}
@@ -0,0 +1,85 @@
+/** Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Transport to a local or mounted directory.  Files are copied to a temporary
+ * file next to the destination, synced and renamed into place.
+ */
+public class LocalFileTransport implements FileTransport
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+
+	public LocalFileTransport(File directory)
+	{
+		this.directory = directory;
+	}
+
+	@Override
+	public void put(File sourceFile, String destination) throws Exception
+	{
+		File destinationFile = new File(directory, destination);
+		File parent = destinationFile.getParentFile();
+		if (!parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Cannot create directory " + parent);
+		}
+
+		File tempFile = File.createTempFile("." + destinationFile.getName() + ".", ".tmp", parent);
+		try {
+			InputStream in = new FileInputStream(sourceFile);
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+				out.flush();
+				out.getFD().sync();
+			}
+			finally {
+				out.close();
+				in.close();
+			}
+			Files.move(tempFile.toPath(), destinationFile.toPath(),
+					   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			if (tempFile.exists()) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	@Override
+	public boolean exists(String destination)
+	{
+		return new File(directory, destination).isFile();
+	}
+
+	@Override
+	public String getLocation()
+	{
+		return directory.getAbsolutePath();
+	}
+}
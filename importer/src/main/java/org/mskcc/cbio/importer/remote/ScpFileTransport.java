@@ -0,0 +1,79 @@
+/** Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import org.mskcc.cbio.importer.util.Shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Transport to a directory on a remote host over scp.  Files are copied
+ * to a temporary name next to the destination and renamed into place over ssh.
+ */
+public class ScpFileTransport implements FileTransport
+{
+	private final String userName;
+	private final String host;
+	private final String directory;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param userName String
+	 * @param host String
+	 * @param directory String remote directory, ending with a slash
+	 */
+	public ScpFileTransport(String userName, String host, String directory)
+	{
+		this.userName = userName;
+		this.host = host;
+		this.directory = directory;
+	}
+
+	@Override
+	public void put(File sourceFile, String destination) throws Exception
+	{
+		String destinationPath = directory + destination;
+		int slash = destinationPath.lastIndexOf('/');
+		String tempPath = destinationPath.substring(0, slash + 1) + "." +
+			destinationPath.substring(slash + 1) + "." + System.nanoTime() + ".tmp";
+		String remote = userName + "@" + host;
+
+		if (!Shell.exec(Arrays.asList("scp", "-q", sourceFile.getCanonicalPath(), remote + ":" + tempPath), ".")) {
+			throw new IOException("scp of " + sourceFile + " to " + remote + ":" + tempPath + " failed");
+		}
+		if (!Shell.exec(Arrays.asList("ssh", remote, "mv", "-f", tempPath, destinationPath), ".")) {
+			Shell.exec(Arrays.asList("ssh", remote, "rm", "-f", tempPath), ".");
+			throw new IOException("rename of " + remote + ":" + tempPath + " to " + destinationPath + " failed");
+		}
+	}
+
+	@Override
+	public boolean exists(String destination)
+	{
+		// a missing file is noticed by the remote host only
+		return true;
+	}
+
+	@Override
+	public String getLocation()
+	{
+		return userName + "@" + host + ":" + directory;
+	}
+}
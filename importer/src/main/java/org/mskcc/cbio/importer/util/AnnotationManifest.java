@@ -0,0 +1,221 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Per directory record of the MAFs which have been through the annotator.
+ * For every MAF (by file name) the manifest keeps the digest of the annotator
+ * input, the annotation status, the annotator version and the output file
+ * (with its digest, size and modification time).  A MAF whose input and
+ * annotator version are unchanged, and whose output is still in place,
+ * does not have to be annotated again.
+ *
+ * The manifest is append-only, the last entry of a MAF wins.  Each entry is
+ * synced to disk before record() returns, a torn last line is discarded (see
+ * JournalFile).  Digests are computed with FileDigests.
+ */
+public class AnnotationManifest {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(AnnotationManifest.class);
+
+	public static final String MANIFEST_FILENAME = ".annotation_manifest";
+
+	// status
+	public static final String ANNOTATED = "annotated";
+	public static final String ALREADY_ANNOTATED = "already_annotated";
+	public static final String EMPTY = "empty";
+
+	private static final int NUM_FIELDS = 8;
+
+	/**
+	 * A manifest entry.
+	 */
+	public static class Entry {
+
+		private final String name;
+		private final String inputDigest;
+		private final String status;
+		private final String annotatorVersion;
+		private final String output;
+		private final String outputDigest;
+		private final long outputSize;
+		private final long outputLastModified;
+
+		Entry(String name, String inputDigest, String status, String annotatorVersion,
+			  String output, String outputDigest, long outputSize, long outputLastModified) {
+			this.name = name;
+			this.inputDigest = inputDigest;
+			this.status = status;
+			this.annotatorVersion = annotatorVersion;
+			this.output = output;
+			this.outputDigest = outputDigest;
+			this.outputSize = outputSize;
+			this.outputLastModified = outputLastModified;
+		}
+
+		public String getName() { return name; }
+		public String getInputDigest() { return inputDigest; }
+		public String getStatus() { return status; }
+		public String getAnnotatorVersion() { return annotatorVersion; }
+		// file name, relative to the manifest directory
+		public String getOutput() { return output; }
+		public String getOutputDigest() { return outputDigest; }
+	}
+
+	private final File directory;
+	private final JournalFile manifestFile;
+
+	// MAF name -> last entry
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Constructor.  Loads the manifest of the given directory, if any.
+	 *
+	 * @param directory File
+	 * @throws IOException
+	 */
+	public AnnotationManifest(File directory) throws IOException {
+
+		this.directory = directory;
+		this.manifestFile = new JournalFile(new File(directory, MANIFEST_FILENAME));
+		if (manifestFile.exists()) {
+			load();
+		}
+	}
+
+	public File getManifestFile() {
+		return manifestFile.getFile();
+	}
+
+	/**
+	 * Returns the last entry of the given MAF, null if there is none.
+	 *
+	 * @param name String
+	 * @return Entry
+	 */
+	public synchronized Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Determines if the given MAF has been through the given annotator version
+	 * (or needed no annotation) and the output recorded then is unchanged.
+	 * The output digest is only computed if its size or modification time differ.
+	 *
+	 * @param name String
+	 * @param annotatorVersion String
+	 * @return boolean
+	 * @throws IOException
+	 */
+	public synchronized boolean isCurrent(String name, String annotatorVersion) throws IOException {
+
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return false;
+		}
+		if (entry.status.equals(ANNOTATED) && !entry.annotatorVersion.equals(annotatorVersion)) {
+			return false;
+		}
+
+		File output = new File(directory, entry.output);
+		if (!output.exists()) {
+			return false;
+		}
+		if (output.length() == entry.outputSize && output.lastModified() == entry.outputLastModified) {
+			return true;
+		}
+		return FileDigests.digest(output).equals(entry.outputDigest);
+	}
+
+	/**
+	 * Determines if the given MAF has been annotated from the given input
+	 * with the given annotator version and the output is unchanged.
+	 *
+	 * @param name String
+	 * @param inputDigest String
+	 * @param annotatorVersion String
+	 * @return boolean
+	 * @throws IOException
+	 */
+	public synchronized boolean isCurrent(String name, String inputDigest, String annotatorVersion) throws IOException {
+
+		Entry entry = entries.get(name);
+		return (entry != null && entry.inputDigest.equals(inputDigest) && isCurrent(name, annotatorVersion));
+	}
+
+	/**
+	 * Records the annotation of the given MAF.
+	 *
+	 * @param name String
+	 * @param inputDigest String
+	 * @param status String
+	 * @param annotatorVersion String
+	 * @param output File, within the manifest directory
+	 * @throws IOException
+	 */
+	public synchronized void record(String name, String inputDigest, String status,
+									String annotatorVersion, File output) throws IOException {
+
+		String outputName = getRelativePath(output);
+		Entry entry = new Entry(name, inputDigest, status, annotatorVersion, outputName,
+								FileDigests.digest(output), output.length(), output.lastModified());
+
+		manifestFile.append(entry.name, entry.inputDigest, entry.status, entry.annotatorVersion,
+							entry.output, entry.outputDigest, Long.toString(entry.outputSize),
+							Long.toString(entry.outputLastModified));
+		entries.put(name, entry);
+	}
+
+	private String getRelativePath(File file) throws IOException {
+
+		String directoryPath = directory.getCanonicalPath() + File.separator;
+		String filePath = file.getCanonicalPath();
+		if (!filePath.startsWith(directoryPath)) {
+			throw new IllegalArgumentException("record(), output must be within " + directory + ": " + file);
+		}
+		return filePath.substring(directoryPath.length());
+	}
+
+	private void load() throws IOException {
+
+		for (String[] parts : manifestFile.load()) {
+			if (parts.length == NUM_FIELDS) {
+				try {
+					entries.put(parts[0], new Entry(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5],
+													Long.parseLong(parts[6]), Long.parseLong(parts[7])));
+				}
+				catch (NumberFormatException e) {
+					// corrupt entry, the MAF is annotated again
+				}
+			}
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("load(), " + entries.size() + " MAFs in manifest: " + manifestFile.getFile());
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The case sets of the staging files of a cancer study, used to compute case lists.
+ *
+ * Every staging file is read once (the files are read in parallel).  The case ids
+ * of all files are numbered in a study wide dictionary and the cases of each file
+ * are kept as a bitmap over the dictionary, so union and intersection case lists
+ * are computed with bitmap operations.  Case lists are returned in dictionary order,
+ * which is the order of first appearance in the staging files (in the order given).
+ */
+public class CaseListSets {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(CaseListSets.class);
+
+	/**
+	 * Returns the case list of a staging file, an empty list if there is none.
+	 */
+	public interface StagingFileReader {
+		List<String> getCaseList(String stagingFilename) throws Exception;
+	}
+
+	// dictionary - case id <-> position
+	private final List<String> caseIds = new ArrayList<String>();
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+	// staging filename -> cases, files without cases are left out
+	private final Map<String, BitSet> caseSets = new HashMap<String, BitSet>();
+
+	/**
+	 * Constructor.  Reads the case list of each of the given staging files.
+	 *
+	 * @param stagingFilenames Collection<String>
+	 * @param reader StagingFileReader
+	 * @param numThreads int
+	 * @throws Exception
+	 */
+	public CaseListSets(Collection<String> stagingFilenames, final StagingFileReader reader, int numThreads) throws Exception {
+
+		List<String> filenames = new ArrayList<String>(new LinkedHashSet<String>(stagingFilenames));
+		List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>(filenames.size());
+		for (final String stagingFilename : filenames) {
+			tasks.add(new Callable<List<String>>() {
+				public List<String> call() throws Exception {
+					return reader.getCaseList(stagingFilename);
+				}
+			});
+		}
+
+		List<List<String>> caseLists = new ArrayList<List<String>>(filenames.size());
+		if (numThreads <= 1 || tasks.size() < 2) {
+			for (Callable<List<String>> task : tasks) {
+				caseLists.add(task.call());
+			}
+		}
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "case-list-sets");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			try {
+				for (Future<List<String>> future : executor.invokeAll(tasks)) {
+					caseLists.add(future.get());
+				}
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw (cause instanceof Exception) ? (Exception)cause : e;
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		// the dictionary is built in file order, so case lists do not depend on thread scheduling
+		for (int lc = 0; lc < filenames.size(); lc++) {
+			List<String> caseList = caseLists.get(lc);
+			if (caseList.isEmpty()) {
+				continue;
+			}
+			BitSet caseSet = new BitSet(caseIds.size() + caseList.size());
+			for (String caseId : caseList) {
+				Integer index = dictionary.get(caseId);
+				if (index == null) {
+					index = caseIds.size();
+					dictionary.put(caseId, index);
+					caseIds.add(caseId);
+				}
+				caseSet.set(index);
+			}
+			caseSets.put(filenames.get(lc), caseSet);
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("CaseListSets(), " + caseSets.size() + " of " + filenames.size() + " staging files have cases, " +
+					 caseIds.size() + " cases");
+		}
+	}
+
+	/**
+	 * Returns true if the given staging file has cases.
+	 *
+	 * @param stagingFilename String
+	 * @return boolean
+	 */
+	public boolean hasCases(String stagingFilename) {
+		return caseSets.containsKey(stagingFilename);
+	}
+
+	/**
+	 * Returns the cases in any of the given staging files.
+	 *
+	 * @param stagingFilenames String[]
+	 * @return List<String>
+	 */
+	public List<String> getUnion(String[] stagingFilenames) {
+
+		BitSet union = new BitSet(caseIds.size());
+		for (String stagingFilename : stagingFilenames) {
+			BitSet caseSet = caseSets.get(stagingFilename);
+			if (caseSet != null) {
+				union.or(caseSet);
+			}
+		}
+		return getCaseIds(union);
+	}
+
+	/**
+	 * Returns the cases in all of the given staging files,
+	 * an empty list if one of the files has no cases.
+	 *
+	 * @param stagingFilenames String[]
+	 * @return List<String>
+	 */
+	public List<String> getIntersection(String[] stagingFilenames) {
+
+		BitSet intersection = null;
+		for (String stagingFilename : stagingFilenames) {
+			BitSet caseSet = caseSets.get(stagingFilename);
+			if (caseSet == null) {
+				return new ArrayList<String>();
+			}
+			if (intersection == null) {
+				intersection = (BitSet)caseSet.clone();
+			}
+			else {
+				intersection.and(caseSet);
+			}
+		}
+		return (intersection == null) ? new ArrayList<String>() : getCaseIds(intersection);
+	}
+
+	private List<String> getCaseIds(BitSet caseSet) {
+
+		List<String> toReturn = new ArrayList<String>(caseSet.cardinality());
+		for (int index = caseSet.nextSetBit(0); index >= 0; index = caseSet.nextSetBit(index + 1)) {
+			toReturn.add(caseIds.get(index));
+		}
+		return toReturn;
+	}
+
+	/**
+	 * Returns true if every given staging file of the study exists, plain text
+	 * or compressed (an intersection case list needs all of them).
+	 *
+	 * @param studyDirectory File
+	 * @param stagingFilenames String[]
+	 * @return boolean
+	 */
+	public static boolean allStagingFilesExist(File studyDirectory, String[] stagingFilenames) {
+
+		for (String stagingFilename : stagingFilenames) {
+			if (!StagingUtils.resolveStagingFile(new File(studyDirectory, stagingFilename)).exists()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the case list of a staging file - the sample ids in the header, or
+	 * for a MAF, the sample ids in the Tumor_Sample_Barcode column (or the
+	 * sequenced samples meta header).  In strict mode only ids which are sample
+	 * ids are kept.  Each distinct id is checked once.
+	 *
+	 * @param stagingFile File
+	 * @param strict boolean
+	 * @param caseIDs CaseIDs
+	 * @param cancerStudyId int
+	 * @return List<String>
+	 * @throws Exception
+	 */
+	public static List<String> readCaseList(File stagingFile, boolean strict, CaseIDs caseIDs, int cancerStudyId) throws Exception {
+
+		// sanity check
+		if (!stagingFile.exists()) {
+			return new ArrayList<String>();
+		}
+
+		LinkedHashSet<String> caseSet = new LinkedHashSet<String>();
+		BufferedReader reader = new BufferedReader(StagingUtils.openStagingReader(stagingFile));
+		try {
+			int mafCaseIDColumnIndex = -1;
+			// MAF case id -> sample id, the empty string if the case id is not a sample id
+			Map<String, String> sampleIds = new HashMap<String, String>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("#")) {
+					if (line.startsWith("#" + Converter.MUTATION_CASE_LIST_META_HEADER + ":")) {
+						return Arrays.asList(line.substring(Converter.MUTATION_CASE_LIST_META_HEADER.length() + 2).trim().split("[ \t]+"));
+					}
+					continue;
+				}
+				String[] thisRow = line.split(Converter.VALUE_DELIMITER);
+				// header
+				if (mafCaseIDColumnIndex == -1) {
+					mafCaseIDColumnIndex = Arrays.asList(thisRow).indexOf(Converter.MUTATION_CASE_ID_COLUMN_HEADER);
+					// this is not a MAF file, header contains the case ids
+					if (mafCaseIDColumnIndex == -1) {
+						for (String potentialCaseID : thisRow) {
+							if (!strict || caseIDs.isSampleId(cancerStudyId, potentialCaseID) || caseIDs.isTruncatedTCGAPatientId(potentialCaseID)) {
+								// check to filter out column headers other than sample ids
+								if (Converter.NON_CASE_IDS.contains(potentialCaseID.toUpperCase())) {
+									continue;
+								}
+								caseSet.add(caseIDs.getSampleId(cancerStudyId, potentialCaseID));
+							}
+						}
+						break;
+					}
+					continue;
+				}
+				// MAF row, the value at mafCaseIDColumnIndex is a case ID
+				String potentialCaseID = thisRow[mafCaseIDColumnIndex];
+				String sampleId = sampleIds.get(potentialCaseID);
+				if (sampleId == null) {
+					sampleId = (!strict || caseIDs.isSampleId(cancerStudyId, potentialCaseID)) ?
+						caseIDs.getSampleId(cancerStudyId, potentialCaseID) : "";
+					sampleIds.put(potentialCaseID, sampleId);
+				}
+				if (sampleId.length() > 0) {
+					caseSet.add(sampleId);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		// outta here
+		return new ArrayList<String>(caseSet);
+	}
+}
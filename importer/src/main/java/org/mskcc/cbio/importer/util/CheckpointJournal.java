@@ -0,0 +1,245 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Append-only journal of completed pipeline units.  A unit is identified by
+ * (stage, study, datatype) and is recorded together with a digest of its output.
+ * When a run is restarted with the same journal, units which have been completed
+ * and whose output digest is unchanged can be skipped.
+ *
+ * A unit whose side effects cannot simply be redone (rows imported into the
+ * portal database) is marked started before it runs.  A unit started but never
+ * completed was interrupted, and whatever it left behind has to be cleaned up
+ * before the study is resumed, see isInterrupted().
+ *
+ * Each entry is synced to disk before markComplete() returns.  A torn last line
+ * (crash while appending) is discarded when the journal is reopened, see JournalFile.
+ * Output digests are computed with FileDigests.
+ */
+public class CheckpointJournal {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(CheckpointJournal.class);
+
+	// stages
+	public static final String CONVERT_STAGE = "convert_data";
+	public static final String IMPORT_STAGE = "import_data";
+	public static final String ANNOTATE_STAGE = "annotate_mafs";
+
+	// journal entry types
+	private static final String STARTED = "started";
+	private static final String DONE = "done";
+	private static final String RESET = "reset";
+	private static final String DELIMITER = JournalFile.DELIMITER;
+
+	// journal shared by the stages of a run, disabled unless set by Admin
+	private static CheckpointJournal instance = new CheckpointJournal();
+
+	// journal file, null if disabled
+	private JournalFile journalFile;
+
+	// (stage, study, datatype) -> digest
+	private Map<String, String> completed = new HashMap<String, String>();
+
+	// (stage, study, datatype) of units started but not completed
+	private Set<String> started = new HashSet<String>();
+
+	/**
+	 * Constructor for a disabled journal - nothing is recorded and
+	 * no unit is ever complete.
+	 */
+	public CheckpointJournal() {}
+
+	/**
+	 * Constructor.  Loads all entries of an existing journal file.
+	 *
+	 * @param journalFile File
+	 * @throws IOException
+	 */
+	public CheckpointJournal(File journalFile) throws IOException {
+
+		this.journalFile = new JournalFile(journalFile);
+		if (journalFile.exists()) {
+			load();
+		}
+		else if (journalFile.getAbsoluteFile().getParentFile() != null) {
+			journalFile.getAbsoluteFile().getParentFile().mkdirs();
+		}
+	}
+
+	public static synchronized CheckpointJournal getInstance() {
+		return instance;
+	}
+
+	public static synchronized void setInstance(CheckpointJournal journal) {
+		instance = (journal == null) ? new CheckpointJournal() : journal;
+	}
+
+	public boolean isEnabled() {
+		return (journalFile != null);
+	}
+
+	/**
+	 * Determines if the given unit has been completed with the given output digest.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @param datatype String
+	 * @param digest String
+	 * @return boolean
+	 */
+	public synchronized boolean isComplete(String stage, String study, String datatype, String digest) {
+
+		String recorded = completed.get(getKey(stage, study, datatype));
+		return (recorded != null && recorded.equals(digest));
+	}
+
+	/**
+	 * Determines if the given unit has been completed, regardless of its digest.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @param datatype String
+	 * @return boolean
+	 */
+	public synchronized boolean isComplete(String stage, String study, String datatype) {
+		return completed.containsKey(getKey(stage, study, datatype));
+	}
+
+	/**
+	 * Determines if a unit of the given stage & study has been started and
+	 * not completed since, i.e. the run was interrupted while it was running.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @return boolean
+	 */
+	public synchronized boolean isInterrupted(String stage, String study) {
+
+		String prefix = getKey(stage, study, "");
+		for (String key : started) {
+			if (key.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the given unit as started.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @param datatype String
+	 * @throws IOException
+	 */
+	public synchronized void markStarted(String stage, String study, String datatype) throws IOException {
+
+		if (!isEnabled()) {
+			return;
+		}
+		journalFile.append(STARTED, stage, study, datatype);
+		started.add(getKey(stage, study, datatype));
+	}
+
+	/**
+	 * Records the given unit as complete.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @param datatype String
+	 * @param digest String
+	 * @throws IOException
+	 */
+	public synchronized void markComplete(String stage, String study, String datatype, String digest) throws IOException {
+
+		if (!isEnabled()) {
+			return;
+		}
+		journalFile.append(DONE, stage, study, datatype, digest);
+		completed.put(getKey(stage, study, datatype), digest);
+		started.remove(getKey(stage, study, datatype));
+	}
+
+	/**
+	 * Forgets all started & completed units of the given stage & study, for example
+	 * when the output of the whole study has to be regenerated.
+	 *
+	 * @param stage String
+	 * @param study String
+	 * @throws IOException
+	 */
+	public synchronized void reset(String stage, String study) throws IOException {
+
+		if (!isEnabled()) {
+			return;
+		}
+		journalFile.append(RESET, stage, study);
+		removeStudy(stage, study);
+	}
+
+	private void load() throws IOException {
+
+		for (String[] parts : journalFile.load()) {
+			if (parts.length == 4 && parts[0].equals(STARTED)) {
+				started.add(getKey(parts[1], parts[2], parts[3]));
+			}
+			else if (parts.length == 5 && parts[0].equals(DONE)) {
+				completed.put(getKey(parts[1], parts[2], parts[3]), parts[4]);
+				started.remove(getKey(parts[1], parts[2], parts[3]));
+			}
+			else if (parts.length == 3 && parts[0].equals(RESET)) {
+				removeStudy(parts[1], parts[2]);
+			}
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("load(), " + completed.size() + " completed and " + started.size() +
+					 " interrupted units in journal: " + journalFile.getFile());
+		}
+	}
+
+	private void removeStudy(String stage, String study) {
+
+		String prefix = getKey(stage, study, "");
+		for (Iterator<String> it = completed.keySet().iterator(); it.hasNext(); ) {
+			if (it.next().startsWith(prefix)) {
+				it.remove();
+			}
+		}
+		for (Iterator<String> it = started.iterator(); it.hasNext(); ) {
+			if (it.next().startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	private String getKey(String stage, String study, String datatype) {
+		return stage + DELIMITER + study + DELIMITER + datatype;
+	}
+}
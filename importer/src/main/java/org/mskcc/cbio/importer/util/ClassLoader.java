@@ -19,20 +19,14 @@
 package org.mskcc.cbio.importer.util;
 
 // imports
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-
 import java.lang.reflect.Method;
-import java.lang.reflect.Constructor;
 
 /**
- * Class which provides class loader services.
+ * Class which provides class loader services.  Classes are resolved
+ * once, see ComponentRegistry.
  */
 public class ClassLoader {
 
-	// our logger
-	private static Log LOG = LogFactory.getLog(ClassLoader.class);
-
 	/**
 	 * Method to return the given class method (if it exists), null otherwise.
 	 * It assumes that there are no overloaded functions in the class.
@@ -42,39 +36,8 @@ public class ClassLoader {
 	 * @return Method
 	 */
 	public static Method getMethod(String className, String methodName) {
-
-		// sanity check
-		if (className == null || className.length() == 0) {
-			throw new IllegalArgumentException("className must not be null");
-		}
-		if (methodName == null || methodName.length() == 0) {
-			throw new IllegalArgumentException("methodName must not be null");
-		}
-
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("getMethod(), className:methodName " + className + ":" + methodName);
-		}
-		
-		Method toReturn = null;
-		try {
-			Class<?> clazz = Class.forName(className);
-			for (Method method : clazz.getMethods()) {
-				if (method.getName().equals(methodName)) {
-					toReturn = method;
-					break;
-				}
-			}
-		}
-		catch (Exception e) {
-			if (LOG.isInfoEnabled()) {
-				LOG.info("Cannot find class ormethod in class.");
-			}
-		}
-
-		// outta here
-		return toReturn;
+		return ComponentRegistry.getInstance().getMethod(className, methodName);
 	}
-	
 
 	/**
 	 * Creates a new instance of given class with given arguments.
@@ -85,33 +48,6 @@ public class ClassLoader {
 	 * @return Object
 	 */
 	public static Object getInstance(String className, Object[] args, boolean metadataClass) throws Exception {
-
-		// sanity check
-		if (className == null || className.length() == 0) {
-			throw new IllegalArgumentException("className must not be null");
-		}
-
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("getInstance(), className: " + className);
-		}
-
-		try {
-			Class<?> clazz = Class.forName(className);
-			Constructor constructor = null;
-			if (metadataClass) {
-				// metadata classes now have multiple constructors, use the String[] one.
-				constructor = clazz.getConstructor(new Class[]{String[].class});
-				return constructor.newInstance(args);
-			}
-			else {
-				Constructor[] constructors = clazz.getConstructors();
-				// all other classes only have the one constructor
-				return constructors[0].newInstance(args);
-			}
-		}
-		catch (Exception e) {
-			LOG.error(("Failed to instantiate " + className), e) ;
-			throw e;
-		}
+		return ComponentRegistry.getInstance().getInstance(className, args, metadataClass);
 	}
 }
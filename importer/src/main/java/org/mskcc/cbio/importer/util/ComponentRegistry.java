@@ -0,0 +1,316 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.mskcc.cbio.importer.Config;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.Fetcher;
+import org.mskcc.cbio.importer.Importer;
+import org.mskcc.cbio.importer.model.DatatypeMetadata;
+import org.mskcc.cbio.importer.model.ReferenceMetadata;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves converter, importer and fetcher classes by name.  Each class is
+ * looked up once, its constructors and public methods are kept so that
+ * creating instances and finding methods afterwards costs a map lookup.
+ *
+ * The class names configured in the datatype and reference metadata can be
+ * validated up front, see validate().
+ */
+public class ComponentRegistry {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(ComponentRegistry.class);
+
+	// reference data commands in this package are classes, all others are scripts (see Shell)
+	public static final String CLASS_PREFIX = "org.mskcc.cbio";
+
+	private static final ComponentRegistry INSTANCE = new ComponentRegistry();
+
+	/**
+	 * A resolved class.
+	 */
+	public static class Component {
+
+		private final Class<?> clazz;
+		// all other classes only have the one constructor
+		private final Constructor<?> constructor;
+		// metadata classes have multiple constructors, they use the String[] one
+		private final Constructor<?> metadataConstructor;
+		// public methods by name, there are no overloaded functions
+		private final Map<String, Method> methods;
+
+		Component(Class<?> clazz) {
+
+			this.clazz = clazz;
+
+			Constructor<?>[] constructors = clazz.getConstructors();
+			this.constructor = (constructors.length > 0) ? constructors[0] : null;
+
+			Constructor<?> metadataConstructor = null;
+			try {
+				metadataConstructor = clazz.getConstructor(new Class[] { String[].class });
+			}
+			catch (NoSuchMethodException e) {
+				// not a metadata class
+			}
+			this.metadataConstructor = metadataConstructor;
+
+			Map<String, Method> methods = new HashMap<String, Method>();
+			for (Method method : clazz.getMethods()) {
+				if (!methods.containsKey(method.getName())) {
+					methods.put(method.getName(), method);
+				}
+			}
+			this.methods = Collections.unmodifiableMap(methods);
+		}
+
+		public Class<?> getComponentClass() {
+			return clazz;
+		}
+
+		/**
+		 * Returns the public method with the given name, null if there is none.
+		 *
+		 * @param methodName String
+		 * @return Method
+		 */
+		public Method getMethod(String methodName) {
+			return methods.get(methodName);
+		}
+
+		/**
+		 * Creates a new instance with the given arguments.
+		 *
+		 * @param args Object[]
+		 * @param metadataClass boolean
+		 * @return Object
+		 * @throws Exception
+		 */
+		public Object newInstance(Object[] args, boolean metadataClass) throws Exception {
+
+			Constructor<?> toUse = (metadataClass) ? metadataConstructor : constructor;
+			if (toUse == null) {
+				throw new NoSuchMethodException(clazz.getName() + " has no public " +
+												((metadataClass) ? "String[] " : "") + "constructor");
+			}
+			return toUse.newInstance(args);
+		}
+	}
+
+	// class name -> component
+	private final Map<String, Component> components = new ConcurrentHashMap<String, Component>();
+
+	/**
+	 * Returns the process wide registry.
+	 *
+	 * @return ComponentRegistry
+	 */
+	public static ComponentRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	// package-private so tests can use their own registry
+	ComponentRegistry() {}
+
+	/**
+	 * Returns the component for the given class name, resolving it if necessary.
+	 *
+	 * @param className String
+	 * @return Component
+	 * @throws ClassNotFoundException
+	 */
+	public Component getComponent(String className) throws ClassNotFoundException {
+
+		// sanity check
+		if (className == null || className.length() == 0) {
+			throw new IllegalArgumentException("className must not be null");
+		}
+
+		Component toReturn = components.get(className);
+		if (toReturn == null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("getComponent(), resolving: " + className);
+			}
+			toReturn = new Component(Class.forName(className));
+			components.put(className, toReturn);
+		}
+
+		// outta here
+		return toReturn;
+	}
+
+	/**
+	 * Returns the given class method (if it exists), null otherwise.
+	 *
+	 * @param className String
+	 * @param methodName String
+	 * @return Method
+	 */
+	public Method getMethod(String className, String methodName) {
+
+		// sanity check
+		if (methodName == null || methodName.length() == 0) {
+			throw new IllegalArgumentException("methodName must not be null");
+		}
+
+		try {
+			return getComponent(className).getMethod(methodName);
+		}
+		catch (ClassNotFoundException e) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info("getMethod(), cannot find class: " + className);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a new instance of given class with given arguments.
+	 *
+	 * @param className String
+	 * @param args Object[]
+	 * @param metadataClass boolean
+	 * @return Object
+	 * @throws Exception
+	 */
+	public Object getInstance(String className, Object[] args, boolean metadataClass) throws Exception {
+
+		try {
+			return getComponent(className).newInstance(args, metadataClass);
+		}
+		catch (Exception e) {
+			LOG.error(("Failed to instantiate " + className), e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Determines if the given class implements the given interface.
+	 * Unknown classes (and scripts) do not.
+	 *
+	 * @param className String
+	 * @param iface Class
+	 * @return boolean
+	 */
+	public boolean isAssignableTo(String className, Class<?> iface) {
+
+		if (className == null || className.length() == 0) {
+			return false;
+		}
+		try {
+			return iface.isAssignableFrom(getComponent(className).getComponentClass());
+		}
+		catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Resolves all converter, importer and fetcher classes named in the
+	 * datatype and reference metadata of the given config.
+	 *
+	 * @param config Config
+	 * @return List<String> problems found, empty if all classes are usable
+	 */
+	public List<String> validate(Config config) {
+
+		List<String> toReturn = new ArrayList<String>();
+
+		for (DatatypeMetadata datatypeMetadata : config.getDatatypeMetadata(Config.ALL)) {
+			String datatype = "datatype " + datatypeMetadata.getDatatype();
+			String converterClassName = datatypeMetadata.getConverterClassName();
+			if (converterClassName != null && converterClassName.length() > 0) {
+				// instantiated by ConverterImpl
+				validateClass(toReturn, datatype + " converter", converterClassName, Converter.class, false);
+			}
+			String importerClassName = datatypeMetadata.getImporterClassName();
+			if (importerClassName != null && importerClassName.length() > 0) {
+				// main() is run by ImporterImpl and CancerStudyImporterImpl
+				validateClass(toReturn, datatype + " importer", importerClassName, null, true);
+			}
+		}
+
+		for (ReferenceMetadata referenceMetadata : config.getReferenceMetadata(Config.ALL)) {
+			String referenceType = "reference type " + referenceMetadata.getReferenceType();
+			String fetcherName = referenceMetadata.getFetcherName();
+			if (fetcherName != null && fetcherName.contains(CLASS_PREFIX)) {
+				validateClass(toReturn, referenceType + " fetcher", fetcherName, Fetcher.class, true);
+			}
+			String importerName = referenceMetadata.getImporterName();
+			if (importerName != null && importerName.contains(CLASS_PREFIX)) {
+				validateClass(toReturn, referenceType + " importer", importerName, Importer.class, true);
+			}
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("validate(), components resolved: " + components.size() + ", problems: " + toReturn.size());
+		}
+
+		// outta here
+		return toReturn;
+	}
+
+	/**
+	 * Checks that the given class exists and either implements the given
+	 * interface or (if allowed) has a main method.
+	 */
+	private void validateClass(List<String> problems, String description, String className,
+							   Class<?> iface, boolean mainAllowed) {
+
+		Component component;
+		try {
+			component = getComponent(className);
+		}
+		catch (ClassNotFoundException e) {
+			problems.add(description + ": cannot find class " + className);
+			return;
+		}
+		catch (LinkageError e) {
+			problems.add(description + ": cannot load class " + className + " (" + e + ")");
+			return;
+		}
+
+		if (mainAllowed && component.getMethod("main") != null) {
+			return;
+		}
+		if (iface != null && iface.isAssignableFrom(component.getComponentClass())) {
+			if (component.constructor == null) {
+				problems.add(description + ": " + className + " has no public constructor");
+			}
+			return;
+		}
+		problems.add(description + ": " + className +
+					 ((iface == null) ? " has no main method" :
+					  " does not implement " + iface.getSimpleName() + ((mainAllowed) ? " or have a main method" : "")));
+	}
+}
@@ -0,0 +1,305 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Content addressed store of downloaded files.  Files are stored once per
+ * MD5 digest (blob) - a byte identical file (e.g. the same archive under a
+ * new run date) is replaced by a hard link to the stored blob, or by a
+ * symbolic link if the store is on another file system.  The path of the
+ * replaced file does not change, so import data records remain valid.
+ *
+ * A linked path shares its contents with the blob, so downloads must be
+ * replaced (written to a temporary file and renamed) rather than rewritten
+ * in place.  Files are stored under the digest the caller verified them
+ * against, a blob is verified by digest before a file is linked to it.
+ *
+ * Every path which has been linked to a blob is recorded as a reference.
+ * A reference is live as long as the path still resolves to the blob, gc()
+ * removes blobs without live references.
+ */
+public class ContentStore {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(ContentStore.class);
+
+	private static final String REFS_SUFFIX = ".refs";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final Charset REFS_CHARSET = Charset.forName("UTF-8");
+
+	// root directory of the store, null if disabled
+	private File root;
+
+	/**
+	 * Constructor for a disabled store - files are left as is.
+	 */
+	public ContentStore() {}
+
+	/**
+	 * Constructor.  An empty directory name disables the store.
+	 *
+	 * @param directory String
+	 */
+	public ContentStore(String directory) {
+		this((directory == null || directory.trim().length() == 0) ?
+			 null : new File(MetadataUtils.getCanonicalPath(directory.trim())));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param root File
+	 */
+	public ContentStore(File root) {
+		this.root = root;
+	}
+
+	public boolean isEnabled() {
+		return (root != null);
+	}
+
+	/**
+	 * Stores the given file under the given digest.  If a blob with the same
+	 * digest is already stored, the file is replaced by a link to the blob,
+	 * otherwise the file becomes the blob.  A stored blob whose contents no
+	 * longer match its digest (rewritten through a link) is replaced by the file.
+	 *
+	 * @param file File
+	 * @param digest String MD5 digest the contents of the file have been verified against
+	 * @return boolean true if the file has been replaced by a link to an existing blob
+	 * @throws IOException
+	 */
+	public synchronized boolean store(File file, String digest) throws IOException {
+
+		if (!isEnabled()) {
+			return false;
+		}
+
+		Path path = file.getAbsoluteFile().toPath();
+		Path blob = getBlob(digest);
+		boolean deduplicated = false;
+
+		if (Files.exists(blob) && Files.isSameFile(path, blob)) {
+			addReference(blob, path);
+			return false;
+		}
+		if (Files.exists(blob) && !FileDigests.digest(blob.toFile()).equalsIgnoreCase(digest)) {
+			// its references were rewritten in place, they no longer resolve to the new blob
+			LOG.warn("store(), contents of " + blob + " do not match its digest, replacing it by " + path);
+			Files.delete(blob);
+		}
+
+		if (!Files.exists(blob)) {
+			Files.createDirectories(blob.getParent());
+			Path tmp = getTmpPath(blob);
+			if (createHardLink(tmp, path)) {
+				Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+			}
+			else {
+				// store is on another file system, move the file into the store
+				Files.move(path, tmp);
+				Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+				Files.createSymbolicLink(path, blob);
+			}
+		}
+		else {
+			// link next to the file, then replace the file atomically
+			Path tmp = getTmpPath(path);
+			if (!createHardLink(tmp, blob)) {
+				Files.createSymbolicLink(tmp, blob);
+			}
+			Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			deduplicated = true;
+		}
+
+		addReference(blob, path);
+		if (LOG.isInfoEnabled()) {
+			LOG.info("store(), " + ((deduplicated) ? "linked " : "stored ") + path + " -> " + blob);
+		}
+
+		return deduplicated;
+	}
+
+	/**
+	 * Returns the number of live references to the blob with the given digest.
+	 *
+	 * @param digest String
+	 * @return int
+	 * @throws IOException
+	 */
+	public synchronized int getReferenceCount(String digest) throws IOException {
+
+		if (!isEnabled()) {
+			return 0;
+		}
+		Path blob = getBlob(digest);
+		return (Files.exists(blob)) ? getLiveReferences(blob).size() : 0;
+	}
+
+	/**
+	 * Removes stale references and deletes blobs without live references.
+	 *
+	 * @return long number of bytes released
+	 * @throws IOException
+	 */
+	public synchronized long gc() throws IOException {
+
+		if (!isEnabled() || !root.exists()) {
+			return 0;
+		}
+
+		long released = 0;
+		int deleted = 0;
+		for (File directory : listFiles(root)) {
+			for (File file : listFiles(directory)) {
+				Path blob = file.toPath();
+				String name = file.getName();
+				if (name.endsWith(TMP_SUFFIX)) {
+					// left over from an interrupted store()
+					Files.deleteIfExists(blob);
+				}
+				else if (!name.endsWith(REFS_SUFFIX)) {
+					Set<String> references = getLiveReferences(blob);
+					if (references.isEmpty()) {
+						released += Files.size(blob);
+						Files.delete(blob);
+						Files.deleteIfExists(getRefsPath(blob));
+						++deleted;
+					}
+					else {
+						writeReferences(blob, references);
+					}
+				}
+			}
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("gc(), deleted " + deleted + " blobs, released " + released + " bytes");
+		}
+
+		return released;
+	}
+
+	/**
+	 * Returns the blob path of the given digest - blobs are spread
+	 * over directories by the first two digest characters.
+	 *
+	 * @param digest String
+	 * @return Path
+	 */
+	Path getBlob(String digest) {
+
+		String key = digest.trim().toLowerCase();
+		if (key.length() < 3 || !key.matches("[0-9a-f]+")) {
+			throw new IllegalArgumentException("ContentStore: invalid digest: " + digest);
+		}
+		return root.toPath().resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private void addReference(Path blob, Path path) throws IOException {
+
+		Set<String> references = readReferences(blob);
+		if (references.add(path.toString())) {
+			Files.write(getRefsPath(blob), Collections.singletonList(path.toString()), REFS_CHARSET,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+	}
+
+	private Set<String> getLiveReferences(Path blob) throws IOException {
+
+		Set<String> toReturn = new LinkedHashSet<String>();
+		for (String reference : readReferences(blob)) {
+			Path path = Paths.get(reference);
+			// a reference is stale once its path has been deleted or rewritten
+			if (Files.exists(path) && Files.isSameFile(path, blob)) {
+				toReturn.add(reference);
+			}
+		}
+		return toReturn;
+	}
+
+	private Set<String> readReferences(Path blob) throws IOException {
+
+		Path refs = getRefsPath(blob);
+		Set<String> toReturn = new LinkedHashSet<String>();
+		if (Files.exists(refs)) {
+			for (String line : Files.readAllLines(refs, REFS_CHARSET)) {
+				if (line.length() > 0) {
+					toReturn.add(line);
+				}
+			}
+		}
+		return toReturn;
+	}
+
+	private void writeReferences(Path blob, Set<String> references) throws IOException {
+
+		Path refs = getRefsPath(blob);
+		Path tmp = getTmpPath(refs);
+		Files.write(tmp, references, REFS_CHARSET);
+		Files.move(tmp, refs, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private boolean createHardLink(Path link, Path existing) throws IOException {
+
+		try {
+			Files.createLink(link, existing);
+			return true;
+		}
+		catch (UnsupportedOperationException e) {
+			return false;
+		}
+		catch (FileSystemException e) {
+			// cross device links are reported as a plain FileSystemException
+			if (e instanceof FileAlreadyExistsException) {
+				throw e;
+			}
+			if (LOG.isInfoEnabled()) {
+				LOG.info("createHardLink(), cannot link " + link + " -> " + existing + ": " + e.getMessage());
+			}
+			return false;
+		}
+	}
+
+	private Path getRefsPath(Path blob) {
+		return blob.resolveSibling(blob.getFileName() + REFS_SUFFIX);
+	}
+
+	private Path getTmpPath(Path path) throws IOException {
+
+		Path tmp = path.resolveSibling(path.getFileName() + TMP_SUFFIX);
+		Files.deleteIfExists(tmp);
+		return tmp;
+	}
+
+	private File[] listFiles(File directory) {
+
+		File[] files = directory.listFiles();
+		return (files == null) ? new File[0] : files;
+	}
+}
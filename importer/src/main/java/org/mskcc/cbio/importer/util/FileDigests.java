@@ -0,0 +1,103 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.*;
+import java.util.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * (Hex) MD5 digests of files, as recorded by the checkpoint journal, the
+ * annotation & distribution manifests and the content store.
+ */
+public class FileDigests {
+
+	private FileDigests() {}
+
+	/**
+	 * Computes the digest of the contents of the given file.
+	 *
+	 * @param file File
+	 * @return String
+	 * @throws IOException
+	 */
+	public static String digest(File file) throws IOException {
+
+		MessageDigest md = newMessageDigest();
+		update(md, file);
+		return new String(Hex.encodeHex(md.digest()));
+	}
+
+	/**
+	 * Computes a digest over the names and contents of the given files.
+	 * Missing files are part of the digest, so a deleted file does
+	 * not match the digest computed when it existed.
+	 *
+	 * @param files Collection<File>
+	 * @return String
+	 * @throws IOException
+	 */
+	public static String digest(Collection<File> files) throws IOException {
+
+		List<File> sorted = new ArrayList<File>(files);
+		Collections.sort(sorted);
+
+		MessageDigest md = newMessageDigest();
+		for (File file : sorted) {
+			md.update((file.getName() + "\0").getBytes("UTF-8"));
+			if (!file.exists()) {
+				md.update((byte)0);
+				continue;
+			}
+			update(md, file);
+			md.update((byte)1);
+		}
+
+		return new String(Hex.encodeHex(md.digest()));
+	}
+
+	private static MessageDigest newMessageDigest() throws IOException {
+
+		try {
+			return MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void update(MessageDigest md, File file) throws IOException {
+
+		byte[] buffer = new byte[64 * 1024];
+		InputStream is = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				md.update(buffer, 0, read);
+			}
+		}
+		finally {
+			is.close();
+		}
+	}
+}
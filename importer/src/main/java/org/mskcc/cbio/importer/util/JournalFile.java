@@ -0,0 +1,133 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * An append-only file of tab delimited entries, one per line, as used by the
+ * checkpoint journal and the annotation & distribution manifests.
+ *
+ * Each entry is synced to disk before append() returns.  A torn last line
+ * (crash while appending) is discarded, and truncated, when the file is loaded.
+ */
+public class JournalFile {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(JournalFile.class);
+
+	public static final String DELIMITER = "\t";
+
+	private final File file;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file File
+	 */
+	public JournalFile(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public boolean exists() {
+		return file.exists();
+	}
+
+	/**
+	 * Returns the fields of all complete entries, in order of appending.
+	 * Returns an empty list if the file does not exist.
+	 *
+	 * @return List<String[]>
+	 * @throws IOException
+	 */
+	public synchronized List<String[]> load() throws IOException {
+
+		List<String[]> toReturn = new ArrayList<String[]>();
+		if (!file.exists()) {
+			return toReturn;
+		}
+
+		byte[] bytes = org.apache.commons.io.FileUtils.readFileToByteArray(file);
+
+		// everything after the last newline is a torn write
+		int end = bytes.length;
+		while (end > 0 && bytes[end-1] != '\n') {
+			end--;
+		}
+		if (end < bytes.length) {
+			if (LOG.isInfoEnabled()) {
+				LOG.info("load(), discarding incomplete entry at the end of: " + file);
+			}
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(end);
+			}
+			finally {
+				raf.close();
+			}
+		}
+
+		if (end > 0) {
+			for (String line : new String(bytes, 0, end, "UTF-8").split("\n")) {
+				toReturn.add(line.split(DELIMITER, -1));
+			}
+		}
+
+		// outta here
+		return toReturn;
+	}
+
+	/**
+	 * Appends an entry of the given fields.  Delimiters and newlines
+	 * within a field are replaced by spaces.
+	 *
+	 * @param fields String...
+	 * @throws IOException
+	 */
+	public synchronized void append(String... fields) throws IOException {
+
+		StringBuilder line = new StringBuilder();
+		for (String field : fields) {
+			if (line.length() > 0) {
+				line.append(DELIMITER);
+			}
+			line.append(field.replace(DELIMITER, " ").replace("\n", " "));
+		}
+		line.append("\n");
+
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write(line.toString().getBytes("UTF-8"));
+			out.flush();
+			out.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+	}
+}
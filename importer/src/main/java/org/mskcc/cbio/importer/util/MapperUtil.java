@@ -21,11 +21,13 @@ package org.mskcc.cbio.importer.util;
 // imports
 import org.mskcc.cbio.importer.IDMapper;
 import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.StreamingDataMatrix;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.List;
+import java.util.ListIterator;
 
 /**
  * Class which provides mapping utility services.
@@ -74,6 +76,38 @@ public class MapperUtil {
 		doMapping(dataMatrix, idMapper, geneSymbolColumnName, geneIDColumnName, MappingDirection.SYMBOL_TO_ID);
 	}
 
+	/**
+	 * Same as mapGeneIDToSymbol(DataMatrix...), but rows
+	 * are mapped as they are read from the given matrix.
+	 *
+	 * @param dataMatrix StreamingDataMatrix
+	 * @param idMapper IDMapper
+	 * @param geneIDColumnName String
+	 * @param geneSymbolColumnName String
+	 * @throws Exception
+	 */
+	public static void mapGeneIDToSymbol(StreamingDataMatrix dataMatrix, IDMapper idMapper,
+										 String geneIDColumnName, String geneSymbolColumnName) throws Exception {
+
+		doMapping(dataMatrix, idMapper, geneIDColumnName, geneSymbolColumnName, MappingDirection.ID_TO_SYMBOL);
+	}
+
+	/**
+	 * Same as mapGeneSymbolToID(DataMatrix...), but rows
+	 * are mapped as they are read from the given matrix.
+	 *
+	 * @param dataMatrix StreamingDataMatrix
+	 * @param idMapper IDMapper
+	 * @param geneIDColumnName String
+	 * @param geneSymbolColumnName String
+	 * @throws Exception
+	 */
+	public static void mapGeneSymbolToID(StreamingDataMatrix dataMatrix, IDMapper idMapper,
+										 String geneIDColumnName, String geneSymbolColumnName) throws Exception {
+
+		doMapping(dataMatrix, idMapper, geneSymbolColumnName, geneIDColumnName, MappingDirection.SYMBOL_TO_ID);
+	}
+
 	/**
 	 * Helper function for public interface.
 	 *
@@ -93,48 +127,89 @@ public class MapperUtil {
 		List<String> targetColumnData = dataMatrix.getColumnData(targetColumnName).get(0);
 
 		// do the mapping, ignore rows that are missing id's
-		for (int lc = 0; lc < srcColumnData.size(); lc++) {
-			String src = srcColumnData.get(lc);
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("doMapping(), src: " + src);
-			}
-			if (src == "") {
+		// (columns are linked lists, walk them rather than index them)
+		ListIterator<String> targetIt = targetColumnData.listIterator();
+		int lc = 0;
+		for (String src : srcColumnData) {
+			String target = map(src, idMapper, mappingDirection);
+			if (target == "") {
 				if (LOG.isDebugEnabled()) {
-					LOG.debug("doMapping(), src is empty, ignoring row: " + lc);
+					LOG.debug("doMapping(), ignoring row: " + lc);
 				}
 				dataMatrix.ignoreRow(lc, true);
-				try {
-					targetColumnData.set(lc, UNKNOWN_ID_SYMBOL);
-				}
-				catch(IndexOutOfBoundsException e) {
-					targetColumnData.add(UNKNOWN_ID_SYMBOL);
-				}
-				continue;
+				target = UNKNOWN_ID_SYMBOL;
 			}
-			String target = (mappingDirection == MappingDirection.SYMBOL_TO_ID) ?
-				idMapper.symbolToEntrezID(src) : idMapper.entrezIDToSymbol(src);
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("doMapping(), target: " + target);
+			if (targetIt.hasNext()) {
+				targetIt.next();
+				targetIt.set(target);
 			}
-			if (target == "") {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("doMapping(), cannot find target for src: " + src + ", ignoring row: " + lc);
-				}
-				dataMatrix.ignoreRow(lc, true);
-				try {
-					targetColumnData.set(lc, UNKNOWN_ID_SYMBOL);
-				}
-				catch(IndexOutOfBoundsException e) {
-					targetColumnData.add(UNKNOWN_ID_SYMBOL);
-				}
-				continue;
+			else {
+				targetIt.add(target);
 			}
-			try {
-				targetColumnData.set(lc, target);
+			++lc;
+		}
+	}
+
+	/**
+	 * Helper function for public interface.
+	 *
+	 * @param dataMatrix StreamingDataMatrix
+	 * @param idMapper IDMapper
+	 * @param srcColumnName String
+	 * @param targetColumnName String
+	 * @param mappingDirection MappingDirectory
+	 * @throws Exception
+	 */
+	private static void doMapping(StreamingDataMatrix dataMatrix, final IDMapper idMapper,
+								  String srcColumnName, String targetColumnName,
+								  final MappingDirection mappingDirection) throws Exception {
+
+		final int srcColumnIndex = dataMatrix.getColumnIndex(srcColumnName);
+		final int targetColumnIndex = dataMatrix.getColumnIndex(targetColumnName);
+		if (srcColumnIndex < 0 || targetColumnIndex < 0) {
+			throw new IllegalArgumentException("doMapping(), column not found: " +
+											   ((srcColumnIndex < 0) ? srcColumnName : targetColumnName));
+		}
+
+		dataMatrix.addRowTransformer(new StreamingDataMatrix.RowTransformer() {
+				public boolean transform(List<String> rowData) throws Exception {
+					String target = map(rowData.get(srcColumnIndex), idMapper, mappingDirection);
+					rowData.set(targetColumnIndex, (target == "") ? UNKNOWN_ID_SYMBOL : target);
+					return (target != "");
+				}
+			});
+	}
+
+	/**
+	 * Maps the given src, returns "" if the src is empty or cannot be mapped.
+	 *
+	 * @param src String
+	 * @param idMapper IDMapper
+	 * @param mappingDirection MappingDirectory
+	 * @return String
+	 * @throws Exception
+	 */
+	private static String map(String src, IDMapper idMapper, MappingDirection mappingDirection) throws Exception {
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("doMapping(), src: " + src);
+		}
+		if (src == "") {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("doMapping(), src is empty");
 			}
-			catch(IndexOutOfBoundsException e) {
-				targetColumnData.add(target);
+			return src;
+		}
+		String target = (mappingDirection == MappingDirection.SYMBOL_TO_ID) ?
+			idMapper.symbolToEntrezID(src) : idMapper.entrezIDToSymbol(src);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("doMapping(), target: " + target);
+		}
+		if (target == "") {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("doMapping(), cannot find target for src: " + src);
 			}
 		}
+		return target;
 	}
 }
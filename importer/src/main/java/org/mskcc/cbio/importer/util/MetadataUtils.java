@@ -21,6 +21,7 @@ package org.mskcc.cbio.importer.util;
 // imports
 import org.mskcc.cbio.importer.*;
 import org.mskcc.cbio.importer.model.*;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
 import org.mskcc.cbio.portal.model.ClinicalAttribute;
 import org.mskcc.cbio.portal.scripts.ImportClinicalData;
 
@@ -111,15 +112,16 @@ public class MetadataUtils {
 	{
         Set<String> unknownAttributes = new HashSet<String>();
 		List<Boolean> headersWithMissingMetadata = new ArrayList<Boolean>();
+        Map<String, ClinicalAttributesMetadata> clinicalAttributesMetadata = getClinicalAttributesMetadata(config, normalizedColumnHeaderNames);
 
         int lc = -1;
         for (String columnHeader : normalizedColumnHeaderNames) {
-            Collection<ClinicalAttributesMetadata> metadata = config.getClinicalAttributesMetadata(columnHeader.toUpperCase());
-            if (!metadata.isEmpty() && !metadata.iterator().next().missingAttributes()) {
+            ClinicalAttributesMetadata metadata = clinicalAttributesMetadata.get(columnHeader);
+            if (metadata != null && !metadata.missingAttributes()) {
                 headersWithMissingMetadata.add(++lc, false);
             }
             else {
-                if (metadata.isEmpty()) {
+                if (metadata == null) {
                     unknownAttributes.add(columnHeader);
                 }
             	headersWithMissingMetadata.add(++lc, (!supplyDefaultClinicalAttributeValues));
@@ -148,37 +150,100 @@ public class MetadataUtils {
     private static Map <String, ClinicalAttributesMetadata> getClinicalAttributesMetadata(Config config, List<String> normalizedColumnHeaderNames, boolean supplyDefaultClinicalAttributeValues, String stagingFile)
             throws IOException, FileNotFoundException
     {
-        Map<String, ClinicalAttributesMetadata> toReturn = new HashMap<String, ClinicalAttributesMetadata>();
+        Map<String, ClinicalAttributesMetadata> toReturn = getClinicalAttributesMetadata(config, normalizedColumnHeaderNames);
 
-        Reader reader;
-        reader = new FileReader(Paths.get(stagingFile).toFile());
-        CSVParser parser = new CSVParser(reader, CSVFormat.TDF.withHeader());
-        List<CSVRecord> records = parser.getRecords();
+        if (supplyDefaultClinicalAttributeValues) {
+            Set<String> unknownColumnHeaders = new LinkedHashSet<String>();
+            for (String columnHeader : normalizedColumnHeaderNames) {
+                if (!toReturn.containsKey(columnHeader)) {
+                    unknownColumnHeaders.add(columnHeader);
+                }
+            }
+            if (!unknownColumnHeaders.isEmpty()) {
+                Map<String, String> dataTypes = detectDataTypeOfUnknownClinicalAttributes(stagingFile, unknownColumnHeaders);
+                for (String columnHeader : unknownColumnHeaders) {
+                    String[] properties = new String[] { columnHeader, columnHeader, columnHeader, dataTypes.get(columnHeader), "PATIENT", "1"};
+                    ClinicalAttributesMetadata m = new ClinicalAttributesMetadata(properties);
+                    toReturn.put(columnHeader, m);
+                }
+            }
+        }
+        return toReturn;
+    }
 
-        for (String columnHeader : normalizedColumnHeaderNames) {
-            Collection<ClinicalAttributesMetadata> metadata = config.getClinicalAttributesMetadata(columnHeader.toUpperCase());
-            if (!metadata.isEmpty()) {
-                toReturn.put(columnHeader, metadata.iterator().next());
+    /**
+     * Looks up the metadata of the given column headers with a single configuration
+     * lookup. Column headers without metadata are not in the returned map.
+     */
+    private static Map<String, ClinicalAttributesMetadata> getClinicalAttributesMetadata(Config config, Collection<String> normalizedColumnHeaderNames)
+    {
+        // first metadata object for each normalized column header, as getClinicalAttributesMetadata(String)
+        Map<String, ClinicalAttributesMetadata> allMetadata = new HashMap<String, ClinicalAttributesMetadata>();
+        for (ClinicalAttributesMetadata metadata : config.getClinicalAttributesMetadata(Config.ALL)) {
+            if (!allMetadata.containsKey(metadata.getNormalizedColumnHeader())) {
+                allMetadata.put(metadata.getNormalizedColumnHeader(), metadata);
             }
-            else if (supplyDefaultClinicalAttributeValues) {
-                String[] properties = new String[] { columnHeader, columnHeader, columnHeader, detectDataTypeOfUnkownClinicalAttribute(records, columnHeader), "PATIENT", "1"};
-                ClinicalAttributesMetadata m = new ClinicalAttributesMetadata(properties);
-                toReturn.put(columnHeader, m);
+        }
+
+        Map<String, ClinicalAttributesMetadata> toReturn = new HashMap<String, ClinicalAttributesMetadata>();
+        for (String columnHeader : normalizedColumnHeaderNames) {
+            ClinicalAttributesMetadata metadata = allMetadata.get(columnHeader.toUpperCase());
+            if (metadata != null) {
+                toReturn.put(columnHeader, metadata);
             }
         }
         return toReturn;
     }
 
-    private static String detectDataTypeOfUnkownClinicalAttribute(List<CSVRecord> records, String columnHeader) {
-        String dataType = "NUMBER";
-        for (CSVRecord record : records) {
-            if (record.isConsistent() && StringUtils.isNotEmpty(record.get(columnHeader)) &&
-                (!NumberUtils.isNumber(record.get(columnHeader)))) {
-                dataType = "STRING";
-                break;
+    /**
+     * Detects the data type (NUMBER or STRING) of the given columns in a single pass over
+     * the staging file.  A column is a NUMBER until a consistent record has a non empty,
+     * non numeric value in it.  Reading stops once all columns are STRING.
+     */
+    private static Map<String, String> detectDataTypeOfUnknownClinicalAttributes(String stagingFile, Collection<String> columnHeaders)
+        throws IOException
+    {
+        Reader reader = StagingUtils.openStagingReader(Paths.get(stagingFile).toFile());
+        try {
+            CSVParser parser = new CSVParser(reader, CSVFormat.TDF.withHeader());
+            Map<String, Integer> headerMap = parser.getHeaderMap();
+
+            // record indices of the columns still considered NUMBER, columns
+            // missing from the staging file have no values and stay NUMBER
+            List<String> numberColumns = new ArrayList<String>();
+            List<Integer> numberColumnIndices = new ArrayList<Integer>();
+            for (String columnHeader : columnHeaders) {
+                if (headerMap != null && headerMap.containsKey(columnHeader)) {
+                    numberColumns.add(columnHeader);
+                    numberColumnIndices.add(headerMap.get(columnHeader));
+                }
             }
+
+            Set<String> stringColumns = new HashSet<String>();
+            Iterator<CSVRecord> records = parser.iterator();
+            while (!numberColumns.isEmpty() && records.hasNext()) {
+                CSVRecord record = records.next();
+                if (!record.isConsistent()) {
+                    continue;
+                }
+                for (int lc = numberColumns.size() - 1; lc >= 0; lc--) {
+                    String value = record.get(numberColumnIndices.get(lc));
+                    if (StringUtils.isNotEmpty(value) && !NumberUtils.isNumber(value)) {
+                        stringColumns.add(numberColumns.remove(lc));
+                        numberColumnIndices.remove(lc);
+                    }
+                }
+            }
+
+            Map<String, String> toReturn = new HashMap<String, String>();
+            for (String columnHeader : columnHeaders) {
+                toReturn.put(columnHeader, stringColumns.contains(columnHeader) ? "STRING" : "NUMBER");
+            }
+            return toReturn;
+        }
+        finally {
+            reader.close();
         }
-        return dataType;
     }
 
     private static String addClinicalDataHeader(List<String> normalizedColumnHeaderNames,
@@ -187,10 +252,10 @@ public class MetadataUtils {
     {
         StringBuilder header = new StringBuilder();
         header.append(ImportClinicalData.METADATA_PREFIX);
+        Method m = ClinicalAttributesMetadata.class.getMethod(metadataAccessor);
         for (String columnHeader : normalizedColumnHeaderNames) {
             ClinicalAttributesMetadata metadata = clinicalAttributesMetadata.get(columnHeader);
             if (metadata != null && !metadata.missingAttributes()) {
-                Method m = clinicalAttributesMetadata.get(columnHeader).getClass().getMethod(metadataAccessor);
                 header.append((String)m.invoke(metadata) + ImportClinicalData.DELIMITER);
             }
             else {
@@ -48,7 +48,6 @@ public class MutationFileUtil
 {
 	private static final String KNOWN_ONCOTATOR_HEADER = "ONCOTATOR_VARIANT_CLASSIFICATION";
     private static final String KNOWN_ANNOTATOR_HEADER = "HGVSp_Short";
-	private static final ApplicationContext context = new ClassPathXmlApplicationContext(Admin.contextFile);
     private static final Logger logger = Logger.getLogger(MutationFileUtil.class);
 
 
@@ -72,31 +71,37 @@ public class MutationFileUtil
 
 	public static boolean isEmpty(String filename) throws Exception
 	{
-		File file = new File(filename);
-		FileUtils fileUtils = (FileUtils)MutationFileUtil.context.getBean("fileUtils");
-		LineIterator it = fileUtils.getFileContents(FileUtils.FILE_URL_PREFIX + file.getCanonicalPath());
-		String line = it.next();
-		while (line.startsWith("#")) {
-			line = it.next();
+		LineIterator it = org.apache.commons.io.FileUtils.lineIterator(new File(filename));
+		try {
+			// skip comments, we are pointing to file header then
+			String line = it.hasNext() ? it.next() : null;
+			while (line != null && line.startsWith("#")) {
+				line = it.hasNext() ? it.next() : null;
+			}
+			return (line == null || !it.hasNext());
+		}
+		finally {
+			it.close();
+		}
+	}
+
+	// reads the header line only, no application context required
+	public static String[] getColumnHeaders(String fileName) throws Exception
+	{
+		LineIterator it = org.apache.commons.io.FileUtils.lineIterator(new File(fileName));
+		try {
+			while (it.hasNext()) {
+				String line = it.next();
+				if (!line.startsWith("#")) {
+					return line.split("\t");
+				}
+			}
+			return new String[0];
+		}
+		finally {
+			it.close();
 		}
-		// we are pointing to file header now
-		boolean toReturn = !it.hasNext();
-		it.close();
-		return toReturn;
 	}
-        
-        public static String[] getColumnHeaders(String fileName) throws Exception {
-            File file = new File(fileName);
-            FileUtils fileUtils = (FileUtils)MutationFileUtil.context.getBean("fileUtils");
-            LineIterator it = fileUtils.getFileContents(FileUtils.FILE_URL_PREFIX + file.getCanonicalPath());
-            String line = it.next();
-            while (line.startsWith("#")) {
-                line = it.next();
-            }
-            String[] columnHeaders = line.split("\t");
-            it.close();
-            return columnHeaders;
-        }
 
 	public static File[] sanitizeMAF(String mafFilename) throws Exception
 	{
@@ -104,8 +109,7 @@ public class MutationFileUtil
         if (isAnnotated(mafFilename) || isEmpty(mafFilename)) {
             return null;
         }
-        
-		FileUtils fileUtils = (FileUtils)MutationFileUtil.context.getBean("fileUtils");
+
         File mafFile = new File(mafFilename);
         File sanitizedFile = org.apache.commons.io.FileUtils.getFile(
                 org.apache.commons.io.FileUtils.getTempDirectory(),
@@ -124,7 +128,7 @@ public class MutationFileUtil
 		return toReturn;
 	}
 	
-    public static String getAnnotatedFile(String stagingFilename) throws Exception
+    public static String getAnnotatedFile(FileUtils fileUtils, String stagingFilename) throws Exception
     {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(stagingFilename),"A staging file name is required");
 
@@ -133,7 +137,6 @@ public class MutationFileUtil
         }
 
         File stagingFile = new File(stagingFilename);
-		FileUtils fileUtils = (FileUtils)MutationFileUtil.context.getBean("fileUtils");
         File tmpMAF = org.apache.commons.io.FileUtils.getFile(org.apache.commons.io.FileUtils.getTempDirectory(),
                 "" + System.currentTimeMillis() + ".tmpMAF");
 
@@ -146,7 +149,9 @@ public class MutationFileUtil
     public static void main (String...args) {
         String mafFile = "/tmp/annotator_out.maf";
         try {
-            System.out.println("Output = " +MutationFileUtil.getAnnotatedFile(mafFile));
+            ApplicationContext context = new ClassPathXmlApplicationContext(Admin.contextFile);
+            FileUtils fileUtils = (FileUtils)context.getBean("fileUtils");
+            System.out.println("Output = " +MutationFileUtil.getAnnotatedFile(fileUtils, mafFile));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,258 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The override files to apply to a staging area.  Overrides are planned first
+ * (directories, like case_lists, are expanded into their files) and then applied
+ * on a pool of threads.
+ *
+ * A staging file whose contents already match its override is left alone.  Otherwise
+ * the override is hard linked into the staging area, or copied if it cannot be linked
+ * (another file system), under a temporary name which is renamed over the staging file.
+ * A hard linked staging file shares its contents with the override file, so staging
+ * files must be replaced rather than rewritten in place.
+ */
+public class OverridePlan {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(OverridePlan.class);
+
+	/**
+	 * How an override was applied.
+	 */
+	public enum Action { LINKED, COPIED, SKIPPED }
+
+	// override file -> staging file, in order of planning
+	private final Map<File, File> overrides = new LinkedHashMap<File, File>();
+
+	/**
+	 * Adds the given override file (or the files of the given override directory)
+	 * to the plan.  Missing override files are ignored.
+	 *
+	 * @param overrideFile File
+	 * @param stagingFile File
+	 */
+	public void add(File overrideFile, File stagingFile) {
+
+		if (overrideFile.isDirectory()) {
+			File[] files = overrideFile.listFiles();
+			if (files != null) {
+				Arrays.sort(files);
+				for (File file : files) {
+					add(file, new File(stagingFile, file.getName()));
+				}
+			}
+		}
+		else if (overrideFile.isFile()) {
+			overrides.put(overrideFile, stagingFile);
+		}
+	}
+
+	public int size() {
+		return overrides.size();
+	}
+
+	/**
+	 * Applies the planned overrides.
+	 *
+	 * @param numThreads int
+	 * @param hardLinks boolean if false, overrides are always copied
+	 * @return Map<Action, Integer> number of overrides by action
+	 * @throws Exception
+	 */
+	public Map<Action, Integer> apply(int numThreads, final boolean hardLinks) throws Exception {
+
+		List<Callable<Action>> tasks = new ArrayList<Callable<Action>>(overrides.size());
+		for (final Map.Entry<File, File> override : overrides.entrySet()) {
+			tasks.add(new Callable<Action>() {
+				public Action call() throws Exception {
+					return apply(override.getKey(), override.getValue(), hardLinks);
+				}
+			});
+		}
+
+		List<Action> actions = new ArrayList<Action>(tasks.size());
+		if (numThreads <= 1 || tasks.size() < 2) {
+			for (Callable<Action> task : tasks) {
+				actions.add(task.call());
+			}
+		}
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "override-plan");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			try {
+				for (Future<Action> future : executor.invokeAll(tasks)) {
+					actions.add(future.get());
+				}
+			}
+			catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw (cause instanceof Exception) ? (Exception)cause : e;
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		Map<Action, Integer> toReturn = new EnumMap<Action, Integer>(Action.class);
+		for (Action action : Action.values()) {
+			toReturn.put(action, 0);
+		}
+		for (Action action : actions) {
+			toReturn.put(action, toReturn.get(action) + 1);
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("apply(), " + overrides.size() + " overrides: " + toReturn);
+		}
+
+		// outta here
+		return toReturn;
+	}
+
+	/**
+	 * Applies a single override file.
+	 *
+	 * @param overrideFile File
+	 * @param stagingFile File
+	 * @param hardLink boolean
+	 * @return Action
+	 * @throws IOException
+	 */
+	static Action apply(File overrideFile, File stagingFile, boolean hardLink) throws IOException {
+
+		if (isCurrent(overrideFile, stagingFile)) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("apply(), staging file is current: " + stagingFile);
+			}
+			return Action.SKIPPED;
+		}
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("apply(), override file exists for " + stagingFile.getCanonicalPath() + ": " +
+					 overrideFile.getCanonicalPath());
+		}
+
+		File directory = stagingFile.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Cannot create directory: " + directory);
+		}
+		File tmpFile = File.createTempFile("." + stagingFile.getName() + ".", ".tmp", directory);
+		try {
+			Action toReturn = Action.COPIED;
+			if (hardLink && link(overrideFile, tmpFile)) {
+				toReturn = Action.LINKED;
+			}
+			else {
+				copy(overrideFile, tmpFile);
+			}
+			Files.move(tmpFile.toPath(), stagingFile.toPath(),
+					   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return toReturn;
+		}
+		finally {
+			if (tmpFile.exists()) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the staging file has the contents of the override file.
+	 */
+	private static boolean isCurrent(File overrideFile, File stagingFile) throws IOException {
+
+		if (!stagingFile.isFile() || stagingFile.length() != overrideFile.length()) {
+			return false;
+		}
+		// already linked
+		if (Files.isSameFile(overrideFile.toPath(), stagingFile.toPath())) {
+			return true;
+		}
+		return FileDigests.digest(overrideFile).equals(FileDigests.digest(stagingFile));
+	}
+
+	/**
+	 * Replaces the given (temporary) file by a hard link to the source file.
+	 * Returns false if the file system does not support it, or the files are on
+	 * different file systems.
+	 */
+	private static boolean link(File sourceFile, File linkFile) throws IOException {
+
+		linkFile.delete();
+		try {
+			Files.createLink(linkFile.toPath(), sourceFile.toPath());
+			return true;
+		}
+		catch (IOException e) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("link(), cannot link " + sourceFile + ", copying: " + e);
+			}
+		}
+		catch (UnsupportedOperationException e) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("link(), cannot link " + sourceFile + ", copying: " + e);
+			}
+		}
+		// placeholder for the copy
+		linkFile.createNewFile();
+		return false;
+	}
+
+	private static void copy(File sourceFile, File destinationFile) throws IOException {
+
+		FileInputStream in = new FileInputStream(sourceFile);
+		try {
+			FileOutputStream out = new FileOutputStream(destinationFile);
+			try {
+				FileChannel source = in.getChannel();
+				FileChannel destination = out.getChannel();
+				long size = source.size();
+				long position = 0;
+				while (position < size) {
+					position += source.transferTo(position, size - position, destination);
+				}
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+		destinationFile.setLastModified(sourceFile.lastModified());
+	}
+}
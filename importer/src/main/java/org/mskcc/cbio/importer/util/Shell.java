@@ -22,6 +22,9 @@ package org.mskcc.cbio.importer.util;
 import org.mskcc.cbio.importer.Fetcher;
 import org.mskcc.cbio.importer.Importer;
 import org.mskcc.cbio.importer.model.ReferenceMetadata;
+import org.mskcc.cbio.process.ProcessCommand;
+import org.mskcc.cbio.process.ProcessExecutor;
+import org.mskcc.cbio.process.ProcessResult;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -118,7 +121,7 @@ public class Shell {
 	}
 
 	/**
-	 * Executes the given command via java ProcessBuilder.
+	 * Executes the given command via the shared process executor.
 	 *
 	 * @param command List<String>
 	 * @param workingDirectory String
@@ -132,15 +135,13 @@ public class Shell {
 		}
        
 		try {
-			ProcessBuilder processBuilder = new ProcessBuilder(command);
-			processBuilder.directory(new File(workingDirectory));
-			Process process = processBuilder.start();
-			StreamSink stdoutSink = new StreamSink(process.getInputStream());
-			StreamSink stderrSink = new StreamSink(process.getErrorStream());
-			stdoutSink.start();
-			stderrSink.start();
-			process.waitFor();
-			return process.exitValue() == 0;
+			ProcessCommand processCommand = new ProcessCommand(command);
+			processCommand.setDirectory(new File(workingDirectory));
+			ProcessResult result = ProcessExecutor.getInstance().execute(processCommand);
+			if (!result.isSuccess() && LOG.isInfoEnabled()) {
+				LOG.info("exec(), exit code: " + result.getExitCode() + ", error output: " + result.getError());
+			}
+			return result.isSuccess();
         }
 		catch (Exception e) {
 			if (LOG.isInfoEnabled()) {
@@ -0,0 +1,443 @@
+/** Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+// package
+package org.mskcc.cbio.importer.util;
+
+// imports
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Computes expression z-scores, in process, the way NormalizeExpressionLevels does.
+ * The z-score of a gene in a sample is relative to the expression of the gene in the
+ * samples in which it is diploid (copy number 0).  Genes not in the copy number file,
+ * with fewer than minNumDiploids diploid values or without variation are left out.
+ * Without a copy number file all samples are the reference.  Samples with the normal
+ * sample suffix are left out.
+ *
+ * The copy number file is kept in memory as a diploid mask per gene, and reused for every
+ * expression file of a study.  The expression file is streamed in blocks of rows, which are
+ * parsed and normalized in parallel and written in order.
+ */
+public class ZScoreCalculator {
+
+	// our logger
+	private static final Log LOG = LogFactory.getLog(ZScoreCalculator.class);
+
+	public static final String COPY_NUMBER_DIPLOID = "0";
+	public static final String NOT_AVAILABLE = "NA";
+	public static final String TCGA_NORMAL_SUFFIX = "-11";
+	public static final int DEFAULT_MIN_NUM_DIPLOIDS = 10;
+
+	// rows normalized by a single task
+	private static final int ROWS_PER_TASK = 256;
+	private static final int DECIMALS = 10000;
+
+	/**
+	 * The diploid samples of every gene of a copy number file.
+	 */
+	static class CopyNumberProfile {
+
+		private final File file;
+		private final long length;
+		private final long lastModified;
+		private final boolean byEntrezID;
+
+		// sample -> position in diploid masks
+		private final Map<String, Integer> samples = new HashMap<String, Integer>();
+		// gene -> diploid mask
+		private final Map<String, boolean[]> diploids = new HashMap<String, boolean[]>();
+
+		CopyNumberProfile(File file) throws IOException {
+
+			this.file = file.getCanonicalFile();
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+
+			BufferedReader reader = new BufferedReader(StagingUtils.openStagingReader(file));
+			try {
+				String line = reader.readLine();
+				if (line == null) {
+					throw new IllegalArgumentException("copy number file is empty: " + file);
+				}
+				String[] header = line.split(Converter.VALUE_DELIMITER, -1);
+				int firstSample = getFirstSampleColumn(header);
+				int idColumn = getIDColumn(header, firstSample);
+				this.byEntrezID = header[idColumn].equalsIgnoreCase(Converter.GENE_ID_COLUMN_HEADER_NAME);
+				for (int lc = firstSample; lc < header.length; lc++) {
+					samples.put(header[lc], lc - firstSample);
+				}
+				int numSamples = header.length - firstSample;
+				while ((line = reader.readLine()) != null) {
+					String[] values = line.split(Converter.VALUE_DELIMITER, -1);
+					if (values.length <= idColumn) {
+						continue;
+					}
+					boolean[] diploid = new boolean[numSamples];
+					for (int lc = firstSample; lc < values.length && lc < header.length; lc++) {
+						diploid[lc - firstSample] = values[lc].equals(COPY_NUMBER_DIPLOID);
+					}
+					diploids.put(values[idColumn], diploid);
+				}
+			}
+			finally {
+				reader.close();
+			}
+
+			if (LOG.isInfoEnabled()) {
+				LOG.info("CopyNumberProfile(), " + diploids.size() + " genes, " + samples.size() + " samples: " + file);
+			}
+		}
+
+		boolean isCurrent(File file) throws IOException {
+			return (this.file.equals(file.getCanonicalFile()) &&
+					length == file.length() && lastModified == file.lastModified());
+		}
+
+		Integer getSamplePosition(String sample) { return samples.get(sample); }
+		boolean[] getDiploids(String gene) { return diploids.get(gene); }
+		boolean isByEntrezID() { return byEntrezID; }
+	}
+
+	private final int numThreads;
+	private final int minNumDiploids;
+
+	// last copy number profile read
+	private CopyNumberProfile copyNumberProfile;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numThreads int
+	 */
+	public ZScoreCalculator(int numThreads) {
+		this(numThreads, DEFAULT_MIN_NUM_DIPLOIDS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numThreads int
+	 * @param minNumDiploids int
+	 */
+	public ZScoreCalculator(int numThreads, int minNumDiploids) {
+		this.numThreads = Math.max(1, numThreads);
+		this.minNumDiploids = minNumDiploids;
+	}
+
+	/**
+	 * Writes the z-scores of the given expression file (relative to the diploid
+	 * samples of the given copy number file, which may be null) to the given stream.
+	 * Both files may be compressed staging files.  The stream is not closed.
+	 *
+	 * @param copyNumberFile File
+	 * @param expressionFile File
+	 * @param normalSampleSuffix String
+	 * @param out OutputStream
+	 * @return int number of genes written
+	 * @throws IOException
+	 */
+	public int computeZScores(File copyNumberFile, File expressionFile, String normalSampleSuffix, OutputStream out) throws IOException {
+
+		final CopyNumberProfile profile = (copyNumberFile != null && copyNumberFile.exists()) ?
+			getCopyNumberProfile(copyNumberFile) : null;
+
+		BufferedReader reader = new BufferedReader(StagingUtils.openStagingReader(expressionFile));
+		ExecutorService executor = null;
+		try {
+			String line = reader.readLine();
+			if (line == null) {
+				throw new IllegalArgumentException("expression file is empty: " + expressionFile);
+			}
+
+			// header - id columns and all samples but normals
+			String[] header = line.split(Converter.VALUE_DELIMITER, -1);
+			int firstSample = getFirstSampleColumn(header);
+			final int idColumn = (profile == null) ? getIDColumn(header, firstSample) :
+				getColumn(header, (profile.isByEntrezID()) ? Converter.GENE_ID_COLUMN_HEADER_NAME :
+						  Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, firstSample);
+			List<Integer> columns = new ArrayList<Integer>();
+			List<Integer> profilePositions = new ArrayList<Integer>();
+			StringBuilder headerLine = new StringBuilder();
+			for (int lc = 0; lc < header.length; lc++) {
+				if (lc >= firstSample) {
+					if (normalSampleSuffix != null && header[lc].endsWith(normalSampleSuffix)) {
+						continue;
+					}
+					columns.add(lc);
+					Integer position = (profile != null) ? profile.getSamplePosition(header[lc]) : null;
+					profilePositions.add((position == null) ? -1 : position);
+				}
+				if (headerLine.length() > 0) {
+					headerLine.append(Converter.VALUE_DELIMITER);
+				}
+				headerLine.append(header[lc]);
+			}
+			final int numIDColumns = firstSample;
+			final int[] sampleColumns = toArray(columns);
+			final int[] samplePositions = toArray(profilePositions);
+
+			Writer writer = new OutputStreamWriter(out, "UTF-8");
+			writer.write(headerLine.append("\n").toString());
+
+			// blocks of rows, at most 2 blocks per thread in flight
+			executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "zscore-calculator");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			LinkedList<Future<Block>> pending = new LinkedList<Future<Block>>();
+			int numGenes = 0;
+			int numRows = 0;
+			boolean done = false;
+			while (!done) {
+				final List<String> lines = new ArrayList<String>(ROWS_PER_TASK);
+				while (lines.size() < ROWS_PER_TASK && (line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+				done = (lines.size() < ROWS_PER_TASK);
+				numRows += lines.size();
+				if (!lines.isEmpty()) {
+					pending.add(executor.submit(new Callable<Block>() {
+						public Block call() {
+							return normalize(lines, profile, idColumn, numIDColumns, sampleColumns, samplePositions);
+						}
+					}));
+				}
+				while (!pending.isEmpty() && (done || pending.size() > numThreads * 2)) {
+					Block block = get(pending.removeFirst());
+					writer.write(block.text.toString());
+					numGenes += block.numGenes;
+				}
+			}
+			writer.flush();
+
+			if (LOG.isInfoEnabled()) {
+				LOG.info("computeZScores(), " + numGenes + " of " + numRows + " genes, " + sampleColumns.length +
+						 " samples: " + expressionFile);
+			}
+			return numGenes;
+		}
+		finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the profile of the given copy number file, which is only read if
+	 * it is not the file read last.
+	 */
+	synchronized CopyNumberProfile getCopyNumberProfile(File copyNumberFile) throws IOException {
+
+		if (copyNumberProfile == null || !copyNumberProfile.isCurrent(copyNumberFile)) {
+			copyNumberProfile = null;
+			copyNumberProfile = new CopyNumberProfile(copyNumberFile);
+		}
+		return copyNumberProfile;
+	}
+
+	/**
+	 * Output of a block of rows.
+	 */
+	private static class Block {
+		private final StringBuilder text = new StringBuilder();
+		private int numGenes;
+	}
+
+	private Block normalize(List<String> lines, CopyNumberProfile profile, int idColumn, int numIDColumns,
+							int[] sampleColumns, int[] samplePositions) {
+
+		Block block = new Block();
+		int numSamples = sampleColumns.length;
+		double[] values = new double[numSamples];
+		for (String line : lines) {
+			String[] row = line.split(Converter.VALUE_DELIMITER, -1);
+			if (row.length <= idColumn) {
+				continue;
+			}
+			boolean[] diploids = null;
+			if (profile != null) {
+				diploids = profile.getDiploids(row[idColumn]);
+				if (diploids == null) {
+					continue;
+				}
+			}
+
+			// mean and (sample) standard deviation of the reference values
+			int count = 0;
+			double sum = 0;
+			for (int lc = 0; lc < numSamples; lc++) {
+				values[lc] = (sampleColumns[lc] < row.length) ? parse(row[sampleColumns[lc]]) : Double.NaN;
+				if (!Double.isNaN(values[lc]) && isReference(diploids, samplePositions[lc])) {
+					sum += values[lc];
+					count++;
+				}
+			}
+			if (count < minNumDiploids || count < 2) {
+				continue;
+			}
+			double mean = sum / count;
+			double squares = 0;
+			for (int lc = 0; lc < numSamples; lc++) {
+				if (!Double.isNaN(values[lc]) && isReference(diploids, samplePositions[lc])) {
+					double deviation = values[lc] - mean;
+					squares += deviation * deviation;
+				}
+			}
+			double sd = Math.sqrt(squares / (count - 1));
+			if (sd == 0) {
+				continue;
+			}
+
+			StringBuilder text = block.text;
+			for (int lc = 0; lc < numIDColumns; lc++) {
+				text.append(row[lc]).append(Converter.VALUE_DELIMITER);
+			}
+			for (int lc = 0; lc < numSamples; lc++) {
+				if (Double.isNaN(values[lc])) {
+					text.append(NOT_AVAILABLE);
+				}
+				else {
+					appendFixed(text, (values[lc] - mean) / sd);
+				}
+				text.append((lc < numSamples - 1) ? Converter.VALUE_DELIMITER : "\n");
+			}
+			block.numGenes++;
+		}
+
+		// outta here
+		return block;
+	}
+
+	private static boolean isReference(boolean[] diploids, int samplePosition) {
+		return (diploids == null) || (samplePosition >= 0 && samplePosition < diploids.length && diploids[samplePosition]);
+	}
+
+	private static double parse(String value) {
+		if (value.length() == 0 || value.equals(NOT_AVAILABLE)) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(value);
+		}
+		catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Appends the given value with 4 decimals, as String.format("%.4f") does.
+	 */
+	static void appendFixed(StringBuilder text, double value) {
+
+		if (Double.isInfinite(value) || Math.abs(value) >= Long.MAX_VALUE / DECIMALS) {
+			text.append(String.format(Locale.US, "%.4f", value));
+			return;
+		}
+		long scaled = Math.round(Math.abs(value) * DECIMALS);
+		if (value < 0) {
+			text.append('-');
+		}
+		text.append(scaled / DECIMALS).append('.');
+		String decimals = Long.toString(scaled % DECIMALS);
+		for (int lc = decimals.length(); lc < 4; lc++) {
+			text.append('0');
+		}
+		text.append(decimals);
+	}
+
+	/**
+	 * Returns the first sample column - the columns before it are gene symbol and/or id.
+	 */
+	private static int getFirstSampleColumn(String[] header) {
+
+		int lc = 0;
+		while (lc < header.length && (header[lc].equalsIgnoreCase(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME) ||
+									  header[lc].equalsIgnoreCase(Converter.GENE_ID_COLUMN_HEADER_NAME))) {
+			lc++;
+		}
+		if (lc == 0) {
+			throw new IllegalArgumentException("missing " + Converter.GENE_SYMBOL_COLUMN_HEADER_NAME +
+											   " or " + Converter.GENE_ID_COLUMN_HEADER_NAME + " column");
+		}
+		return lc;
+	}
+
+	/**
+	 * Returns the column which identifies genes, entrez id if there is one.
+	 */
+	private static int getIDColumn(String[] header, int firstSample) {
+
+		for (int lc = 0; lc < firstSample; lc++) {
+			if (header[lc].equalsIgnoreCase(Converter.GENE_ID_COLUMN_HEADER_NAME)) {
+				return lc;
+			}
+		}
+		return 0;
+	}
+
+	private static int getColumn(String[] header, String columnName, int firstSample) {
+
+		for (int lc = 0; lc < firstSample; lc++) {
+			if (header[lc].equalsIgnoreCase(columnName)) {
+				return lc;
+			}
+		}
+		throw new IllegalArgumentException("genes of the copy number file are identified by " + columnName +
+										   ", missing in expression file");
+	}
+
+	private static int[] toArray(List<Integer> list) {
+
+		int[] toReturn = new int[list.size()];
+		for (int lc = 0; lc < toReturn.length; lc++) {
+			toReturn[lc] = list.get(lc);
+		}
+		return toReturn;
+	}
+
+	private static Block get(Future<Block> future) throws IOException {
+
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("computeZScores(), interrupted");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
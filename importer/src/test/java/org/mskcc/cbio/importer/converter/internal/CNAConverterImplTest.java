@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.converter.internal;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.IDMapper;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.StreamingDataMatrix;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mskcc.cbio.importer.converter.internal.ConverterFixtures.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * Golden output tests of CNAConverterImpl: a small fixture with its expected
+ * staging file, and random gistic like fixtures for which the streamed
+ * conversion has to write the same staging file as the in memory one.
+ */
+@RunWith(JUnit4.class)
+public class CNAConverterImplTest {
+
+    private static final int NUM_TRIALS = 10;
+    private static final int NUM_ROWS = 400;
+    private static final int NUM_CASES = 30;
+
+    @Test
+    public void testGoldenOutput() throws Exception {
+
+        String[] lines = {
+            "Gene Symbol\tLocus ID\tCytoband\tTCGA-A1-A0SB-01A-11D-A141-01\tTCGA-A1-A0SD-10A-11D-A141-01\tTCGA-A1-A0SE-01A-11D-A141-01",
+            "GENE1\t1\t17p13.1\t-1\t0\t-2",
+            "UNKNOWN2\t2\t1p36.33\t1\t0\t0",
+            "GENE3\t3\t7p11.2\t2\t0\t1",
+            "\t4\t7p11.2\t0\t0\t0" };
+        String expected = "Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-A0SB-01\tTCGA-A1-A0SE-01\n" +
+                          "GENE1\t1\t-1\t-2\n" +
+                          "GENE3\t3\t2\t1\n";
+
+        assertEquals(expected, convert(lines));
+        assertEquals(expected, convertStreaming(lines));
+    }
+
+    @Test
+    public void testStreamingMatchesInMemory() throws Exception {
+
+        Random random = new Random(1);
+        for (int trial = 0; trial < NUM_TRIALS; trial++) {
+            String[] lines = cnaFile(random);
+            assertEquals("trial " + trial, convert(lines), convertStreaming(lines));
+        }
+    }
+
+    private String convert(String[] lines) throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CNAConverterImpl converter = new CNAConverterImpl(null, stagingFileUtils(out), caseIDs(), idMapper());
+        converter.createStagingFile(portal(), null, datatype("cna-gistic", CNAConverterImpl.class),
+                                    new DataMatrix[] { matrix(caseIDs(), lines) });
+        return out.toString("UTF-8");
+    }
+
+    private String convertStreaming(String[] lines) throws Exception {
+
+        StringBuilder data = new StringBuilder();
+        for (String line : lines) {
+            data.append(line).append('\n');
+        }
+        StreamingDataMatrix dataMatrix = new StreamingDataMatrix("fixture.txt",
+                                                                 new ByteArrayInputStream(data.toString().getBytes("UTF-8")),
+                                                                 caseIDs());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            CNAConverterImpl converter = new CNAConverterImpl(null, stagingFileUtils(out), caseIDs(), idMapper());
+            converter.createStreamingStagingFile(portal(), null, datatype("cna-gistic", CNAConverterImpl.class), dataMatrix);
+        }
+        finally {
+            dataMatrix.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * A gistic like CNA file with unknown and missing gene symbols,
+     * normal samples, an unlabelled column and short rows.
+     */
+    private String[] cnaFile(Random random) {
+        List<String> lines = new ArrayList<String>();
+        StringBuilder builder = new StringBuilder("Gene Symbol\tLocus ID\tCytoband");
+        for (int lc = 0; lc < NUM_CASES; lc++) {
+            builder.append('\t').append(String.format("TCGA-A1-%04d-%s-11D-A141-01", lc, (lc % 7 == 0) ? "10A" : "01A"));
+        }
+        lines.add(builder.append('\t').toString());
+
+        for (int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++) {
+            String symbol = (rowIndex % 13 == 0) ? "" : (rowIndex % 17 == 0) ? "UNKNOWN" + rowIndex : "GENE" + rowIndex;
+            builder = new StringBuilder(symbol).append('\t').append(rowIndex).append("\t1p36.33");
+            int numCases = (rowIndex % 11 == 0) ? NUM_CASES / 2 : NUM_CASES;
+            for (int lc = 0; lc < numCases; lc++) {
+                builder.append('\t').append(random.nextInt(5) - 2);
+            }
+            lines.add(builder.toString());
+        }
+
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Tumor samples (01) only, abbreviated to 15 characters.
+     */
+    private CaseIDs caseIDs() {
+        CaseIDs caseIDs = mock(CaseIDs.class);
+        when(caseIDs.isSampleId(anyString())).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) {
+                String caseID = (String)invocation.getArguments()[0];
+                return caseID.startsWith("TCGA-") && caseID.length() >= 15 && caseID.substring(13, 15).equals("01");
+            }
+        });
+        when(caseIDs.getSampleId(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                return ((String)invocation.getArguments()[0]).substring(0, 15);
+            }
+        });
+        return caseIDs;
+    }
+
+    /**
+     * Maps GENE<n> to <n>, other symbols are not found.
+     */
+    private IDMapper idMapper() throws Exception {
+        IDMapper idMapper = mock(IDMapper.class);
+        when(idMapper.symbolToEntrezID(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                String geneSymbol = (String)invocation.getArguments()[0];
+                return (geneSymbol.startsWith("GENE")) ? geneSymbol.substring(4) : "";
+            }
+        });
+        return idMapper;
+    }
+}
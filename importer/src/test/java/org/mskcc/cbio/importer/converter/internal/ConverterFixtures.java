@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.converter.internal;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.FileUtils;
+import org.mskcc.cbio.importer.model.CancerStudyMetadata;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.DataMatrixWriter;
+import org.mskcc.cbio.importer.model.DatatypeMetadata;
+import org.mskcc.cbio.importer.model.PortalMetadata;
+import org.mskcc.cbio.importer.model.StreamingDataMatrix;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Fixture metadata, matrices and mocks shared by the converter golden output tests.
+ */
+class ConverterFixtures {
+
+    static PortalMetadata portal() {
+        return new PortalMetadata(new String[] { "triage-portal", "/tmp/staging", "/tmp/override",
+                                                 "http://localhost/seg", "http://localhost/portal.war" });
+    }
+
+    static DatatypeMetadata datatype(String datatype, Class converterClass) {
+        return new DatatypeMetadata(new String[] { datatype, "true", "true", "", "", "data_" + datatype + ".txt",
+                                                   converterClass.getName(), "", "false", "", "", "", "",
+                                                   "false", "", "" });
+    }
+
+    /**
+     * A DataMatrix of the given tab delimited lines, the first being the header.
+     */
+    static DataMatrix matrix(CaseIDs caseIDs, String... lines) {
+        List<LinkedList<String>> rowData = new ArrayList<LinkedList<String>>();
+        for (int lc = 1; lc < lines.length; lc++) {
+            rowData.add(new LinkedList<String>(Arrays.asList(lines[lc].split("\t", -1))));
+        }
+        return new DataMatrix("fixture.txt", rowData, Arrays.asList(lines[0].split("\t", -1)), caseIDs);
+    }
+
+    /**
+     * A FileUtils which writes every staging file, streamed or not, to the given stream.
+     */
+    static FileUtils stagingFileUtils(final OutputStream out) throws Exception {
+        FileUtils fileUtils = mock(FileUtils.class);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((DataMatrix)invocation.getArguments()[3]).write(out);
+                return null;
+            }
+        }).when(fileUtils).writeStagingFile(anyString(), any(CancerStudyMetadata.class),
+                                            any(DatatypeMetadata.class), any(DataMatrix.class));
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                new DataMatrixWriter().write((StreamingDataMatrix)invocation.getArguments()[3], out);
+                return null;
+            }
+        }).when(fileUtils).writeStreamingStagingFile(anyString(), any(CancerStudyMetadata.class),
+                                                     any(DatatypeMetadata.class), any(StreamingDataMatrix.class));
+        return fileUtils;
+    }
+}
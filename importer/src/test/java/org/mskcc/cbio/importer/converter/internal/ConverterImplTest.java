@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.converter.internal;
+
+import org.mskcc.cbio.importer.model.ImportDataRecord;
+import org.mskcc.cbio.importer.util.CheckpointJournal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Tests the checkpoint journal keys of ConverterImpl conversions.
+ */
+@RunWith(JUnit4.class)
+public class ConverterImplTest {
+
+    private static final String CONVERTER = "org.mskcc.cbio.importer.converter.internal.CNAConverterImpl";
+
+    private File workDir;
+    private File stagingFile;
+
+    @Before
+    public void setUp() throws IOException {
+
+        workDir = File.createTempFile("converter_impl_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+        stagingFile = new File(workDir, "data_CNA.txt");
+        org.apache.commons.io.FileUtils.writeStringToFile(stagingFile, "Hugo_Symbol\tS1\nTP53\t0\n", "UTF-8");
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testInputDigest() throws Exception {
+
+        String inputDigest = ConverterImpl.getInputDigest(CONVERTER, records("aaa", "bbb"));
+        assertEquals(inputDigest, ConverterImpl.getInputDigest(CONVERTER, records("aaa", "bbb")));
+        assertFalse(inputDigest.equals(ConverterImpl.getInputDigest(CONVERTER, records("aaa", "ccc"))));
+        assertFalse(inputDigest.equals(ConverterImpl.getInputDigest(CONVERTER, records("aaa"))));
+        assertFalse(inputDigest.equals(ConverterImpl.getInputDigest(CONVERTER + "2", records("aaa", "bbb"))));
+    }
+
+    @Test
+    public void testChangedInputIsReconverted() throws Exception {
+
+        File journalFile = new File(workDir, "journal.txt");
+        List<File> stagingFiles = Arrays.asList(stagingFile);
+        String conversionDigest = ConverterImpl.getConversionDigest(ConverterImpl.getInputDigest(CONVERTER, records("aaa", "bbb")),
+                                                                    stagingFiles);
+        new CheckpointJournal(journalFile).markComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "cna", conversionDigest);
+
+        // same inputs and unchanged staging file - skipped
+        CheckpointJournal journal = new CheckpointJournal(journalFile);
+        assertTrue(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "cna",
+                                      ConverterImpl.getConversionDigest(ConverterImpl.getInputDigest(CONVERTER, records("aaa", "bbb")),
+                                                                        stagingFiles)));
+
+        // a new download of an input, staging file unchanged - reconverted
+        assertFalse(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "cna",
+                                       ConverterImpl.getConversionDigest(ConverterImpl.getInputDigest(CONVERTER, records("aaa", "ccc")),
+                                                                         stagingFiles)));
+
+        // another converter of the datatype - reconverted
+        assertFalse(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "cna",
+                                       ConverterImpl.getConversionDigest(ConverterImpl.getInputDigest(CONVERTER + "2", records("aaa", "bbb")),
+                                                                         stagingFiles)));
+    }
+
+    private List<ImportDataRecord> records(String... digests) {
+
+        List<ImportDataRecord> toReturn = new ArrayList<ImportDataRecord>();
+        for (int lc = 0; lc < digests.length; lc++) {
+            toReturn.add(new ImportDataRecord("firehose", "broad", "brca", "brca_tcga", "cna", "20130401",
+                                              "/tmp/download/brca/cna_" + lc + ".tar.gz", digests[lc], "all_thresholded.by_genes.txt"));
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.converter.internal;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.model.DataMatrix;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mskcc.cbio.importer.converter.internal.ConverterFixtures.*;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Golden output tests of GisticGenesConverterImpl on fixture
+ * amp_genes.conf_99.txt / table_amp.conf_99.txt files.
+ */
+@RunWith(JUnit4.class)
+public class GisticGenesConverterImplTest {
+
+    // two peaks share a cytoband, the last column has a blank gene cell
+    private static final String[] GENES_CONF = {
+        "cytoband\t1q21.3\t8q24.21\t12p12.1\t8q24.21\t17q12",
+        "q value\t1.2e-10\t3.4e-08\t0.0012\t0.05\t0.2",
+        "residual q value\t1.2e-10\t3.4e-08\t0.0012\t0.05\t0.2",
+        "wide peak boundaries\tchr1:150000-151000\tchr8:128000-129000\tchr12:25000-26000\tchr8:129500-130000\tchr17:37800-37900",
+        "genes in wide peak\tMCL1\tMYC\tKRAS\tPVT1\tERBB2",
+        "\tADAMTSL4\t\tLRMP\t\t",
+        "\tENSA\t\tCASC1\t\tGRB7" };
+
+    private static final String TABLE_CONF_HEADER = "index\tchromosome\tregion_start\tregion_end\tn_genes_in_region\tgenes_in_region";
+
+    private static final String[] TABLE_CONF = {
+        TABLE_CONF_HEADER,
+        "1\t1\t150000\t151000\t3\tMCL1,ADAMTSL4,ENSA,",
+        "2\t8\t128000\t129000\t1\tMYC,",
+        "3\t12\t25000\t26000\t3\tKRAS,LRMP,CASC1,",
+        // no peak
+        "4\t5\t1000\t2000\t1\tTERT,",
+        "5\t8\t129500\t130000\t1\tPVT1,",
+        "6\t17\t37800\t37900\t2\tERBB2,GRB7" };
+
+    private static final String JOINED_HEADER = TABLE_CONF_HEADER + "\tamp\tcytoband\tq_value\n";
+
+    @Test
+    public void testGoldenOutput() throws Exception {
+
+        assertEquals(JOINED_HEADER +
+                     "1\t1\t150000\t151000\t3\tMCL1,ADAMTSL4,ENSA,\t1\t1q21.3\t1.2e-10\n" +
+                     "2\t8\t128000\t129000\t1\tMYC,\t1\t8q24.21\t3.4e-08\n" +
+                     "3\t12\t25000\t26000\t3\tKRAS,LRMP,CASC1,\t1\t12p12.1\t0.0012\n" +
+                     "5\t8\t129500\t130000\t1\tPVT1,\t1\t8q24.21\t0.05\n" +
+                     "6\t17\t37800\t37900\t2\tERBB2,GRB7\t1\t17q12\t0.2\n",
+                     convert("gistic-genes-amp", matrix(GENES_CONF), matrix(TABLE_CONF)));
+    }
+
+    @Test
+    public void testDeletionsInEitherOrder() throws Exception {
+
+        String[] genesConf = {
+            "cytoband\t9p21.3\t10q23.31",
+            "q value\t1e-50\t2.5e-07",
+            "residual q value\t1e-50\t2.5e-07",
+            "wide peak boundaries\tchr9:21900000-22000000\tchr10:89600000-89700000",
+            "genes in wide peak\tCDKN2A\tPTEN",
+            "\tCDKN2B\t" };
+        String[] tableConf = {
+            TABLE_CONF_HEADER,
+            "1\t9\t21900000\t22000000\t2\tCDKN2A,CDKN2B,",
+            "2\t10\t89600000\t89700000\t1\tPTEN," };
+        String expected = JOINED_HEADER +
+            "1\t9\t21900000\t22000000\t2\tCDKN2A,CDKN2B,\t0\t9p21.3\t1e-50\n" +
+            "2\t10\t89600000\t89700000\t1\tPTEN,\t0\t10q23.31\t2.5e-07\n";
+
+        assertEquals(expected, convert("gistic-genes-del", matrix(genesConf), matrix(tableConf)));
+        assertEquals(expected, convert("gistic-genes-del", matrix(tableConf), matrix(genesConf)));
+    }
+
+    @Test
+    public void testCorruptGenesConf() throws Exception {
+
+        String[] genesConf = {
+            "cytoband\t1q21.3",
+            "residual q value\t1.2e-10",
+            "genes in wide peak\tMCL1" };
+
+        assertEquals("", convert("gistic-genes-amp", matrix(genesConf), matrix(TABLE_CONF)));
+    }
+
+    private String convert(String datatype, DataMatrix first, DataMatrix second) throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GisticGenesConverterImpl converter = new GisticGenesConverterImpl(null, stagingFileUtils(out), mock(CaseIDs.class), null);
+        converter.createStagingFile(portal(), null, datatype(datatype, GisticGenesConverterImpl.class),
+                                    new DataMatrix[] { first, second });
+        return out.toString("UTF-8");
+    }
+
+    private DataMatrix matrix(String... lines) {
+        return ConverterFixtures.matrix(mock(CaseIDs.class), lines);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.converter.internal;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.IDMapper;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.util.MapperUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mskcc.cbio.importer.converter.internal.ConverterFixtures.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * Golden output tests of MethylationConverterImpl: a small fixture with its
+ * expected staging file, and random fixtures checked against the staging file
+ * produced by the original (string based) probe selection.
+ */
+@RunWith(JUnit4.class)
+public class MethylationConverterImplTest {
+
+    private static final String[] GENES = { "TP53", "EGFR", "KRAS", "PTEN", "MYC", "BRCA1", "NA", "UNMAPPED" };
+    private static final int NUM_TRIALS = 20;
+
+    @Test
+    public void testGoldenOutput() throws Exception {
+
+        DataMatrix correlation = matrix(
+            "Meth_Probe\tGene\tCorr_Spearman",
+            "cg01\tTP53\t-0.2",
+            "cg02\tTP53\t-0.5",
+            "cg03\tEGFR\t0.1",
+            "cg04\tEGFR\t0.1",
+            "cg05\tKRAS\t-0.9",
+            "cg06\tUNMAPPED\t-0.1",
+            "cg07\tPTEN\t1e-3");
+
+        String[] cases = { "TCGA-A1-A0SB-01A-11D-A145-05", "TCGA-A1-A0SD-11A-11D-A145-05", "TCGA-A1-A0SE-01A-11D-A145-05" };
+        DataMatrix methylation = matrix(
+            methylationHeader(cases),
+            "Composite Element REF" + repeat("\tBeta_value\tGene_Symbol\tChromosome\tGenomic_Coordinate", 3),
+            methylationRow("cg01", "0.11", "0.12", "0.13"),
+            methylationRow("cg02", "0.21", "0.22", "NA"),
+            methylationRow("cg03", "0.31", "0.32", "0.33"),
+            methylationRow("cg04", "0.41", "0.42", "0.43"),
+            methylationRow("cg05", "0.51", "0.52", "0.53"),
+            methylationRow("cg06", "0.61", "0.62", "0.63"),
+            methylationRow("cg07", "0.71", "0.72", "0.73"),
+            methylationRow("cg08", "0.81", "0.82", "0.83"));
+
+        assertEquals("Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-A0SB-01\tTCGA-A1-A0SE-01\n" +
+                     "TP53\t7157\t0.21\tNA\n" +
+                     "EGFR\t1956\t0.31\t0.33\n" +
+                     "KRAS\t3845\t0.51\t0.53\n" +
+                     "PTEN\t5728\t0.71\t0.73\n",
+                     convert(correlation, methylation));
+    }
+
+    @Test
+    public void testRandomFixtures() throws Exception {
+
+        Random random = new Random(5);
+        for (int trial = 0; trial < NUM_TRIALS; trial++) {
+            int numProbes = 1 + random.nextInt(200);
+            int numCases = 1 + random.nextInt(6);
+
+            List<String> correlationRows = new ArrayList<String>();
+            correlationRows.add("Meth_Probe\tGene\tCorr_Coeff");
+            for (int probe = 0; probe < numProbes; probe++) {
+                // probes of several genes, ties and repeated (probe, gene) pairs
+                String probeID = "cg" + ((random.nextInt(10) == 0) ? random.nextInt(probe + 1) : probe);
+                String gene = GENES[random.nextInt(GENES.length)];
+                String correlationValue = (random.nextInt(5) == 0) ? "-0.5" : Double.toString(random.nextGaussian());
+                correlationRows.add(probeID + "\t" + gene + "\t" + correlationValue);
+            }
+
+            String[] cases = new String[numCases];
+            for (int lc = 0; lc < numCases; lc++) {
+                cases[lc] = String.format("TCGA-%02d-%04d-%s-11D-A145-05", trial, lc, (random.nextInt(4) == 0) ? "11A" : "01A");
+            }
+            List<String> methylationRows = new ArrayList<String>();
+            methylationRows.add(methylationHeader(cases));
+            for (int probe = 0; probe < numProbes + 10; probe++) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                String[] values = new String[numCases];
+                for (int lc = 0; lc < numCases; lc++) {
+                    values[lc] = (random.nextInt(20) == 0) ? "NA" : Double.toString(random.nextDouble());
+                }
+                methylationRows.add(methylationRow("cg" + probe, values));
+            }
+
+            String[] correlation = correlationRows.toArray(new String[0]);
+            String[] methylation = methylationRows.toArray(new String[0]);
+            assertEquals("trial " + trial,
+                         legacyConvert(matrix(correlation), matrix(methylation)),
+                         convert(matrix(correlation), matrix(methylation)));
+        }
+    }
+
+    private String convert(DataMatrix correlation, DataMatrix methylation) throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MethylationConverterImpl converter = new MethylationConverterImpl(null, stagingFileUtils(out), caseIDs(), idMapper());
+        converter.createStagingFile(portal(), null, datatype("methylation-hm450", MethylationConverterImpl.class),
+                                    new DataMatrix[] { methylation, correlation });
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * The original probe selection of MethylationConverterImpl.createStagingFile().
+     * The duplicate case columns it ignored came last in the staging file and left
+     * a trailing delimiter on every line, which is dropped here.
+     */
+    private String legacyConvert(DataMatrix dataMatrixCorrelationData, DataMatrix dataMatrixMethylationData) throws Exception {
+
+        HashMap<String,String[]> lowestCorrelationMap = new HashMap<String,String[]>();
+        List<String> genes = dataMatrixCorrelationData.getColumnData("Gene").get(0);
+        List<String> methProbes = dataMatrixCorrelationData.getColumnData("Meth_Probe").get(0);
+        List<String> corrSpearman = dataMatrixCorrelationData.getColumnData("Corr_Coeff").get(0);
+        for (int lc = 0; lc < genes.size(); lc++) {
+            String gene = genes.get(lc);
+            String methProbe = methProbes.get(lc);
+            String cSpearman = corrSpearman.get(lc);
+            if (lowestCorrelationMap.containsKey(gene)) {
+                if (Double.valueOf(cSpearman) < Double.valueOf(lowestCorrelationMap.get(gene)[1])) {
+                    String[] value = { methProbe, cSpearman };
+                    lowestCorrelationMap.put(gene, value);
+                }
+            }
+            else {
+                String[] value = { methProbe, cSpearman };
+                lowestCorrelationMap.put(gene, value);
+            }
+        }
+        Map<String, String> probeToGene = new HashMap<String, String>();
+        for (String gene : genes) {
+            probeToGene.put(lowestCorrelationMap.get(gene)[0], gene);
+        }
+
+        List<String> columnHeaders = dataMatrixMethylationData.getColumnHeaders();
+        String previousHeader = "";
+        for (int lc = 1; lc < columnHeaders.size(); lc++) {
+            String columnHeader = columnHeaders.get(lc);
+            if (columnHeader.equals(previousHeader)) {
+                dataMatrixMethylationData.ignoreColumn(lc, true);
+            }
+            else {
+                previousHeader = columnHeader;
+            }
+        }
+        dataMatrixMethylationData.ignoreRow(0, true);
+
+        List<String> hugoSymbols = new ArrayList<String>();
+        List<String> hybridizationRefs = dataMatrixMethylationData.getColumnData("Hybridization REF").get(0);
+        for (int lc = 0; lc < hybridizationRefs.size(); lc++) {
+            if (probeToGene.containsKey(hybridizationRefs.get(lc))) {
+                hugoSymbols.add(probeToGene.get(hybridizationRefs.get(lc)));
+            }
+            else {
+                hugoSymbols.add("NA");
+            }
+        }
+
+        dataMatrixMethylationData.addColumn(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, hugoSymbols);
+        dataMatrixMethylationData.addColumn(Converter.GENE_ID_COLUMN_HEADER_NAME, new ArrayList<String>());
+        MapperUtil.mapGeneSymbolToID(dataMatrixMethylationData, idMapper(),
+                                     Converter.GENE_ID_COLUMN_HEADER_NAME, Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+        String[] columnsToIgnore = { Converter.GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_ID_COLUMN_HEADER_NAME };
+        dataMatrixMethylationData.convertCaseIDs(Arrays.asList(columnsToIgnore));
+
+        columnHeaders = dataMatrixMethylationData.getColumnHeaders();
+        columnHeaders.remove(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+        columnHeaders.add(0, Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+        columnHeaders.remove(Converter.GENE_ID_COLUMN_HEADER_NAME);
+        columnHeaders.add(1, Converter.GENE_ID_COLUMN_HEADER_NAME);
+        dataMatrixMethylationData.setColumnOrder(columnHeaders);
+
+        List<String> rows = dataMatrixMethylationData.getColumnData(Converter.GENE_SYMBOL_COLUMN_HEADER_NAME).get(0);
+        for (int lc = 0; lc < rows.size(); lc++) {
+            if (rows.get(lc).equals("NA")) {
+                dataMatrixMethylationData.ignoreRow(lc, true);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dataMatrixMethylationData.write(out);
+        return out.toString("UTF-8").replace(Converter.VALUE_DELIMITER + "\n", "\n");
+    }
+
+    private String methylationHeader(String[] cases) {
+        StringBuilder builder = new StringBuilder("Hybridization REF");
+        for (String caseID : cases) {
+            builder.append(repeat("\t" + caseID, 4));
+        }
+        return builder.toString();
+    }
+
+    private String methylationRow(String probe, String... betaValues) {
+        StringBuilder builder = new StringBuilder(probe);
+        for (String betaValue : betaValues) {
+            builder.append("\t").append(betaValue).append("\tGENE\t17\t7577120");
+        }
+        return builder.toString();
+    }
+
+    private String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int lc = 0; lc < times; lc++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private DataMatrix matrix(String... lines) {
+        return ConverterFixtures.matrix(caseIDs(), lines);
+    }
+
+    /**
+     * Tumor samples (01) only, abbreviated to 15 characters.
+     */
+    private CaseIDs caseIDs() {
+        CaseIDs caseIDs = mock(CaseIDs.class);
+        when(caseIDs.isSampleId(anyString())).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) {
+                String caseID = (String)invocation.getArguments()[0];
+                return caseID.startsWith("TCGA-") && caseID.length() >= 15 && caseID.substring(13, 15).equals("01");
+            }
+        });
+        when(caseIDs.getSampleId(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                return ((String)invocation.getArguments()[0]).substring(0, 15);
+            }
+        });
+        return caseIDs;
+    }
+
+    private IDMapper idMapper() throws Exception {
+        final Map<String, String> entrezIDs = new HashMap<String, String>();
+        entrezIDs.put("TP53", "7157");
+        entrezIDs.put("EGFR", "1956");
+        entrezIDs.put("KRAS", "3845");
+        entrezIDs.put("PTEN", "5728");
+        entrezIDs.put("MYC", "4609");
+        entrezIDs.put("BRCA1", "672");
+        entrezIDs.put("NA", "0");
+        IDMapper idMapper = mock(IDMapper.class);
+        when(idMapper.symbolToEntrezID(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                String entrezID = entrezIDs.get(invocation.getArguments()[0]);
+                return (entrezID == null) ? "" : entrezID;
+            }
+        });
+        return idMapper;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.io.internal;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests DataSourceRegistry pools against an embedded (H2) database,
+ * counting the physical connections (sessions) the database sees.
+ */
+@RunWith(JUnit4.class)
+public class DataSourceRegistryTest {
+
+    private static final String DRIVER = "org.h2.Driver";
+    private static final String URL = "jdbc:h2:mem:data_source_registry_test;DB_CLOSE_DELAY=-1";
+    private static final int MAX_ACTIVE = 4;
+    private static final int NUM_THREADS = 16;
+    private static final int NUM_BORROWS = 25;
+
+    private DataSourceRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new DataSourceRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    public void testSharedPool() throws Exception {
+        BasicDataSource dataSource = getDataSource(MAX_ACTIVE, 1000);
+        assertSame(dataSource, getDataSource(MAX_ACTIVE, 1000));
+        assertEquals(MAX_ACTIVE, dataSource.getMaxActive());
+
+        registry.setNamedDataSource("createSchema", dataSource);
+        assertSame(dataSource, registry.getNamedDataSource("createSchema"));
+
+        try {
+            dataSource.getConnection("sa", "");
+            fail("SQLFeatureNotSupportedException expected");
+        }
+        catch (SQLFeatureNotSupportedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentWorkload() throws Exception {
+        final BasicDataSource dataSource = getDataSource(MAX_ACTIVE, 60000);
+        final AtomicInteger maxSessions = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int lc = 0; lc < NUM_THREADS; lc++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    for (int borrow = 0; borrow < NUM_BORROWS; borrow++) {
+                        Connection connection = dataSource.getConnection();
+                        try {
+                            int sessions = countSessions(connection);
+                            synchronized (maxSessions) {
+                                maxSessions.set(Math.max(maxSessions.get(), sessions));
+                            }
+                            Thread.sleep(1);
+                        }
+                        finally {
+                            connection.close();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // never more physical connections than the pool size
+        assertTrue("sessions: " + maxSessions.get(), maxSessions.get() <= MAX_ACTIVE);
+        assertEquals(0, dataSource.getNumActive());
+        assertTrue(dataSource.getNumIdle() <= MAX_ACTIVE);
+
+        // connections are reused
+        Connection connection = dataSource.getConnection();
+        try {
+            assertTrue(countSessions(connection) <= MAX_ACTIVE);
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        BasicDataSource dataSource = getDataSource(1, 50);
+
+        Connection connection = dataSource.getConnection();
+        try {
+            dataSource.getConnection();
+            fail("SQLException expected");
+        }
+        catch (SQLException e) {
+            // expected
+        }
+        connection.close();
+
+        connection = dataSource.getConnection();
+        connection.close();
+        assertEquals(0, dataSource.getNumActive());
+    }
+
+    private BasicDataSource getDataSource(int maxActive, long maxWaitMillis) {
+        return registry.getDataSource(DRIVER, URL, "sa", "",
+                                      new DataSourceRegistry.PoolSettings(maxActive, maxWaitMillis, 0));
+    }
+
+    private int countSessions(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS");
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+        finally {
+            statement.close();
+        }
+    }
+}
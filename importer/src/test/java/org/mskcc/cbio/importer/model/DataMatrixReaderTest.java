@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.model;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that DataMatrixReader gives the same DataMatrix as reading
+ * the file line by line and splitting each line on the value delimiter.
+ */
+@RunWith(JUnit4.class)
+public class DataMatrixReaderTest {
+
+    private static final int NUM_ROWS = 700;
+    private static final int NUM_COLUMNS = 30;
+    private static final int[] SEGMENT_SIZES = { 1, 13, 1024, DataMatrixReader.DEFAULT_SEGMENT_SIZE };
+    private static final int[] NUM_THREADS = { 1, 4 };
+
+    private static final DataMatrixReader.RowFilter EVEN_ROWS = new DataMatrixReader.RowFilter() {
+        public boolean accept(String rowID) {
+            return rowID.length() > 0 && (rowID.charAt(rowID.length() - 1) - '0') % 2 == 0;
+        }
+    };
+
+    private CaseIDs caseIDs;
+    private File dataFile;
+
+    @Before
+    public void setUp() throws IOException {
+        caseIDs = mock(CaseIDs.class);
+        dataFile = File.createTempFile("data_matrix_reader", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        dataFile.delete();
+    }
+
+    @Test
+    public void testPlainMatrix() throws Exception {
+        writeFile(matrix(new Random(1), "\n", false, false), true);
+        assertEquivalent(null);
+    }
+
+    @Test
+    public void testLineTerminators() throws Exception {
+        writeFile(matrix(new Random(2), "\r\n", false, false), true);
+        assertEquivalent(null);
+        writeFile(matrix(new Random(3), "\r", false, false), true);
+        assertEquivalent(null);
+        // no terminator after the last row
+        writeFile(matrix(new Random(4), "\r\n", false, false), false);
+        assertEquivalent(null);
+    }
+
+    @Test
+    public void testRaggedRowsAndEmptyLabels() throws Exception {
+        writeFile(matrix(new Random(5), "\n", true, true), true);
+        assertEquivalent(null);
+    }
+
+    @Test
+    public void testRowFilter() throws Exception {
+        writeFile(matrix(new Random(6), "\r\n", true, true), true);
+        assertEquivalent(EVEN_ROWS);
+    }
+
+    @Test
+    public void testAllRowsFiltered() throws Exception {
+        writeFile("Hugo_Symbol\tEntrez_Gene_Id\nGENE1\t1\nGENE3\t3\n", false);
+        DataMatrix dataMatrix = new DataMatrixReader().read(dataFile.getName(), dataFile, EVEN_ROWS, caseIDs);
+        assertNotNull(dataMatrix);
+        assertEquals(0, dataMatrix.getNumberOfRows());
+        assertEquivalent(EVEN_ROWS);
+    }
+
+    @Test
+    public void testMissingData() throws Exception {
+        for (String content : new String[] { "", "Hugo_Symbol\tEntrez_Gene_Id", "Hugo_Symbol\tEntrez_Gene_Id\r\n" }) {
+            writeFile(content, false);
+            assertNull(new DataMatrixReader().read(dataFile.getName(), dataFile, null, caseIDs));
+            assertNull(legacyRead(null));
+        }
+        // a single empty line after the header is a row
+        writeFile("Hugo_Symbol\tEntrez_Gene_Id\n\n", false);
+        assertEquivalent(null);
+    }
+
+    private void assertEquivalent(DataMatrixReader.RowFilter rowFilter) throws Exception {
+        DataMatrix expected = legacyRead(rowFilter);
+        byte[] expectedBytes = write(expected);
+
+        for (int segmentSize : SEGMENT_SIZES) {
+            for (int numThreads : NUM_THREADS) {
+                DataMatrixReader reader = new DataMatrixReader(numThreads, segmentSize);
+                DataMatrix dataMatrix = reader.read(dataFile.getName(), dataFile, rowFilter, caseIDs);
+                assertEquals(expected.getColumnHeaders(), dataMatrix.getColumnHeaders());
+                assertEquals(expected.getNumberOfRows(), dataMatrix.getNumberOfRows());
+                assertArrayEquals(expectedBytes, write(dataMatrix));
+            }
+        }
+    }
+
+    /**
+     * The line by line reading FileUtilsImpl uses for compressed files.
+     */
+    private DataMatrix legacyRead(DataMatrixReader.RowFilter rowFilter) throws Exception {
+        List<String> columnNames = null;
+        List<LinkedList<String>> rowData = null;
+        InputStream data = new FileInputStream(dataFile);
+        try {
+            LineIterator it = IOUtils.lineIterator(data, (String)null);
+            while (it.hasNext()) {
+                if (columnNames == null) {
+                    columnNames = new LinkedList<String>(Arrays.asList(it.nextLine().split(Converter.VALUE_DELIMITER, -1)));
+                    continue;
+                }
+                rowData = (rowData == null) ? new LinkedList<LinkedList<String>>() : rowData;
+                LinkedList<String> thisRow = new LinkedList<String>(Arrays.asList(it.nextLine().split(Converter.VALUE_DELIMITER, -1)));
+                if (rowFilter == null || rowFilter.accept(thisRow.getFirst())) {
+                    rowData.add(thisRow);
+                }
+            }
+        }
+        finally {
+            data.close();
+        }
+        return (columnNames == null || rowData == null) ? null : new DataMatrix(dataFile.getName(), rowData, columnNames, caseIDs);
+    }
+
+    private byte[] write(DataMatrix dataMatrix) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dataMatrix.write(out);
+        return out.toByteArray();
+    }
+
+    private void writeFile(String content, boolean trailingTerminator) throws IOException {
+        OutputStream out = new FileOutputStream(dataFile);
+        try {
+            out.write(content.getBytes());
+            if (trailingTerminator) {
+                out.write('\n');
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private String matrix(Random random, String lineTerminator, boolean ragged, boolean emptyLabels) {
+        StringBuilder builder = new StringBuilder("Hugo_Symbol\tEntrez_Gene_Id");
+        for (int lc = 2; lc < NUM_COLUMNS; lc++) {
+            builder.append('\t').append((emptyLabels && lc % 9 == 0) ? "" : "TCGA-A1-A0" + lc + "-01");
+        }
+
+        for (int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++) {
+            builder.append(lineTerminator);
+            if (ragged && rowIndex % 97 == 0) {
+                // empty line
+                continue;
+            }
+            builder.append((rowIndex % 5 == 0) ? "G\u00e8ne\u03b2" + rowIndex : "GENE" + rowIndex);
+            builder.append('\t').append(random.nextInt(100000));
+            // short rows are padded with empty cells, long rows are truncated
+            int numValues = !ragged ? NUM_COLUMNS :
+                (rowIndex % 11 == 0) ? NUM_COLUMNS / 2 :
+                (rowIndex % 13 == 0) ? NUM_COLUMNS + 3 : NUM_COLUMNS;
+            for (int lc = 2; lc < numValues; lc++) {
+                builder.append('\t');
+                if (random.nextInt(10) > 0) {
+                    builder.append((random.nextInt(20) == 0) ? "NA" : Double.toString(random.nextGaussian()));
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.model;
+
+import org.mskcc.cbio.importer.CaseIDs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.*;
+
+/**
+ * Runs random sequences of column edits against a DataMatrix and
+ * against a plain list of columns searched linearly (the lookup
+ * DataMatrix did before it kept a column index), and checks that
+ * every column lookup agrees after each edit.
+ */
+@RunWith(JUnit4.class)
+public class DataMatrixTest {
+
+    private static final int NUM_ROWS = 5;
+    private static final int NUM_LABELS = 12;
+    private static final int NUM_SEQUENCES = 200;
+    private static final int NUM_EDITS = 60;
+
+    // a column of the reference model
+    private static class Column {
+        String label;
+        List<String> columnData;
+        boolean ignoreColumn;
+    }
+
+    private CaseIDs caseIDs;
+
+    @Before
+    public void setUp() {
+        caseIDs = mock(CaseIDs.class);
+    }
+
+    @Test
+    public void testRandomEditSequences() throws Exception {
+        Random random = new Random(40);
+        for (int sequence = 0; sequence < NUM_SEQUENCES; sequence++) {
+            List<Column> columns = new ArrayList<Column>();
+            DataMatrix dataMatrix = matrix(random, columns);
+            assertConsistent(dataMatrix, columns);
+            for (int edit = 0; edit < NUM_EDITS; edit++) {
+                edit(random, dataMatrix, columns);
+                assertConsistent(dataMatrix, columns);
+            }
+        }
+    }
+
+    @Test
+    public void testSetColumnOrder() throws Exception {
+        List<Column> columns = new ArrayList<Column>();
+        DataMatrix dataMatrix = matrix(new Random(41), columns);
+        List<String> reversed = dataMatrix.getColumnHeaders();
+        Collections.reverse(reversed);
+        dataMatrix.setColumnOrder(reversed);
+        assertEquals(reversed, dataMatrix.getColumnHeaders());
+
+        // unknown columns are rejected and the order is kept
+        try {
+            dataMatrix.setColumnOrder(Arrays.asList(reversed.get(0), "UNKNOWN"));
+            fail("IllegalArgumentException expected");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(reversed, dataMatrix.getColumnHeaders());
+        }
+    }
+
+    private DataMatrix matrix(Random random, List<Column> columns) {
+        List<String> columnNames = new ArrayList<String>();
+        int numColumns = 1 + random.nextInt(NUM_LABELS);
+        for (int lc = 0; lc < numColumns; lc++) {
+            columnNames.add(label(random));
+        }
+        List<LinkedList<String>> rowData = new ArrayList<LinkedList<String>>();
+        for (int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++) {
+            LinkedList<String> row = new LinkedList<String>();
+            for (int lc = 0; lc < numColumns; lc++) {
+                row.add(rowIndex + ":" + lc);
+            }
+            rowData.add(row);
+        }
+
+        DataMatrix dataMatrix = new DataMatrix("data.txt", rowData, columnNames, caseIDs);
+        for (int lc = 0; lc < numColumns; lc++) {
+            Column column = new Column();
+            column.label = columnNames.get(lc);
+            column.columnData = dataMatrix.getColumnData(lc);
+            columns.add(column);
+        }
+        return dataMatrix;
+    }
+
+    private void edit(Random random, DataMatrix dataMatrix, List<Column> columns) throws Exception {
+        String label = label(random);
+        boolean ignore = random.nextBoolean();
+        switch (random.nextInt(6)) {
+            case 0:
+                dataMatrix.ignoreColumn(label, ignore);
+                for (Column column : columns) {
+                    if (column.label.equals(label)) {
+                        column.ignoreColumn = ignore;
+                    }
+                }
+                break;
+            case 1:
+                if (!columns.isEmpty()) {
+                    int columnIndex = random.nextInt(columns.size());
+                    dataMatrix.ignoreColumn(columnIndex, ignore);
+                    columns.get(columnIndex).ignoreColumn = ignore;
+                }
+                break;
+            case 2:
+                String newLabel = label(random);
+                dataMatrix.renameColumn(label, newLabel);
+                for (Column column : columns) {
+                    if (column.label.equals(label)) {
+                        column.label = newLabel;
+                    }
+                }
+                break;
+            case 3:
+                dataMatrix.addColumn(label, new ArrayList<String>());
+                Column column = new Column();
+                column.label = label;
+                column.columnData = dataMatrix.getColumnData(columns.size());
+                columns.add(column);
+                break;
+            default:
+                // random subset of the labels, in random order, possibly repeated
+                List<String> newColumnOrder = new ArrayList<String>();
+                List<Column> newColumns = new ArrayList<Column>();
+                for (Column c : columns) {
+                    if (random.nextInt(4) > 0) {
+                        newColumnOrder.add(c.label);
+                    }
+                }
+                Collections.shuffle(newColumnOrder, random);
+                if (!newColumnOrder.isEmpty() && random.nextInt(4) == 0) {
+                    newColumnOrder.add(newColumnOrder.get(0));
+                }
+                for (String columnName : newColumnOrder) {
+                    newColumns.add(first(columns, columnName));
+                }
+                dataMatrix.setColumnOrder(newColumnOrder);
+                columns.clear();
+                columns.addAll(newColumns);
+                break;
+        }
+    }
+
+    private void assertConsistent(DataMatrix dataMatrix, List<Column> columns) {
+        List<String> labels = new ArrayList<String>();
+        for (Column column : columns) {
+            labels.add(column.label);
+        }
+        assertEquals(labels, dataMatrix.getColumnHeaders());
+        assertEquals(columns.size(), dataMatrix.getNumberOfColumns());
+
+        for (int lc = 0; lc < columns.size(); lc++) {
+            assertSame(columns.get(lc).columnData, dataMatrix.getColumnData(lc));
+            assertEquals(columns.get(lc).ignoreColumn, dataMatrix.isColumnIgnored(lc));
+        }
+
+        for (int lc = 0; lc < NUM_LABELS + 1; lc++) {
+            String label = "COLUMN_" + lc;
+            assertEquals(labels.indexOf(label), dataMatrix.getColumnIndex(label));
+            Column first = first(columns, label);
+            assertEquals(first != null && first.ignoreColumn, dataMatrix.isColumnIgnored(label));
+
+            List<LinkedList<String>> columnData = dataMatrix.getColumnData(label);
+            int found = 0;
+            for (Column column : columns) {
+                if (column.label.equals(label)) {
+                    assertSame(column.columnData, columnData.get(found++));
+                }
+            }
+            assertEquals(found, columnData.size());
+        }
+    }
+
+    private Column first(List<Column> columns, String label) {
+        for (Column column : columns) {
+            if (column.label.equals(label)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private String label(Random random) {
+        return "COLUMN_" + random.nextInt(NUM_LABELS);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.model;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.Mockito.mock;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.*;
+
+/**
+ * Checks that DataMatrixWriter output is byte for byte identical to the
+ * PrintWriter based serialization it replaces.
+ */
+@RunWith(JUnit4.class)
+public class DataMatrixWriterTest {
+
+    private static final int NUM_ROWS = 500;
+    private static final int NUM_COLUMNS = 40;
+    private static final int[] BUFFER_SIZES = { 1, 7, 64, 4096, DataMatrixWriter.DEFAULT_BUFFER_SIZE };
+
+    private CaseIDs caseIDs;
+
+    @Before
+    public void setUp() {
+        caseIDs = mock(CaseIDs.class);
+    }
+
+    @Test
+    public void testPlainMatrix() throws Exception {
+        assertEquivalent(matrix(new Random(1), false));
+    }
+
+    @Test
+    public void testIgnoredRowsAndColumns() throws Exception {
+        Random random = new Random(2);
+        DataMatrix dataMatrix = matrix(random, false);
+        for (int lc = 0; lc < NUM_ROWS; lc += 3) {
+            dataMatrix.ignoreRow(lc, true);
+        }
+        dataMatrix.ignoreColumn(0, true);
+        dataMatrix.ignoreColumn(NUM_COLUMNS / 2, true);
+        // trailing delimiter is kept when the last column is ignored
+        dataMatrix.ignoreColumn(NUM_COLUMNS - 1, true);
+        assertEquivalent(dataMatrix);
+    }
+
+    @Test
+    public void testNonAsciiAndNullValues() throws Exception {
+        DataMatrix dataMatrix = matrix(new Random(3), true);
+        List<String> row = new ArrayList<String>(dataMatrix.getRowData(0));
+        row.set(1, null);
+        dataMatrix.insertRow(row, 0);
+        dataMatrix.ignoreRow(NUM_ROWS, true);
+        assertEquivalent(dataMatrix);
+    }
+
+    @Test
+    public void testEmptyMatrix() throws Exception {
+        DataMatrix dataMatrix = new DataMatrix("empty.txt", new ArrayList<LinkedList<String>>(),
+                                               Arrays.asList("Hugo_Symbol", "Entrez_Gene_Id"), caseIDs);
+        assertEquivalent(dataMatrix);
+    }
+
+    private void assertEquivalent(DataMatrix dataMatrix) throws Exception {
+        byte[] expected = legacyWrite(dataMatrix);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dataMatrix.write(out);
+        assertArrayEquals(expected, out.toByteArray());
+
+        for (int bufferSize : BUFFER_SIZES) {
+            for (boolean backgroundFlush : new boolean[] { false, true }) {
+                DataMatrixWriter writer = new DataMatrixWriter(bufferSize, backgroundFlush);
+
+                out = new ByteArrayOutputStream();
+                writer.write(dataMatrix, out);
+                assertArrayEquals(expected, out.toByteArray());
+
+                // writers are reusable, write again through a channel
+                out = new ByteArrayOutputStream();
+                writer.write(dataMatrix, Channels.newChannel(out));
+                assertArrayEquals(expected, out.toByteArray());
+            }
+        }
+    }
+
+    /**
+     * The serialization DataMatrix.write() used before DataMatrixWriter.
+     */
+    private byte[] legacyWrite(DataMatrix dataMatrix) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintWriter writer = new PrintWriter(out);
+        int lastColumn = dataMatrix.getNumberOfColumns() - 1;
+
+        List<String> columnHeaders = dataMatrix.getColumnHeaders();
+        List<ArrayList<String>> columnData = new ArrayList<ArrayList<String>>();
+        for (int lc = 0; lc <= lastColumn; lc++) {
+            columnData.add(new ArrayList<String>(dataMatrix.getColumnData(lc)));
+            if (dataMatrix.isColumnIgnored(lc)) continue;
+            writer.print(columnHeaders.get(lc));
+            if (lc != lastColumn) {
+                writer.print(Converter.VALUE_DELIMITER);
+            }
+        }
+        writer.println();
+
+        for (int rowIndex = 0; rowIndex < dataMatrix.getNumberOfRows(); rowIndex++) {
+            if (dataMatrix.isRowIgnored(rowIndex)) {
+                continue;
+            }
+            for (int lc = 0; lc <= lastColumn; lc++) {
+                if (dataMatrix.isColumnIgnored(lc)) continue;
+                writer.print(columnData.get(lc).get(rowIndex));
+                if (lc != lastColumn) {
+                    writer.print(Converter.VALUE_DELIMITER);
+                }
+            }
+            writer.println();
+        }
+        writer.flush();
+
+        return out.toByteArray();
+    }
+
+    private DataMatrix matrix(Random random, boolean nonAscii) {
+        List<String> columnNames = new ArrayList<String>();
+        columnNames.add("Hugo_Symbol");
+        columnNames.add("Entrez_Gene_Id");
+        for (int lc = 2; lc < NUM_COLUMNS; lc++) {
+            columnNames.add("TCGA-A1-A0" + lc + "-01");
+        }
+
+        List<LinkedList<String>> rowData = new ArrayList<LinkedList<String>>();
+        for (int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++) {
+            LinkedList<String> row = new LinkedList<String>();
+            row.add((nonAscii && rowIndex % 5 == 0) ? "G\u00e8ne\u03b2" + rowIndex : "GENE" + rowIndex);
+            row.add(Integer.toString(random.nextInt(100000)));
+            // short rows are padded with empty cells
+            int numValues = (rowIndex % 11 == 0) ? NUM_COLUMNS / 2 : NUM_COLUMNS;
+            for (int lc = 2; lc < numValues; lc++) {
+                row.add((random.nextInt(20) == 0) ? "NA" : Double.toString(random.nextGaussian()));
+            }
+            rowData.add(row);
+        }
+
+        return new DataMatrix("data_expression.txt", rowData, columnNames, caseIDs);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.model;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.Converter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that a StreamingDataMatrix gives the same staging output as the
+ * DataMatrix read from the same file, as written before DataMatrixWriter.
+ * The converters are checked in their own (golden output) tests.
+ */
+@RunWith(JUnit4.class)
+public class StreamingDataMatrixTest {
+
+    private static final int NUM_ROWS = 400;
+    private static final int NUM_CASES = 30;
+
+    private static final String GENE_ID_COLUMN_HEADER_NAME = "Locus ID";
+    private static final String GENE_SYMBOL_COLUMN_HEADER_NAME = "Gene Symbol";
+
+    private CaseIDs caseIDs;
+
+    @Before
+    public void setUp() {
+        // every TCGA case is a sample, abbreviated to 15 characters
+        caseIDs = mock(CaseIDs.class);
+        when(caseIDs.isSampleId(anyString())).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) {
+                return ((String)invocation.getArguments()[0]).startsWith("TCGA-");
+            }
+        });
+        when(caseIDs.getSampleId(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                return ((String)invocation.getArguments()[0]).substring(0, 15);
+            }
+        });
+    }
+
+    @Test
+    public void testPassThroughConversion() throws Exception {
+        byte[] data = cnaFile(new Random(2));
+        assertEquivalent(readDataMatrix(data), new StreamingDataMatrix("data.txt", new ByteArrayInputStream(data), caseIDs));
+    }
+
+    @Test
+    public void testFilterAndTransform() throws Exception {
+        byte[] data = cnaFile(new Random(3));
+
+        DataMatrix dataMatrix = readDataMatrix(data);
+        List<String> symbols = dataMatrix.getColumnData(GENE_SYMBOL_COLUMN_HEADER_NAME).get(0);
+        for (int lc = 0; lc < symbols.size(); lc++) {
+            symbols.set(lc, symbols.get(lc).toLowerCase());
+            dataMatrix.ignoreRow(lc, symbols.get(lc).endsWith("7"));
+        }
+        dataMatrix.ignoreColumn("Cytoband", true);
+
+        StreamingDataMatrix streamingDataMatrix = new StreamingDataMatrix("data.txt", new ByteArrayInputStream(data), caseIDs);
+        final int symbolIndex = streamingDataMatrix.getColumnIndex(GENE_SYMBOL_COLUMN_HEADER_NAME);
+        streamingDataMatrix.addRowTransformer(new StreamingDataMatrix.RowTransformer() {
+                public boolean transform(List<String> rowData) {
+                    rowData.set(symbolIndex, rowData.get(symbolIndex).toLowerCase());
+                    return true;
+                }
+            });
+        streamingDataMatrix.addRowFilter(new StreamingDataMatrix.RowFilter() {
+                public boolean accept(List<String> rowData) {
+                    return !rowData.get(symbolIndex).endsWith("7");
+                }
+            });
+        streamingDataMatrix.ignoreColumn("Cytoband", true);
+
+        assertEquivalent(dataMatrix, streamingDataMatrix);
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        StreamingDataMatrix headerOnly = new StreamingDataMatrix("data.txt",
+                                                                 new ByteArrayInputStream("A\tB\n".getBytes()), caseIDs);
+        assertFalse(headerOnly.hasRows());
+        assertFalse(headerOnly.next());
+        assertEquals(Arrays.asList("A", "B"), headerOnly.getColumnHeaders());
+
+        StreamingDataMatrix empty = new StreamingDataMatrix("data.txt", new ByteArrayInputStream(new byte[0]), caseIDs);
+        assertFalse(empty.hasRows());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHeaderIsFixedOnceRowsAreRead() throws Exception {
+        StreamingDataMatrix streamingDataMatrix = new StreamingDataMatrix("data.txt",
+                                                                          new ByteArrayInputStream(cnaFile(new Random(4))), caseIDs);
+        assertTrue(streamingDataMatrix.next());
+        streamingDataMatrix.renameColumn(GENE_SYMBOL_COLUMN_HEADER_NAME, Converter.GENE_SYMBOL_COLUMN_HEADER_NAME);
+    }
+
+    private void assertEquivalent(DataMatrix dataMatrix, StreamingDataMatrix streamingDataMatrix) throws Exception {
+        assertEquals(dataMatrix.getColumnHeaders(), streamingDataMatrix.getColumnHeaders());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataMatrixWriter(64, true).write(streamingDataMatrix, out);
+        streamingDataMatrix.close();
+
+        assertArrayEquals(legacyWrite(dataMatrix), out.toByteArray());
+    }
+
+    /**
+     * Writes the given matrix as DataMatrix.write() did before DataMatrixWriter.
+     */
+    private byte[] legacyWrite(DataMatrix dataMatrix) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintWriter writer = new PrintWriter(out);
+        List<String> columnHeaders = dataMatrix.getColumnHeaders();
+        int lastColumn = columnHeaders.size() - 1;
+
+        // print the column header
+        List<List<String>> columnData = new ArrayList<List<String>>();
+        for (int lc = 0; lc < columnHeaders.size(); lc++) {
+            columnData.add(new ArrayList<String>(dataMatrix.getColumnData(lc)));
+            if (dataMatrix.isColumnIgnored(lc)) continue;
+            writer.print(columnHeaders.get(lc));
+            if (lc != lastColumn) {
+                writer.print(Converter.VALUE_DELIMITER);
+            }
+        }
+        writer.println();
+
+        for (int rowIndex = 0; rowIndex < dataMatrix.getNumberOfRows(); rowIndex++) {
+            if (dataMatrix.isRowIgnored(rowIndex)) {
+                continue;
+            }
+            for (int lc = 0; lc < columnHeaders.size(); lc++) {
+                if (dataMatrix.isColumnIgnored(lc)) continue;
+                writer.print(columnData.get(lc).get(rowIndex));
+                if (lc != lastColumn) {
+                    writer.print(Converter.VALUE_DELIMITER);
+                }
+            }
+            writer.println();
+        }
+
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the given data as FileUtilsImpl.getDataMatrix() does.
+     */
+    private DataMatrix readDataMatrix(byte[] data) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)));
+        List<String> columnNames = new LinkedList<String>(Arrays.asList(reader.readLine().split(Converter.VALUE_DELIMITER, -1)));
+        List<LinkedList<String>> rowData = new LinkedList<LinkedList<String>>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowData.add(new LinkedList<String>(Arrays.asList(line.split(Converter.VALUE_DELIMITER, -1))));
+        }
+        return new DataMatrix("data_CNA.txt", rowData, columnNames, caseIDs);
+    }
+
+    /**
+     * A gistic like CNA file with unknown and missing gene symbols,
+     * normal samples, an unlabelled column and short rows.
+     */
+    private byte[] cnaFile(Random random) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(GENE_SYMBOL_COLUMN_HEADER_NAME).append('\t')
+            .append(GENE_ID_COLUMN_HEADER_NAME).append("\tCytoband");
+        for (int lc = 0; lc < NUM_CASES; lc++) {
+            builder.append('\t').append(caseID(lc));
+        }
+        builder.append("\t\n");
+
+        for (int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++) {
+            String symbol = (rowIndex % 13 == 0) ? "" : (rowIndex % 17 == 0) ? "UNKNOWN" + rowIndex : "GENE" + rowIndex;
+            builder.append(symbol).append('\t').append(rowIndex).append("\t1p36.33");
+            int numCases = (rowIndex % 11 == 0) ? NUM_CASES / 2 : NUM_CASES;
+            for (int lc = 0; lc < numCases; lc++) {
+                builder.append('\t').append(random.nextInt(5) - 2);
+            }
+            builder.append('\n');
+        }
+
+        return builder.toString().getBytes();
+    }
+
+    private static String caseID(int index) {
+        return String.format("TCGA-A1-%04d-%s-11D-A141-01", index, (index % 7 == 0) ? "10A" : "01A");
+    }
+}
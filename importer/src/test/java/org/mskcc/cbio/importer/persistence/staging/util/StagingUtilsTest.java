@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2014 Memorial Sloan-Kettering Cancer Center.
+ * 
+ *  This library is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ *  MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ *  documentation provided hereunder is on an "as is" basis, and
+ *  Memorial Sloan-Kettering Cancer Center 
+ *  has no obligations to provide maintenance, support,
+ *  updates, enhancements or modifications.  In no event shall
+ *  Memorial Sloan-Kettering Cancer Center
+ *  be liable to any party for direct, indirect, special,
+ *  incidental or consequential damages, including lost profits, arising
+ *  out of the use of this software and its documentation, even if
+ *  Memorial Sloan-Kettering Cancer Center 
+ *  has been advised of the possibility of such damage.
+ */
+package org.mskcc.cbio.importer.persistence.staging.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+/*
+ round trip tests for block compressed staging files
+ */
+@RunWith(JUnit4.class)
+public class StagingUtilsTest {
+
+    private static final int BLOCK_SIZE = 4 * 1024;
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = File.createTempFile("staging_utils_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testBlockCompressedRoundTrip() throws IOException {
+        byte[] data = stagingData(50000);
+        for (int numThreads : new int[] { 1, 4 }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            OutputStream out = new BlockCompressedOutputStream(bytes, BLOCK_SIZE, numThreads);
+            // mix of single byte, partial block & multiple block writes
+            out.write(data[0]);
+            out.write(data, 1, 100);
+            out.flush();
+            out.write(data, 101, data.length - 101);
+            out.close();
+
+            byte[] uncompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertArrayEquals(data, uncompressed);
+        }
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BlockCompressedOutputStream(bytes, BLOCK_SIZE, 2).close();
+        assertTrue(bytes.size() > 0);
+        assertEquals(0, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))).length);
+    }
+
+    @Test
+    public void testCompressAndResolve() throws IOException {
+        byte[] data = stagingData(20000);
+        File stagingFile = new File(workDir, "data_mutations_extended.txt");
+        FileUtils.writeByteArrayToFile(stagingFile, data);
+        assertEquals(stagingFile, StagingUtils.resolveStagingFile(stagingFile));
+
+        File compressedFile = StagingUtils.compress(stagingFile, 3);
+        assertFalse(stagingFile.exists());
+        assertTrue(StagingUtils.isCompressed(compressedFile));
+        assertEquals(new File(workDir, "data_mutations_extended.txt.gz"), compressedFile);
+        assertEquals(compressedFile, StagingUtils.resolveStagingFile(stagingFile));
+        assertArrayEquals(data, IOUtils.toByteArray(StagingUtils.openStagingInputStream(compressedFile)));
+
+        // readers see the same lines for either variant
+        BufferedReader reader = new BufferedReader(StagingUtils.openStagingReader(compressedFile));
+        try {
+            assertEquals("Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-A0SB-01", reader.readLine());
+        } finally {
+            reader.close();
+        }
+
+        // the plain text copy does not shadow the compressed staging file
+        File decompressedFile = StagingUtils.decompress(compressedFile);
+        assertFalse(stagingFile.exists());
+        assertEquals(workDir, decompressedFile.getParentFile());
+        assertTrue(compressedFile.exists());
+        assertArrayEquals(data, FileUtils.readFileToByteArray(decompressedFile));
+        assertEquals(compressedFile, StagingUtils.resolveStagingFile(stagingFile));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompressCompressedFile() throws IOException {
+        File compressedFile = new File(workDir, "data_CNA.txt.gz");
+        OutputStream out = StagingUtils.openStagingOutputStream(compressedFile, 1);
+        out.close();
+        StagingUtils.compress(compressedFile, 1);
+    }
+
+    private byte[] stagingData(int numRows) throws UnsupportedEncodingException {
+        Random random = new Random(20151019L);
+        StringBuilder builder = new StringBuilder("Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-A0SB-01\n");
+        for (int i = 0; i < numRows; i++) {
+            builder.append("GENE").append(i).append('\t').append(random.nextInt(100000))
+                    .append('\t').append(random.nextGaussian()).append('\n');
+        }
+        return builder.toString().getBytes("UTF-8");
+    }
+}
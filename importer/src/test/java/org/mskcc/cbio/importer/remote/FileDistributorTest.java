@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Tests the seg file distribution between two local directories.
+ */
+@RunWith(JUnit4.class)
+public class FileDistributorTest {
+
+    private static final int NUM_FILES = 20;
+
+    private File sourceDir;
+    private File destinationDir;
+    private File manifestFile;
+    private Map<File, String> files;
+
+    @Before
+    public void setUp() throws IOException {
+
+        sourceDir = createTempDir("file_distributor_source");
+        destinationDir = createTempDir("file_distributor_destination");
+        manifestFile = new File(destinationDir, FileDistributor.MANIFEST_FILENAME);
+        files = new LinkedHashMap<File, String>();
+        for (int lc = 0; lc < NUM_FILES; lc++) {
+            String name = "study_" + lc + "_data_cna_hg19.seg";
+            files.put(write(new File(sourceDir, name), "ID\tchrom\tloc.start\nS" + lc + "\t1\t" + lc + "\n"), name);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(sourceDir);
+        org.apache.commons.io.FileUtils.deleteQuietly(destinationDir);
+    }
+
+    @Test
+    public void testOnlyChangedFilesTransferred() throws Exception {
+
+        FileDistributor.Result result = distribute();
+        assertEquals(NUM_FILES, result.getTransferred().size());
+        assertDestinationMatchesSource();
+
+        // nothing changed
+        result = distribute();
+        assertEquals(0, result.getTransferred().size());
+        assertEquals(NUM_FILES, result.getUnchanged().size());
+
+        // one changed, one touched, one removed at the destination
+        File changed = source(3);
+        write(changed, "ID\tchrom\tloc.start\nS3\t2\t3\n");
+        File touched = source(5);
+        touched.setLastModified(touched.lastModified() + 5000);
+        new File(destinationDir, files.get(source(7))).delete();
+
+        result = distribute();
+        assertEquals(Arrays.asList(files.get(changed), files.get(source(7))), result.getTransferred());
+        assertEquals(NUM_FILES - 2, result.getUnchanged().size());
+        assertTrue(result.getFailed().isEmpty());
+        assertDestinationMatchesSource();
+
+        // the touched file's new modification time is recorded
+        assertEquals(0, distribute().getTransferred().size());
+    }
+
+    @Test
+    public void testTornManifestEntry() throws Exception {
+
+        distribute();
+        write(source(0), "changed\n");
+
+        // a partially written entry
+        FileOutputStream out = new FileOutputStream(manifestFile, true);
+        out.write((files.get(source(0)) + "\tabc").getBytes("UTF-8"));
+        out.close();
+
+        FileDistributor.Result result = distribute();
+        assertEquals(Collections.singletonList(files.get(source(0))), result.getTransferred());
+        assertTrue(org.apache.commons.io.FileUtils.readFileToString(manifestFile, "UTF-8").endsWith("\n"));
+        assertDestinationMatchesSource();
+        assertEquals(0, distribute().getTransferred().size());
+    }
+
+    @Test
+    public void testMissingSourceFails() throws Exception {
+
+        File missing = source(9);
+        missing.delete();
+
+        FileDistributor.Result result = distribute();
+        assertEquals(Collections.singletonList(files.get(missing)), result.getFailed());
+        assertEquals(NUM_FILES - 1, result.getTransferred().size());
+        assertFalse(new File(destinationDir, files.get(missing)).exists());
+    }
+
+    private FileDistributor.Result distribute() throws Exception {
+        return new FileDistributor(new LocalFileTransport(destinationDir), manifestFile, 4).distribute(files);
+    }
+
+    private void assertDestinationMatchesSource() throws IOException {
+
+        Set<String> expected = new HashSet<String>(files.values());
+        expected.add(FileDistributor.MANIFEST_FILENAME);
+        // no temporary files left behind
+        assertEquals(expected, new HashSet<String>(Arrays.asList(destinationDir.list())));
+        for (Map.Entry<File, String> file : files.entrySet()) {
+            assertTrue(file.getValue(), org.apache.commons.io.FileUtils.contentEquals(file.getKey(),
+                                                                                     new File(destinationDir, file.getValue())));
+        }
+    }
+
+    private File source(int index) {
+        return new ArrayList<File>(files.keySet()).get(index);
+    }
+
+    private File createTempDir(String prefix) throws IOException {
+
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private File write(File file, String contents) throws IOException {
+
+        org.apache.commons.io.FileUtils.writeStringToFile(file, contents, "UTF-8");
+        return file;
+    }
+}
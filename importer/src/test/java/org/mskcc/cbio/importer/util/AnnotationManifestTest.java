@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+
+/**
+ * Tests the annotation manifest and MAF header sniffing on fixture MAFs
+ * in a temp directory.  "Annotation" appends the annotator columns.
+ */
+@RunWith(JUnit4.class)
+public class AnnotationManifestTest {
+
+    private static final String VERSION = "vep81";
+    private static final String RAW_HEADER = "Hugo_Symbol\tChromosome\tStart_Position\tTumor_Sample_Barcode";
+    private static final String ANNOTATED_HEADER = RAW_HEADER + "\tHGVSp_Short";
+
+    private File workDir;
+    private File rawMAF;
+    private File annotatedMAF;
+    private File emptyMAF;
+
+    @Before
+    public void setUp() throws IOException {
+
+        workDir = File.createTempFile("annotation_manifest_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        rawMAF = new File(workDir, "brca.maf.annotated");
+        write(rawMAF, "#version 2.4\n" + RAW_HEADER + "\nTP53\t17\t7577120\tTCGA-A1-A0SB-01\n");
+        annotatedMAF = new File(workDir, "gbm.maf.annotated");
+        write(annotatedMAF, ANNOTATED_HEADER + "\nEGFR\t7\t55249071\tTCGA-02-0003-01\tp.T790M\n");
+        emptyMAF = new File(workDir, "ov.maf.annotated");
+        write(emptyMAF, "#version 2.4\n#comment\n" + RAW_HEADER + "\n");
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testHeaderSniffing() throws Exception {
+
+        assertArrayEquals(RAW_HEADER.split("\t"), MutationFileUtil.getColumnHeaders(rawMAF.getPath()));
+        assertFalse(MutationFileUtil.isAnnotated(rawMAF.getPath()));
+        assertFalse(MutationFileUtil.isEmpty(rawMAF.getPath()));
+
+        assertTrue(MutationFileUtil.isAnnotated(annotatedMAF.getPath()));
+        assertFalse(MutationFileUtil.isEmpty(annotatedMAF.getPath()));
+
+        assertFalse(MutationFileUtil.isAnnotated(emptyMAF.getPath()));
+        assertTrue(MutationFileUtil.isEmpty(emptyMAF.getPath()));
+
+        File blankMAF = new File(workDir, "blank.maf.annotated");
+        write(blankMAF, "");
+        assertEquals(0, MutationFileUtil.getColumnHeaders(blankMAF.getPath()).length);
+        assertTrue(MutationFileUtil.isEmpty(blankMAF.getPath()));
+    }
+
+    @Test
+    public void testSkipUnchanged() throws Exception {
+
+        AnnotationManifest manifest = new AnnotationManifest(workDir);
+        assertFalse(manifest.isCurrent(rawMAF.getName(), VERSION));
+        assertEquals(3, annotateAll(manifest));
+
+        // nothing to do on the next run, also after reopening the manifest
+        assertEquals(0, annotateAll(manifest));
+        manifest = new AnnotationManifest(workDir);
+        assertEquals(0, annotateAll(manifest));
+        assertEquals(AnnotationManifest.ANNOTATED, manifest.getEntry(rawMAF.getName()).getStatus());
+        assertEquals(AnnotationManifest.ALREADY_ANNOTATED, manifest.getEntry(annotatedMAF.getName()).getStatus());
+        assertEquals(AnnotationManifest.EMPTY, manifest.getEntry(emptyMAF.getName()).getStatus());
+        assertEquals(FileDigests.digest(rawMAF), manifest.getEntry(rawMAF.getName()).getOutputDigest());
+
+        // same contents, new modification time - the digest decides
+        rawMAF.setLastModified(rawMAF.lastModified() - 60000);
+        assertTrue(manifest.isCurrent(rawMAF.getName(), VERSION));
+
+        // a new MAF replaces the annotated one
+        write(rawMAF, RAW_HEADER + "\nKRAS\t12\t25398284\tTCGA-A1-A0SB-01\n");
+        assertFalse(manifest.isCurrent(rawMAF.getName(), VERSION));
+        assertEquals(1, annotateAll(manifest));
+
+        // a new annotator annotates everything again, MAFs which needed no annotation are kept
+        assertFalse(manifest.isCurrent(rawMAF.getName(), "vep84"));
+        assertTrue(manifest.isCurrent(annotatedMAF.getName(), "vep84"));
+        assertTrue(manifest.isCurrent(emptyMAF.getName(), "vep84"));
+
+        // output removed
+        rawMAF.delete();
+        assertFalse(manifest.isCurrent(rawMAF.getName(), VERSION));
+    }
+
+    @Test
+    public void testInputDigest() throws Exception {
+
+        // staging file produced from an input outside the directory
+        File input = new File(workDir.getParentFile(), workDir.getName() + ".input");
+        File output = new File(workDir, "data_mutations_extended.txt");
+        try {
+            write(input, RAW_HEADER + "\nTP53\t17\t7577120\tTCGA-A1-A0SB-01\n");
+            write(output, ANNOTATED_HEADER + "\nTP53\t17\t7577120\tTCGA-A1-A0SB-01\tp.R248Q\n");
+
+            AnnotationManifest manifest = new AnnotationManifest(workDir);
+            String inputDigest = FileDigests.digest(input);
+            manifest.record(output.getName(), inputDigest, AnnotationManifest.ANNOTATED, VERSION, output);
+
+            assertTrue(manifest.isCurrent(output.getName(), inputDigest, VERSION));
+            assertFalse(manifest.isCurrent(output.getName(), FileDigests.digest(rawMAF), VERSION));
+            assertFalse(manifest.isCurrent(output.getName(), inputDigest, "vep84"));
+            assertFalse(manifest.isCurrent("data_mutations_other.txt", inputDigest, VERSION));
+        }
+        finally {
+            input.delete();
+        }
+    }
+
+    @Test
+    public void testTornEntry() throws Exception {
+
+        AnnotationManifest manifest = new AnnotationManifest(workDir);
+        annotateAll(manifest);
+
+        // crash while appending
+        FileWriter writer = new FileWriter(manifest.getManifestFile(), true);
+        writer.write(rawMAF.getName() + "\tdeadbeef\tannot");
+        writer.close();
+
+        manifest = new AnnotationManifest(workDir);
+        assertTrue(manifest.isCurrent(rawMAF.getName(), VERSION));
+        assertNull(manifest.getEntry("missing.maf.annotated"));
+        assertEquals(0, annotateAll(manifest));
+    }
+
+    /**
+     * Follows FileUtilsImpl.annotateAllMAFs(), returns the number of MAFs looked at.
+     */
+    private int annotateAll(AnnotationManifest manifest) throws Exception {
+
+        int count = 0;
+        for (File maf : new File[] { rawMAF, annotatedMAF, emptyMAF }) {
+            if (manifest.isCurrent(maf.getName(), VERSION)) {
+                continue;
+            }
+            count++;
+            String inputDigest = FileDigests.digest(maf);
+            String status = (MutationFileUtil.isAnnotated(maf.getPath())) ? AnnotationManifest.ALREADY_ANNOTATED :
+                (MutationFileUtil.isEmpty(maf.getPath())) ? AnnotationManifest.EMPTY : null;
+            if (status == null) {
+                annotate(maf);
+                status = AnnotationManifest.ANNOTATED;
+            }
+            manifest.record(maf.getName(), inputDigest, status, VERSION, maf);
+        }
+        return count;
+    }
+
+    private void annotate(File maf) throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        for (String line : org.apache.commons.io.FileUtils.readLines(maf, "UTF-8")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            builder.append(line).append((line.startsWith("Hugo_Symbol")) ? "\tHGVSp_Short" : "\tp.X1Y").append("\n");
+        }
+        write(maf, builder.toString());
+    }
+
+    private void write(File file, String contents) throws IOException {
+        org.apache.commons.io.FileUtils.writeStringToFile(file, contents, "UTF-8");
+    }
+}
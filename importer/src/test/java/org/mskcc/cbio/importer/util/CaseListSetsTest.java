@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.mskcc.cbio.importer.CaseIDs;
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests case list computation over a fixture staging directory.
+ */
+@RunWith(JUnit4.class)
+public class CaseListSetsTest {
+
+    private static final String CNA = "data_CNA.txt";
+    private static final String EXPRESSION = "data_expression_median.txt";
+    private static final String MUTATIONS = "data_mutations_extended.txt";
+    private static final String METHYLATION = "data_methylation_hm450.txt";
+    private static final String MISSING = "data_rppa.txt";
+
+    // samples end in -01, normals in -11
+    private static final CaseIDs CASE_IDS = new CaseIDs() {
+        public boolean isSampleId(String caseId) { return caseId.matches("TCGA-\\w\\w-\\w\\w\\w\\w-01.*"); }
+        public boolean isSampleId(int cancerStudyId, String caseId) { return isSampleId(caseId); }
+        public boolean isNormalId(String caseId) { return caseId.matches("TCGA-\\w\\w-\\w\\w\\w\\w-11.*"); }
+        public boolean isTruncatedTCGAPatientId(String caseId) { return caseId.matches("TCGA-\\w\\w-\\w\\w\\w\\w"); }
+        public String getSampleId(String caseId) { return (caseId.length() > 15) ? caseId.substring(0, 15) : caseId; }
+        public String getSampleId(int cancerStudyId, String caseId) { return getSampleId(caseId); }
+        public String getPatientId(String caseId) { return caseId.substring(0, 12); }
+        public String getPatientId(int cancerStudyId, String caseId) { return getPatientId(caseId); }
+    };
+
+    private File stagingDir;
+    private final ConcurrentHashMap<String, AtomicInteger> reads = new ConcurrentHashMap<String, AtomicInteger>();
+
+    @Before
+    public void setUp() throws IOException {
+
+        stagingDir = File.createTempFile("case_list_sets_test", "");
+        stagingDir.delete();
+        stagingDir.mkdirs();
+
+        write(CNA, "Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-0001-01\tTCGA-A1-0002-01\tTCGA-A1-0003-01\tTCGA-A1-0004-01\n" +
+                   "TP53\t7157\t0\t1\t-1\t0\n");
+        write(EXPRESSION, "Hugo_Symbol\tEntrez_Gene_Id\tTCGA-A1-0003-01\tTCGA-A1-0002-01\tTCGA-A1-0005-01\tTCGA-A1-0002-11\n" +
+                          "TP53\t7157\t1.5\t2.5\t3.5\t4.5\n");
+        write(MUTATIONS, "#version 2.4\n" +
+                         "Hugo_Symbol\tEntrez_Gene_Id\tTumor_Sample_Barcode\tVariant_Classification\n" +
+                         "TP53\t7157\tTCGA-A1-0004-01A-11D\tMissense_Mutation\n" +
+                         "KRAS\t3845\tTCGA-A1-0002-01A-11D\tMissense_Mutation\n" +
+                         "EGFR\t1956\tTCGA-A1-0004-01A-11D\tSilent\n" +
+                         "PTEN\t5728\tTCGA-A1-0004-11A-11D\tSilent\n" +
+                         "BRAF\t673\tTCGA-A1-0003-01A-11D\tMissense_Mutation\n");
+        // no samples
+        write(METHYLATION, "Hugo_Symbol\tEntrez_Gene_Id\n");
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(stagingDir);
+    }
+
+    @Test
+    public void testReadCaseList() throws Exception {
+
+        assertEquals(Arrays.asList("TCGA-A1-0001-01", "TCGA-A1-0002-01", "TCGA-A1-0003-01", "TCGA-A1-0004-01"),
+                     read(CNA, true));
+        assertEquals(Arrays.asList("TCGA-A1-0003-01", "TCGA-A1-0002-01", "TCGA-A1-0005-01"), read(EXPRESSION, true));
+        assertEquals(Arrays.asList("TCGA-A1-0004-01", "TCGA-A1-0002-01", "TCGA-A1-0003-01"), read(MUTATIONS, true));
+        assertEquals(Arrays.asList("TCGA-A1-0004-01", "TCGA-A1-0002-01", "TCGA-A1-0004-11", "TCGA-A1-0003-01"),
+                     read(MUTATIONS, false));
+        assertTrue(read(METHYLATION, true).isEmpty());
+        assertTrue(read(MISSING, true).isEmpty());
+
+        // the sequenced samples meta header wins
+        write(MUTATIONS, "#sequenced_samples: TCGA-A1-0001-01 TCGA-A1-0002-01\n" +
+                         "Hugo_Symbol\tEntrez_Gene_Id\tTumor_Sample_Barcode\n" +
+                         "TP53\t7157\tTCGA-A1-0004-01\n");
+        assertEquals(Arrays.asList("TCGA-A1-0001-01", "TCGA-A1-0002-01"), read(MUTATIONS, true));
+
+        // compressed staging file
+        File compressed = StagingUtils.compress(new File(stagingDir, CNA), 1);
+        assertEquals(Arrays.asList("TCGA-A1-0001-01", "TCGA-A1-0002-01", "TCGA-A1-0003-01", "TCGA-A1-0004-01"),
+                     CaseListSets.readCaseList(compressed, true, CASE_IDS, 1));
+    }
+
+    @Test
+    public void testUnionAndIntersection() throws Exception {
+
+        CaseListSets caseListSets = newCaseListSets(4, CNA, EXPRESSION, MUTATIONS, METHYLATION, MISSING);
+
+        assertEquals(Arrays.asList("TCGA-A1-0001-01", "TCGA-A1-0002-01", "TCGA-A1-0003-01", "TCGA-A1-0004-01", "TCGA-A1-0005-01"),
+                     caseListSets.getUnion(new String[] { CNA, EXPRESSION, MUTATIONS, METHYLATION, MISSING }));
+        assertEquals(Arrays.asList("TCGA-A1-0002-01", "TCGA-A1-0003-01"),
+                     caseListSets.getIntersection(new String[] { CNA, EXPRESSION, MUTATIONS }));
+        assertEquals(Arrays.asList("TCGA-A1-0002-01", "TCGA-A1-0003-01", "TCGA-A1-0004-01"),
+                     caseListSets.getIntersection(new String[] { MUTATIONS, CNA }));
+        assertEquals(Arrays.asList("TCGA-A1-0002-01", "TCGA-A1-0003-01", "TCGA-A1-0005-01"),
+                     caseListSets.getUnion(new String[] { EXPRESSION }));
+
+        // a file without cases empties an intersection, but not a union
+        assertTrue(caseListSets.getIntersection(new String[] { CNA, METHYLATION }).isEmpty());
+        assertTrue(caseListSets.getIntersection(new String[] { CNA, MISSING }).isEmpty());
+        assertEquals(4, caseListSets.getUnion(new String[] { CNA, MISSING }).size());
+        assertFalse(caseListSets.hasCases(METHYLATION));
+        assertTrue(caseListSets.hasCases(CNA));
+
+        // an empty intersection stays empty
+        write("data_rna_seq.txt", "Hugo_Symbol\tTCGA-A1-0009-01\n");
+        caseListSets = newCaseListSets(2, CNA, "data_rna_seq.txt", EXPRESSION);
+        assertTrue(caseListSets.getIntersection(new String[] { CNA, "data_rna_seq.txt", EXPRESSION }).isEmpty());
+    }
+
+    @Test
+    public void testEachStagingFileReadOnce() throws Exception {
+
+        newCaseListSets(3, CNA, EXPRESSION, CNA, MUTATIONS, EXPRESSION, CNA);
+        assertEquals(new HashSet<String>(Arrays.asList(CNA, EXPRESSION, MUTATIONS)), reads.keySet());
+        for (AtomicInteger count : reads.values()) {
+            assertEquals(1, count.get());
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+
+        String[] stagingFilenames = { CNA, EXPRESSION, MUTATIONS, METHYLATION, MISSING };
+        CaseListSets sequential = newCaseListSets(1, stagingFilenames);
+        CaseListSets parallel = newCaseListSets(8, stagingFilenames);
+        assertEquals(sequential.getUnion(stagingFilenames), parallel.getUnion(stagingFilenames));
+        assertEquals(sequential.getIntersection(new String[] { CNA, EXPRESSION }),
+                     parallel.getIntersection(new String[] { CNA, EXPRESSION }));
+    }
+
+    @Test
+    public void testCompressedStagingFiles() throws Exception {
+
+        String[] stagingFilenames = { CNA, EXPRESSION, MUTATIONS };
+        List<String> expected = newCaseListSets(1, stagingFilenames).getIntersection(stagingFilenames);
+        for (String stagingFilename : stagingFilenames) {
+            StagingUtils.compress(new File(stagingDir, stagingFilename), 1);
+        }
+
+        // the intersection case list is still generated
+        assertTrue(CaseListSets.allStagingFilesExist(stagingDir, stagingFilenames));
+        assertFalse(CaseListSets.allStagingFilesExist(stagingDir, new String[] { CNA, MISSING }));
+        CaseListSets caseListSets = new CaseListSets(Arrays.asList(stagingFilenames), new CaseListSets.StagingFileReader() {
+            public List<String> getCaseList(String stagingFilename) throws Exception {
+                return CaseListSets.readCaseList(StagingUtils.resolveStagingFile(new File(stagingDir, stagingFilename)),
+                                                 true, CASE_IDS, 1);
+            }
+        }, 2);
+        assertEquals(Arrays.asList("TCGA-A1-0002-01", "TCGA-A1-0003-01"), expected);
+        assertEquals(expected, caseListSets.getIntersection(stagingFilenames));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadErrorPropagated() throws Exception {
+
+        new CaseListSets(Arrays.asList(CNA, EXPRESSION), new CaseListSets.StagingFileReader() {
+            public List<String> getCaseList(String stagingFilename) throws Exception {
+                if (stagingFilename.equals(EXPRESSION)) {
+                    throw new IOException(stagingFilename);
+                }
+                return read(stagingFilename, true);
+            }
+        }, 2);
+    }
+
+    private CaseListSets newCaseListSets(int numThreads, String... stagingFilenames) throws Exception {
+
+        return new CaseListSets(Arrays.asList(stagingFilenames), new CaseListSets.StagingFileReader() {
+            public List<String> getCaseList(String stagingFilename) throws Exception {
+                AtomicInteger count = new AtomicInteger();
+                AtomicInteger previous = reads.putIfAbsent(stagingFilename, count);
+                ((previous == null) ? count : previous).incrementAndGet();
+                return read(stagingFilename, true);
+            }
+        }, numThreads);
+    }
+
+    private List<String> read(String stagingFilename, boolean strict) throws Exception {
+        return CaseListSets.readCaseList(new File(stagingDir, stagingFilename), strict, CASE_IDS, 1);
+    }
+
+    private void write(String name, String contents) throws IOException {
+        org.apache.commons.io.FileUtils.writeStringToFile(new File(stagingDir, name), contents, "UTF-8");
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs a small two stage (convert / import) fixture pipeline which follows the
+ * journaling pattern of ConverterImpl & ImporterImpl, crashes it at random points
+ * and checks that the resumed output is identical to an uninterrupted run.
+ */
+@RunWith(JUnit4.class)
+public class CheckpointJournalTest {
+
+    private static final String[] STUDIES = { "brca_tcga", "gbm_tcga", "ov_tcga" };
+    private static final String[] DATATYPES = { "mutation", "cna", "mrna" };
+    private static final int NUM_ROWS = 20;
+    private static final int NUM_TRIALS = 30;
+
+    private File workDir;
+    private File inputDir;
+
+    @Before
+    public void setUp() throws IOException {
+
+        workDir = File.createTempFile("checkpoint_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        inputDir = new File(workDir, "input");
+        Random random = new Random(7);
+        for (String study : STUDIES) {
+            for (String datatype : DATATYPES) {
+                StringBuilder builder = new StringBuilder("gene\tvalue\n");
+                for (int lc = 0; lc < NUM_ROWS; lc++) {
+                    builder.append("GENE").append(random.nextInt(1000)).append("\t").append(random.nextInt()).append("\n");
+                }
+                write(new File(inputDir, study + File.separator + datatype + ".txt"), builder.toString());
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testResumeAfterRandomCrashes() throws Exception {
+
+        File referenceDir = new File(workDir, "reference");
+        FixturePipeline reference = new FixturePipeline(referenceDir, new CheckpointJournal(), -1, false);
+        reference.run();
+        int totalSteps = reference.steps;
+        int totalUnits = reference.executed.size();
+
+        Random random = new Random(11);
+        for (int trial = 0; trial < NUM_TRIALS; trial++) {
+            File outputDir = new File(workDir, "trial_" + trial);
+            File journalFile = new File(outputDir, "journal.txt");
+
+            // up to two crashes before the run completes, sometimes leaving a torn journal entry
+            int numCrashes = 1 + random.nextInt(2);
+            for (int crash = 0; crash < numCrashes; crash++) {
+                FixturePipeline pipeline = new FixturePipeline(outputDir, new CheckpointJournal(journalFile),
+                                                               random.nextInt(totalSteps), random.nextBoolean());
+                try {
+                    pipeline.run();
+                }
+                catch (SimulatedCrash e) {
+                    // expected
+                }
+            }
+
+            // restart, units completed before the crash should not be executed again,
+            // unless their study is imported again because of an interrupted import
+            CheckpointJournal journal = new CheckpointJournal(journalFile);
+            Set<String> completed = new HashSet<String>();
+            for (String study : STUDIES) {
+                if (journal.isInterrupted(CheckpointJournal.IMPORT_STAGE, study)) {
+                    continue;
+                }
+                for (String datatype : DATATYPES) {
+                    if (journal.isComplete(CheckpointJournal.IMPORT_STAGE, study, datatype)) {
+                        completed.add(CheckpointJournal.IMPORT_STAGE + ":" + study + ":" + datatype);
+                    }
+                }
+            }
+            FixturePipeline resumed = new FixturePipeline(outputDir, journal, -1, false);
+            resumed.run();
+
+            assertTrue(resumed.executed.size() <= totalUnits);
+            for (String unit : resumed.executed) {
+                assertFalse("unit executed twice: " + unit, completed.contains(unit));
+            }
+            assertSameTree(new File(referenceDir, "staging"), new File(outputDir, "staging"));
+            assertSameTree(new File(referenceDir, "db"), new File(outputDir, "db"));
+
+            // a completed run has nothing left to do
+            FixturePipeline rerun = new FixturePipeline(outputDir, new CheckpointJournal(journalFile), -1, false);
+            rerun.run();
+            assertTrue(rerun.executed.isEmpty());
+        }
+    }
+
+    @Test
+    public void testResumeAfterInterruptedImport() throws Exception {
+
+        File referenceDir = new File(workDir, "reference");
+        new FixturePipeline(referenceDir, new CheckpointJournal(), -1, false).run();
+
+        // crash halfway through importing the second staging file of gbm_tcga
+        File outputDir = new File(workDir, "interrupted");
+        File journalFile = new File(outputDir, "journal.txt");
+        FixturePipeline pipeline = new FixturePipeline(outputDir, new CheckpointJournal(journalFile), -1, false);
+        pipeline.crashIn = CheckpointJournal.IMPORT_STAGE + ":gbm_tcga:cna";
+        try {
+            pipeline.run();
+            fail("no crash");
+        }
+        catch (SimulatedCrash e) {
+            // expected
+        }
+        CheckpointJournal journal = new CheckpointJournal(journalFile);
+        assertTrue(journal.isInterrupted(CheckpointJournal.IMPORT_STAGE, "gbm_tcga"));
+        assertFalse(journal.isInterrupted(CheckpointJournal.IMPORT_STAGE, "brca_tcga"));
+        assertTrue(journal.isComplete(CheckpointJournal.IMPORT_STAGE, "gbm_tcga", "mutation"));
+
+        // the partly imported study is imported again from scratch, no rows are duplicated
+        FixturePipeline resumed = new FixturePipeline(outputDir, journal, -1, false);
+        resumed.run();
+        assertEquals(Arrays.asList(CheckpointJournal.IMPORT_STAGE + ":gbm_tcga:cancer_study",
+                                   CheckpointJournal.IMPORT_STAGE + ":gbm_tcga:mutation",
+                                   CheckpointJournal.IMPORT_STAGE + ":gbm_tcga:cna",
+                                   CheckpointJournal.IMPORT_STAGE + ":gbm_tcga:mrna",
+                                   CheckpointJournal.IMPORT_STAGE + ":ov_tcga:cancer_study",
+                                   CheckpointJournal.IMPORT_STAGE + ":ov_tcga:mutation",
+                                   CheckpointJournal.IMPORT_STAGE + ":ov_tcga:cna",
+                                   CheckpointJournal.IMPORT_STAGE + ":ov_tcga:mrna"),
+                     resumed.executed);
+        assertSameTree(new File(referenceDir, "db"), new File(outputDir, "db"));
+        assertFalse(new CheckpointJournal(journalFile).isInterrupted(CheckpointJournal.IMPORT_STAGE, "gbm_tcga"));
+    }
+
+    @Test
+    public void testChangedOutputIsRedone() throws Exception {
+
+        File outputDir = new File(workDir, "changed");
+        File journalFile = new File(outputDir, "journal.txt");
+        new FixturePipeline(outputDir, new CheckpointJournal(journalFile), -1, false).run();
+
+        // modified staging file - convert is redone, which restores the staging
+        // file, so the import of the unchanged staging file is still skipped
+        write(new File(outputDir, "staging" + File.separator + "gbm_tcga" + File.separator + "cna.txt"), "garbage\n");
+        FixturePipeline rerun = new FixturePipeline(outputDir, new CheckpointJournal(journalFile), -1, false);
+        rerun.run();
+
+        assertEquals(Arrays.asList(CheckpointJournal.CONVERT_STAGE + ":gbm_tcga:cna"), rerun.executed);
+    }
+
+    @Test
+    public void testTornEntryAndReset() throws Exception {
+
+        File journalFile = new File(workDir, "journal.txt");
+        CheckpointJournal journal = new CheckpointJournal(journalFile);
+        journal.markComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "mutation", "abc");
+        journal.markComplete(CheckpointJournal.IMPORT_STAGE, "brca_tcga", "mutation", "abc");
+        journal.markComplete(CheckpointJournal.IMPORT_STAGE, "gbm_tcga", "mutation", "def");
+        journal.reset(CheckpointJournal.IMPORT_STAGE, "brca_tcga");
+
+        // torn write of the next entry
+        appendTornEntry(journalFile);
+        long length = journalFile.length();
+
+        journal = new CheckpointJournal(journalFile);
+        assertTrue(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "mutation", "abc"));
+        assertFalse(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "mutation", "xyz"));
+        assertFalse(journal.isComplete(CheckpointJournal.IMPORT_STAGE, "brca_tcga", "mutation"));
+        assertTrue(journal.isComplete(CheckpointJournal.IMPORT_STAGE, "gbm_tcga", "mutation", "def"));
+        assertFalse(journal.isComplete(CheckpointJournal.IMPORT_STAGE, "ov_tcga", "mutation"));
+
+        // torn entry is truncated, new entries start on a line of their own
+        assertTrue(journalFile.length() < length);
+        journal.markComplete(CheckpointJournal.IMPORT_STAGE, "ov_tcga", "mutation", "ghi");
+        assertTrue(new CheckpointJournal(journalFile).isComplete(CheckpointJournal.IMPORT_STAGE, "ov_tcga", "mutation", "ghi"));
+    }
+
+    @Test
+    public void testDisabledJournal() throws Exception {
+
+        CheckpointJournal journal = new CheckpointJournal();
+        journal.markComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "mutation", "abc");
+
+        assertFalse(journal.isEnabled());
+        assertFalse(journal.isComplete(CheckpointJournal.CONVERT_STAGE, "brca_tcga", "mutation"));
+    }
+
+    private static void appendTornEntry(File journalFile) throws IOException {
+
+        FileOutputStream out = new FileOutputStream(journalFile, true);
+        out.write("done\timport_data\tov_tc".getBytes("UTF-8"));
+        out.close();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        org.apache.commons.io.FileUtils.writeStringToFile(file, content, "UTF-8");
+    }
+
+    private static void assertSameTree(File expected, File actual) throws IOException {
+
+        String[] expectedFiles = expected.list();
+        String[] actualFiles = actual.list();
+        Arrays.sort(expectedFiles);
+        Arrays.sort(actualFiles);
+        assertArrayEquals(expectedFiles, actualFiles);
+
+        for (String name : expectedFiles) {
+            File expectedFile = new File(expected, name);
+            File actualFile = new File(actual, name);
+            if (expectedFile.isDirectory()) {
+                assertSameTree(expectedFile, actualFile);
+            }
+            else if (!org.apache.commons.io.FileUtils.contentEquals(expectedFile, actualFile)) {
+                fail("different content: " + actualFile);
+            }
+        }
+    }
+
+    private static class SimulatedCrash extends RuntimeException {}
+
+    /**
+     * Converts each input file into a staging file, then "imports" each staging
+     * file into a per study db directory.  Like the portal importers, an import
+     * appends its rows, and importing the study metadata clobbers the db directory
+     * of the study, like ImportCancerStudy does.  An interrupted import deletes
+     * the study and starts over, like ImporterImpl.  Every line written and every
+     * journal entry is a step at which the pipeline may crash.
+     */
+    private class FixturePipeline {
+
+        private File stagingDir;
+        private File dbDir;
+        private CheckpointJournal journal;
+        private int crashAt;
+        private boolean tornEntry;
+        private int steps;
+        // unit whose import crashes after its first row, if any
+        private String crashIn;
+        private List<String> executed = new ArrayList<String>();
+
+        FixturePipeline(File outputDir, CheckpointJournal journal, int crashAt, boolean tornEntry) {
+            this.stagingDir = new File(outputDir, "staging");
+            this.dbDir = new File(outputDir, "db");
+            this.journal = journal;
+            this.crashAt = crashAt;
+            this.tornEntry = tornEntry;
+        }
+
+        void run() throws Exception {
+
+            for (String study : STUDIES) {
+                for (String datatype : DATATYPES) {
+                    convert(study, datatype);
+                }
+            }
+            for (String study : STUDIES) {
+                importStudy(study);
+            }
+        }
+
+        private void convert(String study, String datatype) throws Exception {
+
+            File stagingFile = new File(stagingDir, study + File.separator + datatype + ".txt");
+            if (journal.isEnabled() && stagingFile.exists() &&
+                journal.isComplete(CheckpointJournal.CONVERT_STAGE, study, datatype, FileDigests.digest(stagingFile))) {
+                return;
+            }
+            executed.add(CheckpointJournal.CONVERT_STAGE + ":" + study + ":" + datatype);
+
+            List<String> lines = org.apache.commons.io.FileUtils.readLines(new File(inputDir, study + File.separator + datatype + ".txt"), "UTF-8");
+            stagingFile.getParentFile().mkdirs();
+            Writer writer = new BufferedWriter(new FileWriter(stagingFile));
+            try {
+                for (String line : lines) {
+                    writer.write(line.toUpperCase() + "\t" + datatype + "\n");
+                    writer.flush();
+                    step(false);
+                }
+            }
+            finally {
+                writer.close();
+            }
+            step(true);
+            journal.markComplete(CheckpointJournal.CONVERT_STAGE, study, datatype, FileDigests.digest(stagingFile));
+        }
+
+        private void importStudy(String study) throws Exception {
+
+            File studyDbDir = new File(dbDir, study);
+            if (journal.isInterrupted(CheckpointJournal.IMPORT_STAGE, study)) {
+                org.apache.commons.io.FileUtils.deleteQuietly(studyDbDir);
+                journal.reset(CheckpointJournal.IMPORT_STAGE, study);
+            }
+            if (!journal.isComplete(CheckpointJournal.IMPORT_STAGE, study, "cancer_study", "meta")) {
+                executed.add(CheckpointJournal.IMPORT_STAGE + ":" + study + ":cancer_study");
+                journal.reset(CheckpointJournal.IMPORT_STAGE, study);
+                journal.markStarted(CheckpointJournal.IMPORT_STAGE, study, "cancer_study");
+                org.apache.commons.io.FileUtils.deleteQuietly(studyDbDir);
+                write(new File(studyDbDir, "cancer_study.txt"), study + "\n");
+                step(true);
+                journal.markComplete(CheckpointJournal.IMPORT_STAGE, study, "cancer_study", "meta");
+            }
+
+            for (String datatype : DATATYPES) {
+                File stagingFile = new File(stagingDir, study + File.separator + datatype + ".txt");
+                String digest = FileDigests.digest(stagingFile);
+                if (journal.isComplete(CheckpointJournal.IMPORT_STAGE, study, datatype, digest)) {
+                    continue;
+                }
+                String unit = CheckpointJournal.IMPORT_STAGE + ":" + study + ":" + datatype;
+                executed.add(unit);
+
+                // rows are appended to the "genetic profile", importing twice duplicates them
+                journal.markStarted(CheckpointJournal.IMPORT_STAGE, study, datatype);
+                File profile = new File(studyDbDir, datatype + ".txt");
+                for (String line : org.apache.commons.io.FileUtils.readLines(stagingFile, "UTF-8")) {
+                    org.apache.commons.io.FileUtils.writeStringToFile(profile, line + "\n", "UTF-8", true);
+                    if (unit.equals(crashIn)) {
+                        throw new SimulatedCrash();
+                    }
+                    step(false);
+                }
+                step(true);
+                journal.markComplete(CheckpointJournal.IMPORT_STAGE, study, datatype, digest);
+            }
+        }
+
+        private void step(boolean beforeJournalEntry) throws IOException {
+
+            if (steps++ == crashAt) {
+                if (beforeJournalEntry && tornEntry) {
+                    appendTornEntry(new File(stagingDir.getParentFile(), "journal.txt"));
+                }
+                throw new SimulatedCrash();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.mskcc.cbio.importer.Config;
+import org.mskcc.cbio.importer.Converter;
+import org.mskcc.cbio.importer.model.CancerStudyMetadata;
+import org.mskcc.cbio.importer.model.DataMatrix;
+import org.mskcc.cbio.importer.model.DatatypeMetadata;
+import org.mskcc.cbio.importer.model.PortalMetadata;
+import org.mskcc.cbio.importer.model.ReferenceMetadata;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests ComponentRegistry class resolution and startup validation
+ * against fixture datatype and reference metadata.
+ */
+@RunWith(JUnit4.class)
+public class ComponentRegistryTest {
+
+    private static final String CONVERTER = FixtureConverter.class.getName();
+    private static final String IMPORTER = FixtureImporter.class.getName();
+    private static final String MISSING = "org.mskcc.cbio.importer.converter.internal.MissingConverterImpl";
+
+    private ComponentRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new ComponentRegistry();
+    }
+
+    @Test
+    public void testValidConfiguration() {
+        Config config = config(Arrays.asList(datatype("mutation", CONVERTER, IMPORTER),
+                                             datatype("clinical", CONVERTER, ""),
+                                             datatype("cna-gistic", "", IMPORTER)),
+                               Arrays.asList(reference("gene", "", IMPORTER),
+                                             reference("cosmic", "$PORTAL_HOME/scripts/fetch-cosmic.sh", "")));
+
+        assertEquals(new ArrayList<String>(), registry.validate(config));
+    }
+
+    @Test
+    public void testMisconfiguration() {
+        Config config = config(Arrays.asList(datatype("mutation", MISSING, IMPORTER),
+                                             datatype("clinical", IMPORTER, ""),
+                                             datatype("cna-gistic", CONVERTER, CONVERTER)),
+                               Arrays.asList(reference("gene", "", MISSING)));
+
+        List<String> problems = registry.validate(config);
+        assertEquals(problems.toString(), 4, problems.size());
+        assertEquals("datatype mutation converter: cannot find class " + MISSING, problems.get(0));
+        assertEquals("datatype clinical converter: " + IMPORTER + " does not implement Converter", problems.get(1));
+        assertEquals("datatype cna-gistic importer: " + CONVERTER + " has no main method", problems.get(2));
+        assertEquals("reference type gene importer: cannot find class " + MISSING, problems.get(3));
+    }
+
+    @Test
+    public void testResolvedOnce() throws Exception {
+        assertSame(registry.getComponent(CONVERTER), registry.getComponent(CONVERTER));
+        assertSame(registry.getMethod(IMPORTER, "main"), registry.getMethod(IMPORTER, "main"));
+        assertNull(registry.getMethod(CONVERTER, "main"));
+        assertNull(registry.getMethod(MISSING, "main"));
+
+        Object converter = registry.getInstance(CONVERTER, new Object[0], false);
+        assertTrue(converter instanceof FixtureConverter);
+        assertNotSame(converter, registry.getInstance(CONVERTER, new Object[0], false));
+
+        assertTrue(registry.isAssignableTo(CONVERTER, Converter.class));
+        assertFalse(registry.isAssignableTo(IMPORTER, Converter.class));
+        assertFalse(registry.isAssignableTo(MISSING, Converter.class));
+        assertFalse(registry.isAssignableTo("", Converter.class));
+    }
+
+    @Test
+    public void testMetadataInstance() throws Exception {
+        DatatypeMetadata datatypeMetadata = (DatatypeMetadata)registry.getInstance(DatatypeMetadata.class.getName(),
+                                                                                    new Object[] { properties("mutation", CONVERTER, IMPORTER) },
+                                                                                    true);
+        assertEquals("mutation", datatypeMetadata.getDatatype());
+        assertEquals(CONVERTER, datatypeMetadata.getConverterClassName());
+    }
+
+    private String[] properties(String datatype, String converterClassName, String importerClassName) {
+        return new String[] { datatype, "true", "true", "", "", "data_" + datatype + ".txt",
+                              converterClassName, importerClassName, "false", "", "", "", "", "false", "", "" };
+    }
+
+    private DatatypeMetadata datatype(String datatype, String converterClassName, String importerClassName) {
+        return new DatatypeMetadata(properties(datatype, converterClassName, importerClassName));
+    }
+
+    private ReferenceMetadata reference(String referenceType, String fetcherName, String importerName) {
+        return new ReferenceMetadata(new String[] { referenceType, "true", "true", fetcherName, "", importerName, "" });
+    }
+
+    /**
+     * Creates a Config which only provides the given datatype and reference metadata.
+     */
+    private Config config(List<DatatypeMetadata> datatypes, List<ReferenceMetadata> references) {
+        Config config = mock(Config.class);
+        when(config.getDatatypeMetadata(Config.ALL)).thenReturn(datatypes);
+        when(config.getReferenceMetadata(Config.ALL)).thenReturn(references);
+        return config;
+    }
+
+    public static class FixtureConverter implements Converter {
+        public FixtureConverter() {}
+        public void convertData(String portal, String runDate, Boolean applyOverrides) {}
+        public void generateCaseLists(String portal) {}
+        public void applyOverrides(String portal, Set<String> excludeDatatypes, boolean applyCaseLists) {}
+        public void createStagingFile(PortalMetadata portalMetadata, CancerStudyMetadata cancerStudyMetadata,
+                                      DatatypeMetadata datatypeMetadata, DataMatrix[] dataMatrices) {}
+    }
+
+    public static class FixtureImporter {
+        public static void main(String[] args) {}
+    }
+}
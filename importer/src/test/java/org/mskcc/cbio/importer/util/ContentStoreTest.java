@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center 
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center 
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Stores duplicate fixture archives of two firehose runs in a content store
+ * on a local temp directory.
+ */
+@RunWith(JUnit4.class)
+public class ContentStoreTest {
+
+    private File workDir;
+    private File run1;
+    private File run2;
+    private ContentStore contentStore;
+
+    @Before
+    public void setUp() throws IOException {
+
+        workDir = File.createTempFile("content_store_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        run1 = new File(workDir, "analyses__2015_04_02");
+        run2 = new File(workDir, "analyses__2015_08_21");
+        contentStore = new ContentStore(new File(workDir, "store"));
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testDuplicateArchivesAreLinked() throws IOException {
+
+        byte[] content = archive(1);
+        File archive1 = write(new File(run1, "gdac.broadinstitute.org_BRCA.Mutation_Packager_Calls.Level_3.2015040200.0.0.tar.gz"), content);
+        File archive2 = write(new File(run2, "gdac.broadinstitute.org_BRCA.Mutation_Packager_Calls.Level_3.2015082100.0.0.tar.gz"), content);
+        File other = write(new File(run2, "gdac.broadinstitute.org_GBM.Mutation_Packager_Calls.Level_3.2015082100.0.0.tar.gz"), archive(2));
+
+        assertFalse(contentStore.store(archive1, md5(archive1)));
+        assertTrue(contentStore.store(archive2, md5(archive2)));
+        assertFalse(contentStore.store(other, md5(other)));
+
+        // paths are unchanged, duplicates share a single blob
+        assertArrayEquals(content, FileUtils.readFileToByteArray(archive1));
+        assertArrayEquals(content, FileUtils.readFileToByteArray(archive2));
+        assertTrue(Files.isSameFile(archive1.toPath(), archive2.toPath()));
+        assertTrue(Files.isSameFile(archive1.toPath(), contentStore.getBlob(md5(archive1))));
+        assertFalse(Files.isSameFile(archive1.toPath(), other.toPath()));
+
+        assertEquals(2, contentStore.getReferenceCount(md5(archive1)));
+        assertEquals(1, contentStore.getReferenceCount(md5(other)));
+
+        // storing again (e.g. a rerun of the fetch) does not add references
+        assertFalse(contentStore.store(archive2, md5(archive2)));
+        assertEquals(2, contentStore.getReferenceCount(md5(archive1)));
+    }
+
+    @Test
+    public void testGcRemovesUnreferencedBlobs() throws IOException {
+
+        byte[] content = archive(3);
+        File archive1 = write(new File(run1, "gdac.broadinstitute.org_OV.Merge_Clinical.Level_1.2015040200.0.0.tar.gz"), content);
+        File archive2 = write(new File(run2, "gdac.broadinstitute.org_OV.Merge_Clinical.Level_1.2015082100.0.0.tar.gz"), content);
+        String digest = md5(archive1);
+        contentStore.store(archive1, digest);
+        contentStore.store(archive2, digest);
+
+        // one run is removed, the blob is still referenced
+        FileUtils.deleteDirectory(run1);
+        assertEquals(1, contentStore.getReferenceCount(digest));
+        assertEquals(0, contentStore.gc());
+        assertTrue(Files.exists(contentStore.getBlob(digest)));
+        assertArrayEquals(content, FileUtils.readFileToByteArray(archive2));
+
+        // a download replaced by other content no longer references the blob
+        archive2.delete();
+        write(archive2, archive(4));
+        assertEquals(0, contentStore.getReferenceCount(digest));
+        assertEquals(content.length, contentStore.gc());
+        assertFalse(Files.exists(contentStore.getBlob(digest)));
+        assertEquals(0, contentStore.getReferenceCount(digest));
+
+        // the same content can be stored again
+        File archive3 = write(new File(run1, "gdac.broadinstitute.org_OV.Merge_Clinical.Level_1.2015120100.0.0.tar.gz"), content);
+        assertFalse(contentStore.store(archive3, digest));
+        assertEquals(1, contentStore.getReferenceCount(digest));
+    }
+
+    @Test
+    public void testDisabledStore() throws IOException {
+
+        ContentStore disabled = new ContentStore("");
+        File archive1 = write(new File(run1, "archive.tar.gz"), archive(5));
+        File archive2 = write(new File(run2, "archive.tar.gz"), archive(5));
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.store(archive1, md5(archive1)));
+        assertFalse(disabled.store(archive2, md5(archive2)));
+        assertFalse(Files.isSameFile(archive1.toPath(), archive2.toPath()));
+        assertEquals(0, disabled.gc());
+    }
+
+    @Test
+    public void testRewrittenBlobReplaced() throws IOException {
+
+        byte[] content = archive(8);
+        File archive1 = write(new File(run1, "archive.tar.gz"), content);
+        String digest = md5(archive1);
+        contentStore.store(archive1, digest);
+
+        // a download rewritten in place also rewrites the blob
+        write(archive1, archive(9));
+        File archive2 = write(new File(run2, "archive.tar.gz"), content);
+        assertFalse(contentStore.store(archive2, digest));
+        assertEquals(digest, md5(contentStore.getBlob(digest).toFile()));
+        assertTrue(Files.isSameFile(archive2.toPath(), contentStore.getBlob(digest)));
+        assertEquals(1, contentStore.getReferenceCount(digest));
+        assertArrayEquals(content, FileUtils.readFileToByteArray(archive2));
+    }
+
+    private byte[] archive(long seed) {
+        byte[] content = new byte[64 * 1024 + (int)seed];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private File write(File file, byte[] content) throws IOException {
+        FileUtils.writeByteArrayToFile(file, content);
+        return file;
+    }
+
+    private String md5(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return DigestUtils.md5Hex(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.mskcc.cbio.importer.Config;
+import org.mskcc.cbio.importer.model.CancerStudyMetadata;
+import org.mskcc.cbio.importer.model.ClinicalAttributesMetadata;
+import org.mskcc.cbio.portal.scripts.ImportClinicalData;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that the clinical metadata headers built from a single metadata lookup and
+ * a single pass over the staging file match the per column lookup (by normalized
+ * column header) and type detection they replaced.
+ */
+@RunWith(JUnit4.class)
+public class MetadataUtilsTest {
+
+    // known, known by a lower case header (numbers typed as STRING), missing attributes,
+    // and unknown columns of numbers, of strings (only on the last row), of blanks, and
+    // of numbers whose only string is in an inconsistent record
+    private static final List<String> HEADERS = Arrays.asList("AGE", "cohort", "TUMOR_GRADE",
+                                                              "SAMPLE_WEIGHT", "SUBTYPE", "NOTES", "BATCH");
+
+    private static final String[] STAGING_FILE = {
+        "AGE\tcohort\tTUMOR_GRADE\tSAMPLE_WEIGHT\tSUBTYPE\tNOTES\tBATCH",
+        "61\t12.5\tG2\t1.5e2\t3\t\t7",
+        "47\t\tG3\t-0.25\t\t\t8",
+        "55\t30\tG1\t210\tLumA\t9\tb1\textra",
+        "70\t4\tG2\t\tBasal\t\t9" };
+
+    private File stagingFile;
+    private Config config;
+
+    @Before
+    public void setUp() throws IOException {
+
+        stagingFile = File.createTempFile("metadata_utils", ".txt");
+        org.apache.commons.io.FileUtils.writeLines(stagingFile, "UTF-8", Arrays.asList(STAGING_FILE));
+
+        final List<ClinicalAttributesMetadata> metadata = Arrays.asList(
+            attribute("AGE", "Age", "Age at diagnosis", "NUMBER"),
+            attribute("COHORT", "Cohort", "Treatment cohort", "STRING"),
+            attribute("TUMOR_GRADE", "Grade", "", "STRING"),
+            // a later duplicate is never used
+            attribute("AGE", "Age", "Age at diagnosis", "STRING"));
+
+        config = mock(Config.class);
+        // GDataImpl.getClinicalAttributesMetadata(String), first match by normalized column header
+        when(config.getClinicalAttributesMetadata(anyString())).thenAnswer(new Answer<Collection<ClinicalAttributesMetadata>>() {
+            public Collection<ClinicalAttributesMetadata> answer(InvocationOnMock invocation) {
+                String columnHeader = (String)invocation.getArguments()[0];
+                if (columnHeader.equals(Config.ALL)) {
+                    return metadata;
+                }
+                Collection<ClinicalAttributesMetadata> toReturn = new ArrayList<ClinicalAttributesMetadata>();
+                for (ClinicalAttributesMetadata attribute : metadata) {
+                    if (attribute.getNormalizedColumnHeader().equals(columnHeader)) {
+                        toReturn.add(attribute);
+                        break;
+                    }
+                }
+                return toReturn;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        stagingFile.delete();
+    }
+
+    @Test
+    public void testDatatypes() throws Exception {
+
+        String[] header = MetadataUtils.getClinicalMetadataHeaders(config, HEADERS, true, stagingFile.getPath()).split("\n");
+
+        assertEquals(Arrays.asList("NUMBER", "STRING", "NUMBER", "STRING", "NUMBER", "NUMBER"), row(header[2]));
+        assertEquals(legacyDatatypes(), row(header[2]));
+        assertEquals(Arrays.asList("AGE", "cohort", "SAMPLE_WEIGHT", "SUBTYPE", "NOTES", "BATCH"),
+                     Arrays.asList(header[5].split(ImportClinicalData.DELIMITER)));
+    }
+
+    @Test
+    public void testHeadersMissingMetadata() throws Exception {
+
+        CancerStudyMetadata cancerStudyMetadata = mock(CancerStudyMetadata.class);
+        for (boolean supplyDefaultClinicalAttributeValues : new boolean[] { true, false }) {
+            assertEquals(legacyHeadersMissingMetadata(supplyDefaultClinicalAttributeValues),
+                         MetadataUtils.getHeadersMissingMetadata(config, cancerStudyMetadata, HEADERS,
+                                                                 supplyDefaultClinicalAttributeValues));
+        }
+    }
+
+    /**
+     * The datatypes of the original MetadataUtils, one metadata lookup per column and
+     * a scan of all the records per unknown column.
+     */
+    private List<String> legacyDatatypes() throws Exception {
+
+        Reader reader = new InputStreamReader(new FileInputStream(stagingFile), "UTF-8");
+        try {
+            List<CSVRecord> records = new CSVParser(reader, CSVFormat.TDF.withHeader()).getRecords();
+            List<String> toReturn = new ArrayList<String>();
+            for (String columnHeader : HEADERS) {
+                Collection<ClinicalAttributesMetadata> metadata = config.getClinicalAttributesMetadata(columnHeader.toUpperCase());
+                if (metadata.isEmpty()) {
+                    String dataType = "NUMBER";
+                    for (CSVRecord record : records) {
+                        if (record.isConsistent() && StringUtils.isNotEmpty(record.get(columnHeader)) &&
+                            (!NumberUtils.isNumber(record.get(columnHeader)))) {
+                            dataType = "STRING";
+                            break;
+                        }
+                    }
+                    toReturn.add(dataType);
+                }
+                else if (!metadata.iterator().next().missingAttributes()) {
+                    toReturn.add(metadata.iterator().next().getDatatype());
+                }
+            }
+            return toReturn;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private List<Boolean> legacyHeadersMissingMetadata(boolean supplyDefaultClinicalAttributeValues) {
+
+        List<Boolean> toReturn = new ArrayList<Boolean>();
+        for (String columnHeader : HEADERS) {
+            Collection<ClinicalAttributesMetadata> metadata = config.getClinicalAttributesMetadata(columnHeader.toUpperCase());
+            toReturn.add((!metadata.isEmpty() && !metadata.iterator().next().missingAttributes()) ?
+                         false : !supplyDefaultClinicalAttributeValues);
+        }
+        return toReturn;
+    }
+
+    private List<String> row(String headerLine) {
+        return Arrays.asList(headerLine.substring(ImportClinicalData.METADATA_PREFIX.length()).split(ImportClinicalData.DELIMITER));
+    }
+
+    private ClinicalAttributesMetadata attribute(String normalizedColumnHeader, String displayName,
+                                                 String description, String datatype) {
+        return new ClinicalAttributesMetadata(new String[] { normalizedColumnHeader, displayName, description,
+                                                             datatype, "PATIENT", "1" });
+    }
+}
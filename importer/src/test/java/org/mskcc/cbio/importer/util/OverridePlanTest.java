@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Tests applying overrides between temp directories.
+ */
+@RunWith(JUnit4.class)
+public class OverridePlanTest {
+
+    private static final int NUM_STUDIES = 10;
+
+    private File overrideDir;
+    private File stagingDir;
+
+    @Before
+    public void setUp() throws IOException {
+
+        overrideDir = createTempDir("override_plan_override");
+        stagingDir = createTempDir("override_plan_staging");
+        for (int study = 0; study < NUM_STUDIES; study++) {
+            write(overrideFile(study, "data_CNA.txt"), "Hugo_Symbol\tS" + study + "\nTP53\t0\n");
+            write(overrideFile(study, "meta_CNA.txt"), "cancer_study_identifier: study_" + study + "\n");
+            write(overrideFile(study, "case_lists/cases_all.txt"), "case_list_ids: S" + study + "\n");
+            write(overrideFile(study, "case_lists/cases_cna.txt"), "case_list_ids: S" + study + "\n");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(overrideDir);
+        org.apache.commons.io.FileUtils.deleteQuietly(stagingDir);
+    }
+
+    @Test
+    public void testLinkThenSkip() throws Exception {
+
+        Map<OverridePlan.Action, Integer> actions = plan().apply(4, true);
+        assertEquals(4 * NUM_STUDIES, actions.get(OverridePlan.Action.LINKED).intValue());
+        assertEquals(0, actions.get(OverridePlan.Action.COPIED).intValue());
+        assertStagingMatchesOverrides(true);
+
+        // nothing changed
+        actions = plan().apply(4, true);
+        assertEquals(4 * NUM_STUDIES, actions.get(OverridePlan.Action.SKIPPED).intValue());
+    }
+
+    @Test
+    public void testCopyThenSkip() throws Exception {
+
+        File overrideFile = overrideFile(0, "data_CNA.txt");
+        overrideFile.setLastModified(overrideFile.lastModified() - 100000);
+
+        Map<OverridePlan.Action, Integer> actions = plan().apply(4, false);
+        assertEquals(4 * NUM_STUDIES, actions.get(OverridePlan.Action.COPIED).intValue());
+        assertEquals(0, actions.get(OverridePlan.Action.LINKED).intValue());
+        assertStagingMatchesOverrides(false);
+        assertEquals(overrideFile.lastModified(), stagingFile(0, "data_CNA.txt").lastModified());
+
+        // copies with equal contents are not replaced, even if links are allowed
+        actions = plan().apply(4, true);
+        assertEquals(4 * NUM_STUDIES, actions.get(OverridePlan.Action.SKIPPED).intValue());
+        assertStagingMatchesOverrides(false);
+    }
+
+    @Test
+    public void testChangedStagingFileReplaced() throws Exception {
+
+        plan().apply(1, false);
+
+        // a converted staging file of the same size, and a longer one
+        write(stagingFile(3, "data_CNA.txt"), "Hugo_Symbol\tS9\nTP53\t1\n");
+        write(stagingFile(4, "meta_CNA.txt"), "cancer_study_identifier: another_study\n");
+        // staging files without an override are left alone
+        write(stagingFile(5, "data_mutations_extended.txt"), "Hugo_Symbol\n");
+
+        Map<OverridePlan.Action, Integer> actions = plan().apply(2, true);
+        assertEquals(2, actions.get(OverridePlan.Action.LINKED).intValue());
+        assertEquals(4 * NUM_STUDIES - 2, actions.get(OverridePlan.Action.SKIPPED).intValue());
+        assertTrue(Files.isSameFile(overrideFile(3, "data_CNA.txt").toPath(), stagingFile(3, "data_CNA.txt").toPath()));
+        assertTrue(stagingFile(5, "data_mutations_extended.txt").exists());
+        assertNoTemporaryFiles(stagingDir);
+    }
+
+    @Test
+    public void testPlan() throws Exception {
+
+        OverridePlan overridePlan = new OverridePlan();
+        overridePlan.add(overrideFile(0, "case_lists"), stagingFile(0, "case_lists"));
+        overridePlan.add(overrideFile(0, "data_expression.txt"), stagingFile(0, "data_expression.txt"));
+        assertEquals(2, overridePlan.size());
+
+        overridePlan.apply(1, true);
+        assertEquals(new HashSet<String>(Arrays.asList("cases_all.txt", "cases_cna.txt")),
+                     new HashSet<String>(Arrays.asList(stagingFile(0, "case_lists").list())));
+        assertFalse(stagingFile(0, "data_expression.txt").exists());
+    }
+
+    private OverridePlan plan() {
+
+        OverridePlan overridePlan = new OverridePlan();
+        for (int study = 0; study < NUM_STUDIES; study++) {
+            for (String filename : new String[] { "data_CNA.txt", "meta_CNA.txt", "case_lists" }) {
+                overridePlan.add(overrideFile(study, filename), stagingFile(study, filename));
+            }
+        }
+        return overridePlan;
+    }
+
+    private void assertStagingMatchesOverrides(boolean linked) throws IOException {
+
+        for (int study = 0; study < NUM_STUDIES; study++) {
+            for (String filename : new String[] { "data_CNA.txt", "meta_CNA.txt", "case_lists/cases_all.txt", "case_lists/cases_cna.txt" }) {
+                File overrideFile = overrideFile(study, filename);
+                File stagingFile = stagingFile(study, filename);
+                assertTrue(stagingFile.getPath(), org.apache.commons.io.FileUtils.contentEquals(overrideFile, stagingFile));
+                assertEquals(stagingFile.getPath(), linked, Files.isSameFile(overrideFile.toPath(), stagingFile.toPath()));
+            }
+        }
+        assertNoTemporaryFiles(stagingDir);
+    }
+
+    private void assertNoTemporaryFiles(File dir) {
+
+        for (File file : dir.listFiles()) {
+            assertFalse(file.getPath(), file.getName().endsWith(".tmp"));
+            if (file.isDirectory()) {
+                assertNoTemporaryFiles(file);
+            }
+        }
+    }
+
+    private File overrideFile(int study, String filename) {
+        return new File(overrideDir, "brca/study_" + study + "/" + filename);
+    }
+
+    private File stagingFile(int study, String filename) {
+        return new File(stagingDir, "brca/study_" + study + "/" + filename);
+    }
+
+    private File createTempDir(String prefix) throws IOException {
+
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private void write(File file, String contents) throws IOException {
+        org.apache.commons.io.FileUtils.writeStringToFile(file, contents, "UTF-8");
+    }
+}
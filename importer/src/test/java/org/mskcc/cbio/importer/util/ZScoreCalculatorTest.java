@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2012 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+package org.mskcc.cbio.importer.util;
+
+import org.mskcc.cbio.importer.persistence.staging.util.StagingUtils;
+import org.mskcc.cbio.portal.scripts.NormalizeExpressionLevels;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Tests the in process z-scores, against NormalizeExpressionLevels on
+ * random fixture files and against hand computed values.
+ */
+@RunWith(JUnit4.class)
+public class ZScoreCalculatorTest {
+
+    private static final String HEADER = "Hugo_Symbol\tEntrez_Gene_Id";
+    private static final int NUM_GENES = 300;
+    private static final int NUM_SAMPLES = 60;
+    private static final double TOLERANCE = 1e-3;
+
+    private File workDir;
+
+    @Before
+    public void setUp() throws IOException {
+
+        workDir = File.createTempFile("zscore_calculator_test", "");
+        workDir.delete();
+        workDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        org.apache.commons.io.FileUtils.deleteQuietly(workDir);
+    }
+
+    @Test
+    public void testNormalizeExpressionLevelsEquivalence() throws Exception {
+
+        // every gene has enough diploid samples and varies, some expression values are missing
+        Random random = new Random(46);
+        StringBuilder cna = new StringBuilder(HEADER);
+        StringBuilder expression = new StringBuilder(HEADER);
+        for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+            cna.append("\t").append(sample(sample));
+        }
+        // expression samples in another order
+        for (int sample = NUM_SAMPLES - 1; sample >= 0; sample--) {
+            expression.append("\t").append(sample(sample));
+        }
+        cna.append("\n");
+        expression.append("\n");
+        for (int gene = 0; gene < NUM_GENES; gene++) {
+            cna.append("GENE").append(gene).append("\t").append(1000 + gene);
+            for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+                String copyNumber = (sample < 12 || random.nextInt(3) == 0) ? "0" : Integer.toString(random.nextInt(5) - 2);
+                cna.append("\t").append(copyNumber);
+            }
+            cna.append("\n");
+            if (gene % 10 == 9) {
+                // not measured
+                continue;
+            }
+            expression.append("GENE").append(gene).append("\t").append(1000 + gene);
+            for (int sample = NUM_SAMPLES - 1; sample >= 0; sample--) {
+                String value = (sample >= 12 && random.nextInt(25) == 0) ? "NA" :
+                    Double.toString(random.nextGaussian() * (1 + gene % 7) + gene % 11);
+                expression.append("\t").append(value);
+            }
+            expression.append("\n");
+        }
+        File cnaFile = write("data_CNA.txt", cna.toString());
+        File expressionFile = write("data_expression_median.txt", expression.toString());
+
+        File expected = new File(workDir, "expected_Zscores.txt");
+        NormalizeExpressionLevels.driver(new String[] { cnaFile.getCanonicalPath(), expressionFile.getCanonicalPath(),
+                                                        expected.getCanonicalPath(),
+                                                        NormalizeExpressionLevels.TCGA_NORMAL_SUFFIX });
+
+        Map<String, Map<String, String>> expectedZScores = parse(readFile(expected));
+        Map<String, Map<String, String>> zScores =
+            parse(compute(new ZScoreCalculator(4), cnaFile, expressionFile));
+        assertEquals(expectedZScores.keySet(), zScores.keySet());
+        assertTrue(zScores.size() > NUM_GENES / 2);
+        for (String gene : expectedZScores.keySet()) {
+            Map<String, String> expectedRow = expectedZScores.get(gene);
+            Map<String, String> row = zScores.get(gene);
+            assertEquals(gene, expectedRow.keySet(), row.keySet());
+            for (String sample : expectedRow.keySet()) {
+                String expectedValue = expectedRow.get(sample);
+                String value = row.get(sample);
+                if (isNumber(expectedValue)) {
+                    assertEquals(gene + " " + sample, Double.parseDouble(expectedValue), Double.parseDouble(value), TOLERANCE);
+                }
+                else {
+                    assertEquals(gene + " " + sample, expectedValue, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDiploidReference() throws Exception {
+
+        File cnaFile = write("data_CNA.txt",
+                             HEADER + "\tS1\tS2\tS3\tS4\tS5\n" +
+                             "TP53\t7157\t0\t0\t0\t-1\t2\n" +
+                             "EGFR\t1956\t0\t0\t1\t1\t1\n" +
+                             "KRAS\t3845\t0\t0\t0\t0\t0\n" +
+                             "PTEN\t5728\t0\t0\t0\t0\t-2\n");
+        // EGFR has 2 diploid samples, KRAS does not vary, MYC has no copy number
+        File expressionFile = write("data_expression.txt",
+                                    HEADER + "\tS1\tS2\tS3\tS4\tS5\tS6-11\n" +
+                                    "TP53\t7157\t1\t2\t3\t5\tNA\t9\n" +
+                                    "EGFR\t1956\t1\t2\t3\t4\t5\t6\n" +
+                                    "KRAS\t3845\t4\t4\t4\t4\t4\t6\n" +
+                                    "PTEN\t5728\t-2\t0\t2\tNA\t2.5\t6\n" +
+                                    "MYC\t4609\t1\t2\t3\t4\t5\t6\n");
+
+        assertEquals(HEADER + "\tS1\tS2\tS3\tS4\tS5\n" +
+                     "TP53\t7157\t-1.0000\t0.0000\t1.0000\t3.0000\tNA\n" +
+                     "PTEN\t5728\t-1.0000\t0.0000\t1.0000\tNA\t1.2500\n",
+                     compute(new ZScoreCalculator(2, 3), cnaFile, expressionFile));
+
+        // without copy number all samples are the reference
+        assertEquals(HEADER + "\tS1\tS2\tS3\tS4\tS5\n" +
+                     "EGFR\t1956\t-1.2649\t-0.6325\t0.0000\t0.6325\t1.2649\n" +
+                     "MYC\t4609\t-1.2649\t-0.6325\t0.0000\t0.6325\t1.2649\n",
+                     compute(new ZScoreCalculator(2, 5), null, expressionFile));
+    }
+
+    @Test
+    public void testCompressedStagingFiles() throws Exception {
+
+        File cnaFile = write("data_CNA.txt",
+                             HEADER + "\tS1\tS2\tS3\n" +
+                             "TP53\t7157\t0\t0\t0\n");
+        File expressionFile = write("data_expression.txt",
+                                    HEADER + "\tS1\tS2\tS3\n" +
+                                    "TP53\t7157\t1\t2\t3\n");
+        String expected = compute(new ZScoreCalculator(1, 3), cnaFile, expressionFile);
+        assertEquals(HEADER + "\tS1\tS2\tS3\nTP53\t7157\t-1.0000\t0.0000\t1.0000\n", expected);
+
+        cnaFile = StagingUtils.compress(cnaFile, 1);
+        expressionFile = StagingUtils.compress(expressionFile, 1);
+        assertEquals(expected, compute(new ZScoreCalculator(1, 3), cnaFile, expressionFile));
+    }
+
+    @Test
+    public void testCopyNumberProfileReused() throws Exception {
+
+        File cnaFile = write("data_CNA.txt", HEADER + "\tS1\nTP53\t7157\t0\n");
+        ZScoreCalculator calculator = new ZScoreCalculator(1);
+        ZScoreCalculator.CopyNumberProfile profile = calculator.getCopyNumberProfile(cnaFile);
+        assertSame(profile, calculator.getCopyNumberProfile(cnaFile));
+
+        write("data_CNA.txt", HEADER + "\tS1\tS2\nTP53\t7157\t0\t1\n");
+        cnaFile.setLastModified(cnaFile.lastModified() + 2000);
+        assertNotSame(profile, calculator.getCopyNumberProfile(cnaFile));
+    }
+
+    @Test
+    public void testAppendFixed() {
+
+        double[] values = { 0, 1, -1, 0.00004, 0.00005, -0.00004, 1.23456, -2.5, 12345.678901, 0.99995 };
+        for (double value : values) {
+            StringBuilder text = new StringBuilder();
+            ZScoreCalculator.appendFixed(text, value);
+            assertEquals(String.format(Locale.US, "%.4f", value), text.toString());
+        }
+    }
+
+    private String compute(ZScoreCalculator calculator, File cnaFile, File expressionFile) throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        calculator.computeZScores(cnaFile, expressionFile, ZScoreCalculator.TCGA_NORMAL_SUFFIX, out);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * gene -> sample -> value, genes are identified by entrez id.
+     */
+    private Map<String, Map<String, String>> parse(String zScores) {
+
+        Map<String, Map<String, String>> toReturn = new HashMap<String, Map<String, String>>();
+        String[] lines = zScores.split("\n");
+        List<String> header = Arrays.asList(lines[0].split("\t", -1));
+        int geneColumn = header.indexOf("Entrez_Gene_Id");
+        for (int lc = 1; lc < lines.length; lc++) {
+            String[] values = lines[lc].split("\t", -1);
+            Map<String, String> row = new HashMap<String, String>();
+            for (int column = 0; column < values.length; column++) {
+                String sample = header.get(column);
+                if (!sample.equals("Hugo_Symbol") && !sample.equals("Entrez_Gene_Id")) {
+                    row.put(sample, values[column]);
+                }
+            }
+            toReturn.put(values[geneColumn], row);
+        }
+        return toReturn;
+    }
+
+    private boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String sample(int index) {
+        return String.format("TCGA-A1-%04d-01", index);
+    }
+
+    private File write(String name, String contents) throws IOException {
+
+        File file = new File(workDir, name);
+        org.apache.commons.io.FileUtils.writeStringToFile(file, contents, "UTF-8");
+        return file;
+    }
+
+    private String readFile(File file) throws IOException {
+        return org.apache.commons.io.FileUtils.readFileToString(file, "UTF-8");
+    }
+}
@@ -17,7 +17,12 @@
 
 package org.mskcc.cbio.liftover;
 
+import org.mskcc.cbio.process.ProcessCommand;
+import org.mskcc.cbio.process.ProcessExecutor;
+import org.mskcc.cbio.process.ProcessResult;
+
 import java.io.*;
+import java.nio.file.Files;
 
 /**
  * Script to convert MAF files with ncbi build hg18 to hg19.
@@ -81,7 +86,9 @@ public class Hg18ToHg19
 	}
 
 	/**
-	 * Driver method for the lift over process.
+	 * Driver method for the lift over process. All intermediate files are
+	 * created within a temporary workspace specific to this invocation,
+	 * so multiple lift over processes can run at the same time.
 	 *
 	 * @param inputMaf          input MAF file (assumed to be build 36 / hg18)
 	 * @param outputMaf         output MAF file with updated coordinates
@@ -95,38 +102,45 @@ public class Hg18ToHg19
 			String liftOverBinary,
 			String chainFile) throws IOException
 	{
-		// extract required information from the MAF file
-		System.out.println("[info] Creating input files for lift over tool...");
-		PreLiftOver.prepareInput(inputMaf, IN_FILE, AUX_FILE);
-
-		// run the liftOver tool for conversion
-		System.out.println("[info] Running liftOver tool...");
+		File workspace = Files.createTempDirectory("liftover").toFile();
 
-		// system call with required arguments
-		// ./liftOver oldfile.txt hg18ToHg19.over.chain newfile.txt unmapped.txt
-		String[] liftOverArgs = {liftOverBinary, IN_FILE, chainFile, MAPPED_FILE, UNMAPPED_FILE};
+		String inFile = new File(workspace, IN_FILE).getAbsolutePath();
+		String auxFile = new File(workspace, AUX_FILE).getAbsolutePath();
+		String mappedFile = new File(workspace, MAPPED_FILE).getAbsolutePath();
+		String unmappedFile = new File(workspace, UNMAPPED_FILE).getAbsolutePath();
 
-		if (liftOver(liftOverArgs) != 0)
+		try
 		{
-			System.out.println("[warning] liftOver process is not terminated successfully");
+			// extract required information from the MAF file
+			System.out.println("[info] Creating input files for lift over tool...");
+			PreLiftOver.prepareInput(inputMaf, inFile, auxFile);
+
+			// run the liftOver tool for conversion
+			System.out.println("[info] Running liftOver tool...");
+
+			// system call with required arguments
+			// ./liftOver oldfile.txt hg18ToHg19.over.chain newfile.txt unmapped.txt
+			String[] liftOverArgs = {liftOverBinary, inFile, chainFile, mappedFile, unmappedFile};
+
+			if (liftOver(liftOverArgs) != 0)
+			{
+				System.out.println("[warning] liftOver process is not terminated successfully");
+			}
+
+			// process files created by liftOver to update old MAF
+			System.out.println("[info] Updating positions and creating the new MAF...");
+
+			return PostLiftOver.updateMaf(inputMaf,
+			                              mappedFile,
+			                              unmappedFile,
+			                              auxFile,
+			                              outputMaf);
+		}
+		finally
+		{
+			// clean intermediate files
+			deleteWorkspace(workspace);
 		}
-
-		// process files created by liftOver to update old MAF
-		System.out.println("[info] Updating positions and creating the new MAF...");
-
-		int updateResult = PostLiftOver.updateMaf(inputMaf,
-		                       MAPPED_FILE,
-		                       UNMAPPED_FILE,
-		                       AUX_FILE,
-		                       outputMaf);
-
-		// clean intermediate files
-		(new File(IN_FILE)).delete();
-		(new File(AUX_FILE)).delete();
-		(new File(MAPPED_FILE)).delete();
-		(new File(UNMAPPED_FILE)).delete();
-
-		return updateResult;
 	}
 
 	/**
@@ -138,41 +152,34 @@ public class Hg18ToHg19
 	 */
 	public static int liftOver(String[] args) throws IOException
 	{
-		Process liftOver = Runtime.getRuntime().exec(args);
+		ProcessCommand command = new ProcessCommand(args);
 
-		InputStream stdin = liftOver.getInputStream();
-		InputStream stderr = liftOver.getErrorStream();
-		InputStreamReader isr = new InputStreamReader(stdin);
-		InputStreamReader esr = new InputStreamReader(stderr);
-		BufferedReader inReader = new BufferedReader(isr);
-		BufferedReader errReader = new BufferedReader(esr);
+		// liftOver's output and error messages go straight to the console
+		command.setOutput(ProcessBuilder.Redirect.INHERIT);
+		command.setError(ProcessBuilder.Redirect.INHERIT);
 
-		// echo liftOver's output messages to stdout
-		String line = null;
-
-		while ((line = inReader.readLine()) != null)
-		{
-			System.out.println(line);
-		}
+		ProcessResult result = ProcessExecutor.getInstance().execute(command);
 
-		// also echo error messages
-		while ((line = errReader.readLine()) != null)
-		{
-			System.out.println(line);
-		}
+		return result.getExitCode();
+	}
 
-		int exitValue = -1;
+	/**
+	 * Deletes the given workspace directory with all its content.
+	 *
+	 * @param workspace     temporary workspace directory
+	 */
+	private static void deleteWorkspace(File workspace)
+	{
+		File[] files = workspace.listFiles();
 
-		// wait for process to complete
-		try
+		if (files != null)
 		{
-			exitValue = liftOver.waitFor();
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
+			for (File file : files)
+			{
+				file.delete();
+			}
 		}
 
-		return exitValue;
+		workspace.delete();
 	}
 }
@@ -0,0 +1,168 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.liftover;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Lifts over multiple MAF files (from hg18 to hg19) in parallel.
+ */
+public class MultiFileLiftOver
+{
+	/**
+	 * Arguments:
+	 *  1) input directory containing (only) MAF files.
+	 *  2) output directory for the new MAF files.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 2)
+		{
+			System.out.println("command line usage: " +
+			                   "MultiFileLiftOver <input_dir> <output_dir> " +
+			                   "[liftover_binary_file] [chain_file] [num_threads]");
+			return;
+		}
+
+		String binary = Hg18ToHg19.DEFAULT_LIFT_OVER;
+		String chain = Hg18ToHg19.DEFAULT_CHAIN_FILE;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+
+		if (args.length > 2)
+		{
+			binary = args[2];
+		}
+
+		if (args.length > 3)
+		{
+			chain = args[3];
+		}
+
+		if (args.length > 4)
+		{
+			numThreads = Integer.parseInt(args[4]);
+		}
+
+		File inputDir = new File(args[0]);
+		File outputDir = new File(args[1]);
+		File[] files = inputDir.listFiles();
+
+		if (files == null)
+		{
+			System.out.println("[error] Invalid input directory: " + args[0]);
+			return;
+		}
+
+		Arrays.sort(files);
+		outputDir.mkdirs();
+
+		List<String> inputs = new ArrayList<String>();
+		List<String> outputs = new ArrayList<String>();
+
+		for (File file : files)
+		{
+			if (file.isFile())
+			{
+				inputs.add(file.getAbsolutePath());
+				outputs.add(new File(outputDir, file.getName()).getAbsolutePath());
+			}
+		}
+
+		List<Integer> results = driver(inputs, outputs, binary, chain, numThreads);
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			if (results.get(i) != 0)
+			{
+				System.out.println("[error] Lift over failed for " + inputs.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Lifts over all given input MAFs by running at most the given number
+	 * of lift over processes at the same time.
+	 *
+	 * @param inputMafs         list of input MAF files
+	 * @param outputMafs        list of output MAF files (same order as inputs)
+	 * @param liftOverBinary    executable (external) liftover binary filename
+	 * @param chainFile         chain file required by the liftover binary
+	 * @param numThreads        maximum number of concurrent lift over processes
+	 * @return                  list of results (same order as inputs),
+	 *                          zero if no error, positive value on error
+	 */
+	public static List<Integer> driver(List<String> inputMafs,
+			List<String> outputMafs,
+			final String liftOverBinary,
+			final String chainFile,
+			int numThreads)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(numThreads, inputMafs.size())));
+
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+		for (int i = 0; i < inputMafs.size(); i++)
+		{
+			final String inputMaf = inputMafs.get(i);
+			final String outputMaf = outputMafs.get(i);
+
+			futures.add(executor.submit(new Callable<Integer>() {
+				public Integer call() throws IOException
+				{
+					return Hg18ToHg19.driver(inputMaf, outputMaf, liftOverBinary, chainFile);
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		List<Integer> results = new ArrayList<Integer>();
+
+		for (Future<Integer> future : futures)
+		{
+			int result;
+
+			try
+			{
+				result = future.get();
+			}
+			catch (InterruptedException e)
+			{
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				result = 2;
+			}
+			catch (ExecutionException e)
+			{
+				System.out.println("[error] IO error while processing the input MAF");
+				e.getCause().printStackTrace();
+				result = 2;
+			}
+
+			results.add(result);
+		}
+
+		return results;
+	}
+}
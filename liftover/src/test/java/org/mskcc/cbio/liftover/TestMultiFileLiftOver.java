@@ -0,0 +1,200 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.liftover;
+
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several lift over processes at the same time with a stub liftOver
+ * script, which maps every position to itself and writes a large amount
+ * of error output. The stub sends that output to a log file of its own,
+ * so that it does not end up in the build log via the inherited stderr.
+ */
+public class TestMultiFileLiftOver extends TestCase
+{
+	private static final int NUM_FILES = 6;
+	private static final int NUM_RECORDS = 50;
+	private static final int NUM_WARNINGS = 2000;
+
+	private File workDir;
+
+	protected void setUp() throws IOException
+	{
+		workDir = File.createTempFile("liftover_test", "");
+		workDir.delete();
+		workDir.mkdirs();
+	}
+
+	protected void tearDown()
+	{
+		this.delete(workDir);
+	}
+
+	public void testConcurrentLiftOver() throws IOException
+	{
+		File binary = this.writeStubLiftOver();
+		List<String> inputs = new ArrayList<String>();
+		List<String> outputs = new ArrayList<String>();
+
+		for (int i = 0; i < NUM_FILES; i++)
+		{
+			File input = new File(workDir, "input_" + i + ".maf");
+			this.writeMaf(input, i);
+
+			inputs.add(input.getAbsolutePath());
+			outputs.add(new File(workDir, "output_" + i + ".maf").getAbsolutePath());
+		}
+
+		List<Integer> results = MultiFileLiftOver.driver(inputs,
+			outputs,
+			binary.getAbsolutePath(),
+			"unused.chain",
+			NUM_FILES);
+
+		assertEquals(NUM_FILES, results.size());
+
+		for (int i = 0; i < NUM_FILES; i++)
+		{
+			assertEquals(Integer.valueOf(0), results.get(i));
+
+			// each output should only contain the records of its own input
+			BufferedReader reader = new BufferedReader(new FileReader(outputs.get(i)));
+			assertTrue(reader.readLine().startsWith("Hugo_Symbol"));
+
+			int count = 0;
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				String[] parts = line.split("\t", -1);
+
+				assertEquals("GENE" + i, parts[0]);
+				assertEquals("37", parts[1]);
+				assertEquals(Long.toString(this.position(i, count)), parts[3]);
+				count++;
+			}
+
+			reader.close();
+
+			assertEquals(NUM_RECORDS, count);
+		}
+
+		// every stub process should have written its full error output
+		File[] logs = workDir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".log");
+			}
+		});
+
+		assertEquals(NUM_FILES, logs.length);
+
+		for (File log : logs)
+		{
+			assertEquals(NUM_WARNINGS, this.countLines(log));
+		}
+
+		// intermediate files should not be created in the working directory
+		assertFalse(new File(Hg18ToHg19.IN_FILE).exists());
+		assertFalse(new File(Hg18ToHg19.MAPPED_FILE).exists());
+	}
+
+	private long position(int file, int row)
+	{
+		return 1000000L * (file + 1) + row * 10;
+	}
+
+	private void writeMaf(File maf, int index) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(new FileWriter(maf));
+
+		writer.write("Hugo_Symbol\tNCBI_Build\tChromosome\tStart_position\tEnd_position\t" +
+		             "Reference_Allele\tTumor_Seq_Allele1\tTumor_Seq_Allele2");
+		writer.newLine();
+
+		for (int i = 0; i < NUM_RECORDS; i++)
+		{
+			long start = this.position(index, i);
+
+			// mix of single base (start == end) and longer mutations
+			long end = (i % 2 == 0) ? start : start + 2;
+
+			writer.write("GENE" + index + "\t36\t" + (index + 1) + "\t" +
+			             start + "\t" + end + "\tA\tA\tC");
+			writer.newLine();
+		}
+
+		writer.close();
+	}
+
+	private File writeStubLiftOver() throws IOException
+	{
+		File script = new File(workDir, "liftOver");
+		BufferedWriter writer = new BufferedWriter(new FileWriter(script));
+
+		// arguments: <oldFile> <chainFile> <newFile> <unMapped>
+		writer.write("#!/bin/sh\n");
+		writer.write("exec 2> \"" + workDir.getAbsolutePath() + "/liftOver_$$.log\"\n");
+		writer.write("i=0\n");
+		writer.write("while [ $i -lt " + NUM_WARNINGS + " ]; do\n");
+		writer.write("  echo \"stub liftOver warning line $i for $1\" >&2\n");
+		writer.write("  i=$((i+1))\n");
+		writer.write("done\n");
+		writer.write("cp \"$1\" \"$3\"\n");
+		writer.write("echo \"#Stub liftOver\" > \"$4\"\n");
+		writer.close();
+
+		script.setExecutable(true);
+
+		return script;
+	}
+
+	private int countLines(File file) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		int count = 0;
+
+		while (reader.readLine() != null)
+		{
+			count++;
+		}
+
+		reader.close();
+
+		return count;
+	}
+
+	private void delete(File file)
+	{
+		File[] files = file.listFiles();
+
+		if (files != null)
+		{
+			for (File child : files)
+			{
+				this.delete(child);
+			}
+		}
+
+		file.delete();
+	}
+}
@@ -0,0 +1,325 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.mutassessor;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Builds the mutation assessor cache by converting MA files (in parallel)
+ * into a single bulk load file, and loading that file into the DB at once.
+ */
+public class BulkCacheLoader
+{
+	private final static Logger logger = Logger.getLogger(BulkCacheLoader.class);
+
+	protected int numThreads;
+	protected int batchSize;
+
+	public BulkCacheLoader()
+	{
+		this(Runtime.getRuntime().availableProcessors(),
+		     CacheBuilder.DEFAULT_BATCH_SIZE);
+	}
+
+	public BulkCacheLoader(int numThreads, int batchSize)
+	{
+		this.numThreads = Math.max(1, numThreads);
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Processes the given input, which is either a single MA file or a
+	 * directory of MA files.
+	 *
+	 * @param input     MA file or directory
+	 * @return          verified number of records added to the DB
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public int buildCache(String input) throws IOException, SQLException
+	{
+		File inFile = new File(input);
+		List<File> files = new ArrayList<File>();
+
+		if (inFile.isDirectory())
+		{
+			File[] list = inFile.listFiles();
+
+			if (list != null)
+			{
+				for (File file : list)
+				{
+					if (!file.isDirectory())
+					{
+						files.add(file);
+					}
+				}
+			}
+		}
+		else
+		{
+			files.add(inFile);
+		}
+
+		return this.load(files);
+	}
+
+	/**
+	 * Converts all given MA files into a bulk load file, loads the bulk
+	 * file into the DB, and verifies the number of records in the DB.
+	 * Records dropped by the bulk load are then inserted one by one.
+	 *
+	 * @param inputFiles    list of MA files
+	 * @return              verified number of records added to the DB
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public int load(List<File> inputFiles) throws IOException, SQLException
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		File bulkFile = File.createTempFile("mutation_assessor_cache", ".txt");
+
+		try
+		{
+			int expected = this.convertAll(inputFiles, bulkFile);
+			int before = dao.countRecords();
+			int loaded = dao.bulkLoad(bulkFile, this.batchSize);
+			int added = dao.countRecords() - before;
+
+			logger.info("Total number of records processed: " + expected);
+			logger.info("Total number of records loaded: " + loaded);
+			logger.info("Total number of records added: " + added);
+
+			if (added != expected)
+			{
+				logger.warn("Number of records added (" + added +
+				            ") does not match the number of records processed (" +
+				            expected + "), inserting missing records one by one");
+
+				int inserted = this.insertMissing(bulkFile);
+				added += inserted;
+
+				logger.info("Total number of records inserted one by one: " + inserted);
+			}
+
+			return added;
+		}
+		finally
+		{
+			bulkFile.delete();
+		}
+	}
+
+	/**
+	 * Inserts the records of the given bulk load file which are not in the DB
+	 * (dropped by the bulk load), one by one and a batch at a time.
+	 *
+	 * @param bulkFile      bulk load file
+	 * @return              number of records inserted
+	 * @throws IOException
+	 * @throws SQLException if a record cannot be inserted
+	 */
+	protected int insertMissing(File bulkFile) throws IOException, SQLException
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		BufferedReader reader = new BufferedReader(new FileReader(bulkFile));
+		List<MutationAssessorRecord> batch = new ArrayList<MutationAssessorRecord>(this.batchSize);
+		int inserted = 0;
+		String line;
+
+		try
+		{
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.length() == 0)
+				{
+					continue;
+				}
+
+				batch.add(dao.parseBulkLoadValues(line));
+
+				if (batch.size() == this.batchSize)
+				{
+					inserted += this.insertMissing(batch);
+					batch.clear();
+				}
+			}
+
+			if (!batch.isEmpty())
+			{
+				inserted += this.insertMissing(batch);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return inserted;
+	}
+
+	private int insertMissing(List<MutationAssessorRecord> batch) throws SQLException
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		List<String> keys = new ArrayList<String>(batch.size());
+
+		for (MutationAssessorRecord record : batch)
+		{
+			keys.add(record.getKey());
+		}
+
+		Map<String, MutationAssessorRecord> existing = dao.getAll(keys);
+		Set<String> added = new HashSet<String>();
+		int inserted = 0;
+
+		for (MutationAssessorRecord record : batch)
+		{
+			if (existing.containsKey(record.getKey()) ||
+			    !added.add(record.getKey().toUpperCase()))
+			{
+				continue;
+			}
+
+			if (dao.put(record) != 1)
+			{
+				throw new SQLException("Failed to add record: " + record.getKey());
+			}
+
+			inserted++;
+		}
+
+		return inserted;
+	}
+
+	/**
+	 * Converts all given MA files in parallel, and concatenates the results
+	 * into the given bulk load file.
+	 *
+	 * @param inputFiles    list of MA files
+	 * @param bulkFile      target bulk load file
+	 * @return              total number of records written
+	 * @throws IOException
+	 */
+	protected int convertAll(List<File> inputFiles, File bulkFile) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.min(this.numThreads, Math.max(1, inputFiles.size())));
+
+		List<File> parts = new ArrayList<File>();
+		List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+
+		for (final File inputFile : inputFiles)
+		{
+			final File part = File.createTempFile(inputFile.getName(), ".part");
+			parts.add(part);
+
+			counts.add(executor.submit(new Callable<Integer>() {
+				public Integer call() throws IOException
+				{
+					// builder keeps the header state, so use one per file
+					CacheBuilder builder = new CacheBuilder();
+					BufferedWriter writer = new BufferedWriter(new FileWriter(part));
+
+					try
+					{
+						return builder.convertFile(inputFile, writer);
+					}
+					finally
+					{
+						writer.close();
+					}
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		int total = 0;
+
+		try
+		{
+			for (Future<Integer> count : counts)
+			{
+				total += count.get();
+			}
+
+			this.concatenate(parts, bulkFile);
+		}
+		catch (InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while converting MA files", e);
+		}
+		catch (ExecutionException e)
+		{
+			executor.shutdownNow();
+			throw new IOException("Failed to convert MA file: " + e.getCause().getMessage(),
+			                      e.getCause());
+		}
+		finally
+		{
+			for (File part : parts)
+			{
+				part.delete();
+			}
+		}
+
+		return total;
+	}
+
+	private void concatenate(List<File> parts, File target) throws IOException
+	{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+		byte[] buffer = new byte[64 * 1024];
+
+		try
+		{
+			for (File part : parts)
+			{
+				InputStream in = new FileInputStream(part);
+				int read;
+
+				try
+				{
+					while ((read = in.read(buffer)) != -1)
+					{
+						out.write(buffer, 0, read);
+					}
+				}
+				finally
+				{
+					in.close();
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -42,11 +42,21 @@ public class CacheBuilder
 	 */
 	protected HashMap<String, Integer> headerIndices;
 
+	/**
+	 * Default number of records in a single extended insert
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+
 	/**
 	 * Optional output SQL script filename
 	 */
 	protected String sqlFilename;
 
+	/**
+	 * Number of records in a single extended insert
+	 */
+	protected int batchSize = DEFAULT_BATCH_SIZE;
+
 	/**
 	 * Default constructor with no sql script option.
 	 */
@@ -123,7 +133,7 @@ public class CacheBuilder
 		BufferedReader reader = new BufferedReader(new FileReader(inputMA));
 		BufferedWriter writer = null;
 
-		int bufferSize = 10000;
+		int bufferSize = this.batchSize;
 		List<String> valueBuffer = null;
 
 		// conditionally init writer
@@ -159,12 +169,9 @@ public class CacheBuilder
 				{
 					// creating an SQL script file, instead of using slower JDBC
 					// (using extended insert method to make insertion even faster)
-					if (valueBuffer.size() < bufferSize)
-					{
-						// if buffer is not full just add values to the buffer
-						valueBuffer.add(dao.getInsertValues(record));
-					}
-					else
+					valueBuffer.add(dao.getInsertValues(record));
+
+					if (valueBuffer.size() >= bufferSize)
 					{
 						// write an extended insert SQL line to the output
 						writer.write(dao.getInsertHead());
@@ -204,6 +211,54 @@ public class CacheBuilder
 		}
 	}
 
+	/**
+	 * Processes a single MA file, and writes a bulk load line
+	 * (see DaoMutAssessorCache.getBulkLoadValues) for each record.
+	 *
+	 * @param inputMA       input MA file to process
+	 * @param writer        writer for the bulk load file
+	 * @return              number of records written
+	 * @throws IOException
+	 */
+	public int convertFile(File inputMA, Writer writer) throws IOException
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		BufferedReader reader = new BufferedReader(new FileReader(inputMA));
+
+		int count = 0;
+
+		// process header line
+		String line = reader.readLine();
+		this.headerIndices = this.buildIndexMap(line);
+
+		// process each data line
+		while ((line = reader.readLine()) != null)
+		{
+			// skip empty lines
+			if (line.trim().length() == 0)
+			{
+				continue;
+			}
+
+			MutationAssessorRecord record = this.parseDataLine(line);
+
+			if (!record.hasNoInfo())
+			{
+				writer.write(dao.getBulkLoadValues(record));
+				writer.write("\n");
+				count++;
+			}
+			else
+			{
+				System.out.println("[warning] no MA information for " + record.getKey());
+			}
+		}
+
+		reader.close();
+
+		return count;
+	}
+
 	/**
 	 * Creates an SQL line for extended insert (insertion of multiple values).
 	 *
@@ -313,17 +368,48 @@ public class CacheBuilder
 	 */
 	protected String generateKey(String mutation)
 	{
-		String[] parts = mutation.split(",");
+		// find the boundaries of the first 5 fields without splitting the string
+		int[] ends = new int[5];
+		int start = 0;
+
+		for (int i = 0; i < ends.length; i++)
+		{
+			int end = mutation.indexOf(',', start);
 
-		String key = null;
+			if (end < 0)
+			{
+				if (i < ends.length - 1)
+				{
+					return null;
+				}
+
+				end = mutation.length();
+			}
+
+			ends[i] = end;
+			start = end + 1;
+		}
+
+		int chrStart = ends[0] + 1;
+		int posStart = ends[1] + 1;
+		int refStart = ends[2] + 1;
+		int tumStart = ends[3] + 1;
 
-		if (parts.length >= 5)
+		// same as split: trailing empty fields do not count
+		if (mutation.substring(tumStart).replace(",", "").length() == 0)
 		{
-			key = parts[1] + "_" + parts[2] + "_" + parts[2] + "_" +
-			      parts[3] + "_" + parts[4];
+			return null;
 		}
 
-		return key;
+		StringBuilder key = new StringBuilder(mutation.length() + ends[2] - ends[1] + 4);
+
+		key.append(mutation, chrStart, ends[1]).append('_');
+		key.append(mutation, posStart, ends[2]).append('_');
+		key.append(mutation, posStart, ends[2]).append('_');
+		key.append(mutation, refStart, ends[3]).append('_');
+		key.append(mutation, tumStart, ends[4]);
+
+		return key.toString();
 	}
 
 	protected Integer getHeaderIndex(String header)
@@ -380,6 +466,16 @@ public class CacheBuilder
 		}
 	}
 
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
 	public void buildCache(String input) throws IOException, SQLException
 	{
 		File inFile = new File(input);
@@ -19,10 +19,20 @@ package org.mskcc.cbio.mutassessor;
 
 import org.mskcc.cbio.dbcache.DatabaseUtil;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for mutation assessor cache table.
@@ -31,6 +41,11 @@ import java.sql.SQLException;
  */
 public class DaoMutAssessorCache
 {
+	public static final String BULK_NULL = "\\N";
+
+	// upper limit for the number of parameters in a single multi-key query
+	private static final int MAX_KEYS_PER_QUERY = 1000;
+
 	private static DaoMutAssessorCache daoMutAssessorCache;
 
 	private DaoMutAssessorCache() {
@@ -72,7 +87,16 @@ public class DaoMutAssessorCache
 
 			pstmt.setString(1, record.getKey());
 			pstmt.setString(2, record.getImpact());
-			pstmt.setFloat(3, record.getImpactScore());
+
+			if (record.getImpactScore() == null)
+			{
+				pstmt.setNull(3, Types.FLOAT);
+			}
+			else
+			{
+				pstmt.setFloat(3, record.getImpactScore());
+			}
+
 			pstmt.setString(4, record.getProteinChange());
 			pstmt.setString(5, record.getStructureLink());
 			pstmt.setString(6, record.getAlignmentLink());
@@ -123,6 +147,263 @@ public class DaoMutAssessorCache
 		}
 	}
 
+	/**
+	 * Retrieves the MutationAssessorRecords corresponding to the given keys
+	 * with a minimum number of queries. Keys without a matching record
+	 * are not included in the returned map.
+	 *
+	 * The returned map is keyed by the given keys, not by the CACHE_KEY of
+	 * the records: the database may match keys case insensitively (MySQL
+	 * collation) just as it does for get(key).
+	 *
+	 * @param keys  keys to search
+	 * @return      map of keys to MutationAssessorRecords
+	 * @throws SQLException
+	 */
+	public Map<String, MutationAssessorRecord> getAll(Collection<String> keys) throws SQLException
+	{
+		Map<String, MutationAssessorRecord> records = new HashMap<String, MutationAssessorRecord>();
+		List<String> chunk = new ArrayList<String>(MAX_KEYS_PER_QUERY);
+
+		for (String key : keys)
+		{
+			if (key == null)
+			{
+				continue;
+			}
+
+			chunk.add(key);
+
+			if (chunk.size() == MAX_KEYS_PER_QUERY)
+			{
+				this.getAll(chunk, records);
+				chunk.clear();
+			}
+		}
+
+		if (!chunk.isEmpty())
+		{
+			this.getAll(chunk, records);
+		}
+
+		return records;
+	}
+
+	private void getAll(List<String> keys,
+			Map<String, MutationAssessorRecord> records) throws SQLException
+	{
+		Connection con = null;
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+
+		StringBuilder sql = new StringBuilder(
+			"SELECT * FROM mutation_assessor_cache WHERE CACHE_KEY IN (");
+
+		for (int i = 0; i < keys.size(); i++)
+		{
+			sql.append(i == 0 ? "?" : ",?");
+		}
+
+		sql.append(")");
+
+		try {
+			con = DatabaseUtil.getDbConnection();
+			pstmt = con.prepareStatement(sql.toString());
+			for (int i = 0; i < keys.size(); i++) {
+				pstmt.setString(i + 1, keys.get(i));
+			}
+			rs = pstmt.executeQuery();
+
+			// requested keys by normalized key
+			Map<String, List<String>> requested = new HashMap<String, List<String>>();
+			for (String key : keys) {
+				List<String> matching = requested.get(this.normalizeKey(key));
+				if (matching == null) {
+					matching = new ArrayList<String>(1);
+					requested.put(this.normalizeKey(key), matching);
+				}
+				matching.add(key);
+			}
+
+			while (rs.next()) {
+				MutationAssessorRecord record = new MutationAssessorRecord(rs.getString("CACHE_KEY"));
+				record.setImpact(rs.getString("PREDICTED_IMPACT"));
+				record.setImpactScore(rs.getFloat("FUNC_IMPACT_SCORE"));
+				record.setProteinChange(rs.getString("PROTEIN_CHANGE"));
+				record.setAlignmentLink(rs.getString("ALIGNMENT_LINK"));
+				record.setStructureLink(rs.getString("STRUCTURE_LINK"));
+
+				List<String> matching = requested.get(this.normalizeKey(record.getKey()));
+				if (matching == null) {
+					continue;
+				}
+				for (String key : matching) {
+					// an exact match wins over a case insensitive one
+					if (key.equals(record.getKey()) || !records.containsKey(key)) {
+						records.put(key, record);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw e;
+		} finally {
+			DatabaseUtil.closeAll(con, pstmt, rs);
+		}
+	}
+
+	/**
+	 * Loads all the records in the given bulk load file (see getBulkLoadValues)
+	 * into the database at once. Uses LOAD DATA for MySQL databases, and
+	 * batched inserts within a single transaction for other databases.
+	 *
+	 * @param bulkFile      tab delimited file of mutation assessor records
+	 * @param batchSize     number of records in a single batch
+	 * @return              number of records successfully added
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public int bulkLoad(File bulkFile, int batchSize) throws SQLException, IOException
+	{
+		Connection con = null;
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+
+		try
+		{
+			con = DatabaseUtil.getDbConnection();
+
+			if (con.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL"))
+			{
+				pstmt = con.prepareStatement("LOAD DATA LOCAL INFILE '" +
+					bulkFile.getAbsolutePath().replace("\\", "\\\\").replace("'", "\\'") +
+					"' INTO TABLE mutation_assessor_cache (`CACHE_KEY`, " +
+					"`PREDICTED_IMPACT`, `FUNC_IMPACT_SCORE`, `PROTEIN_CHANGE`, " +
+					"`STRUCTURE_LINK`, `ALIGNMENT_LINK`)");
+
+				return pstmt.executeUpdate();
+			}
+
+			boolean autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+
+			pstmt = con.prepareStatement
+					("INSERT INTO mutation_assessor_cache (`CACHE_KEY`, `PREDICTED_IMPACT`," +
+					 " `FUNC_IMPACT_SCORE`, `PROTEIN_CHANGE`," +
+					 " `STRUCTURE_LINK`, `ALIGNMENT_LINK`) VALUES (?,?,?,?,?,?)");
+
+			BufferedReader reader = new BufferedReader(new FileReader(bulkFile));
+			int rows = 0;
+			int batch = 0;
+			String line;
+
+			try
+			{
+				while ((line = reader.readLine()) != null)
+				{
+					if (line.length() == 0)
+					{
+						continue;
+					}
+
+					String[] parts = line.split("\t", -1);
+
+					pstmt.setString(1, parts[0]);
+					pstmt.setString(2, parts[1]);
+
+					if (parts[2].equals(BULK_NULL))
+					{
+						pstmt.setNull(3, Types.FLOAT);
+					}
+					else
+					{
+						pstmt.setFloat(3, Float.parseFloat(parts[2]));
+					}
+
+					pstmt.setString(4, parts[3]);
+					pstmt.setString(5, parts[4]);
+					pstmt.setString(6, parts[5]);
+					pstmt.addBatch();
+					batch++;
+
+					if (batch >= batchSize)
+					{
+						rows += this.sum(pstmt.executeBatch());
+						batch = 0;
+					}
+				}
+
+				// make sure the last (partial) batch is also executed
+				if (batch > 0)
+				{
+					rows += this.sum(pstmt.executeBatch());
+				}
+
+				con.commit();
+			}
+			catch (SQLException e)
+			{
+				con.rollback();
+				throw e;
+			}
+			finally
+			{
+				reader.close();
+				con.setAutoCommit(autoCommit);
+			}
+
+			return rows;
+		} catch (SQLException e) {
+			throw e;
+		} finally {
+			DatabaseUtil.closeAll(con, pstmt, rs);
+		}
+	}
+
+	/**
+	 * Returns the total number of records in the cache table.
+	 *
+	 * @return  number of records
+	 * @throws SQLException
+	 */
+	public int countRecords() throws SQLException
+	{
+		Connection con = null;
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try {
+			con = DatabaseUtil.getDbConnection();
+			pstmt = con.prepareStatement("SELECT COUNT(*) FROM mutation_assessor_cache");
+			rs = pstmt.executeQuery();
+			if (rs.next()) {
+				return rs.getInt(1);
+			} else {
+				return 0;
+			}
+		} catch (SQLException e) {
+			throw e;
+		} finally {
+			DatabaseUtil.closeAll(con, pstmt, rs);
+		}
+	}
+
+	private String normalizeKey(String key)
+	{
+		return key.toUpperCase();
+	}
+
+	private int sum(int[] counts)
+	{
+		int total = 0;
+
+		for (int count : counts)
+		{
+			// driver may not report the exact count for each statement
+			total += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : count;
+		}
+
+		return total;
+	}
+
 	public void deleteAllRecords() throws SQLException {
 		Connection con = null;
 		PreparedStatement pstmt = null;
@@ -138,6 +419,55 @@ public class DaoMutAssessorCache
 		}
 	}
 
+	/**
+	 * Generates a single tab delimited line of the given record for
+	 * bulk loading (null values are represented by \N).
+	 *
+	 * @param record    mutation assessor record
+	 * @return          tab delimited line (without the line separator)
+	 */
+	public String getBulkLoadValues(MutationAssessorRecord record)
+	{
+		String impactScore;
+
+		if(record.getImpactScore() == null)
+		{
+			impactScore = BULK_NULL;
+		}
+		else
+		{
+			impactScore = record.getImpactScore().toString();
+		}
+
+		return record.getKey() + "\t" +
+			record.getImpact() + "\t" +
+			impactScore + "\t" +
+			record.getProteinChange() + "\t" +
+			record.getStructureLink() + "\t" +
+			record.getAlignmentLink();
+	}
+
+	/**
+	 * Parses a single line of a bulk load file (see getBulkLoadValues)
+	 * into a record.
+	 *
+	 * @param line      tab delimited line (without the line separator)
+	 * @return          mutation assessor record
+	 */
+	public MutationAssessorRecord parseBulkLoadValues(String line)
+	{
+		String[] parts = line.split("\t", -1);
+		MutationAssessorRecord record = new MutationAssessorRecord(parts[0]);
+
+		record.setImpact(parts[1]);
+		record.setImpactScore(parts[2].equals(BULK_NULL) ? null : Float.parseFloat(parts[2]));
+		record.setProteinChange(parts[3]);
+		record.setStructureLink(parts[4]);
+		record.setAlignmentLink(parts[5]);
+
+		return record;
+	}
+
 	/**
 	 * Generates and insert SQL query string for single element insertion.
 	 *
@@ -23,7 +23,9 @@ import java.io.*;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Adds or replaces Mutation Assessor columns to MAFs.
@@ -36,6 +38,11 @@ public class DataImporter
 	protected boolean sortColumns;
 	protected boolean addMissingCols;
 
+	// number of data lines to resolve at once
+	protected int blockSize;
+
+	public static final int DEFAULT_BLOCK_SIZE = 1000;
+
 	/**
 	 * Default constructor with the default mutation assessor service.
 	 */
@@ -47,6 +54,7 @@ public class DataImporter
 		// init default settings
 		this.sortColumns = false;
 		this.addMissingCols = false;
+		this.blockSize = DEFAULT_BLOCK_SIZE;
 	}
 
 	/**
@@ -96,7 +104,11 @@ public class DataImporter
 
 		int numRecordsProcessed = 0;
 
-		// process each data line
+		List<String> lines = new ArrayList<String>(this.blockSize);
+		List<String> keys = new ArrayList<String>(this.blockSize);
+
+		// process data lines block by block,
+		// to resolve all keys in a block at once
 		while ((line = reader.readLine()) != null)
 		{
 			// skip empty lines
@@ -107,29 +119,84 @@ public class DataImporter
 
 			//line = util.adjustDataLine(line);
 			MafRecord mafRecord = util.parseRecord(line);
-			String key = MafUtil.generateKey(mafRecord);
 
-			MutationAssessorRecord maRecord = this.maService.getMaRecord(key);
+			lines.add(line);
+			keys.add(MafUtil.generateKey(mafRecord));
+
+			if (lines.size() >= this.blockSize)
+			{
+				numRecordsProcessed += this.processBlock(lines, keys, processor, writer);
+			}
+		}
+
+		// process the remaining lines
+		numRecordsProcessed += this.processBlock(lines, keys, processor, writer);
+
+		System.out.println("Total number of records processed: " +
+		                   numRecordsProcessed);
+
+		reader.close();
+		writer.close();
+	}
+
+	/**
+	 * Resolves mutation assessor records for all keys in the given block,
+	 * and writes the updated data lines to the output in the original order.
+	 * Clears the given lists after processing.
+	 *
+	 * @param lines     data lines
+	 * @param keys      keys corresponding to the data lines
+	 * @param processor MAF processor
+	 * @param writer    writer for the output MAF
+	 * @return          number of lines processed
+	 * @throws IOException
+	 * @throws MutationAssessorServiceException
+	 */
+	protected int processBlock(List<String> lines,
+			List<String> keys,
+			MaMafProcessor processor,
+			Writer writer) throws IOException, MutationAssessorServiceException
+	{
+		int count = lines.size();
+
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		Map<String, MutationAssessorRecord> maRecords =
+			this.maService.getMaRecords(new HashSet<String>(keys));
+
+		for (int i = 0; i < count; i++)
+		{
+			MutationAssessorRecord maRecord = maRecords.get(keys.get(i));
 
 			// get the data and update/add new mutation assessor columns
-			List<String> data = processor.newDataList(line);
+			List<String> data = processor.newDataList(lines.get(i));
 			processor.updateMaData(data, maRecord);
 
 			// write data to the output file
 			FileIOUtil.writeLine(writer, data);
-
-			numRecordsProcessed++;
 		}
 
-		System.out.println("Total number of records processed: " +
-		                   numRecordsProcessed);
+		lines.clear();
+		keys.clear();
 
-		reader.close();
-		writer.close();
+		return count;
 	}
 
 	// Getters and Setters
 
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	public void setBlockSize(int blockSize)
+	{
+		this.blockSize = Math.max(1, blockSize);
+	}
+
 	public boolean isSortColumns()
 	{
 		return sortColumns;
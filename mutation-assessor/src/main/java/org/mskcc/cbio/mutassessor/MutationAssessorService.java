@@ -18,6 +18,8 @@
 package org.mskcc.cbio.mutassessor;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Default Mutation Assessor Service based on a DB cache.
@@ -46,4 +48,26 @@ public class MutationAssessorService
 			throw new MutationAssessorServiceException(e.getMessage());
 		}
 	}
+
+	/**
+	 * Retrieves the records for all given keys at once.
+	 * Keys without a matching record are not included in the returned map.
+	 *
+	 * @param keys  keys to search
+	 * @return      map of keys to mutation assessor records
+	 * @throws MutationAssessorServiceException
+	 */
+	public Map<String, MutationAssessorRecord> getMaRecords(Collection<String> keys)
+			throws MutationAssessorServiceException
+	{
+		try
+		{
+			return this.cache.getAll(keys);
+		}
+		catch (SQLException e)
+		{
+			e.printStackTrace();
+			throw new MutationAssessorServiceException(e.getMessage());
+		}
+	}
 }
@@ -35,6 +35,7 @@ public class MutationAssessorTool
 		String output = null;
 
 		boolean db = false;
+		boolean bulk = false;
 		boolean sort = false;
 		boolean addMissing = false;
 
@@ -50,6 +51,11 @@ public class MutationAssessorTool
 				{
 					db = true;
 				}
+				else if (args[i].equalsIgnoreCase("-bulk"))
+				{
+					db = true;
+					bulk = true;
+				}
 				else if (args[i].equalsIgnoreCase("-sort"))
 				{
 					sort = true;
@@ -90,6 +96,7 @@ public class MutationAssessorTool
 		driver(input,
 				output,
 				db,
+				bulk,
 				sort,
 				addMissing);
 
@@ -101,6 +108,16 @@ public class MutationAssessorTool
 			boolean db,
 			boolean sort,
 			boolean addMissing)
+	{
+		driver(input, output, db, false, sort, addMissing);
+	}
+
+	public static void driver(String input,
+			String output,
+			boolean db,
+			boolean bulk,
+			boolean sort,
+			boolean addMissing)
 	{
 		logger.info("MutationAssessor invoked for " +input);
 
@@ -108,7 +125,13 @@ public class MutationAssessorTool
 		{
 			// if the switch -db is provided,
 			// then process MA files and insert into DB
-			if (db)
+			if (db && bulk)
+			{
+				// convert all MA files in parallel and load into DB at once
+				BulkCacheLoader loader = new BulkCacheLoader();
+				loader.buildCache(input);
+			}
+			else if (db)
 			{
 				CacheBuilder builder;
 
@@ -17,7 +17,9 @@
 
 package org.mskcc.cbio.mutassessor;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Mutation Assessor service built on a hash map for testing purposes.
@@ -36,6 +38,24 @@ public class HashMaService extends MutationAssessorService
 		return this.cache.get(key);
 	}
 
+	public Map<String, MutationAssessorRecord> getMaRecords(Collection<String> keys)
+			throws MutationAssessorServiceException
+	{
+		Map<String, MutationAssessorRecord> records = new HashMap<String, MutationAssessorRecord>();
+
+		for (String key : keys)
+		{
+			MutationAssessorRecord record = this.cache.get(key);
+
+			if (record != null)
+			{
+				records.put(key, record);
+			}
+		}
+
+		return records;
+	}
+
 	protected HashMap<String, MutationAssessorRecord> initCache()
 	{
 		HashMap<String, MutationAssessorRecord> cache =
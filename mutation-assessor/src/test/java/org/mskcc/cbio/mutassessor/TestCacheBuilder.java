@@ -0,0 +1,301 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.mutassessor;
+
+import junit.framework.TestCase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.mskcc.cbio.dbcache.DatabaseUtil;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for building the Mutation Assessor cache on an embedded database.
+ * Input sizes straddle the batch boundary to make sure no record is lost.
+ */
+public class TestCacheBuilder extends TestCase
+{
+	private static final int BATCH_SIZE = 100;
+
+	private BasicDataSource dataSource;
+	private File workDir;
+
+	protected void setUp() throws Exception
+	{
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.h2.Driver");
+		dataSource.setUrl("jdbc:h2:mem:ma_cache;MODE=MySQL;DB_CLOSE_DELAY=-1");
+		DatabaseUtil.setDataSource(dataSource);
+
+		this.execute("DROP TABLE IF EXISTS mutation_assessor_cache");
+		this.execute("CREATE TABLE mutation_assessor_cache (" +
+		             "CACHE_KEY varchar(255) NOT NULL, " +
+		             "PREDICTED_IMPACT varchar(10), " +
+		             "FUNC_IMPACT_SCORE float, " +
+		             "PROTEIN_CHANGE varchar(50), " +
+		             "STRUCTURE_LINK varchar(80), " +
+		             "ALIGNMENT_LINK varchar(80), " +
+		             "UNIQUE (CACHE_KEY))");
+
+		workDir = File.createTempFile("ma_cache", "");
+		workDir.delete();
+		workDir.mkdirs();
+	}
+
+	protected void tearDown() throws Exception
+	{
+		this.execute("DROP TABLE IF EXISTS mutation_assessor_cache");
+		dataSource.close();
+
+		for (File file : workDir.listFiles())
+		{
+			file.delete();
+		}
+
+		workDir.delete();
+	}
+
+	public void testSqlScriptBatchBoundary() throws Exception
+	{
+		int[] sizes = {BATCH_SIZE - 1, BATCH_SIZE, BATCH_SIZE + 1, 2 * BATCH_SIZE + 1};
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+
+		for (int size : sizes)
+		{
+			File input = this.writeMaFile("ma_" + size + ".txt", 0, size);
+			File script = new File(workDir, "ma_" + size + ".sql");
+
+			CacheBuilder builder = new CacheBuilder(script.getAbsolutePath());
+			builder.setBatchSize(BATCH_SIZE);
+			builder.processFile(input);
+
+			dao.deleteAllRecords();
+			this.runScript(script);
+
+			assertEquals(size, dao.countRecords());
+		}
+	}
+
+	public void testJdbcBatchBoundary() throws Exception
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		File input = this.writeMaFile("ma_jdbc.txt", 0, BATCH_SIZE + 1);
+
+		new CacheBuilder().processFile(input);
+
+		assertEquals(BATCH_SIZE + 1, dao.countRecords());
+	}
+
+	public void testBulkLoadBatchBoundary() throws Exception
+	{
+		int[] sizes = {BATCH_SIZE - 1, BATCH_SIZE, BATCH_SIZE + 1, 2 * BATCH_SIZE + 1};
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+
+		for (int size : sizes)
+		{
+			dao.deleteAllRecords();
+
+			File input = this.writeMaFile("bulk_" + size + ".txt", 0, size);
+			List<File> inputs = new ArrayList<File>();
+			inputs.add(input);
+
+			int added = new BulkCacheLoader(1, BATCH_SIZE).load(inputs);
+
+			assertEquals(size, added);
+			assertEquals(size, dao.countRecords());
+		}
+	}
+
+	public void testParallelBulkLoad() throws Exception
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		List<File> inputs = new ArrayList<File>();
+		int total = 0;
+		int offset = 0;
+
+		for (int size : new int[] {BATCH_SIZE - 1, BATCH_SIZE, BATCH_SIZE + 1, 3})
+		{
+			inputs.add(this.writeMaFile("parallel_" + size + ".txt", offset, size));
+			offset += size;
+			total += size;
+		}
+
+		int added = new BulkCacheLoader(4, BATCH_SIZE).load(inputs);
+
+		assertEquals(total, added);
+		assertEquals(total, dao.countRecords());
+
+		// null scores should be loaded as nulls
+		MutationAssessorRecord record = dao.get("1_1_1_A_C");
+		assertNotNull(record);
+		assertEquals("medium", record.getImpact());
+		assertNull(record.getImpactScore());
+		assertEquals(0.02F, dao.get("1_2_2_A_C").getImpactScore(), 0.0001F);
+	}
+
+	public void testInsertMissing() throws Exception
+	{
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		BulkCacheLoader loader = new BulkCacheLoader(1, BATCH_SIZE);
+		File bulkFile = new File(workDir, "missing.txt");
+		int size = 2 * BATCH_SIZE + 1;
+
+		loader.convertAll(Arrays.asList(this.writeMaFile("missing_ma.txt", 0, size)), bulkFile);
+
+		// every other record has been dropped
+		BufferedReader reader = new BufferedReader(new FileReader(bulkFile));
+		String line;
+		int lines = 0;
+
+		while ((line = reader.readLine()) != null)
+		{
+			if (lines++ % 2 == 0)
+			{
+				dao.put(dao.parseBulkLoadValues(line));
+			}
+		}
+
+		reader.close();
+
+		assertEquals(size / 2, loader.insertMissing(bulkFile));
+		assertEquals(size, dao.countRecords());
+		assertNull(dao.get("1_1_1_A_C").getImpactScore());
+
+		// nothing left to insert
+		assertEquals(0, loader.insertMissing(bulkFile));
+	}
+
+	public void testGetAllMixedCaseKeys() throws Exception
+	{
+		// case insensitive keys, like the default MySQL collation
+		this.execute("DROP TABLE IF EXISTS mutation_assessor_cache");
+		this.execute("CREATE TABLE mutation_assessor_cache (" +
+		             "CACHE_KEY varchar_ignorecase(255) NOT NULL, " +
+		             "PREDICTED_IMPACT varchar(10), " +
+		             "FUNC_IMPACT_SCORE float, " +
+		             "PROTEIN_CHANGE varchar(50), " +
+		             "STRUCTURE_LINK varchar(80), " +
+		             "ALIGNMENT_LINK varchar(80), " +
+		             "UNIQUE (CACHE_KEY))");
+
+		DaoMutAssessorCache dao = DaoMutAssessorCache.getInstance();
+		MutationAssessorService service = new MutationAssessorService();
+
+		for (String key : new String[] {"1_100_100_A_C", "1_200_200_g_t", "1_300_300_A_c"})
+		{
+			MutationAssessorRecord record = new MutationAssessorRecord(key);
+			record.setImpact("medium");
+			record.setImpactScore(1.5F);
+			record.setProteinChange("A1C");
+			record.setStructureLink("NA");
+			record.setAlignmentLink("NA");
+			dao.put(record);
+		}
+
+		List<String> keys = new ArrayList<String>();
+		keys.add("1_100_100_A_C");
+		keys.add("1_100_100_a_c");
+		keys.add("1_200_200_G_T");
+		keys.add("1_300_300_A_c");
+		keys.add("1_300_300_a_C");
+		keys.add("1_400_400_A_C");
+
+		Map<String, MutationAssessorRecord> records = service.getMaRecords(keys);
+
+		for (String key : keys)
+		{
+			MutationAssessorRecord expected = service.getMaRecord(key);
+
+			if (expected == null)
+			{
+				assertFalse(key, records.containsKey(key));
+			}
+			else
+			{
+				assertNotNull(key, records.get(key));
+				assertEquals(key, expected.getKey(), records.get(key).getKey());
+			}
+		}
+
+		assertEquals(5, records.size());
+	}
+
+	/**
+	 * Writes an MA file with the given number of records. Every third record
+	 * has no impact score.
+	 */
+	private File writeMaFile(String name, int offset, int numRecords) throws IOException
+	{
+		File file = new File(workDir, name);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		writer.write("Mutation\tFunc. Impact\tFI score\tUniprot variant\tMSA\tPDB");
+		writer.newLine();
+
+		for (int i = offset; i < offset + numRecords; i++)
+		{
+			String score = (i % 3 == 1) ? "" : Float.toString(i / 100F);
+
+			writer.write("hg19,1," + i + ",A,C\tmedium\t" + score + "\tA" + i + "C\t" +
+			             "getma.org/?var=A" + i + "C\tNA");
+			writer.newLine();
+		}
+
+		writer.close();
+
+		return file;
+	}
+
+	private void runScript(File script) throws IOException, SQLException
+	{
+		BufferedReader reader = new BufferedReader(new FileReader(script));
+		String line;
+
+		while ((line = reader.readLine()) != null)
+		{
+			if (line.trim().length() > 0)
+			{
+				this.execute(line.substring(0, line.lastIndexOf(';')));
+			}
+		}
+
+		reader.close();
+	}
+
+	private void execute(String sql) throws SQLException
+	{
+		Connection con = dataSource.getConnection();
+		Statement stmt = con.createStatement();
+
+		try
+		{
+			stmt.execute(sql);
+		}
+		finally
+		{
+			stmt.close();
+			con.close();
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/** Copyright (c) 2015 Memorial Sloan-Kettering Cancer Center.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY, WITHOUT EVEN THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY OR FITNESS FOR A PARTICULAR PURPOSE.  The software and
+ * documentation provided hereunder is on an "as is" basis, and
+ * Memorial Sloan-Kettering Cancer Center
+ * has no obligations to provide maintenance, support,
+ * updates, enhancements or modifications.  In no event shall
+ * Memorial Sloan-Kettering Cancer Center
+ * be liable to any party for direct, indirect, special,
+ * incidental or consequential damages, including lost profits, arising
+ * out of the use of this software and its documentation, even if
+ * Memorial Sloan-Kettering Cancer Center
+ * has been advised of the possibility of such damage.
+*/
+
+package org.mskcc.cbio.mutassessor;
+
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Compares per line and per block Mutation Assessor enrichment of a large
+ * synthetic MAF by counting the lookup calls made to the hash map service.
+ * The timing of both modes is covered by MaEnrichmentBenchmark in the
+ * benchmark module.
+ */
+public class TestMaBlockLookup extends TestCase
+{
+	private static final int NUM_RECORDS = 2000;
+
+	public void testBlockVsSingleLookup() throws Exception
+	{
+		File input = File.createTempFile("ma_lookup", ".txt");
+		File single = File.createTempFile("ma_lookup", ".single.txt");
+		File block = File.createTempFile("ma_lookup", ".block.txt");
+
+		try
+		{
+			this.writeMaf(input, NUM_RECORDS);
+
+			int singleLookups = this.addMaInfo(input, single, 1);
+			int blockLookups = this.addMaInfo(input, block, DataImporter.DEFAULT_BLOCK_SIZE);
+
+			// one lookup per line vs. one lookup per block
+			assertEquals(NUM_RECORDS, singleLookups);
+			assertEquals((NUM_RECORDS + DataImporter.DEFAULT_BLOCK_SIZE - 1) /
+			             DataImporter.DEFAULT_BLOCK_SIZE, blockLookups);
+
+			assertTrue(org.apache.commons.io.FileUtils.contentEquals(single, block));
+		}
+		finally
+		{
+			input.delete();
+			single.delete();
+			block.delete();
+		}
+	}
+
+	private int addMaInfo(File input, File output, int blockSize) throws Exception
+	{
+		CountingMaService service = new CountingMaService();
+		DataImporter importer = new DataImporter(service);
+		importer.setBlockSize(blockSize);
+
+		importer.addMutAssessorInfo(input, output);
+
+		return service.getLookups();
+	}
+
+	private void writeMaf(File maf, int numRecords) throws IOException
+	{
+		String[] rows = {
+			"37\t11\t56258437\t56258437\tMissense_Mutation\tT\tT\tC\tcustom_data",
+			"37\t3\t41266137\t41266137\tNonsense_Mutation\tC\tC\tT\tcustom_data",
+			"37\t10\t100015355\t100015355\tNonsense_Mutation\tC\tC\tT\tcustom_data",
+			"37\t1\t3411011\t3411011\tMissense_Mutation\tG\tG\tA\tcustom_data"
+		};
+
+		BufferedWriter writer = new BufferedWriter(new FileWriter(maf));
+
+		writer.write("NCBI_Build\tChromosome\tStart_position\tEnd_position\t" +
+		             "Variant_Classification\tReference_Allele\tTumor_Seq_Allele1\t" +
+		             "Tumor_Seq_Allele2\tCustom");
+		writer.newLine();
+
+		for (int i = 0; i < numRecords; i++)
+		{
+			writer.write(rows[i % rows.length]);
+			writer.newLine();
+		}
+
+		writer.close();
+	}
+
+	/**
+	 * Hash map service which counts the lookup calls.
+	 */
+	private class CountingMaService extends HashMaService
+	{
+		private int lookups = 0;
+
+		public MutationAssessorRecord getMaRecord(String key) throws MutationAssessorServiceException
+		{
+			this.lookups++;
+			return super.getMaRecord(key);
+		}
+
+		public Map<String, MutationAssessorRecord> getMaRecords(Collection<String> keys)
+				throws MutationAssessorServiceException
+		{
+			this.lookups++;
+			return super.getMaRecords(keys);
+		}
+
+		public int getLookups()
+		{
+			return this.lookups;
+		}
+	}
+}
@@ -26,6 +26,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Test class for the Mutation Assessor tool.
@@ -231,15 +233,67 @@ public class TestMutationAssessor extends TestCase
 
 	}
 
+	/**
+	 * Tests that resolving keys block by block produces exactly the same
+	 * output as resolving one key per line.
+	 */
+	public void testBlockProcessing() throws IOException
+	{
+		String[] inputs = {"with_ma_columns.txt",
+			"with_ma_cols_shuffled.txt",
+			"without_ma_columns.txt",
+			"without_ma_cols_shuffled.txt"};
+
+		for (String name : inputs)
+		{
+			// TODO replace with getResourceStream()
+			File input = new File("target/test-classes/" + name);
+			File single = new File("target/test-classes/" + name + ".single.out");
+			File block = new File("target/test-classes/" + name + ".block.out");
+
+			// one key per block vs. several keys per block
+			this.addMaInfo(input, single, true, true, 1);
+			this.addMaInfo(input, block, true, true, 2);
+
+			assertEquals(this.readLines(single), this.readLines(block));
+		}
+	}
+
+	private List<String> readLines(File file) throws IOException
+	{
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+
+		while ((line = reader.readLine()) != null)
+		{
+			lines.add(line);
+		}
+
+		reader.close();
+
+		return lines;
+	}
+
 	private void addMaInfo(File input,
 			File output,
 			boolean sort,
 			boolean addMissing)
+	{
+		this.addMaInfo(input, output, sort, addMissing, DataImporter.DEFAULT_BLOCK_SIZE);
+	}
+
+	private void addMaInfo(File input,
+			File output,
+			boolean sort,
+			boolean addMissing,
+			int blockSize)
 	{
 		MutationAssessorService maService = new HashMaService();
 		DataImporter importer = new DataImporter(maService);
 		importer.setSortColumns(sort);
 		importer.setAddMissingCols(addMissing);
+		importer.setBlockSize(blockSize);
 
 		try
 		{